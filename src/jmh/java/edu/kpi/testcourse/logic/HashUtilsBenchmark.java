@@ -0,0 +1,65 @@
+package edu.kpi.testcourse.logic;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashes per second of one {@link HashUtils} shared by all threads, as {@link Logic} shares it.
+ * The throughput with all the processors ({@code Threads.MAX}) should be about the number of
+ * processors times the single thread one; run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class HashUtilsBenchmark {
+  private static final String PASSWORD = "correct horse battery staple";
+
+  private HashUtils hashUtils;
+  private String storedPassword;
+
+  /**
+   * Hashes the password to validate.
+   */
+  @Setup
+  public void setUp() {
+    hashUtils = new HashUtils();
+    storedPassword = hashUtils.generateHash(PASSWORD);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String generateHashOneThread() {
+    return hashUtils.generateHash(PASSWORD);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String generateHashAllThreads() {
+    return hashUtils.generateHash(PASSWORD);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public boolean validatePasswordOneThread() {
+    return hashUtils.validatePassword(PASSWORD, storedPassword);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public boolean validatePasswordAllThreads() {
+    return hashUtils.validatePassword(PASSWORD, storedPassword);
+  }
+}
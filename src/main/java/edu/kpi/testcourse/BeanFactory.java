@@ -1,16 +1,37 @@
 package edu.kpi.testcourse;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.kpi.testcourse.logic.AliasGenerator;
+import edu.kpi.testcourse.logic.AliasImporter;
+import edu.kpi.testcourse.logic.AliasPool;
+import edu.kpi.testcourse.logic.ClickCounter;
+import edu.kpi.testcourse.logic.ClickRollups;
+import edu.kpi.testcourse.logic.HashUtils;
+import edu.kpi.testcourse.logic.HashingExecutor;
 import edu.kpi.testcourse.logic.Logic;
+import edu.kpi.testcourse.logic.RandomGenetaror;
+import edu.kpi.testcourse.logic.SequenceAliasGenerator;
 import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.logic.UrlShortenerConfig.AliasGeneratorSettings;
 import edu.kpi.testcourse.serialization.JsonTool;
 import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import edu.kpi.testcourse.storage.CachingUrlRepository;
+import edu.kpi.testcourse.storage.ClickRepository;
+import edu.kpi.testcourse.storage.ClickRepositoryFakeImpl;
+import edu.kpi.testcourse.storage.ExpiringUrlRepository;
+import edu.kpi.testcourse.storage.FilteredUrlRepository;
+import edu.kpi.testcourse.storage.IdBlockRepository;
+import edu.kpi.testcourse.storage.IdBlockRepositoryFakeImpl;
 import edu.kpi.testcourse.storage.UrlRepository;
 import edu.kpi.testcourse.storage.UrlRepositoryFakeImpl;
 import edu.kpi.testcourse.storage.UserRepository;
 import edu.kpi.testcourse.storage.UserRepositoryFakeImpl;
+import io.micronaut.context.annotation.Bean;
 import io.micronaut.context.annotation.Factory;
+import io.micronaut.scheduling.TaskExecutors;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 /**
@@ -21,8 +42,18 @@ public class BeanFactory {
   private final String baseUrl = "http://localhost:8080";
 
   @Singleton
-  UrlRepository createUrlRepository() {
-    return new UrlRepositoryFakeImpl();
+  @Bean(preDestroy = "close")
+  UrlRepository createUrlRepository(
+      UrlShortenerConfig appConfig, ClickCounter clickCounter, ClickRollups clickRollups
+  ) {
+    UrlRepository urls = new FilteredUrlRepository(new UrlRepositoryFakeImpl());
+    if (appConfig.redirectCacheSize() > 0) {
+      urls = new CachingUrlRepository(urls, appConfig.redirectCacheSize());
+    }
+    return new ExpiringUrlRepository(urls, alias -> {
+      clickCounter.removeClicks(alias);
+      clickRollups.remove(alias);
+    });
   }
 
   @Singleton
@@ -31,8 +62,62 @@ public class BeanFactory {
   }
 
   @Singleton
-  Logic createLogic(UserRepository users, UrlRepository urls) {
-    return new Logic(users, urls);
+  IdBlockRepository createIdBlockRepository() {
+    return new IdBlockRepositoryFakeImpl();
+  }
+
+  @Singleton
+  ClickRepository createClickRepository() {
+    return new ClickRepositoryFakeImpl();
+  }
+
+  @Singleton
+  @Bean(preDestroy = "close")
+  ClickCounter createClickCounter(ClickRepository clicks, UrlShortenerConfig appConfig) {
+    return new ClickCounter(clicks, appConfig.clickCounter());
+  }
+
+  @Singleton
+  ClickRollups createClickRollups(UrlShortenerConfig appConfig) {
+    return new ClickRollups(appConfig.clickCounter());
+  }
+
+  @Singleton
+  @Bean(preDestroy = "close")
+  HashingExecutor createHashingExecutor(UrlShortenerConfig appConfig) {
+    return new HashingExecutor(appConfig.hashing());
+  }
+
+  @Singleton
+  @Bean(preDestroy = "close")
+  AliasGenerator createAliasGenerator(
+      UrlShortenerConfig appConfig, IdBlockRepository idBlocks, UrlRepository urls
+  ) {
+    AliasGeneratorSettings settings = appConfig.aliasGenerator();
+    AliasGenerator generator = switch (settings.mode()) {
+      case RANDOM -> new RandomGenetaror();
+      case SEQUENCE -> new SequenceAliasGenerator(idBlocks, settings);
+    };
+    return settings.poolCapacity() > 0
+        ? new AliasPool(generator, urls, settings.poolCapacity())
+        : generator;
+  }
+
+  @Singleton
+  Logic createLogic(
+      UserRepository users, UrlRepository urls, AliasGenerator aliasGenerator,
+      UrlShortenerConfig appConfig, @Named(TaskExecutors.IO) ExecutorService ioExecutor,
+      HashingExecutor hashingExecutor
+  ) {
+    return new Logic(
+        users, urls, aliasGenerator, appConfig.deduplicateUrls(),
+        HashUtils.calibrated(appConfig.hashing().targetHashMillis()), ioExecutor,
+        hashingExecutor);
+  }
+
+  @Singleton
+  AliasImporter createAliasImporter(UrlRepository urls, JsonTool json) {
+    return new AliasImporter(urls, json);
   }
 
   @Singleton
@@ -1,6 +1,9 @@
 package edu.kpi.testcourse.entities;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import javax.annotation.Nullable;
 
 /**
  * A single shortened URL.
@@ -8,9 +11,29 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * @param alias The unique short identifier of this URL. Prepend <tt>https://example.org/r/</tt> to get the short URL.
  * @param destinationUrl full version of URL
  * @param email an email of user that created this alias
+ * @param expiresAt the epoch millisecond from which the alias doesn't redirect anymore, or null if
+ *     it never expires
  */
 public record UrlAlias(
     @JsonProperty("alias") String alias,
     @JsonProperty("destinationUrl") String destinationUrl,
-    @JsonProperty("email") String email
-) {}
+    @JsonProperty("email") String email,
+    @JsonProperty("expiresAt") @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable Long expiresAt
+) {
+  @JsonCreator
+  public UrlAlias {}
+
+  /**
+   * Creates an alias that never expires.
+   */
+  public UrlAlias(String alias, String destinationUrl, String email) {
+    this(alias, destinationUrl, email, null);
+  }
+
+  /**
+   * Returns whether the alias has expired by the given epoch millisecond.
+   */
+  public boolean isExpired(long nowMillis) {
+    return expiresAt != null && expiresAt <= nowMillis;
+  }
+}
@@ -0,0 +1,18 @@
+package edu.kpi.testcourse.logic;
+
+/**
+ * Makes up aliases for the URLs whose users didn't propose one.
+ */
+public interface AliasGenerator extends AutoCloseable {
+  /**
+   * Returns a new alias. It may still be taken by an alias that a user has chosen, the caller has
+   * to ask for another one then.
+   */
+  String generate();
+
+  /**
+   * Releases the resources of the generator. A generator that draws on another one closes it too.
+   */
+  @Override
+  default void close() {}
+}
@@ -0,0 +1,258 @@
+package edu.kpi.testcourse.logic;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.serialization.JsonTool;
+import edu.kpi.testcourse.storage.UrlRepository;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * Imports URL aliases from NDJSON: one JSON object <tt>{"url": ..., "alias": ...}</tt> per line.
+ *
+ * <p>The input is read as a stream and the valid lines are inserted in chunks with
+ * {@link UrlRepository#createUrlAliases(List)}; the next chunk is read only after the previous one
+ * has been persisted. Together with the limits on the line length and on the number of reported
+ * rejections this keeps the memory bounded whatever the size of the input.
+ */
+public class AliasImporter {
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+  static final int MAX_LINE_LENGTH = 16 * 1024;
+  static final int MAX_ALIAS_LENGTH = 256;
+  static final int MAX_REPORTED_REJECTIONS = 1000;
+  private static final Type LINE_TYPE = new TypeReference<Map<String, Object>>() {}.getType();
+
+  private final UrlRepository urls;
+  private final JsonTool json;
+  private final int chunkSize;
+
+  /**
+   * Creates an instance that inserts the aliases in chunks of {@link #DEFAULT_CHUNK_SIZE}.
+   */
+  public AliasImporter(UrlRepository urls, JsonTool json) {
+    this(urls, json, DEFAULT_CHUNK_SIZE);
+  }
+
+  AliasImporter(UrlRepository urls, JsonTool json, int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("The chunk size must be positive");
+    }
+    this.urls = urls;
+    this.json = json;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Imports the aliases of the input on behalf of the user. Blank lines are skipped, invalid lines
+   * and taken aliases are rejected without stopping the import.
+   *
+   * @param email an email of the user that creates the aliases
+   * @param input UTF-8 NDJSON
+   * @param progressListener called after every chunk
+   * @return the totals and the first {@link #MAX_REPORTED_REJECTIONS} rejected lines
+   */
+  public Report importAliases(String email, InputStream input, Consumer<Progress> progressListener)
+      throws IOException {
+    var totals = new Totals();
+    var chunk = new ArrayList<UrlAlias>(chunkSize);
+    var chunkLines = new ArrayList<Long>(chunkSize);
+    var lines = new LineReader(
+        new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+    String line;
+    while ((line = lines.next()) != null) {
+      totals.lines++;
+      if (lines.wasCut()) {
+        totals.reject(totals.lines, "The line is longer than " + MAX_LINE_LENGTH + " characters");
+      } else if (!line.isBlank()) {
+        String error = parse(email, line, chunk);
+        if (error != null) {
+          totals.reject(totals.lines, error);
+        } else {
+          chunkLines.add(totals.lines);
+        }
+      }
+      if (chunk.size() == chunkSize) {
+        insert(chunk, chunkLines, totals, progressListener);
+      }
+    }
+    insert(chunk, chunkLines, totals, progressListener);
+    return new Report(totals.lines, totals.imported, totals.rejected, totals.rejections,
+        totals.rejected > totals.rejections.size());
+  }
+
+  private void insert(
+      List<UrlAlias> chunk, List<Long> chunkLines, Totals totals,
+      Consumer<Progress> progressListener
+  ) {
+    if (!chunk.isEmpty()) {
+      boolean[] created = urls.createUrlAliases(chunk);
+      for (int i = 0; i < created.length; i++) {
+        if (created[i]) {
+          totals.imported++;
+        } else {
+          totals.reject(chunkLines.get(i), "The alias is already taken");
+        }
+      }
+      chunk.clear();
+      chunkLines.clear();
+    }
+    progressListener.accept(new Progress(totals.lines, totals.imported, totals.rejected));
+  }
+
+  /**
+   * Parses one line into the chunk.
+   *
+   * @return the reason to reject the line, or null if it has been added to the chunk
+   */
+  private @Nullable String parse(String email, String line, List<UrlAlias> chunk) {
+    Map<String, Object> fields;
+    try {
+      fields = json.fromJson(line, LINE_TYPE);
+    } catch (RuntimeException e) {
+      return "The line is not a JSON object";
+    }
+    if (fields == null
+        || !(fields.get("url") instanceof String url)
+        || !(fields.get("alias") instanceof String alias)) {
+      return "The line must have the string fields \"url\" and \"alias\"";
+    }
+    if (alias.isEmpty() || alias.length() > MAX_ALIAS_LENGTH
+        || alias.chars().anyMatch(c -> c == '/' || Character.isWhitespace(c))) {
+      return "The alias must have 1 to " + MAX_ALIAS_LENGTH
+          + " characters without slashes and spaces";
+    }
+    if (!isWebUrl(url)) {
+      return "The URL must be an absolute http or https URL";
+    }
+    chunk.add(new UrlAlias(alias, url, email));
+    return null;
+  }
+
+  private static boolean isWebUrl(String url) {
+    try {
+      URI uri = new URI(url);
+      String scheme = uri.getScheme();
+      return uri.getHost() != null
+          && ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme));
+    } catch (URISyntaxException e) {
+      return false;
+    }
+  }
+
+  /**
+   * The state of the import so far.
+   */
+  private static final class Totals {
+    private final List<Rejection> rejections = new ArrayList<>();
+    private long lines;
+    private long imported;
+    private long rejected;
+
+    void reject(long line, String reason) {
+      rejected++;
+      if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+        rejections.add(new Rejection(line, reason));
+      }
+    }
+  }
+
+  /**
+   * Splits the input into lines like {@link BufferedReader#readLine()}, but keeps at most
+   * {@link #MAX_LINE_LENGTH} characters of a line.
+   */
+  private static final class LineReader {
+    private final Reader reader;
+    private final StringBuilder line = new StringBuilder();
+    private boolean cut;
+
+    LineReader(Reader reader) {
+      this.reader = reader;
+    }
+
+    /**
+     * Returns the next line without the line terminator, or null at the end of the input.
+     */
+    @Nullable String next() throws IOException {
+      line.setLength(0);
+      cut = false;
+      int c = reader.read();
+      if (c == -1) {
+        return null;
+      }
+      while (c != -1 && c != '\n') {
+        if (line.length() < MAX_LINE_LENGTH) {
+          line.append((char) c);
+        } else {
+          cut = true;
+        }
+        c = reader.read();
+      }
+      if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+        line.setLength(line.length() - 1);
+      }
+      return line.toString();
+    }
+
+    /**
+     * Returns whether the last line was longer than {@link #MAX_LINE_LENGTH}.
+     */
+    boolean wasCut() {
+      return cut;
+    }
+  }
+
+  /**
+   * The totals of an import so far.
+   *
+   * @param lines the number of lines read
+   * @param imported the number of aliases created
+   * @param rejected the number of lines rejected
+   */
+  public record Progress(
+      @JsonProperty("lines") long lines,
+      @JsonProperty("imported") long imported,
+      @JsonProperty("rejected") long rejected
+  ) {}
+
+  /**
+   * The result of an import.
+   *
+   * @param lines the number of lines read
+   * @param imported the number of aliases created
+   * @param rejected the number of lines rejected
+   * @param rejectedLines the first rejected lines with the reasons
+   * @param rejectedLinesTruncated whether more lines were rejected than reported
+   */
+  public record Report(
+      @JsonProperty("lines") long lines,
+      @JsonProperty("imported") long imported,
+      @JsonProperty("rejected") long rejected,
+      @JsonProperty("rejected_lines") List<Rejection> rejectedLines,
+      @JsonProperty("rejected_lines_truncated") boolean rejectedLinesTruncated
+  ) {}
+
+  /**
+   * A line of the input that has not been imported.
+   *
+   * @param line the number of the line, starting from 1
+   * @param reason why it has been rejected
+   */
+  public record Rejection(
+      @JsonProperty("line") long line,
+      @JsonProperty("reason") String reason
+  ) {}
+}
@@ -0,0 +1,167 @@
+package edu.kpi.testcourse.logic;
+
+import edu.kpi.testcourse.storage.UrlRepository;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aliases generated ahead of time by a background thread, so that creating a URL only takes one
+ * from a queue.
+ *
+ * <p>The background thread generates the aliases with another {@link AliasGenerator} and keeps only
+ * those that are not in the repository yet. It refills the pool every 100 ms, or as soon as the
+ * pool falls below half of its target size, to the number of aliases taken in about a second at
+ * the measured (smoothed) rate, but no less than an eighth and no more than the capacity.
+ *
+ * <p>Taking an alias never locks: the queue is lock-free and its size is an atomic counter. When
+ * the pool is empty, the alias is generated on the caller's thread without the repository check.
+ */
+public class AliasPool implements AliasGenerator {
+  private static final Logger logger = LoggerFactory.getLogger(AliasPool.class);
+
+  private static final long REFILL_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final double HORIZON_SECONDS = 1;
+  // Weight of the last period in the smoothed consumption rate.
+  private static final double RATE_SMOOTHING = 0.3;
+  // A refill gives up after this many taken aliases in a row, the generator is probably exhausted.
+  private static final int MAX_TAKEN_IN_A_ROW = 100;
+
+  private final AliasGenerator source;
+  private final UrlRepository urls;
+  private final int capacity;
+  private final int minSize;
+  private final ConcurrentLinkedQueue<String> aliases = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final LongAdder taken = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final @Nullable Thread refiller;
+  private volatile int targetSize;
+  private volatile boolean closed;
+  // Aliases per second, accessed by the refilling thread only.
+  private double consumptionRate;
+
+  /**
+   * Creates an instance and starts filling it in background.
+   *
+   * @param source generates the aliases
+   * @param urls the repository to check the aliases against
+   * @param capacity the maximal number of aliases in the pool
+   */
+  public AliasPool(AliasGenerator source, UrlRepository urls, int capacity) {
+    this(source, urls, capacity, true);
+  }
+
+  AliasPool(AliasGenerator source, UrlRepository urls, int capacity, boolean startRefiller) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity must be positive");
+    }
+    this.source = source;
+    this.urls = urls;
+    this.capacity = capacity;
+    this.minSize = Math.max(1, capacity / 8);
+    this.targetSize = minSize;
+    if (startRefiller) {
+      this.refiller = new Thread(this::runRefiller, "alias-pool-refiller");
+      refiller.setDaemon(true);
+      refiller.start();
+    } else {
+      this.refiller = null;
+    }
+  }
+
+  @Override
+  public String generate() {
+    taken.increment();
+    String alias = aliases.poll();
+    if (alias == null) {
+      misses.increment();
+      wakeRefiller();
+      return source.generate();
+    }
+    if (size.decrementAndGet() < targetSize / 2) {
+      wakeRefiller();
+    }
+    return alias;
+  }
+
+  /**
+   * Stops the background thread and closes the source generator.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (refiller != null) {
+      LockSupport.unpark(refiller);
+      try {
+        refiller.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    source.close();
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  int targetSize() {
+    return targetSize;
+  }
+
+  /**
+   * Returns the number of aliases generated on the caller's thread because the pool was empty.
+   */
+  long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Updates the consumption rate and the target size, and fills the pool up to the target size.
+   *
+   * @param elapsedNanos the time since the previous refill
+   */
+  void refill(long elapsedNanos) {
+    double rate = taken.sumThenReset() * 1e9 / Math.max(1, elapsedNanos);
+    consumptionRate += RATE_SMOOTHING * (rate - consumptionRate);
+    targetSize = (int) Math.max(minSize,
+        Math.min(capacity, Math.ceil(consumptionRate * HORIZON_SECONDS)));
+    int takenInARow = 0;
+    while (size.get() < targetSize && !closed && takenInARow < MAX_TAKEN_IN_A_ROW) {
+      String alias = source.generate();
+      if (urls.findUrlAlias(alias) == null) {
+        aliases.add(alias);
+        size.incrementAndGet();
+        takenInARow = 0;
+      } else {
+        takenInARow++;
+      }
+    }
+  }
+
+  private void wakeRefiller() {
+    if (refiller != null) {
+      LockSupport.unpark(refiller);
+    }
+  }
+
+  private void runRefiller() {
+    long lastRefill = System.nanoTime() - REFILL_PERIOD_NANOS;
+    while (!closed) {
+      long now = System.nanoTime();
+      try {
+        refill(now - lastRefill);
+      } catch (RuntimeException e) {
+        logger.warn("Could not refill the alias pool", e);
+      }
+      lastRefill = now;
+      LockSupport.parkNanos(this, REFILL_PERIOD_NANOS);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package edu.kpi.testcourse.logic;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.ClickCounterSettings;
+import edu.kpi.testcourse.storage.ClickRepository;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the redirects of every alias without slowing the redirects down.
+ *
+ * <p>A click only increments the {@link LongAdder} of the alias, found with a lock-free lookup
+ * once the alias has been clicked before. Under contention a {@link LongAdder} spreads the
+ * increments over cells of different threads, so the redirects of a popular alias don't fight
+ * over one memory location, and nothing is written to the repository on the redirect path.
+ *
+ * <p>A background thread moves the counted clicks to the {@link ClickRepository} every flush
+ * interval. {@link LongAdder#sumThenReset()} takes every cell atomically, so a click that races a
+ * flush is persisted by this flush or the next one, never twice or not at all. The clicks of a
+ * failed flush are put back for the next one.
+ *
+ * <p>A counter stays in memory while its alias is clicked: the flush drops the counters that
+ * have had no clicks since the previous flush.
+ */
+public class ClickCounter implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(ClickCounter.class);
+
+  private final ClickRepository clicks;
+  private final boolean enabled;
+  private final long flushIntervalNanos;
+  private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+  private final @Nullable Thread flusher;
+  private volatile boolean closed;
+
+  /**
+   * Creates an instance and, if counting is enabled, starts flushing in background.
+   */
+  public ClickCounter(ClickRepository clicks, ClickCounterSettings settings) {
+    this(clicks, settings, true);
+  }
+
+  ClickCounter(ClickRepository clicks, ClickCounterSettings settings, boolean startFlusher) {
+    if (settings.enabled() && settings.flushIntervalMillis() < 1) {
+      throw new IllegalArgumentException("The flush interval must be positive");
+    }
+    this.clicks = clicks;
+    this.enabled = settings.enabled();
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(settings.flushIntervalMillis());
+    if (enabled && startFlusher) {
+      this.flusher = new Thread(this::runFlusher, "click-counter-flusher");
+      flusher.setDaemon(true);
+      flusher.start();
+    } else {
+      this.flusher = null;
+    }
+  }
+
+  /**
+   * Counts a redirect through the alias; does nothing if counting is disabled.
+   */
+  public void record(String alias) {
+    if (!enabled) {
+      return;
+    }
+    LongAdder counter = pending.get(alias);
+    if (counter == null) {
+      counter = pending.computeIfAbsent(alias, key -> new LongAdder());
+    }
+    counter.increment();
+  }
+
+  /**
+   * Returns the number of clicks of the alias, including those not persisted yet. While a flush is
+   * in progress the clicks it persists may be missing.
+   */
+  public long getClicks(String alias) {
+    LongAdder counter = pending.get(alias);
+    return clicks.getClicks(alias) + (counter == null ? 0 : counter.sum());
+  }
+
+  /**
+   * Forgets the clicks of the alias, persisted or not, once it is deleted or has expired, so that
+   * an alias created anew under the same name starts from zero.
+   */
+  public synchronized void removeClicks(String alias) {
+    pending.remove(alias);
+    clicks.removeClicks(alias);
+  }
+
+  /**
+   * Stops the background thread and persists the clicks counted so far.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (flusher != null) {
+      LockSupport.unpark(flusher);
+      try {
+        flusher.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    flush();
+  }
+
+  /**
+   * Adds the clicks counted since the previous flush to the repository.
+   */
+  synchronized void flush() {
+    var batch = new HashMap<String, Long>();
+    pending.forEach((alias, counter) -> {
+      long count = counter.sumThenReset();
+      if (count == 0 && pending.remove(alias, counter)) {
+        // A click may have got the counter just before it was dropped.
+        count = counter.sumThenReset();
+      }
+      if (count != 0) {
+        batch.put(alias, count);
+      }
+    });
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      clicks.addClicks(batch);
+    } catch (RuntimeException e) {
+      batch.forEach((alias, count) ->
+          pending.computeIfAbsent(alias, key -> new LongAdder()).add(count));
+      throw e;
+    }
+  }
+
+  private void runFlusher() {
+    while (!closed) {
+      LockSupport.parkNanos(this, flushIntervalNanos);
+      if (closed) {
+        return;
+      }
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        logger.warn("Could not persist the clicks", e);
+      }
+    }
+  }
+}
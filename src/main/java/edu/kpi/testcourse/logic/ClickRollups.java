@@ -0,0 +1,264 @@
+package edu.kpi.testcourse.logic;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import edu.kpi.testcourse.logic.UrlShortenerConfig.ClickCounterSettings;
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The number of clicks of every alias per minute, hour and day, kept in bounded memory without
+ * the individual clicks.
+ *
+ * <p>The series of an alias is allocated on its first click. It holds one ring buffer of counters
+ * per {@link Resolution}, where the counter of a minute, hour or day is reset when the ring comes
+ * round to it again, so the series never grows. A click increments one counter of every ring
+ * under the lock of the series, which is only contended by clicks of the same alias.
+ *
+ * <p>The number of series is limited by the memory budget. When it is reached, the series for a
+ * new alias replaces the series clicked least recently among a few sampled at random, the way
+ * Redis approximates LRU: a cold series is found without keeping the series ordered on every
+ * click.
+ *
+ * <p>The series of a deleted or expired alias is dropped with {@link #remove}, so that an alias
+ * created anew under the same name doesn't inherit its history.
+ */
+public class ClickRollups {
+  // Series compared to pick the one to evict.
+  private static final int EVICTION_SAMPLES = 8;
+  // Memory of a series besides the counters: the objects, the alias and the map entry.
+  private static final long SERIES_OVERHEAD_BYTES = 256;
+
+  static final long SERIES_BYTES = Integer.BYTES * totalBuckets() + SERIES_OVERHEAD_BYTES;
+
+  private final Clock clock;
+  private final int capacity;
+  private final Map<String, Series> series = new ConcurrentHashMap<>();
+  // All series, for the random sampling; guarded by this.
+  private final Series[] slots;
+  private int used;
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates an instance that keeps as many series as fit in the memory budget of the settings, or
+   * none if counting is disabled.
+   */
+  public ClickRollups(ClickCounterSettings settings) {
+    this(Clock.systemUTC(),
+        settings.enabled() ? (int) Math.min(Integer.MAX_VALUE,
+            settings.rollupMemoryBytes() / SERIES_BYTES) : 0);
+  }
+
+  ClickRollups(Clock clock, int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("The capacity must not be negative");
+    }
+    this.clock = clock;
+    this.capacity = capacity;
+    this.slots = new Series[capacity];
+  }
+
+  /**
+   * Counts a click of the alias now.
+   */
+  public void record(String alias) {
+    if (capacity == 0) {
+      return;
+    }
+    long now = clock.millis();
+    Series aliasSeries = series.get(alias);
+    if (aliasSeries == null) {
+      aliasSeries = allocate(alias, now);
+    }
+    aliasSeries.add(now);
+  }
+
+  /**
+   * Returns the clicks of the alias in the last buckets of the resolution, the current one
+   * included. An alias without a series, because it hasn't been clicked or its series has been
+   * evicted, has no clicks.
+   *
+   * @param buckets the number of buckets, at most {@link Resolution#buckets()}
+   */
+  public TimeSeries query(String alias, Resolution resolution, int buckets) {
+    if (buckets < 1 || buckets > resolution.buckets) {
+      throw new IllegalArgumentException(
+          "The number of buckets must be between 1 and " + resolution.buckets);
+    }
+    long last = clock.millis() / resolution.millis;
+    long first = last - buckets + 1;
+    long[] clicks = new long[buckets];
+    Series aliasSeries = series.get(alias);
+    if (aliasSeries != null) {
+      aliasSeries.read(resolution, first, clicks);
+    }
+    return new TimeSeries(resolution, first * resolution.millis, clicks);
+  }
+
+  /**
+   * Drops the series of the alias, if it has one.
+   */
+  public synchronized void remove(String alias) {
+    Series removed = series.remove(alias);
+    if (removed == null) {
+      return;
+    }
+    // Keeps the used slots contiguous for the sampling.
+    Series moved = slots[--used];
+    slots[removed.slot] = moved;
+    moved.slot = removed.slot;
+    slots[used] = null;
+  }
+
+  /**
+   * Returns the number of aliases with a series.
+   */
+  int size() {
+    return series.size();
+  }
+
+  /**
+   * Returns the number of series dropped to stay within the memory budget.
+   */
+  long evictions() {
+    return evictions.sum();
+  }
+
+  private synchronized Series allocate(String alias, long now) {
+    Series existing = series.get(alias);
+    if (existing != null) {
+      return existing;
+    }
+    int slot;
+    if (used < capacity) {
+      slot = used++;
+    } else {
+      slot = coldestSampledSlot();
+      series.remove(slots[slot].alias, slots[slot]);
+      evictions.increment();
+    }
+    // A fresh series rather than the evicted one, which may still get a late click.
+    var allocated = new Series(alias, now);
+    allocated.slot = slot;
+    slots[slot] = allocated;
+    series.put(alias, allocated);
+    return allocated;
+  }
+
+  private int coldestSampledSlot() {
+    var random = ThreadLocalRandom.current();
+    int coldest = random.nextInt(capacity);
+    for (int i = 1; i < EVICTION_SAMPLES; i++) {
+      int slot = random.nextInt(capacity);
+      if (slots[slot].lastClickMillis < slots[coldest].lastClickMillis) {
+        coldest = slot;
+      }
+    }
+    return coldest;
+  }
+
+  private static int totalBuckets() {
+    int buckets = 0;
+    for (Resolution resolution : Resolution.values()) {
+      buckets += resolution.buckets;
+    }
+    return buckets;
+  }
+
+  /**
+   * The resolutions of the click series, each kept for a fixed number of buckets.
+   */
+  public enum Resolution {
+    MINUTE(60_000L, 24 * 60),
+    HOUR(60 * 60_000L, 30 * 24),
+    DAY(24 * 60 * 60_000L, 30);
+
+    private final long millis;
+    private final int buckets;
+
+    Resolution(long millis, int buckets) {
+      this.millis = millis;
+      this.buckets = buckets;
+    }
+
+    /**
+     * Returns how many of the last buckets are kept.
+     */
+    public int buckets() {
+      return buckets;
+    }
+  }
+
+  /**
+   * Clicks of an alias in consecutive buckets.
+   *
+   * @param resolution the length of a bucket
+   * @param startMillis the start of the first bucket, in milliseconds since the epoch
+   * @param clicks the clicks of every bucket, the oldest first
+   */
+  public record TimeSeries(
+      @JsonProperty("resolution") Resolution resolution,
+      @JsonProperty("start") long startMillis,
+      @JsonProperty("clicks") long[] clicks
+  ) {}
+
+  /**
+   * The ring buffers of an alias.
+   */
+  private static final class Series {
+    private final String alias;
+    private final int[][] counts = new int[Resolution.values().length][];
+    // The latest bucket of every resolution with a click; the ring holds the ones before it.
+    private final long[] lastBuckets = new long[Resolution.values().length];
+    private volatile long lastClickMillis;
+    // The index in the slots; guarded by the rollups.
+    private int slot;
+
+    Series(String alias, long now) {
+      this.alias = alias;
+      this.lastClickMillis = now;
+      for (Resolution resolution : Resolution.values()) {
+        counts[resolution.ordinal()] = new int[resolution.buckets];
+        lastBuckets[resolution.ordinal()] = now / resolution.millis;
+      }
+    }
+
+    synchronized void add(long now) {
+      for (Resolution resolution : Resolution.values()) {
+        int[] ring = counts[resolution.ordinal()];
+        long bucket = now / resolution.millis;
+        long last = lastBuckets[resolution.ordinal()];
+        if (bucket <= last - ring.length) {
+          // The clock went back further than the ring reaches.
+          continue;
+        }
+        if (bucket > last) {
+          long stale = Math.min(ring.length, bucket - last);
+          for (long b = bucket - stale + 1; b <= bucket; b++) {
+            ring[slot(b, ring)] = 0;
+          }
+          lastBuckets[resolution.ordinal()] = bucket;
+        }
+        ring[slot(bucket, ring)]++;
+      }
+      lastClickMillis = Math.max(lastClickMillis, now);
+    }
+
+    synchronized void read(Resolution resolution, long first, long[] clicks) {
+      int[] ring = counts[resolution.ordinal()];
+      long last = lastBuckets[resolution.ordinal()];
+      for (int i = 0; i < clicks.length; i++) {
+        long bucket = first + i;
+        if (bucket <= last && bucket > last - ring.length) {
+          clicks[i] = ring[slot(bucket, ring)];
+        }
+      }
+    }
+
+    private static int slot(long bucket, int[] ring) {
+      return (int) Math.floorMod(bucket, (long) ring.length);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package edu.kpi.testcourse.logic;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.storage.UrlRepository;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * Finds an alias that a user has already created for a destination URL.
+ *
+ * <p>The index maps a 64-bit hash of the email and the {@linkplain #normalize normalized} URL to
+ * the alias, so it takes the same small amount of memory whatever the length of the URLs. A hit is
+ * checked against the repository, which makes hash collisions and aliases deleted behind the back
+ * of the index harmless: they are reported as misses.
+ *
+ * <p>Aliases that expire are not indexed: a request for a lasting alias must not get one that
+ * expires.
+ *
+ * <p>Safe for concurrent use. Two concurrent requests for the same destination may both miss and
+ * create two aliases; the index then keeps the last one.
+ */
+class DestinationIndex {
+  private final UrlRepository urls;
+  private final Map<Long, String> aliases = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an index of all aliases of the repository.
+   */
+  DestinationIndex(UrlRepository urls) {
+    this.urls = urls;
+    urls.forEachAlias(alias -> {
+      if (alias.expiresAt() == null) {
+        aliases.putIfAbsent(key(alias.email(), alias.destinationUrl()), alias.alias());
+      }
+    });
+  }
+
+  /**
+   * Returns an existing alias of the user for the URL, or null if there is none.
+   */
+  @Nullable String find(String email, String url) {
+    String alias = aliases.get(key(email, url));
+    if (alias == null) {
+      return null;
+    }
+    UrlAlias urlAlias = urls.findUrlAlias(alias);
+    if (urlAlias == null
+        || !urlAlias.email().equals(email)
+        || !normalize(urlAlias.destinationUrl()).equals(normalize(url))) {
+      return null;
+    }
+    return alias;
+  }
+
+  /**
+   * Remembers a newly created alias, unless it expires.
+   */
+  void add(UrlAlias urlAlias) {
+    if (urlAlias.expiresAt() != null) {
+      return;
+    }
+    aliases.put(key(urlAlias.email(), urlAlias.destinationUrl()), urlAlias.alias());
+  }
+
+  /**
+   * Forgets a deleted alias, unless the destination has been given another alias meanwhile.
+   */
+  void remove(UrlAlias urlAlias) {
+    aliases.remove(key(urlAlias.email(), urlAlias.destinationUrl()), urlAlias.alias());
+  }
+
+  /**
+   * Returns the form of the URL that is the same for all spellings of the same address: the scheme
+   * and the host in lower case, without the default port and with at least the root path. URLs
+   * that cannot be parsed are only trimmed.
+   */
+  static String normalize(String url) {
+    String trimmed = url.trim();
+    URI uri;
+    try {
+      uri = new URI(trimmed);
+    } catch (URISyntaxException e) {
+      return trimmed;
+    }
+    if (uri.getScheme() == null || uri.getRawAuthority() == null || uri.getHost() == null) {
+      return trimmed;
+    }
+    String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+    int port = uri.getPort();
+    boolean defaultPort = (port == 80 && scheme.equals("http"))
+        || (port == 443 && scheme.equals("https"));
+    var normalized = new StringBuilder(trimmed.length())
+        .append(scheme)
+        .append("://");
+    if (uri.getRawUserInfo() != null) {
+      normalized.append(uri.getRawUserInfo()).append('@');
+    }
+    normalized.append(uri.getHost().toLowerCase(Locale.ROOT));
+    if (port != -1 && !defaultPort) {
+      normalized.append(':').append(port);
+    }
+    String path = uri.getRawPath();
+    normalized.append(path == null || path.isEmpty() ? "/" : path);
+    if (uri.getRawQuery() != null) {
+      normalized.append('?').append(uri.getRawQuery());
+    }
+    if (uri.getRawFragment() != null) {
+      normalized.append('#').append(uri.getRawFragment());
+    }
+    return normalized.toString();
+  }
+
+  private static long key(String email, String url) {
+    // FNV-1a over the email, a separator and the URL, then the finalizer of MurmurHash3.
+    long hash = 0xcbf29ce484222325L;
+    String normalized = normalize(url);
+    for (int i = 0; i < email.length(); i++) {
+      hash = (hash ^ email.charAt(i)) * 0x100000001b3L;
+    }
+    // A zero char between the email and the URL.
+    hash *= 0x100000001b3L;
+    for (int i = 0; i < normalized.length(); i++) {
+      hash = (hash ^ normalized.charAt(i)) * 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
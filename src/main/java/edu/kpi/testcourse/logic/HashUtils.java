@@ -1,34 +1,111 @@
 package edu.kpi.testcourse.logic;
 
-import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 
 /**
- * Utility class for password hashing and validation.
+ * Utility class for password hashing and validation. Safe for concurrent use: every thread gets
+ * its own {@link SecretKeyFactory} and {@link SecureRandom}, which are not meant to be shared, so
+ * that threads hashing at the same time don't wait for each other.
+ *
+ * <p>A hash is stored as <tt>iterations:salt:hash</tt>, so hashes made with fewer iterations, by an
+ * older version or on slower hardware, still validate; {@link #needsRehash} tells them apart.
  */
 public class HashUtils {
-  private final SecretKeyFactory skf;
-  private final SecureRandom sr;
+  public static final int DEFAULT_ITERATIONS = 1000;
 
-  /**
-   * Hash utils might crash during creation if there is not PBKDF2 or SHA1 algorithms in the system.
-   */
-  public HashUtils() {
+  private static final int CALIBRATION_ITERATIONS = 10_000;
+  private static final int CALIBRATION_RUNS = 5;
+  // Hashes with up to 1/5 fewer iterations than the new ones are kept.
+  private static final int REHASH_TOLERANCE = 5;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final byte[] HEX_VALUES = new byte[128];
+
+  static {
+    Arrays.fill(HEX_VALUES, (byte) -1);
+    for (int i = 0; i < HEX_DIGITS.length; i++) {
+      HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+      HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte) i;
+    }
+  }
+
+  private final ThreadLocal<SecretKeyFactory> skf = ThreadLocal.withInitial(() -> {
     try {
-      skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+      return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
     } catch (NoSuchAlgorithmException e) {
       throw new IllegalStateException("System doesn't provide PBKDF2 algorithm");
     }
-
+  });
+  private final ThreadLocal<SecureRandom> sr = ThreadLocal.withInitial(() -> {
     try {
-      sr = SecureRandom.getInstance("SHA1PRNG");
+      return SecureRandom.getInstance("SHA1PRNG");
     } catch (NoSuchAlgorithmException e) {
       throw new IllegalStateException("System doesn't provide SHA1 algorithm");
     }
+  });
+
+  private final int iterations;
+
+  /**
+   * Hash utils might crash during creation if there is not PBKDF2 or SHA1 algorithms in the system.
+   */
+  public HashUtils() {
+    this(DEFAULT_ITERATIONS);
+  }
+
+  /**
+   * Creates an instance that hashes with the given number of PBKDF2 iterations.
+   */
+  public HashUtils(int iterations) {
+    if (iterations < 1) {
+      throw new IllegalArgumentException("The number of iterations must be positive");
+    }
+    this.iterations = iterations;
+    skf.get();
+    sr.get();
+  }
+
+  /**
+   * Creates an instance whose hashes take about the given time on this machine, measured by
+   * hashing a few times, but with no fewer than {@link #DEFAULT_ITERATIONS} iterations.
+   */
+  public static HashUtils calibrated(long targetHashMillis) {
+    var probe = new HashUtils(CALIBRATION_ITERATIONS);
+    long fastestNanos = Long.MAX_VALUE;
+    // The fastest run is the one least disturbed by the JIT compiler and the other threads.
+    for (int i = 0; i < CALIBRATION_RUNS; i++) {
+      long start = System.nanoTime();
+      probe.generateHash("calibration");
+      fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+    }
+    double iterations = (double) CALIBRATION_ITERATIONS
+        * TimeUnit.MILLISECONDS.toNanos(targetHashMillis) / Math.max(1, fastestNanos);
+    return new HashUtils(
+        (int) Math.min(Integer.MAX_VALUE, Math.max(DEFAULT_ITERATIONS, iterations)));
+  }
+
+  /**
+   * Returns the number of PBKDF2 iterations of the new hashes.
+   */
+  public int iterations() {
+    return iterations;
+  }
+
+  /**
+   * Tells whether a stored hash is much cheaper than the new ones, and should be replaced with a
+   * new hash of the password once the password is known. A difference within the noise of the
+   * calibration doesn't count, so that users are not rehashed after every restart.
+   */
+  public boolean needsRehash(String storedPassword) {
+    int storedIterations =
+        Integer.parseInt(storedPassword.substring(0, storedPassword.indexOf(':')));
+    return storedIterations < iterations - iterations / REHASH_TOLERANCE;
   }
 
   /**
@@ -38,34 +115,33 @@ public class HashUtils {
    * @return a password hash
    */
   public String generateHash(String password) {
-    int iterations = 1000;
     char[] chars = password.toCharArray();
     byte[] salt = getSalt();
 
     PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, 64 * 8);
     try {
-      byte[] hash = skf.generateSecret(spec).getEncoded();
+      byte[] hash = skf.get().generateSecret(spec).getEncoded();
       return iterations + ":" + toHex(salt) + ":" + toHex(hash);
     } catch (InvalidKeySpecException e) {
       throw new RuntimeException("Error during password hash generation", e);
+    } finally {
+      spec.clearPassword();
     }
   }
 
   private byte[] getSalt() {
     byte[] salt = new byte[16];
-    sr.nextBytes(salt);
+    sr.get().nextBytes(salt);
     return salt;
   }
 
-  private String toHex(byte[] array) {
-    BigInteger bi = new BigInteger(1, array);
-    String hex = bi.toString(16);
-    int paddingLength = (array.length * 2) - hex.length();
-    if (paddingLength > 0) {
-      return String.format("%0" + paddingLength + "d", 0) + hex;
-    } else {
-      return hex;
+  private static String toHex(byte[] array) {
+    char[] hex = new char[array.length * 2];
+    for (int i = 0; i < array.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(array[i] >>> 4) & 0xf];
+      hex[2 * i + 1] = HEX_DIGITS[array[i] & 0xf];
     }
+    return new String(hex);
   }
 
   /**
@@ -88,7 +164,7 @@ public class HashUtils {
         hash.length * 8
     );
     try {
-      byte[] testHash = skf.generateSecret(spec).getEncoded();
+      byte[] testHash = skf.get().generateSecret(spec).getEncoded();
       int diff = hash.length ^ testHash.length;
       for (int i = 0; i < hash.length && i < testHash.length; i++) {
         diff |= hash[i] ^ testHash[i];
@@ -96,14 +172,27 @@ public class HashUtils {
       return diff == 0;
     } catch (InvalidKeySpecException e) {
       throw new RuntimeException("Error during password validation", e);
+    } finally {
+      spec.clearPassword();
     }
   }
 
-  private byte[] fromHex(String hex) {
+  private static byte[] fromHex(String hex) {
+    if (hex.length() % 2 != 0) {
+      throw new IllegalArgumentException("Odd number of hex digits");
+    }
     byte[] bytes = new byte[hex.length() / 2];
     for (int i = 0; i < bytes.length; i++) {
-      bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+      bytes[i] = (byte) (hexValue(hex.charAt(2 * i)) << 4 | hexValue(hex.charAt(2 * i + 1)));
     }
     return bytes;
   }
+
+  private static int hexValue(char digit) {
+    int value = digit < HEX_VALUES.length ? HEX_VALUES[digit] : -1;
+    if (value < 0) {
+      throw new IllegalArgumentException("Not a hex digit: " + digit);
+    }
+    return value;
+  }
 }
@@ -0,0 +1,101 @@
+package edu.kpi.testcourse.logic;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.HashingSettings;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs password hashing, which is slow on purpose, on a few dedicated threads, so that a burst of
+ * logins or signups doesn't hold up the event loop threads that also serve the redirects.
+ *
+ * <p>At most {@link HashingSettings#queueCapacity()} tasks wait for a thread. A task submitted
+ * beyond that is rejected at once with {@link Overloaded} instead of waiting for seconds.
+ */
+public class HashingExecutor implements Executor, AutoCloseable {
+  private final ThreadPoolExecutor executor;
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * Starts the threads.
+   */
+  public HashingExecutor(HashingSettings settings) {
+    var threadNumber = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+        settings.threads(), settings.threads(), 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(settings.queueCapacity()),
+        runnable -> {
+          var thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Runs the task on a hashing thread.
+   *
+   * @return the result of the task, or the exception it has thrown; {@link Overloaded} if too many
+   *     tasks are waiting already
+   */
+  public <T> CompletableFuture<T> submit(Callable<T> task) {
+    var result = new CompletableFuture<T>();
+    try {
+      execute(() -> {
+        try {
+          result.complete(task.call());
+        } catch (Exception e) {
+          result.completeExceptionally(e);
+        }
+      });
+    } catch (Overloaded e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Runs the task on a hashing thread.
+   *
+   * @throws Overloaded if too many tasks are waiting already
+   */
+  @Override
+  public void execute(Runnable task) {
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new Overloaded();
+    }
+  }
+
+  /**
+   * Returns the number of tasks rejected because too many were waiting.
+   */
+  public long rejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * Stops the threads once the submitted tasks are done.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  /**
+   * Too many passwords are waiting to be hashed already.
+   */
+  public static class Overloaded extends RuntimeException {
+    public Overloaded() {
+      super("Too many logins at the moment, try again later");
+    }
+  }
+}
@@ -1,29 +1,113 @@
 package edu.kpi.testcourse.logic;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 import edu.kpi.testcourse.entities.UrlAlias;
 import edu.kpi.testcourse.entities.User;
+import edu.kpi.testcourse.storage.AsyncUrlRepository;
+import edu.kpi.testcourse.storage.AsyncUserRepository;
 import edu.kpi.testcourse.storage.UrlRepository;
 import edu.kpi.testcourse.storage.UrlRepository.AliasAlreadyExist;
+import edu.kpi.testcourse.storage.UrlRepository.PermissionDenied;
 import edu.kpi.testcourse.storage.UserRepository;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Business logic of the URL shortener application.
  */
 public class Logic {
+  private static final Logger logger = LoggerFactory.getLogger(Logic.class);
+
+  // Generated aliases may be taken by aliases chosen by users; give up after this many of them.
+  private static final int MAX_GENERATION_ATTEMPTS = 10;
 
   private final UserRepository users;
   private final UrlRepository urls;
   private final HashUtils hashUtils;
+  private final AliasGenerator aliasGenerator;
+  private final @Nullable DestinationIndex destinations;
+  private final AsyncUserRepository asyncUsers;
+  private final AsyncUrlRepository asyncUrls;
+  private final Executor storageExecutor;
+  private final Executor hashingExecutor;
 
   /**
-   * Creates an instance.
+   * Creates an instance that generates random aliases.
    */
   public Logic(UserRepository users, UrlRepository urls) {
+    this(users, urls, new RandomGenetaror());
+  }
+
+  /**
+   * Creates an instance that creates a new alias on every request.
+   */
+  public Logic(UserRepository users, UrlRepository urls, AliasGenerator aliasGenerator) {
+    this(users, urls, aliasGenerator, false);
+  }
+
+  /**
+   * Creates an instance that hashes passwords with {@link HashUtils#DEFAULT_ITERATIONS}.
+   *
+   * @param deduplicateUrls whether to reuse an alias the user has created for the same URL when
+   *     no alias is proposed, see {@link UrlShortenerConfig#deduplicateUrls()}
+   */
+  public Logic(
+      UserRepository users, UrlRepository urls, AliasGenerator aliasGenerator,
+      boolean deduplicateUrls
+  ) {
+    this(users, urls, aliasGenerator, deduplicateUrls, new HashUtils());
+  }
+
+  /**
+   * Creates an instance whose asynchronous methods run on the calling thread.
+   *
+   * @param deduplicateUrls whether to reuse an alias the user has created for the same URL when
+   *     no alias is proposed, see {@link UrlShortenerConfig#deduplicateUrls()}
+   * @param hashUtils hashes the passwords; the hashes of users who sign in are upgraded to its
+   *     cost, see {@link HashUtils#needsRehash}
+   */
+  public Logic(
+      UserRepository users, UrlRepository urls, AliasGenerator aliasGenerator,
+      boolean deduplicateUrls, HashUtils hashUtils
+  ) {
+    this(users, urls, aliasGenerator, deduplicateUrls, hashUtils, Runnable::run, Runnable::run);
+  }
+
+  /**
+   * Creates an instance whose asynchronous methods never block the calling thread.
+   *
+   * @param deduplicateUrls whether to reuse an alias the user has created for the same URL when
+   *     no alias is proposed, see {@link UrlShortenerConfig#deduplicateUrls()}
+   * @param hashUtils hashes the passwords; the hashes of users who sign in are upgraded to its
+   *     cost, see {@link HashUtils#needsRehash}
+   * @param storageExecutor runs the repository calls that may block, see
+   *     {@link UrlRepository#async}
+   * @param hashingExecutor hashes the passwords, see {@link HashingExecutor}
+   */
+  public Logic(
+      UserRepository users, UrlRepository urls, AliasGenerator aliasGenerator,
+      boolean deduplicateUrls, HashUtils hashUtils, Executor storageExecutor,
+      Executor hashingExecutor
+  ) {
     this.users = users;
     this.urls = urls;
-    this.hashUtils = new HashUtils();
+    this.hashUtils = hashUtils;
+    this.aliasGenerator = aliasGenerator;
+    this.destinations = deduplicateUrls ? new DestinationIndex(urls) : null;
+    this.asyncUsers = users.async(storageExecutor);
+    this.asyncUrls = urls.async(storageExecutor);
+    this.storageExecutor = storageExecutor;
+    this.hashingExecutor = hashingExecutor;
   }
 
   /**
@@ -42,7 +126,8 @@ public class Logic {
   }
 
   /**
-   * Gives an answer if user is registered and password is correct.
+   * Gives an answer if user is registered and password is correct. A password hash made with an
+   * outdated cost is replaced with a new one, since the password is known at this point only.
    *
    * @param email    a users email
    * @param password a users password
@@ -54,7 +139,18 @@ public class Logic {
       return false;
     }
 
-    return hashUtils.validatePassword(password, user.passwordHash());
+    if (!hashUtils.validatePassword(password, user.passwordHash())) {
+      return false;
+    }
+    if (hashUtils.needsRehash(user.passwordHash())) {
+      try {
+        users.updateUser(new User(email, hashUtils.generateHash(password)));
+      } catch (RuntimeException e) {
+        // The old hash is still valid; the upgrade is tried again on the next sign in.
+        logger.warn("Could not upgrade the password hash of {}", email, e);
+      }
+    }
+    return true;
   }
 
   /**
@@ -62,20 +158,125 @@ public class Logic {
    *
    * @param email an email of a user that creates the alias
    * @param url   a full URL
-   * @param alias a proposed alias
+   * @param alias a proposed alias, or null or empty to generate one (or, with deduplication, to
+   *              reuse the alias the user already has for the URL)
    * @return a shortened URL
    */
   public String createNewAlias(String email, String url, String alias) throws AliasAlreadyExist {
-    String finalAlias;
-    if (alias == null || alias.isEmpty()) {
-      finalAlias = new RandomGenetaror().generate();
+    return createNewAlias(email, url, alias, null);
+  }
 
-    } else {
-      finalAlias = alias;
+  /**
+   * Create a new URL alias (shortened version) that may expire.
+   *
+   * @param email an email of a user that creates the alias
+   * @param url   a full URL
+   * @param alias a proposed alias, or null or empty to generate one (or, with deduplication and
+   *              without expiry, to reuse the alias the user already has for the URL)
+   * @param expiresAt the epoch millisecond from which the alias doesn't redirect, or null if it
+   *              never expires
+   * @return a shortened URL
+   */
+  public String createNewAlias(String email, String url, String alias, @Nullable Long expiresAt)
+      throws AliasAlreadyExist {
+    if (alias != null && !alias.isEmpty()) {
+      create(new UrlAlias(alias, url, email, expiresAt));
+      return alias;
+    }
+
+    if (destinations != null && expiresAt == null) {
+      String existingAlias = destinations.find(email, url);
+      if (existingAlias != null) {
+        return existingAlias;
+      }
+    }
+
+    for (int attempt = 1; ; attempt++) {
+      String generatedAlias = aliasGenerator.generate();
+      try {
+        create(new UrlAlias(generatedAlias, url, email, expiresAt));
+        return generatedAlias;
+      } catch (AliasAlreadyExist e) {
+        if (attempt == MAX_GENERATION_ATTEMPTS) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates URL aliases in bulk. They are persisted together, which is much cheaper than creating
+   * them one by one.
+   *
+   * @param email an email of a user that creates the aliases
+   * @param fullUrls full URLs
+   * @param aliases proposed aliases for the URLs, in the same order; null or empty ones are
+   *                generated as in {@link #createNewAlias(String, String, String)}
+   * @return for every URL, in the same order, its alias, or null if the proposed alias is taken
+   */
+  public List<String> createNewAliases(
+      String email, List<String> fullUrls, List<String> aliases
+  ) {
+    return createNewAliases(email, fullUrls, aliases, Collections.nCopies(fullUrls.size(), null));
+  }
+
+  /**
+   * Creates URL aliases that may expire in bulk, see
+   * {@link #createNewAliases(String, List, List)}.
+   *
+   * @param expiries the epoch milliseconds from which the aliases don't redirect, in the same
+   *                 order as the URLs; null for the ones that never expire
+   */
+  public List<String> createNewAliases(
+      String email, List<String> fullUrls, List<String> aliases, List<Long> expiries
+  ) {
+    if (fullUrls.size() != aliases.size() || fullUrls.size() != expiries.size()) {
+      throw new IllegalArgumentException("Every URL must have a proposed alias and an expiry");
+    }
+    String[] result = new String[fullUrls.size()];
+    // Positions of the aliases still to create.
+    var pending = new ArrayList<Integer>(fullUrls.size());
+    for (int i = 0; i < fullUrls.size(); i++) {
+      String alias = aliases.get(i);
+      if (alias != null && !alias.isEmpty()) {
+        result[i] = alias;
+        pending.add(i);
+        continue;
+      }
+      String existingAlias = destinations == null || expiries.get(i) != null
+          ? null : destinations.find(email, fullUrls.get(i));
+      if (existingAlias != null) {
+        result[i] = existingAlias;
+      } else {
+        result[i] = aliasGenerator.generate();
+        pending.add(i);
+      }
     }
 
-    urls.createUrlAlias(new UrlAlias(finalAlias, url, email));
-    return finalAlias;
+    for (int attempt = 1; !pending.isEmpty(); attempt++) {
+      var urlAliases = new ArrayList<UrlAlias>(pending.size());
+      for (int i : pending) {
+        urlAliases.add(new UrlAlias(result[i], fullUrls.get(i), email, expiries.get(i)));
+      }
+      boolean[] created = urls.createUrlAliases(urlAliases);
+      var retries = new ArrayList<Integer>();
+      for (int j = 0; j < created.length; j++) {
+        int i = pending.get(j);
+        boolean generated = aliases.get(i) == null || aliases.get(i).isEmpty();
+        if (created[j]) {
+          if (destinations != null) {
+            destinations.add(urlAliases.get(j));
+          }
+        } else if (generated && attempt < MAX_GENERATION_ATTEMPTS) {
+          result[i] = aliasGenerator.generate();
+          retries.add(i);
+        } else {
+          result[i] = null;
+        }
+      }
+      pending = retries;
+    }
+    return Arrays.asList(result);
   }
 
   /**
@@ -95,17 +296,35 @@ public class Logic {
   }
 
   /**
-   * Deletes user alias
+   * Returns the alias if it belongs to the user.
+   *
+   * @param email an email of the user
+   * @param alias a short URL alias
+   * @return null if there is no such alias or it belongs to another user
+   */
+  public @Nullable UrlAlias findUserAlias(String email, String alias) {
+    UrlAlias urlAlias = urls.findUrlAlias(alias);
+    return urlAlias != null && urlAlias.email().equals(email) ? urlAlias : null;
+  }
+
+  /**
+   * Deletes user alias.
+   *
+   * @param email an email of the user who deletes the alias
+   * @param alias a short URL alias
+   * @return false if there is no such alias or it belongs to another user
    */
   public boolean deleteUserAlias(String email, String alias) {
-    List<UrlAlias> userAliases = urls.getAllAliasesForUser(email);
-    for (UrlAlias userAlias : userAliases) {
-      if (userAlias.alias().equals(alias)) {
-        urls.deleteUrlAlias(email, alias);
-        return true;
+    try {
+      UrlAlias deleted = destinations == null ? null : urls.findUrlAlias(alias);
+      urls.deleteUrlAlias(email, alias);
+      if (deleted != null) {
+        destinations.remove(deleted);
       }
+      return true;
+    } catch (PermissionDenied e) {
+      return false;
     }
-    return false;
   }
 
   /**
@@ -115,6 +334,147 @@ public class Logic {
     return urls.getAllAliasesForUser(email);
   }
 
+  /**
+   * Returns a page of the aliases of the user.
+   *
+   * @param cursor null for the first page, otherwise the next cursor of the previous page
+   * @param limit the maximal number of aliases on the page
+   * @throws IllegalArgumentException if the cursor is malformed or the limit is not positive
+   */
+  public UrlRepository.Page getUserAliases(String email, @Nullable String cursor, int limit) {
+    return urls.getAliasesForUser(email, cursor, limit);
+  }
+
+  /**
+   * Creates a new user without blocking, see {@link #createNewUser}. The stage fails with
+   * {@link UserIsAlreadyCreated} if the email is taken.
+   */
+  public CompletionStage<Void> createNewUserAsync(String email, String password) {
+    return asyncUsers.findUser(email).thenCompose(existing -> existing != null
+        ? CompletableFuture.<Void>failedFuture(new UserIsAlreadyCreated())
+        : supplyAsync(() -> hashUtils.generateHash(password), hashingExecutor)
+            .thenCompose(hash -> asyncUsers.createUser(new User(email, hash))));
+  }
+
+  /**
+   * Tells without blocking if user is registered and password is correct, see
+   * {@link #isUserValid}.
+   */
+  public CompletionStage<Boolean> isUserValidAsync(String email, String password) {
+    return asyncUsers.findUser(email).thenCompose(user -> {
+      if (user == null) {
+        return CompletableFuture.completedFuture(false);
+      }
+      return supplyAsync(
+          () -> hashUtils.validatePassword(password, user.passwordHash()), hashingExecutor)
+          .thenCompose(valid -> valid && hashUtils.needsRehash(user.passwordHash())
+              ? upgradeHashAsync(email, password).thenApply(upgraded -> true)
+              : CompletableFuture.completedFuture(valid));
+    });
+  }
+
+  /**
+   * Creates a new URL alias without blocking, see
+   * {@link #createNewAlias(String, String, String, Long)}. Generating an alias may take several
+   * attempts, so the whole creation runs on the storage executor.
+   */
+  public CompletionStage<String> createNewAliasAsync(
+      String email, String url, String alias, @Nullable Long expiresAt
+  ) {
+    return supplyAsync(() -> createNewAlias(email, url, alias, expiresAt), storageExecutor);
+  }
+
+  /**
+   * Creates URL aliases in bulk without blocking, see
+   * {@link #createNewAliases(String, List, List, List)}.
+   */
+  public CompletionStage<List<String>> createNewAliasesAsync(
+      String email, List<String> fullUrls, List<String> aliases, List<Long> expiries
+  ) {
+    return supplyAsync(
+        () -> createNewAliases(email, fullUrls, aliases, expiries), storageExecutor);
+  }
+
+  /**
+   * Gets full URL by alias without blocking, see {@link #findFullUrl}; completes with null if
+   * there is no such alias.
+   */
+  public CompletionStage<String> findFullUrlAsync(String alias) {
+    return asyncUrls.findUrlAlias(alias)
+        .thenApply(urlAlias -> urlAlias != null ? urlAlias.destinationUrl() : null);
+  }
+
+  /**
+   * Returns the alias without blocking if it belongs to the user, see {@link #findUserAlias};
+   * completes with null if there is no such alias or it belongs to another user.
+   */
+  public CompletionStage<UrlAlias> findUserAliasAsync(String email, String alias) {
+    return asyncUrls.findUrlAlias(alias).thenApply(
+        urlAlias -> urlAlias != null && urlAlias.email().equals(email) ? urlAlias : null);
+  }
+
+  /**
+   * Deletes user alias without blocking, see {@link #deleteUserAlias}.
+   */
+  public CompletionStage<Boolean> deleteUserAliasAsync(String email, String alias) {
+    CompletionStage<UrlAlias> found = destinations == null
+        ? CompletableFuture.completedFuture(null) : asyncUrls.findUrlAlias(alias);
+    return found
+        .thenCompose(deleted -> asyncUrls.deleteUrlAlias(email, alias).thenApply(ignored -> {
+          if (deleted != null) {
+            destinations.remove(deleted);
+          }
+          return true;
+        }))
+        .exceptionally(e -> {
+          if (unwrap(e) instanceof PermissionDenied) {
+            return false;
+          }
+          throw e instanceof CompletionException
+              ? (CompletionException) e : new CompletionException(e);
+        });
+  }
+
+  /**
+   * Returns a page of the aliases of the user without blocking, see
+   * {@link #getUserAliases(String, String, int)}.
+   */
+  public CompletionStage<UrlRepository.Page> getUserAliasesAsync(
+      String email, @Nullable String cursor, int limit
+  ) {
+    return asyncUrls.getAliasesForUser(email, cursor, limit);
+  }
+
+  private CompletionStage<Void> upgradeHashAsync(String email, String password) {
+    return supplyAsync(() -> hashUtils.generateHash(password), hashingExecutor)
+        .thenCompose(hash -> asyncUsers.updateUser(new User(email, hash)))
+        .exceptionally(e -> {
+          // The old hash is still valid; the upgrade is tried again on the next sign in.
+          logger.warn("Could not upgrade the password hash of {}", email, e);
+          return null;
+        });
+  }
+
+  private static <T> CompletionStage<T> supplyAsync(Supplier<T> operation, Executor executor) {
+    try {
+      return CompletableFuture.supplyAsync(operation, executor);
+    } catch (RuntimeException e) {
+      // The executor rejects the work, e.g. HashingExecutor.Overloaded.
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private static Throwable unwrap(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+  }
+
+  private void create(UrlAlias urlAlias) throws AliasAlreadyExist {
+    urls.createUrlAlias(urlAlias);
+    if (destinations != null) {
+      destinations.add(urlAlias);
+    }
+  }
+
   /**
    * Error for situation when we are trying to register already registered user.
    */
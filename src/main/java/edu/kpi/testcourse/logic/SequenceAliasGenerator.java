@@ -0,0 +1,127 @@
+package edu.kpi.testcourse.logic;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.AliasGeneratorSettings;
+import edu.kpi.testcourse.storage.IdBlockRepository;
+import javax.annotation.Nullable;
+
+/**
+ * Generates aliases from a sequence of numbers, so that generated aliases never repeat.
+ *
+ * <p>The numbers are leased from an {@link IdBlockRepository} in blocks and handed out from memory,
+ * so the repository is written once per block, not per alias. A number is written in base 62
+ * (digits, then upper- and lowercase letters). Without scrambling the aliases are as short as
+ * possible, but reveal the order and the number of the created URLs. With scrambling the number is
+ * first mapped to another number below 62<sup>8</sup> by a keyed permutation (a Feistel network
+ * with cycle walking), which is bijective, so the aliases still never repeat, and always encoded
+ * with 8 characters. The key of the permutation is a secret: with it the numbers can be recovered
+ * from the aliases. Unless the settings have one, it is the key of the
+ * {@link IdBlockRepository#scrambleKey() sequence}.
+ */
+public class SequenceAliasGenerator implements AliasGenerator {
+  private static final char[] ALPHABET =
+      "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+  private static final int SCRAMBLED_LENGTH = 8;
+  // 62^8, the number of aliases of 8 characters.
+  static final long SCRAMBLED_DOMAIN = 218_340_105_584_896L;
+  // The Feistel network works on 48 bits, just above SCRAMBLED_DOMAIN.
+  private static final int HALF_BITS = 24;
+  private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+  private static final int ROUNDS = 6;
+
+  private final IdBlockRepository idBlocks;
+  private final int blockSize;
+  private final @Nullable long[] roundKeys;
+  private long next;
+  private long blockEnd;
+
+  /**
+   * Creates an instance.
+   *
+   * @param settings the block size and the scrambling; the mode is not checked
+   */
+  public SequenceAliasGenerator(IdBlockRepository idBlocks, AliasGeneratorSettings settings) {
+    if (settings.blockSize() < 1) {
+      throw new IllegalArgumentException("The block size must be positive");
+    }
+    this.idBlocks = idBlocks;
+    this.blockSize = settings.blockSize();
+    if (settings.scramble()) {
+      long key = settings.scrambleKey() != 0 ? settings.scrambleKey() : idBlocks.scrambleKey();
+      this.roundKeys = roundKeys(key);
+    } else {
+      this.roundKeys = null;
+    }
+  }
+
+  @Override
+  public String generate() {
+    long id = nextId();
+    if (roundKeys == null) {
+      return encode(id, 1);
+    }
+    if (id >= SCRAMBLED_DOMAIN) {
+      throw new IllegalStateException("All scrambled aliases have been used");
+    }
+    return encode(scramble(id), SCRAMBLED_LENGTH);
+  }
+
+  private synchronized long nextId() {
+    if (next == blockEnd) {
+      next = idBlocks.leaseBlock(blockSize);
+      blockEnd = next + blockSize;
+    }
+    return next++;
+  }
+
+  /**
+   * Maps a number below {@link #SCRAMBLED_DOMAIN} to another one, a different one for every input.
+   */
+  long scramble(long id) {
+    // The network permutes all 48-bit numbers; applying it again until the result falls into the
+    // domain permutes the domain. About 1.3 rounds are needed on average.
+    long result = id;
+    do {
+      result = feistel(result);
+    } while (result >= SCRAMBLED_DOMAIN);
+    return result;
+  }
+
+  private long feistel(long value) {
+    long left = value >>> HALF_BITS;
+    long right = value & HALF_MASK;
+    for (long roundKey : roundKeys) {
+      long mixed = (right ^ roundKey) * 0x9e3779b97f4a7c15L;
+      long newRight = left ^ ((mixed ^ mixed >>> 29) >>> (Long.SIZE - HALF_BITS));
+      left = right;
+      right = newRight;
+    }
+    return left << HALF_BITS | right;
+  }
+
+  private static long[] roundKeys(long key) {
+    // SplitMix64 spreads one key over the rounds.
+    long[] keys = new long[ROUNDS];
+    long state = key;
+    for (int round = 0; round < ROUNDS; round++) {
+      state += 0x9e3779b97f4a7c15L;
+      long mixed = (state ^ state >>> 30) * 0xbf58476d1ce4e5b9L;
+      mixed = (mixed ^ mixed >>> 27) * 0x94d049bb133111ebL;
+      keys[round] = mixed ^ mixed >>> 31;
+    }
+    return keys;
+  }
+
+  /**
+   * Writes the number in base 62, padded with zeros to the minimal length.
+   */
+  static String encode(long number, int minLength) {
+    char[] digits = new char[11];
+    int position = digits.length;
+    long rest = number;
+    do {
+      digits[--position] = ALPHABET[(int) (rest % ALPHABET.length)];
+      rest /= ALPHABET.length;
+    } while (rest > 0 || digits.length - position < minLength);
+    return new String(digits, position, digits.length - position);
+  }
+}
@@ -1,9 +1,293 @@
 package edu.kpi.testcourse.logic;
 
+import java.nio.file.Path;
+
 /**
  * Runtime server-side configuration for the URL shortener application.
  *
  * @param storageRoot Full path to the DB root directory.
+ * @param journal Persistence settings of the file-backed repositories.
+ * @param groupCommit Batching of the disk writes of the file-backed repositories.
+ * @param aliasShards Number of shards of the sharded alias repository. Changing it requires
+ *     resharding the existing data offline.
+ * @param lsm Settings of the sorted storage engine behind the LSM alias repository.
+ * @param aliasGenerator How aliases are generated when the user doesn't propose one.
+ * @param deduplicateUrls Whether a user asking again to shorten the same URL without proposing an
+ *     alias gets the alias created before instead of a new one.
+ * @param aliasPageSize Number of aliases listed at once when the client doesn't ask for another
+ *     number.
+ * @param clickCounter Counting of the redirects of every alias.
+ * @param redirectCacheSize Number of aliases kept in memory for redirects, 0 to look every alias
+ *     up in the repository.
+ * @param hashing Threads that hash the passwords on signup and login.
  */
-public record UrlShortenerConfig(java.nio.file.Path storageRoot) {
+public record UrlShortenerConfig(
+    Path storageRoot,
+    JournalSettings journal,
+    GroupCommitSettings groupCommit,
+    int aliasShards,
+    LsmSettings lsm,
+    AliasGeneratorSettings aliasGenerator,
+    boolean deduplicateUrls,
+    int aliasPageSize,
+    ClickCounterSettings clickCounter,
+    int redirectCacheSize,
+    HashingSettings hashing
+) {
+  public static final int DEFAULT_ALIAS_SHARDS = 16;
+  public static final int DEFAULT_ALIAS_PAGE_SIZE = 1000;
+  public static final int DEFAULT_REDIRECT_CACHE_SIZE = 100_000;
+
+
+  /**
+   * Creates a configuration with default settings for everything except the storage location.
+   */
+  public UrlShortenerConfig(Path storageRoot) {
+    this(
+        storageRoot,
+        JournalSettings.DISABLED,
+        GroupCommitSettings.DEFAULT,
+        DEFAULT_ALIAS_SHARDS,
+        LsmSettings.DEFAULT,
+        AliasGeneratorSettings.SEQUENCE,
+        false,
+        DEFAULT_ALIAS_PAGE_SIZE,
+        ClickCounterSettings.DEFAULT,
+        DEFAULT_REDIRECT_CACHE_SIZE,
+        HashingSettings.DEFAULT
+    );
+  }
+
+  public UrlShortenerConfig withStorageRoot(Path storageRoot) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withJournal(JournalSettings journal) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withGroupCommit(GroupCommitSettings groupCommit) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withAliasShards(int aliasShards) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withLsm(LsmSettings lsm) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withAliasGenerator(AliasGeneratorSettings aliasGenerator) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withDeduplicateUrls(boolean deduplicateUrls) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withAliasPageSize(int aliasPageSize) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withClickCounter(ClickCounterSettings clickCounter) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withRedirectCacheSize(int redirectCacheSize) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  public UrlShortenerConfig withHashing(HashingSettings hashing) {
+    return new UrlShortenerConfig(
+        storageRoot, journal, groupCommit, aliasShards, lsm, aliasGenerator, deduplicateUrls,
+        aliasPageSize, clickCounter, redirectCacheSize, hashing);
+  }
+
+  /**
+   * Settings of the append-only mutation journal.
+   *
+   * <p>When the journal is disabled the repositories rewrite the whole JSON database file on every
+   * change. When it is enabled every change is appended to the journal as a small record and the
+   * JSON file is only read at startup.
+   *
+   * <p>A background compactor keeps the journal short: once the journal has grown past one of the
+   * snapshot thresholds it writes the current content of the repository to the JSON file and
+   * deletes the journal segments that the snapshot covers.
+   *
+   * @param enabled whether mutations are journaled instead of rewriting the whole file
+   * @param snapshotThresholdBytes journal size (in bytes) that triggers a new snapshot, 0 or less
+   *     for none
+   * @param snapshotThresholdRecords number of journal records that triggers a new snapshot, 0 or
+   *     less for none
+   */
+  public record JournalSettings(
+      boolean enabled,
+      long snapshotThresholdBytes,
+      long snapshotThresholdRecords
+  ) {
+    public static final JournalSettings DISABLED = new JournalSettings(false, 0, 0);
+    public static final JournalSettings ENABLED =
+        new JournalSettings(true, 64L * 1024 * 1024, 1_000_000);
+
+    public JournalSettings withSnapshotThresholds(long bytes, long records) {
+      return new JournalSettings(enabled, bytes, records);
+    }
+  }
+
+  /**
+   * Settings of the group commit of the file-backed repositories.
+   *
+   * <p>Request threads don't write to disk themselves. They hand their change to a single writer
+   * thread and wait. The writer takes everything that is queued (up to {@code maxBatchSize}
+   * changes), writes it with one write call and one fsync, and only then lets the waiting threads
+   * return. With the journal enabled a batch is a run of journal records, otherwise it is one
+   * rewrite of the JSON file that covers all changes of the batch.
+   *
+   * <p>With a zero linger the writer never waits on purpose: changes that arrive while the previous
+   * batch is being fsynced form the next batch. A positive linger makes the writer wait up to that
+   * long after the first change of a batch for more changes, which trades latency of a lone
+   * change for fewer fsyncs.
+   *
+   * @param maxBatchSize the maximum number of changes written with one fsync
+   * @param maxLingerMicros how long (in microseconds) the writer may wait to fill a batch
+   */
+  public record GroupCommitSettings(int maxBatchSize, long maxLingerMicros) {
+    public static final GroupCommitSettings DEFAULT = new GroupCommitSettings(1024, 0);
+  }
+
+  /**
+   * Settings of the log-structured merge tree.
+   *
+   * <p>Writes go to a journal and an in-memory sorted table. Once the table has grown past
+   * {@code memtableBytes} it is written to disk as an immutable sorted file, and once there are
+   * {@code compactionTrigger} such files they are merged into one.
+   *
+   * @param memtableBytes size of the in-memory table that triggers a flush to disk
+   * @param blockBytes target size of a block, the unit of reading and caching sorted files
+   * @param blockCacheBytes memory budget of the cache of recently read blocks
+   * @param compactionTrigger number of sorted files that triggers their merge
+   * @param bloomBitsPerKey size of the Bloom filter of a sorted file, per key; 10 bits give about
+   *     1% of false positives
+   */
+  public record LsmSettings(
+      long memtableBytes,
+      int blockBytes,
+      long blockCacheBytes,
+      int compactionTrigger,
+      int bloomBitsPerKey
+  ) {
+    public static final LsmSettings DEFAULT =
+        new LsmSettings(16L * 1024 * 1024, 4096, 64L * 1024 * 1024, 4, 10);
+  }
+
+  /**
+   * Settings of the alias generation.
+   *
+   * <p>{@link Mode#RANDOM} picks 8 random characters, which may collide with existing aliases.
+   * {@link Mode#SEQUENCE} numbers the aliases, see {@link SequenceAliasGenerator}: the numbers are
+   * leased in blocks of {@code blockSize} from the persistent sequence, so a restart skips at most
+   * the rest of a block. With {@code scramble} set the numbers are permuted with a secret key, so
+   * that the aliases can't be guessed. The key is generated at random with the sequence and kept
+   * with it, see {@link edu.kpi.testcourse.storage.IdBlockRepository#scrambleKey()}, unless
+   * {@code scrambleKey} sets one.
+   *
+   * <p>With a positive {@code poolCapacity} the aliases of either mode are generated ahead of time
+   * and checked against the repository by a background thread, see {@link AliasPool}.
+   *
+   * @param mode how aliases are generated
+   * @param blockSize number of sequence numbers leased at once
+   * @param scramble whether sequence numbers are permuted before encoding
+   * @param scrambleKey the key of the permutation, or 0 for the key of the sequence
+   * @param poolCapacity the maximal number of aliases generated ahead of time, or 0 for none
+   */
+  public record AliasGeneratorSettings(
+      Mode mode,
+      int blockSize,
+      boolean scramble,
+      long scrambleKey,
+      int poolCapacity
+  ) {
+    public static final AliasGeneratorSettings RANDOM =
+        new AliasGeneratorSettings(Mode.RANDOM, 0, false, 0, 1024);
+    public static final AliasGeneratorSettings SEQUENCE =
+        new AliasGeneratorSettings(Mode.SEQUENCE, 1000, true, 0, 1024);
+
+    public AliasGeneratorSettings withPoolCapacity(int poolCapacity) {
+      return new AliasGeneratorSettings(mode, blockSize, scramble, scrambleKey, poolCapacity);
+    }
+
+    /**
+     * Alias generation modes.
+     */
+    public enum Mode {
+      RANDOM,
+      SEQUENCE
+    }
+  }
+
+  /**
+   * Settings of the click counting.
+   *
+   * <p>A redirect only increments an in-memory counter of the alias, see {@link ClickCounter}; a
+   * background thread adds the counted clicks to the repository every {@code flushIntervalMillis}.
+   * The clicks counted since the last flush are lost on a crash.
+   *
+   * <p>Redirects also feed the per-minute, per-hour and per-day click series of the aliases, see
+   * {@link ClickRollups}. The series are kept in memory only, within {@code rollupMemoryBytes};
+   * once it is used up the series of the aliases clicked least recently are dropped.
+   *
+   * @param enabled whether the redirects are counted
+   * @param flushIntervalMillis how often (in milliseconds) the counted clicks are persisted
+   * @param rollupMemoryBytes memory budget of the click series
+   */
+  public record ClickCounterSettings(
+      boolean enabled,
+      long flushIntervalMillis,
+      long rollupMemoryBytes
+  ) {
+    public static final ClickCounterSettings DEFAULT =
+        new ClickCounterSettings(true, 1000, 64L * 1024 * 1024);
+    public static final ClickCounterSettings DISABLED = new ClickCounterSettings(false, 0, 0);
+  }
+
+  /**
+   * Settings of the password hashing, see {@link HashingExecutor}.
+   *
+   * <p>Half of the processors by default, so that a burst of logins leaves the other half to the
+   * event loops.
+   *
+   * <p>The number of PBKDF2 iterations is calibrated at startup so that a hash takes about
+   * {@code targetHashMillis} on the machine, which makes a login cost predictable: at most
+   * {@code threads * 1000 / targetHashMillis} logins per second. The hashes of the users who sign
+   * in are upgraded to the calibrated cost.
+   *
+   * @param threads number of threads that hash passwords
+   * @param queueCapacity number of hashings that may wait for a thread; more are rejected with 503
+   * @param targetHashMillis time (in milliseconds) that one hash should take
+   */
+  public record HashingSettings(int threads, int queueCapacity, long targetHashMillis) {
+    public static final HashingSettings DEFAULT = new HashingSettings(
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 256, 50);
+  }
 }
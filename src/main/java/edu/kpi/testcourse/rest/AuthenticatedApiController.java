@@ -1,18 +1,23 @@
 package edu.kpi.testcourse.rest;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.google.gson.Gson;
 import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.AliasImporter;
+import edu.kpi.testcourse.logic.ClickCounter;
+import edu.kpi.testcourse.logic.ClickRollups;
 import edu.kpi.testcourse.logic.Logic;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.rest.models.ClickCountResponse;
 import edu.kpi.testcourse.rest.models.ErrorResponse;
 import edu.kpi.testcourse.rest.models.UrlShortenRequest;
 import edu.kpi.testcourse.rest.models.UrlShortenResponse;
+import edu.kpi.testcourse.rest.models.UrlShortenResult;
 import edu.kpi.testcourse.serialization.JsonTool;
 import edu.kpi.testcourse.storage.UrlRepository.AliasAlreadyExist;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.MediaType;
+import io.micronaut.http.MutableHttpResponse;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
@@ -20,8 +25,17 @@ import io.micronaut.http.annotation.Post;
 import io.micronaut.http.server.util.HttpHostResolver;
 import io.micronaut.security.annotation.Secured;
 import io.micronaut.security.rules.SecurityRule;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import java.io.InputStream;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 /**
@@ -31,67 +45,232 @@ import javax.inject.Inject;
 @Controller
 public class AuthenticatedApiController {
 
+  private static final int MAX_BATCH_SIZE = 50_000;
+  private static final String NDJSON = "application/x-ndjson";
+  // Chunks of an import body received ahead of the importer.
+  private static final int IMPORT_PREFETCH_CHUNKS = 16;
+  private static final int MAX_PAGE_SIZE = 10_000;
+  private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
   private final Logic logic;
+  private final AliasImporter importer;
+  private final ClickCounter clickCounter;
+  private final ClickRollups clickRollups;
   private final JsonTool json;
   private final HttpHostResolver httpHostResolver;
+  private final UrlShortenerConfig appConfig;
 
   /**
    * Main constructor.
    *
    * @param logic the business logic module
+   * @param importer the NDJSON importer of aliases
+   * @param clickCounter counts the redirects
+   * @param clickRollups counts the redirects per minute, hour and day
    * @param json JSON serialization tool
    * @param httpHostResolver micronaut httpHostResolver
+   * @param appConfig the application configuration
    */
   @Inject
   public AuthenticatedApiController(
     Logic logic,
+    AliasImporter importer,
+    ClickCounter clickCounter,
+    ClickRollups clickRollups,
     JsonTool json,
-    HttpHostResolver httpHostResolver
+    HttpHostResolver httpHostResolver,
+    UrlShortenerConfig appConfig
   ) {
     this.logic = logic;
+    this.importer = importer;
+    this.clickCounter = clickCounter;
+    this.clickRollups = clickRollups;
     this.json = json;
     this.httpHostResolver = httpHostResolver;
+    this.appConfig = appConfig;
   }
 
   /**
-   * Create URL alias.
+   * Create URL alias, which expires if the request has a TTL or an expiry time.
    */
   @Post(value = "/urls/shorten", processes = MediaType.APPLICATION_JSON)
-  public HttpResponse<String> shorten(
+  public Single<HttpResponse<String>> shorten(
     @Body UrlShortenRequest request,
     Principal principal,
     HttpRequest<?> httpRequest
-  ) throws JsonProcessingException {
+  ) {
     String email = principal.getName();
+    Long expiresAt;
     try {
-      String baseUrl = httpHostResolver.resolve(httpRequest);
-      var shortenedUrl = baseUrl + "/r/"
-        + logic.createNewAlias(email, request.url(), request.alias());
-      return HttpResponse.created(
-        json.toJson(new UrlShortenResponse(shortenedUrl)));
-    } catch (AliasAlreadyExist e) {
-      return HttpResponse.serverError(
-        json.toJson(new ErrorResponse(1, "Alias is already taken"))
-      );
+      expiresAt = request.expiresAtMillis(System.currentTimeMillis());
+    } catch (IllegalArgumentException e) {
+      return Single.just(
+        HttpResponse.badRequest(json.toJson(new ErrorResponse(6, e.getMessage()))));
+    }
+    String baseUrl = httpHostResolver.resolve(httpRequest);
+    return Reactive
+      .toSingle(logic.createNewAliasAsync(email, request.url(), request.alias(), expiresAt))
+      .<HttpResponse<String>>map(alias -> HttpResponse.created(
+        json.toJson(new UrlShortenResponse(baseUrl + "/r/" + alias))))
+      .onErrorResumeNext(e -> {
+        if (!(e instanceof AliasAlreadyExist)) {
+          return Single.error(e);
+        }
+        return Single.just(HttpResponse.serverError(
+          json.toJson(new ErrorResponse(1, "Alias is already taken"))));
+      });
+  }
+
+  /**
+   * Create URL aliases in bulk. The result of every item is reported separately, in the order of
+   * the request: a taken alias fails only its own item.
+   */
+  @Post(value = "/urls/shorten/batch", processes = MediaType.APPLICATION_JSON)
+  public Single<HttpResponse<String>> shortenBatch(
+    @Body List<UrlShortenRequest> requests,
+    Principal principal,
+    HttpRequest<?> httpRequest
+  ) {
+    if (requests.size() > MAX_BATCH_SIZE) {
+      return Single.just(HttpResponse.badRequest(json.toJson(
+        new ErrorResponse(2, "At most " + MAX_BATCH_SIZE + " URLs can be shortened at once"))));
     }
+    long now = System.currentTimeMillis();
+    var expiries = new ArrayList<Long>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      try {
+        expiries.add(requests.get(i).expiresAtMillis(now));
+      } catch (IllegalArgumentException e) {
+        return Single.just(HttpResponse.badRequest(json.toJson(
+          new ErrorResponse(6, "URL " + (i + 1) + ": " + e.getMessage()))));
+      }
+    }
+    String email = principal.getName();
+    String baseUrl = httpHostResolver.resolve(httpRequest);
+    return Reactive.toSingle(logic.createNewAliasesAsync(
+      email,
+      requests.stream().map(UrlShortenRequest::url).collect(Collectors.toList()),
+      requests.stream().map(UrlShortenRequest::alias).collect(Collectors.toList()),
+      expiries)
+    ).<HttpResponse<String>>map(aliases -> {
+      var results = new ArrayList<UrlShortenResult>(aliases.size());
+      for (String alias : aliases) {
+        results.add(alias != null
+          ? new UrlShortenResult(baseUrl + "/r/" + alias, null)
+          : new UrlShortenResult(null, new ErrorResponse(1, "Alias is already taken")));
+      }
+      return HttpResponse.created(json.toJson(results));
+    });
+  }
+
+  /**
+   * Import URL aliases from an NDJSON body of any size, see {@link AliasImporter}. The body is read
+   * as it arrives and the response is NDJSON as well: the totals after every inserted chunk, then
+   * the report with the rejected lines. A client that reads the response slowly misses some of the
+   * intermediate totals, never the report.
+   */
+  @Post(value = "/urls/import", consumes = NDJSON, produces = NDJSON)
+  public Flowable<String> importAliases(@Body Flowable<byte[]> body, Principal principal) {
+    String email = principal.getName();
+    return Flowable.<String>create(emitter -> {
+      try (InputStream input = new BodyInputStream(body, IMPORT_PREFETCH_CHUNKS)) {
+        AliasImporter.Report report = importer.importAliases(
+          email, input, progress -> emitter.onNext(json.toJson(progress) + "\n"));
+        emitter.onNext(json.toJson(report) + "\n");
+        emitter.onComplete();
+      }
+    }, BackpressureStrategy.LATEST).subscribeOn(Schedulers.io());
+  }
+
+  /**
+   * Returns the number of redirects made through an alias of the user.
+   */
+  @Get(value = "/urls/{alias}/clicks", produces = MediaType.APPLICATION_JSON)
+  public Single<HttpResponse<String>> clicks(Principal principal, String alias) {
+    return Reactive.toMaybe(logic.findUserAliasAsync(principal.getName(), alias))
+      .<HttpResponse<String>>map(found -> HttpResponse.ok(
+        json.toJson(new ClickCountResponse(alias, clickCounter.getClicks(alias)))))
+      .toSingle(HttpResponse.notFound());
+  }
+
+  /**
+   * Returns the clicks of an alias of the user per minute, hour or day, see {@link ClickRollups}.
+   * Without the number of buckets, all that are kept are returned.
+   */
+  @Get(value = "/urls/{alias}/clicks/{resolution}{?buckets}", produces = MediaType.APPLICATION_JSON)
+  public Single<HttpResponse<String>> clickSeries(
+    Principal principal,
+    String alias,
+    String resolution,
+    @Nullable Integer buckets
+  ) {
+    return Reactive.toMaybe(logic.findUserAliasAsync(principal.getName(), alias))
+      .map(found -> clickSeries(alias, resolution, buckets))
+      .toSingle(HttpResponse.notFound());
+  }
+
+  private HttpResponse<String> clickSeries(
+    String alias,
+    String resolution,
+    @Nullable Integer buckets
+  ) {
+    ClickRollups.Resolution bucketSize;
+    try {
+      bucketSize = ClickRollups.Resolution.valueOf(resolution.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return HttpResponse.badRequest(json.toJson(
+        new ErrorResponse(5, "The resolution must be minute, hour or day")));
+    }
+    int bucketCount = buckets == null ? bucketSize.buckets() : buckets;
+    if (bucketCount < 1 || bucketCount > bucketSize.buckets()) {
+      return HttpResponse.badRequest(json.toJson(
+        new ErrorResponse(3, "The buckets must be between 1 and " + bucketSize.buckets())));
+    }
+    return HttpResponse.ok(json.toJson(clickRollups.query(alias, bucketSize, bucketCount)));
   }
 
   /** Deletes user alias */
   @Get(value = "/urls/{alias}")
-  public HttpResponse<String> deletes(Principal principal, String alias){
+  public Single<HttpResponse<String>> deletes(Principal principal, String alias){
     String email = principal.getName();
-    boolean wasDeleted = logic.deleteUserAlias(email, alias);
-    if (wasDeleted){
-      return HttpResponse.status(HttpStatus.OK);
-    }
-    else {return HttpResponse.notFound();}
+    return Reactive.toSingle(logic.deleteUserAliasAsync(email, alias))
+      .<HttpResponse<String>>map(wasDeleted -> wasDeleted
+        ? HttpResponse.<String>status(HttpStatus.OK)
+        : HttpResponse.<String>notFound());
   }
 
-  /** Listing user aliases */
-  @Get(value = "/urls")
-  public HttpResponse<String> listsAliases(Principal principal){
+  /**
+   * Listing user aliases, a page at a time. The page is streamed to the response as a JSON array,
+   * the cursor of the next page is in the {@value #NEXT_CURSOR_HEADER} header, which the last page
+   * doesn't have.
+   */
+  @Get(value = "/urls{?cursor,limit}")
+  public Single<HttpResponse<?>> listsAliases(
+    Principal principal,
+    @Nullable String cursor,
+    @Nullable Integer limit
+  ) {
     String email = principal.getName();
-    List<UrlAlias>  userAliases = logic.getUserAliases(email);
-    return HttpResponse.ok(new Gson().toJson(userAliases));
+    int pageSize = limit == null ? appConfig.aliasPageSize() : limit;
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+      return Single.just(HttpResponse.badRequest(json.toJson(
+        new ErrorResponse(3, "The limit must be between 1 and " + MAX_PAGE_SIZE))));
+    }
+    return Reactive.toSingle(logic.getUserAliasesAsync(email, cursor, pageSize))
+      .<HttpResponse<?>>map(page -> {
+        MutableHttpResponse<Flowable<UrlAlias>> response =
+          HttpResponse.ok(Flowable.fromIterable(page.aliases()));
+        if (page.nextCursor() != null) {
+          response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response;
+      })
+      .onErrorResumeNext(e -> {
+        if (!(e instanceof IllegalArgumentException)) {
+          return Single.error(e);
+        }
+        return Single.just(
+          HttpResponse.badRequest(json.toJson(new ErrorResponse(4, "Invalid cursor"))));
+      });
   }
 }
@@ -1,5 +1,6 @@
 package edu.kpi.testcourse.rest;
 
+import edu.kpi.testcourse.logic.HashingExecutor;
 import edu.kpi.testcourse.logic.Logic;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import io.micronaut.http.HttpRequest;
@@ -18,7 +19,8 @@ import org.reactivestreams.Publisher;
 
 /**
  * Micronaut authentication bean that contains authorization logic: ensures that a user is
- * registered in the system and password is right.
+ * registered in the system and password is right. The password is checked on a
+ * {@link HashingExecutor} thread, never on the event loop.
  */
 @Singleton
 public class AuthenticationProviderUserPassword implements AuthenticationProvider {
@@ -35,16 +37,20 @@ public class AuthenticationProviderUserPassword implements AuthenticationProvide
       @Nullable HttpRequest<?> httpRequest,
       AuthenticationRequest<?, ?> authenticationRequest
   ) {
-    return Flowable.create(emitter -> {
-      String email = (String) authenticationRequest.getIdentity();
-      String password = (String) authenticationRequest.getSecret();
-      if (logic.isUserValid(email, password)) {
-        emitter
-          .onNext(new UserDetails(email, new ArrayList<>()));
-        emitter.onComplete();
-      } else {
-        emitter.onError(new AuthenticationException(new AuthenticationFailed()));
-      }
-    }, BackpressureStrategy.ERROR);
+    String email = (String) authenticationRequest.getIdentity();
+    String password = (String) authenticationRequest.getSecret();
+    return Flowable.create(emitter -> logic
+      .isUserValidAsync(email, password)
+      .whenComplete((valid, e) -> {
+        if (e != null) {
+          emitter.onError(Reactive.unwrap(e));
+        } else if (valid) {
+          emitter
+            .onNext(new UserDetails(email, new ArrayList<>()));
+          emitter.onComplete();
+        } else {
+          emitter.onError(new AuthenticationException(new AuthenticationFailed()));
+        }
+      }), BackpressureStrategy.ERROR);
   }
 }
@@ -0,0 +1,77 @@
+package edu.kpi.testcourse.rest;
+
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Reads the chunks of a streamed request body as one stream.
+ *
+ * <p>Chunks are requested from the body a few at a time, as they are consumed, so the upload goes
+ * as fast as the reader and no faster: the server doesn't buffer more than the prefetched chunks.
+ * Reading blocks, so it must not happen on an event loop thread.
+ */
+final class BodyInputStream extends InputStream {
+  private final Iterator<byte[]> chunks;
+  private byte[] chunk = new byte[0];
+  private int position;
+
+  /**
+   * Creates an instance.
+   *
+   * @param body the chunks of the body
+   * @param prefetch the number of chunks requested ahead of the reader
+   */
+  BodyInputStream(Flowable<byte[]> body, int prefetch) {
+    this.chunks = body.blockingIterable(prefetch).iterator();
+  }
+
+  @Override
+  public int read() {
+    if (!nextChunkIfConsumed()) {
+      return -1;
+    }
+    return chunk[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) {
+    if (length == 0) {
+      return 0;
+    }
+    if (!nextChunkIfConsumed()) {
+      return -1;
+    }
+    int count = Math.min(length, chunk.length - position);
+    System.arraycopy(chunk, position, buffer, offset, count);
+    position += count;
+    return count;
+  }
+
+  /**
+   * Stops receiving the body.
+   */
+  @Override
+  public void close() {
+    if (chunks instanceof Disposable subscription) {
+      subscription.dispose();
+    }
+  }
+
+  /**
+   * Moves to the next non-empty chunk if the current one has been read.
+   *
+   * @return false at the end of the body
+   */
+  private boolean nextChunkIfConsumed() {
+    while (position == chunk.length) {
+      if (!chunks.hasNext()) {
+        return false;
+      }
+      chunk = chunks.next();
+      position = 0;
+    }
+    return true;
+  }
+}
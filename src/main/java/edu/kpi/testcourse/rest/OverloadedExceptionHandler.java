@@ -0,0 +1,33 @@
+package edu.kpi.testcourse.rest;
+
+import edu.kpi.testcourse.logic.HashingExecutor;
+import edu.kpi.testcourse.rest.models.ErrorResponse;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.annotation.Produces;
+import io.micronaut.http.server.exceptions.ExceptionHandler;
+import javax.inject.Singleton;
+
+/**
+ * Answers 503 with a hint to retry when too many passwords are waiting to be hashed, so that the
+ * clients back off instead of piling up requests.
+ */
+@Produces
+@Singleton
+@Requires(classes = {HashingExecutor.Overloaded.class, ExceptionHandler.class})
+public class OverloadedExceptionHandler
+    implements ExceptionHandler<HashingExecutor.Overloaded, HttpResponse<ErrorResponse>> {
+
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  @Override
+  public HttpResponse<ErrorResponse> handle(
+      HttpRequest request, HashingExecutor.Overloaded exception
+  ) {
+    return HttpResponse.<ErrorResponse>status(HttpStatus.SERVICE_UNAVAILABLE)
+      .header("Retry-After", RETRY_AFTER_SECONDS)
+      .body(new ErrorResponse(7, exception.getMessage()));
+  }
+}
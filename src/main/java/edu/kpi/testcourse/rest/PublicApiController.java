@@ -1,7 +1,9 @@
 package edu.kpi.testcourse.rest;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.kpi.testcourse.logic.ClickCounter;
+import edu.kpi.testcourse.logic.ClickRollups;
+import edu.kpi.testcourse.logic.HashingExecutor;
 import edu.kpi.testcourse.logic.Logic;
 import edu.kpi.testcourse.rest.models.ErrorResponse;
 import edu.kpi.testcourse.rest.models.UserSignupRequest;
@@ -13,6 +15,7 @@ import io.micronaut.http.annotation.Get;
 import io.micronaut.http.annotation.Post;
 import io.micronaut.security.annotation.Secured;
 import io.micronaut.security.rules.SecurityRule;
+import io.reactivex.Single;
 import java.net.URI;
 import javax.inject.Inject;
 
@@ -24,29 +27,45 @@ import javax.inject.Inject;
 public class PublicApiController {
 
   private final Logic logic;
+  private final ClickCounter clickCounter;
+  private final ClickRollups clickRollups;
   private final ObjectMapper objectMapper;
 
+  /**
+   * Main constructor.
+   *
+   * @param logic the business logic module
+   * @param clickCounter counts the redirects
+   * @param clickRollups counts the redirects per minute, hour and day
+   * @param objectMapper JSON serialization tool
+   */
   @Inject
-  public PublicApiController(Logic logic, ObjectMapper objectMapper) {
+  public PublicApiController(
+    Logic logic, ClickCounter clickCounter, ClickRollups clickRollups, ObjectMapper objectMapper
+  ) {
     this.logic = logic;
+    this.clickCounter = clickCounter;
+    this.clickRollups = clickRollups;
     this.objectMapper = objectMapper;
   }
 
   /**
-   * Sign-up (user creation) request.
+   * Sign-up (user creation) request. The password is hashed on a {@link HashingExecutor} thread.
    *
    * @param request request with email and password
    * @return nothing or error description
    */
   @Post(value = "/users/signup", produces = MediaType.APPLICATION_JSON)
-  public HttpResponse<String> signup(UserSignupRequest request) throws JsonProcessingException {
-    try {
-      logic.createNewUser(request.email(), request.password());
-      return HttpResponse.status(HttpStatus.CREATED);
-    } catch (Logic.UserIsAlreadyCreated e) {
-      return HttpResponse.serverError(
-        objectMapper.writeValueAsString(new ErrorResponse(0, e.getMessage())));
-    }
+  public Single<HttpResponse<String>> signup(UserSignupRequest request) {
+    return Reactive.toCompletable(logic.createNewUserAsync(request.email(), request.password()))
+      .<HttpResponse<String>>toSingleDefault(HttpResponse.status(HttpStatus.CREATED))
+      .onErrorResumeNext(e -> {
+        if (!(e instanceof Logic.UserIsAlreadyCreated)) {
+          return Single.error(e);
+        }
+        return Single.just(HttpResponse.serverError(
+          objectMapper.writeValueAsString(new ErrorResponse(0, e.getMessage()))));
+      });
   }
 
   /**
@@ -55,12 +74,13 @@ public class PublicApiController {
    * @param alias a short URL alias
    */
   @Get(value = "/r/{alias}")
-  public HttpResponse<?> redirect(String alias) {
-    String fullUrl = logic.findFullUrl(alias);
-    if (fullUrl != null) {
-      return HttpResponse.redirect(URI.create(fullUrl));
-    } else {
-      return HttpResponse.notFound();
-    }
+  public Single<HttpResponse<?>> redirect(String alias) {
+    return Reactive.toMaybe(logic.findFullUrlAsync(alias))
+      .<HttpResponse<?>>map(fullUrl -> {
+        clickCounter.record(alias);
+        clickRollups.record(alias);
+        return HttpResponse.redirect(URI.create(fullUrl));
+      })
+      .toSingle(HttpResponse.notFound());
   }
 }
@@ -0,0 +1,60 @@
+package edu.kpi.testcourse.rest;
+
+import edu.kpi.testcourse.logic.Logic;
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Adapts the asynchronous methods of {@link Logic} to the RxJava types that Micronaut subscribes
+ * to, so that no controller waits for the storage or the password hashing on the event loop.
+ * The stages fail with the exceptions of the blocking methods, possibly wrapped in a
+ * {@link CompletionException}; the adapters unwrap them, so that the exception handlers and the
+ * error mappings of the controllers see the original exception.
+ */
+final class Reactive {
+
+  private Reactive() {
+  }
+
+  static <T> Single<T> toSingle(CompletionStage<T> stage) {
+    return Single.<T>create(emitter -> stage.whenComplete((value, e) -> {
+      if (e != null) {
+        emitter.onError(unwrap(e));
+      } else {
+        emitter.onSuccess(value);
+      }
+    }));
+  }
+
+  /**
+   * The maybe is empty if the stage completes with null.
+   */
+  static <T> Maybe<T> toMaybe(CompletionStage<T> stage) {
+    return Maybe.<T>create(emitter -> stage.whenComplete((value, e) -> {
+      if (e != null) {
+        emitter.onError(unwrap(e));
+      } else if (value == null) {
+        emitter.onComplete();
+      } else {
+        emitter.onSuccess(value);
+      }
+    }));
+  }
+
+  static Completable toCompletable(CompletionStage<?> stage) {
+    return Completable.create(emitter -> stage.whenComplete((value, e) -> {
+      if (e != null) {
+        emitter.onError(unwrap(e));
+      } else {
+        emitter.onComplete();
+      }
+    }));
+  }
+
+  static Throwable unwrap(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+  }
+}
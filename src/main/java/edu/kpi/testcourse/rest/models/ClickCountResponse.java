@@ -0,0 +1,11 @@
+package edu.kpi.testcourse.rest.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The number of redirects made through an alias.
+ */
+public record ClickCountResponse(
+    @JsonProperty("alias") String alias,
+    @JsonProperty("clicks") long clicks) {
+}
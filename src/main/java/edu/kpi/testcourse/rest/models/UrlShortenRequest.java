@@ -1,14 +1,72 @@
 package edu.kpi.testcourse.rest.models;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import javax.annotation.Nullable;
 
 /**
  * URL shorten request with long and short URLs.
  *
  * @param url a full version of URL
  * @param alias an alias ({base URL shortener URL}/{alias})
+ * @param ttlSeconds for how long the alias redirects, or null if it doesn't expire after a time
+ * @param expiresAt an ISO-8601 instant from which the alias doesn't redirect, or null if it
+ *     doesn't expire at a moment
  */
 public record UrlShortenRequest(
     @JsonProperty("url") String url,
-    @JsonProperty("alias") String alias) {
+    @JsonProperty("alias") String alias,
+    @JsonProperty("ttl_seconds") @Nullable Long ttlSeconds,
+    @JsonProperty("expires_at") @Nullable String expiresAt) {
+
+  // About 100 years.
+  public static final long MAX_TTL_SECONDS = 100L * 365 * 24 * 60 * 60;
+
+  @JsonCreator
+  public UrlShortenRequest {}
+
+  public UrlShortenRequest(String url, String alias) {
+    this(url, alias, null, null);
+  }
+
+  /**
+   * Returns the epoch millisecond from which the alias doesn't redirect, or null if it never
+   * expires.
+   *
+   * @param nowMillis the current epoch millisecond, the start of the TTL
+   * @throws IllegalArgumentException if both the TTL and the expiry time are given, the TTL is not
+   *     positive or above {@link #MAX_TTL_SECONDS}, or the expiry time is not an ISO-8601 instant
+   *     in the future
+   */
+  public @Nullable Long expiresAtMillis(long nowMillis) {
+    if (ttlSeconds != null && expiresAt != null) {
+      throw new IllegalArgumentException("Either ttl_seconds or expires_at can be given");
+    }
+    if (ttlSeconds != null) {
+      if (ttlSeconds < 1 || ttlSeconds > MAX_TTL_SECONDS) {
+        throw new IllegalArgumentException(
+            "ttl_seconds must be between 1 and " + MAX_TTL_SECONDS);
+      }
+      try {
+        return Math.addExact(nowMillis, ttlSeconds * 1000);
+      } catch (ArithmeticException e) {
+        throw new IllegalArgumentException("ttl_seconds is too large", e);
+      }
+    }
+    if (expiresAt != null) {
+      long expiresAtMillis;
+      try {
+        expiresAtMillis = Instant.parse(expiresAt).toEpochMilli();
+      } catch (DateTimeParseException | ArithmeticException e) {
+        throw new IllegalArgumentException("expires_at must be an ISO-8601 instant", e);
+      }
+      if (expiresAtMillis <= nowMillis) {
+        throw new IllegalArgumentException("expires_at must be in the future");
+      }
+      return expiresAtMillis;
+    }
+    return null;
+  }
 }
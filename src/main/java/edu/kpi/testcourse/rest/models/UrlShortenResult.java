@@ -0,0 +1,12 @@
+package edu.kpi.testcourse.rest.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import javax.annotation.Nullable;
+
+/**
+ * Result of shortening one URL of a batch: either the shortened URL or the error.
+ */
+public record UrlShortenResult(
+    @JsonProperty("shortened_url") @Nullable String shortenedUrl,
+    @JsonProperty("error") @Nullable ErrorResponse error) {
+}
@@ -1,6 +1,9 @@
 package edu.kpi.testcourse.serialization;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
+import java.util.function.BiConsumer;
 
 /**
  * Wrapper for JSON serialization/deserialization tool.
@@ -38,6 +41,18 @@ public interface JsonTool {
    */
   String toJson(Object obj);
 
+  /**
+   * Reads a JSON object whose values are all of the same type, one entry at a time, without
+   * holding the whole document in memory.
+   *
+   * @param input a stream with the JSON object, in UTF-8
+   * @param valueClass a class of the values
+   * @param consumer receives every key with its deserialized value, in document order
+   * @throws IOException if the stream can't be read
+   */
+  <T> void readObjectEntries(InputStream input, Class<T> valueClass, BiConsumer<String, T> consumer)
+      throws IOException;
+
   /**
    * JSON parsing error.
    */
@@ -1,9 +1,14 @@
 package edu.kpi.testcourse.serialization;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
+import java.util.function.BiConsumer;
 
 /**
  * JSON serialization tool that uses Jackson as engine.
@@ -43,4 +48,22 @@ public class JsonToolJacksonImpl implements JsonTool {
       throw new RuntimeException("Error during object-JSON serialization", e);
     }
   }
+
+  @Override
+  public <T> void readObjectEntries(
+      InputStream input, Class<T> valueClass, BiConsumer<String, T> consumer
+  ) throws IOException {
+    try (JsonParser parser = mapper.getFactory().createParser(input)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParsingError(new IllegalArgumentException("Expected a JSON object"));
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String key = parser.getCurrentName();
+        parser.nextToken();
+        consumer.accept(key, mapper.readValue(parser, valueClass));
+      }
+    } catch (JsonProcessingException e) {
+      throw new JsonParsingError(e);
+    }
+  }
 }
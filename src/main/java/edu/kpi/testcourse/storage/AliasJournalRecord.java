@@ -0,0 +1,21 @@
+package edu.kpi.testcourse.storage;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import edu.kpi.testcourse.entities.UrlAlias;
+
+/**
+ * A single change of a URL alias repository, as it is stored in a {@link Journal}.
+ *
+ * @param operation what happened to the alias
+ * @param urlAlias the created or deleted alias
+ */
+record AliasJournalRecord(
+    @JsonProperty("operation") Operation operation,
+    @JsonProperty("urlAlias") UrlAlias urlAlias
+) {
+
+  /**
+   * Kind of change.
+   */
+  enum Operation { PUT, DELETE }
+}
@@ -0,0 +1,76 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * Picks a page of aliases in the order of their names out of aliases that come in any order, for
+ * repositories that have to scan to list the aliases of a user. The cursor is the name of the last
+ * alias of the previous page.
+ *
+ * <p>Only the page is kept in memory: a heap of at most {@code limit} aliases, whose top is the
+ * greatest name collected so far and is evicted by every smaller one.
+ */
+final class AliasPageCollector implements Consumer<UrlAlias> {
+  private final @Nullable String after;
+  private final int limit;
+  private final PriorityQueue<UrlAlias> page;
+  private boolean more;
+
+  /**
+   * Creates an instance.
+   *
+   * @param cursor the cursor of the page, null for the first one
+   * @param limit the maximal number of aliases on the page
+   */
+  AliasPageCollector(@Nullable String cursor, int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("The page size must be positive");
+    }
+    this.after = cursor;
+    this.limit = limit;
+    this.page = new PriorityQueue<>(
+        Math.min(limit, 1024), Comparator.comparing(UrlAlias::alias).reversed());
+  }
+
+  @Override
+  public void accept(UrlAlias alias) {
+    if (after != null && alias.alias().compareTo(after) <= 0) {
+      return;
+    }
+    if (page.size() < limit) {
+      page.add(alias);
+    } else {
+      more = true;
+      if (alias.alias().compareTo(page.peek().alias()) < 0) {
+        page.poll();
+        page.add(alias);
+      }
+    }
+  }
+
+  /**
+   * Collects a page of aliases in the same order, which may be followed by more.
+   */
+  void acceptPage(UrlRepository.Page otherPage) {
+    otherPage.aliases().forEach(this);
+    if (otherPage.nextCursor() != null) {
+      more = true;
+    }
+  }
+
+  UrlRepository.Page page() {
+    var aliases = new ArrayList<>(page);
+    aliases.sort(Comparator.comparing(UrlAlias::alias));
+    return new UrlRepository.Page(aliases, more ? lastAlias(aliases) : null);
+  }
+
+  private static String lastAlias(List<UrlAlias> aliases) {
+    return aliases.get(aliases.size() - 1).alias();
+  }
+}
@@ -0,0 +1,160 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.serialization.JsonTool;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Offline tool that redistributes the aliases of {@link UrlRepositoryShardedImpl} over a new
+ * number of shards. The server must not be running.
+ *
+ * <p>Usage: <tt>AliasResharder &lt;storage root&gt; &lt;shard count&gt;</tt>. The source is the
+ * existing <tt>alias-shards</tt> layout or, if there is none yet, the single-file
+ * <tt>alias-repository.json</tt> of {@link UrlRepositoryFileImpl}, which is left untouched.
+ * Pending journal records of the source are applied. The source is read without opening its
+ * repositories, so nothing is written to it before the swap.
+ *
+ * <p>The new layout is written to <tt>alias-shards.new</tt> and then swapped in with two renames.
+ * If the tool is interrupted, the server refuses to start until the tool is run again, which
+ * finishes or discards the interrupted swap first.
+ */
+public final class AliasResharder {
+  private static final Logger logger = LoggerFactory.getLogger(AliasResharder.class);
+
+  private AliasResharder() {
+  }
+
+  /**
+   * Entry point of the tool.
+   */
+  public static void main(String[] args) {
+    if (args.length != 2) {
+      System.err.println("Usage: AliasResharder <storage root> <shard count>");
+      System.exit(2);
+    }
+    reshard(new JsonToolJacksonImpl(), Paths.get(args[0]), Integer.parseInt(args[1]));
+  }
+
+  /**
+   * Moves all aliases under the storage root to a layout with the given number of shards.
+   */
+  public static void reshard(JsonTool jsonTool, Path storageRoot, int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("The number of shards must be positive");
+    }
+    Path shardsRoot = UrlRepositoryShardedImpl.shardsRoot(storageRoot);
+    Path newShardsRoot = newShardsRoot(shardsRoot);
+    Path oldShardsRoot = oldShardsRoot(shardsRoot);
+    recoverInterruptedSwap(shardsRoot, newShardsRoot, oldShardsRoot);
+
+    List<Map<String, UrlAlias>> targets = new ArrayList<>(shardCount);
+    for (int shard = 0; shard < shardCount; shard++) {
+      targets.add(new HashMap<>());
+    }
+    Integer currentShardCount = UrlRepositoryShardedImpl.readShardCount(jsonTool, shardsRoot);
+    if (currentShardCount != null) {
+      for (int shard = 0; shard < currentShardCount; shard++) {
+        readAliases(jsonTool, UrlRepositoryShardedImpl.shardRoot(shardsRoot, shard))
+            .values().forEach(alias -> add(targets, alias));
+      }
+    } else {
+      readAliases(jsonTool, storageRoot).values().forEach(alias -> add(targets, alias));
+    }
+
+    UrlRepositoryShardedImpl.createLayout(jsonTool, newShardsRoot, shardCount);
+    long count = 0;
+    for (int shard = 0; shard < shardCount; shard++) {
+      Path shardRoot = UrlRepositoryShardedImpl.shardRoot(newShardsRoot, shard);
+      JournalCompactor.writeFileAtomically(
+          shardRoot.resolve("alias-repository.json"), jsonTool.toJson(targets.get(shard)));
+      count += targets.get(shard).size();
+    }
+    try {
+      if (Files.exists(shardsRoot)) {
+        Files.move(shardsRoot, oldShardsRoot, StandardCopyOption.ATOMIC_MOVE);
+      }
+      Files.move(newShardsRoot, shardsRoot, StandardCopyOption.ATOMIC_MOVE);
+      deleteRecursively(oldShardsRoot);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    logger.info("Moved {} aliases to {} shards in {}", count, shardCount, shardsRoot);
+  }
+
+  /**
+   * Reads the aliases of a {@link UrlRepositoryFileImpl}: its JSON file with its journal replayed
+   * on top.
+   */
+  private static Map<String, UrlAlias> readAliases(JsonTool jsonTool, Path root) {
+    Map<String, UrlAlias> loaded = JsonDatabaseLoader.loadAliases(jsonTool, root);
+    Map<String, UrlAlias> aliases = loaded != null ? loaded : new HashMap<>();
+    Journal.replayReadOnly(root, UrlRepositoryFileImpl.JOURNAL_NAME, payload -> {
+      AliasJournalRecord record = jsonTool.fromJson(
+          new String(payload, StandardCharsets.UTF_8), AliasJournalRecord.class);
+      switch (record.operation()) {
+        case PUT -> aliases.put(record.urlAlias().alias(), record.urlAlias());
+        case DELETE -> aliases.remove(record.urlAlias().alias());
+        default -> throw new IllegalStateException(
+            "Unknown journal operation " + record.operation());
+      }
+    });
+    return aliases;
+  }
+
+  static Path newShardsRoot(Path shardsRoot) {
+    return shardsRoot.resolveSibling(shardsRoot.getFileName() + ".new");
+  }
+
+  static Path oldShardsRoot(Path shardsRoot) {
+    return shardsRoot.resolveSibling(shardsRoot.getFileName() + ".old");
+  }
+
+  private static void recoverInterruptedSwap(
+      Path shardsRoot, Path newShardsRoot, Path oldShardsRoot
+  ) {
+    try {
+      if (Files.exists(oldShardsRoot)) {
+        if (!Files.exists(shardsRoot)) {
+          // Interrupted between the two renames: the new layout is complete.
+          Files.move(newShardsRoot, shardsRoot, StandardCopyOption.ATOMIC_MOVE);
+        }
+        deleteRecursively(oldShardsRoot);
+      }
+      // Anything else left in the new layout is incomplete, it is rebuilt from the source.
+      deleteRecursively(newShardsRoot);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void add(List<Map<String, UrlAlias>> targets, UrlAlias alias) {
+    targets.get(UrlRepositoryShardedImpl.shardIndex(alias.alias(), targets.size()))
+        .put(alias.alias(), alias);
+  }
+
+  static void deleteRecursively(Path root) throws IOException {
+    if (!Files.exists(root)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.storage.UrlRepository.Page;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import javax.annotation.Nullable;
+
+/**
+ * The non-blocking variant of {@link UrlRepository}, see {@link UrlRepository#async}: every method
+ * returns at once and the stage completes once the operation is done, or completes exceptionally
+ * with the exception that the blocking method would throw (possibly wrapped in a
+ * {@link java.util.concurrent.CompletionException}).
+ */
+public interface AsyncUrlRepository {
+
+  /**
+   * See {@link UrlRepository#createUrlAlias}.
+   */
+  CompletionStage<Void> createUrlAlias(UrlAlias urlAlias);
+
+  /**
+   * See {@link UrlRepository#createUrlAliases}.
+   */
+  CompletionStage<boolean[]> createUrlAliases(List<UrlAlias> urlAliases);
+
+  /**
+   * See {@link UrlRepository#findUrlAlias}; the stage completes with null if there is no such
+   * alias.
+   */
+  CompletionStage<UrlAlias> findUrlAlias(String alias);
+
+  /**
+   * See {@link UrlRepository#deleteUrlAlias}.
+   */
+  CompletionStage<Void> deleteUrlAlias(String email, String alias);
+
+  /**
+   * See {@link UrlRepository#getAliasesForUser}.
+   */
+  CompletionStage<Page> getAliasesForUser(String userEmail, @Nullable String cursor, int limit);
+}
@@ -0,0 +1,28 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.User;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The non-blocking variant of {@link UserRepository}, see {@link UserRepository#async}: every
+ * method returns at once and the stage completes once the operation is done, or completes
+ * exceptionally with the exception that the blocking method would throw (possibly wrapped in a
+ * {@link java.util.concurrent.CompletionException}).
+ */
+public interface AsyncUserRepository {
+
+  /**
+   * See {@link UserRepository#createUser}.
+   */
+  CompletionStage<Void> createUser(User user);
+
+  /**
+   * See {@link UserRepository#updateUser}.
+   */
+  CompletionStage<Void> updateUser(User user);
+
+  /**
+   * See {@link UserRepository#findUser}; the stage completes with null if there is no such user.
+   */
+  CompletionStage<User> findUser(String email);
+}
@@ -0,0 +1,475 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link UrlRepository} that keeps the aliases looked up most often in memory, so that the
+ * redirects of popular aliases neither touch the underlying repository nor decode a
+ * {@link UrlAlias}.
+ *
+ * <p>The cache holds at most {@code capacity} aliases and decides which ones with W-TinyLFU: a new
+ * alias enters a small LRU window (1% of the capacity); an alias pushed out of the window is
+ * admitted to the main space only if a {@link FrequencySketch} of the recent lookups says it is
+ * wanted more often than the alias it would replace, the least recently used one of the probation
+ * segment. An alias hit in the probation segment moves to the protected segment (80% of the main
+ * space). One-off lookups, such as bots probing random aliases or a scan, thus can't wash the
+ * popular aliases out of the cache.
+ *
+ * <p>A hit never locks: the aliases are in a concurrent map and the hit is only recorded in a
+ * buffer of the thread's stripe, which is replayed into the policy under a lock by whichever
+ * thread fills a stripe, or drops the hit if the buffer is full. Inserts and invalidations take
+ * the lock.
+ *
+ * <p>Aliases only change by being deleted, which invalidates the cached alias immediately,
+ * whatever the reason of the deletion. A lookup that races a deletion doesn't cache what it has
+ * read, and an expired alias is never returned from the cache.
+ */
+public class CachingUrlRepository implements UrlRepository {
+  private static final int READ_BUFFER_SIZE = 16;
+  private static final int READ_BUFFER_STRIPES = Integer.highestOneBit(
+      Math.max(1, 4 * Runtime.getRuntime().availableProcessors() - 1)) << 1;
+
+  private final UrlRepository delegate;
+  private final Clock clock;
+  private final int windowCapacity;
+  private final int mainCapacity;
+  private final int protectedCapacity;
+  private final ConcurrentHashMap<String, Node> aliases = new ConcurrentHashMap<>();
+  // Incremented on every invalidation, so that a lookup can tell that it raced one.
+  private final AtomicLong invalidations = new AtomicLong();
+  private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+
+  private final ReentrantLock policyLock = new ReentrantLock();
+  // Guarded by policyLock.
+  private final FrequencySketch sketch;
+  private final AccessOrder window = new AccessOrder();
+  private final AccessOrder probation = new AccessOrder();
+  private final AccessOrder protectedSegment = new AccessOrder();
+  private int windowSize;
+  private int mainSize;
+  private int protectedSize;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder loadNanos = new LongAdder();
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param capacity the maximal number of cached aliases
+   */
+  public CachingUrlRepository(UrlRepository delegate, int capacity) {
+    this(delegate, capacity, Clock.systemUTC());
+  }
+
+  CachingUrlRepository(UrlRepository delegate, int capacity, Clock clock) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity must be positive");
+    }
+    this.delegate = delegate;
+    this.clock = clock;
+    this.windowCapacity = Math.max(1, capacity / 100);
+    this.mainCapacity = capacity - windowCapacity;
+    this.protectedCapacity = mainCapacity * 4 / 5;
+    this.sketch = new FrequencySketch(capacity);
+    for (int i = 0; i < readBuffers.length; i++) {
+      readBuffers[i] = new ReadBuffer();
+    }
+  }
+
+  @Override
+  public void createUrlAlias(UrlAlias urlAlias) throws AliasAlreadyExist {
+    delegate.createUrlAlias(urlAlias);
+  }
+
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    return delegate.createUrlAliases(urlAliases);
+  }
+
+  @Override
+  public @Nullable UrlAlias findUrlAlias(String alias) {
+    Node node = aliases.get(alias);
+    if (node != null) {
+      return hit(node);
+    }
+    misses.increment();
+    long invalidationsBefore = invalidations.get();
+    long start = System.nanoTime();
+    return loaded(delegate.findUrlAlias(alias), start, invalidationsBefore);
+  }
+
+  @Override
+  public void deleteUrlAlias(String email, String alias) throws PermissionDenied {
+    try {
+      delegate.deleteUrlAlias(email, alias);
+    } finally {
+      invalidate(alias);
+    }
+  }
+
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    try {
+      return delegate.deleteExpiredAlias(alias, nowMillis);
+    } finally {
+      invalidate(alias);
+    }
+  }
+
+  @Override
+  public List<UrlAlias> getAllAliasesForUser(String userEmail) {
+    return delegate.getAllAliasesForUser(userEmail);
+  }
+
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    return delegate.getAliasesForUser(userEmail, cursor, limit);
+  }
+
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    delegate.forEachAlias(consumer);
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>A cached alias is found on the caller's thread, the misses are looked up asynchronously in
+   * the underlying repository, which may answer some of them without the executor too. The load
+   * time of such a lookup includes its wait for the executor.
+   */
+  @Override
+  public AsyncUrlRepository async(Executor executor) {
+    AsyncUrlRepository asyncDelegate = delegate.async(executor);
+    return new OffloadedUrlRepository(this, executor) {
+      @Override
+      public CompletionStage<UrlAlias> findUrlAlias(String alias) {
+        Node node = aliases.get(alias);
+        if (node != null) {
+          return CompletableFuture.completedFuture(hit(node));
+        }
+        misses.increment();
+        long invalidationsBefore = invalidations.get();
+        long start = System.nanoTime();
+        return asyncDelegate.findUrlAlias(alias)
+            .thenApply(urlAlias -> loaded(urlAlias, start, invalidationsBefore));
+      }
+    };
+  }
+
+  /**
+   * Returns the counters of the cache.
+   */
+  public Metrics metrics() {
+    return new Metrics(
+        aliases.size(), hits.sum(), misses.sum(), evictions.sum(), loadNanos.sum());
+  }
+
+  private @Nullable UrlAlias hit(Node node) {
+    if (node.urlAlias.isExpired(clock.millis())) {
+      invalidate(node.urlAlias.alias());
+      return null;
+    }
+    hits.increment();
+    recordHit(node);
+    return node.urlAlias;
+  }
+
+  private @Nullable UrlAlias loaded(
+      @Nullable UrlAlias urlAlias, long startNanos, long invalidationsBefore
+  ) {
+    loadNanos.add(System.nanoTime() - startNanos);
+    if (urlAlias != null) {
+      insert(new Node(urlAlias), invalidationsBefore);
+    }
+    return urlAlias;
+  }
+
+  private void recordHit(Node node) {
+    ReadBuffer buffer =
+        readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFER_STRIPES - 1)];
+    if (buffer.offer(node) && policyLock.tryLock()) {
+      try {
+        drainReadBuffers();
+      } finally {
+        policyLock.unlock();
+      }
+    }
+  }
+
+  private void insert(Node node, long invalidationsBefore) {
+    policyLock.lock();
+    try {
+      drainReadBuffers();
+      // A deletion since the lookup may have made what it has read stale.
+      if (invalidations.get() != invalidationsBefore
+          || aliases.putIfAbsent(node.urlAlias.alias(), node) != null) {
+        return;
+      }
+      sketch.increment(node.hash);
+      node.segment = Segment.WINDOW;
+      window.addLast(node);
+      windowSize++;
+      evict();
+    } finally {
+      policyLock.unlock();
+    }
+  }
+
+  private void invalidate(String alias) {
+    invalidations.incrementAndGet();
+    // Under the lock, so that an insert that has checked the invalidations before can't follow.
+    policyLock.lock();
+    try {
+      Node node = aliases.remove(alias);
+      if (node != null) {
+        unlink(node);
+      }
+    } finally {
+      policyLock.unlock();
+    }
+  }
+
+  /**
+   * Moves the aliases pushed out of the window to the main space, if they are wanted more often
+   * than the aliases they would replace.
+   */
+  private void evict() {
+    while (windowSize > windowCapacity) {
+      Node candidate = window.removeFirst();
+      windowSize--;
+      candidate.segment = null;
+      if (mainSize < mainCapacity) {
+        admit(candidate);
+        continue;
+      }
+      Node victim = probation.isEmpty() ? protectedSegment.first() : probation.first();
+      if (victim != null && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+        unlink(victim);
+        aliases.remove(victim.urlAlias.alias(), victim);
+        evictions.increment();
+        admit(candidate);
+      } else {
+        aliases.remove(candidate.urlAlias.alias(), candidate);
+        evictions.increment();
+      }
+    }
+  }
+
+  private void admit(Node node) {
+    node.segment = Segment.PROBATION;
+    probation.addLast(node);
+    mainSize++;
+  }
+
+  private void drainReadBuffers() {
+    for (ReadBuffer buffer : readBuffers) {
+      buffer.drain(this::onHit);
+    }
+  }
+
+  private void onHit(Node node) {
+    if (node.segment == null) {
+      // Evicted or invalidated since the hit.
+      return;
+    }
+    sketch.increment(node.hash);
+    switch (node.segment) {
+      case WINDOW -> window.moveToLast(node);
+      case PROTECTED -> protectedSegment.moveToLast(node);
+      case PROBATION -> {
+        probation.remove(node);
+        node.segment = Segment.PROTECTED;
+        protectedSegment.addLast(node);
+        protectedSize++;
+        if (protectedSize > protectedCapacity) {
+          Node demoted = protectedSegment.removeFirst();
+          protectedSize--;
+          demoted.segment = Segment.PROBATION;
+          probation.addLast(demoted);
+        }
+      }
+      default -> throw new IllegalStateException();
+    }
+  }
+
+  private void unlink(Node node) {
+    if (node.segment == null) {
+      return;
+    }
+    switch (node.segment) {
+      case WINDOW -> {
+        window.remove(node);
+        windowSize--;
+      }
+      case PROBATION -> {
+        probation.remove(node);
+        mainSize--;
+      }
+      case PROTECTED -> {
+        protectedSegment.remove(node);
+        protectedSize--;
+        mainSize--;
+      }
+      default -> throw new IllegalStateException();
+    }
+    node.segment = null;
+  }
+
+  /**
+   * The counters of the cache since the start.
+   *
+   * @param size the number of cached aliases
+   * @param hits lookups answered from the cache
+   * @param misses lookups passed to the underlying repository
+   * @param evictions aliases dropped or not admitted to stay within the capacity
+   * @param loadNanos the total time of the lookups in the underlying repository
+   */
+  public record Metrics(long size, long hits, long misses, long evictions, long loadNanos) {
+    /**
+     * Returns the share of the lookups answered from the cache.
+     */
+    public double hitRate() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns the average time of a lookup in the underlying repository.
+     */
+    public double averageLoadNanos() {
+      return misses == 0 ? 0 : (double) loadNanos / misses;
+    }
+  }
+
+  private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+  private static final class Node {
+    private final UrlAlias urlAlias;
+    private final int hash;
+    // Guarded by the policy lock, like the links.
+    private @Nullable Segment segment;
+    private @Nullable Node previous;
+    private @Nullable Node next;
+
+    Node(UrlAlias urlAlias) {
+      this.urlAlias = urlAlias;
+      int h = urlAlias.alias().hashCode();
+      this.hash = h ^ (h >>> 16);
+    }
+  }
+
+  /**
+   * A doubly linked list of nodes, the least recently used first.
+   */
+  private static final class AccessOrder {
+    private @Nullable Node first;
+    private @Nullable Node last;
+
+    boolean isEmpty() {
+      return first == null;
+    }
+
+    Node first() {
+      return first;
+    }
+
+    void addLast(Node node) {
+      node.previous = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+    }
+
+    Node removeFirst() {
+      Node node = first;
+      remove(node);
+      return node;
+    }
+
+    void moveToLast(Node node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void remove(Node node) {
+      if (node.previous == null) {
+        first = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+    }
+  }
+
+  /**
+   * A lossy ring of recent hits of one stripe of threads.
+   */
+  private static final class ReadBuffer {
+    private final AtomicReferenceArray<Node> hits = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong writes = new AtomicLong();
+    // Written under the policy lock.
+    private volatile long reads;
+
+    /**
+     * Records a hit, or drops it if the buffer is full.
+     *
+     * @return whether the buffer should be drained
+     */
+    boolean offer(Node node) {
+      long write = writes.get();
+      if (write - reads >= READ_BUFFER_SIZE) {
+        return true;
+      }
+      if (writes.compareAndSet(write, write + 1)) {
+        hits.lazySet((int) (write & (READ_BUFFER_SIZE - 1)), node);
+      }
+      return write - reads >= READ_BUFFER_SIZE / 2;
+    }
+
+    void drain(Consumer<Node> consumer) {
+      long write = writes.get();
+      while (reads < write) {
+        int index = (int) (reads & (READ_BUFFER_SIZE - 1));
+        Node node = hits.getAndSet(index, null);
+        if (node == null) {
+          // Reserved but not written yet; the next drain picks it up.
+          return;
+        }
+        consumer.accept(node);
+        reads++;
+      }
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package edu.kpi.testcourse.storage;
+
+import java.util.Map;
+
+/**
+ * Stores the number of redirects made through every alias.
+ */
+public interface ClickRepository {
+  /**
+   * Adds clicks to the counts of the aliases.
+   *
+   * @param clicks the number of new clicks of every alias
+   */
+  void addClicks(Map<String, Long> clicks);
+
+  /**
+   * Returns the number of clicks of the alias, 0 if it has none.
+   */
+  long getClicks(String alias);
+
+  /**
+   * Forgets the clicks of the alias, e.g. because it is deleted and may be created anew.
+   */
+  void removeClicks(String alias);
+}
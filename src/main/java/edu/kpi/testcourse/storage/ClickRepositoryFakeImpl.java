@@ -0,0 +1,26 @@
+package edu.kpi.testcourse.storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory fake implementation of {@link ClickRepository}.
+ */
+public class ClickRepositoryFakeImpl implements ClickRepository {
+  private final Map<String, Long> clicks = new ConcurrentHashMap<>();
+
+  @Override
+  public void addClicks(Map<String, Long> clicks) {
+    clicks.forEach((alias, count) -> this.clicks.merge(alias, count, Long::sum));
+  }
+
+  @Override
+  public long getClicks(String alias) {
+    return clicks.getOrDefault(alias, 0L);
+  }
+
+  @Override
+  public void removeClicks(String alias) {
+    clicks.remove(alias);
+  }
+}
@@ -0,0 +1,74 @@
+package edu.kpi.testcourse.storage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonTool;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Inject;
+
+/**
+ * A file-backed implementation of {@link ClickRepository} suitable for use in production.
+ *
+ * <p><tt>alias-clicks.json</tt> maps the aliases to their counts. It is replaced atomically on
+ * every {@link #addClicks}, which is meant to be called in batches a few times a second at most,
+ * see {@link edu.kpi.testcourse.logic.ClickCounter}, and on every {@link #removeClicks} of an
+ * alias that has clicks. The counts are read from memory.
+ */
+public class ClickRepositoryFileImpl implements ClickRepository {
+  private final JsonTool jsonTool;
+  private final Path clicksFilePath;
+  private final Map<String, Long> clicks = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an instance.
+   */
+  @Inject
+  public ClickRepositoryFileImpl(JsonTool jsonTool, UrlShortenerConfig appConfig) {
+    this.jsonTool = jsonTool;
+    this.clicksFilePath = appConfig.storageRoot().resolve("alias-clicks.json");
+    if (!Files.exists(clicksFilePath)) {
+      return;
+    }
+    try {
+      String json = Files.readString(clicksFilePath, StandardCharsets.UTF_8);
+      Map<String, Long> stored =
+          jsonTool.fromJson(json, new TypeReference<HashMap<String, Long>>() {}.getType());
+      clicks.putAll(stored);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public synchronized void addClicks(Map<String, Long> clicks) {
+    if (clicks.isEmpty()) {
+      return;
+    }
+    var updated = new HashMap<>(this.clicks);
+    clicks.forEach((alias, count) -> updated.merge(alias, count, Long::sum));
+    JournalCompactor.writeFileAtomically(clicksFilePath, jsonTool.toJson(updated));
+    this.clicks.putAll(updated);
+  }
+
+  @Override
+  public long getClicks(String alias) {
+    return clicks.getOrDefault(alias, 0L);
+  }
+
+  @Override
+  public synchronized void removeClicks(String alias) {
+    if (!clicks.containsKey(alias)) {
+      return;
+    }
+    var updated = new HashMap<>(clicks);
+    updated.remove(alias);
+    JournalCompactor.writeFileAtomically(clicksFilePath, jsonTool.toJson(updated));
+    clicks.remove(alias);
+  }
+}
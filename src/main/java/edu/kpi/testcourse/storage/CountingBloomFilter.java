@@ -0,0 +1,151 @@
+package edu.kpi.testcourse.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of strings that supports removal: every position holds a 4-bit counter instead
+ * of a bit, sixteen counters packed into a long.
+ *
+ * <p>A string is added by incrementing its counters and removed by decrementing them, so a string
+ * that is in the filter is always reported as possibly present. A counter that reaches 15 sticks,
+ * because the number of strings behind it is not known anymore; it only costs accuracy.
+ *
+ * <p>Safe for concurrent use without locks, every counter is updated by compare-and-set.
+ */
+final class CountingBloomFilter {
+  private static final int COUNTER_BITS = 4;
+  private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+  private static final long MAX_COUNT = (1 << COUNTER_BITS) - 1;
+
+  private final AtomicLongArray words;
+  private final long counterCount;
+  private final int hashCount;
+  private final AtomicLong size = new AtomicLong();
+
+  /**
+   * Creates an empty filter.
+   *
+   * @param expectedSize the number of strings the filter is sized for
+   * @param countersPerString the number of counters per expected string; 10 gives about 1% of
+   *     false positives at the expected size
+   */
+  CountingBloomFilter(long expectedSize, int countersPerString) {
+    long counters = Math.max(COUNTERS_PER_WORD, expectedSize * countersPerString);
+    this.words = new AtomicLongArray(Math.toIntExact(
+        (counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD));
+    this.counterCount = (long) words.length() * COUNTERS_PER_WORD;
+    // The optimal number of hash functions is ln(2) times the counters per string.
+    this.hashCount = Math.max(1, (int) Math.round(countersPerString * Math.log(2)));
+  }
+
+  void add(String string) {
+    long hash = hash(string);
+    for (int i = 0; i < hashCount; i++) {
+      increment(counterIndex(hash, i));
+    }
+    size.incrementAndGet();
+  }
+
+  /**
+   * Removes a string that has been added before; removing any other string breaks the filter.
+   */
+  void remove(String string) {
+    long hash = hash(string);
+    for (int i = 0; i < hashCount; i++) {
+      decrement(counterIndex(hash, i));
+    }
+    size.decrementAndGet();
+  }
+
+  /**
+   * Returns false if the string is definitely not in the filter.
+   */
+  boolean mightContain(String string) {
+    long hash = hash(string);
+    for (int i = 0; i < hashCount; i++) {
+      long index = counterIndex(hash, i);
+      if (counter(words.get(wordIndex(index)), index) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of strings in the filter.
+   */
+  long size() {
+    return size.get();
+  }
+
+  /**
+   * Returns the probability that a string that is not in the filter is reported as possibly
+   * present, estimated from the number of strings in it.
+   */
+  double expectedFalsePositiveRate() {
+    double emptyCounters = Math.exp(-(double) hashCount * Math.max(0, size()) / counterCount);
+    return Math.pow(1 - emptyCounters, hashCount);
+  }
+
+  private void increment(long index) {
+    int word = wordIndex(index);
+    while (true) {
+      long current = words.get(word);
+      if (counter(current, index) == MAX_COUNT
+          || words.compareAndSet(word, current, current + unit(index))) {
+        return;
+      }
+    }
+  }
+
+  private void decrement(long index) {
+    int word = wordIndex(index);
+    while (true) {
+      long current = words.get(word);
+      long count = counter(current, index);
+      if (count == MAX_COUNT || count == 0
+          || words.compareAndSet(word, current, current - unit(index))) {
+        return;
+      }
+    }
+  }
+
+  private long counterIndex(long hash, int i) {
+    // Double hashing: the i-th function is h1 + i * h2, which is as good as independent ones.
+    long h1 = hash & 0xffffffffL;
+    long h2 = (hash >>> 32) | 1;
+    return Math.floorMod(h1 + i * h2, counterCount);
+  }
+
+  private static int wordIndex(long index) {
+    return (int) (index / COUNTERS_PER_WORD);
+  }
+
+  private static long counter(long word, long index) {
+    return (word >>> shift(index)) & MAX_COUNT;
+  }
+
+  private static long unit(long index) {
+    return 1L << shift(index);
+  }
+
+  private static int shift(long index) {
+    return (int) (index % COUNTERS_PER_WORD) * COUNTER_BITS;
+  }
+
+  private static long hash(String string) {
+    // FNV-1a over the chars, then the finalizer of MurmurHash3 to spread the bits.
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < string.length(); i++) {
+      hash ^= string.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
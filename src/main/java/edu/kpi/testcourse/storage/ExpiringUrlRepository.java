@@ -0,0 +1,238 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link UrlRepository} that deletes the aliases that have expired, without ever scanning the
+ * underlying one after the start.
+ *
+ * <p>Every expiring alias created through this instance, and every one that the underlying
+ * repository has on creation, is scheduled on a {@link TimingWheel} for its expiry time. A
+ * background thread advances the wheel every tick and deletes the aliases that come due with
+ * {@link UrlRepository#deleteExpiredAlias}, which checks the expiry again: an alias deleted and
+ * created anew meanwhile is left alone, and one that could not be deleted is retried on the next
+ * tick. Until the thread gets to it, an expired alias is already not found, see
+ * {@link UrlRepository#findUrlAlias}.
+ *
+ * <p>The aliases deleted through this instance, by their owner or on expiry, are passed to a
+ * removal listener, so that whatever is kept about an alias elsewhere (such as its clicks) doesn't
+ * outlive it.
+ */
+public class ExpiringUrlRepository implements UrlRepository {
+  private static final Logger logger = LoggerFactory.getLogger(ExpiringUrlRepository.class);
+
+  public static final long DEFAULT_TICK_MILLIS = 1000;
+
+  private final UrlRepository delegate;
+  private final Clock clock;
+  private final Consumer<String> removalListener;
+  private final long tickMillis;
+  // Guarded by itself.
+  private final TimingWheel wheel;
+  private final LongAdder expired = new LongAdder();
+  private final @Nullable Thread expirer;
+  private volatile boolean closed;
+
+  /**
+   * Creates an instance, schedules the expiring aliases of the underlying repository and starts
+   * deleting them in background.
+   */
+  public ExpiringUrlRepository(UrlRepository delegate) {
+    this(delegate, alias -> { });
+  }
+
+  /**
+   * Creates an instance like {@link #ExpiringUrlRepository(UrlRepository)}.
+   *
+   * @param removalListener called with every alias deleted by its owner or on expiry
+   */
+  public ExpiringUrlRepository(UrlRepository delegate, Consumer<String> removalListener) {
+    this(delegate, removalListener, Clock.systemUTC(), DEFAULT_TICK_MILLIS, true);
+  }
+
+  ExpiringUrlRepository(
+      UrlRepository delegate, Clock clock, long tickMillis, boolean startExpirer
+  ) {
+    this(delegate, alias -> { }, clock, tickMillis, startExpirer);
+  }
+
+  ExpiringUrlRepository(
+      UrlRepository delegate, Consumer<String> removalListener, Clock clock, long tickMillis,
+      boolean startExpirer
+  ) {
+    this.delegate = delegate;
+    this.removalListener = removalListener;
+    this.clock = clock;
+    this.tickMillis = tickMillis;
+    this.wheel = new TimingWheel(tickMillis, clock.millis());
+    delegate.forEachAlias(this::schedule);
+    logger.info("Scheduled {} expiring aliases", wheel.size());
+    if (startExpirer) {
+      this.expirer = new Thread(this::runExpirer, "alias-expirer");
+      expirer.setDaemon(true);
+      expirer.start();
+    } else {
+      this.expirer = null;
+    }
+  }
+
+  @Override
+  public void createUrlAlias(UrlAlias urlAlias) throws AliasAlreadyExist {
+    delegate.createUrlAlias(urlAlias);
+    schedule(urlAlias);
+  }
+
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    boolean[] created = delegate.createUrlAliases(urlAliases);
+    for (int i = 0; i < created.length; i++) {
+      if (created[i]) {
+        schedule(urlAliases.get(i));
+      }
+    }
+    return created;
+  }
+
+  @Override
+  public @Nullable UrlAlias findUrlAlias(String alias) {
+    return delegate.findUrlAlias(alias);
+  }
+
+  @Override
+  public void deleteUrlAlias(String email, String alias) throws PermissionDenied {
+    delegate.deleteUrlAlias(email, alias);
+    notifyRemoved(alias);
+  }
+
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    if (!delegate.deleteExpiredAlias(alias, nowMillis)) {
+      return false;
+    }
+    notifyRemoved(alias);
+    return true;
+  }
+
+  @Override
+  public List<UrlAlias> getAllAliasesForUser(String userEmail) {
+    return delegate.getAllAliasesForUser(userEmail);
+  }
+
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    return delegate.getAliasesForUser(userEmail, cursor, limit);
+  }
+
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    delegate.forEachAlias(consumer);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Aliases are found by the non-blocking variant of the underlying repository.
+   */
+  @Override
+  public AsyncUrlRepository async(Executor executor) {
+    AsyncUrlRepository asyncDelegate = delegate.async(executor);
+    return new OffloadedUrlRepository(this, executor) {
+      @Override
+      public CompletionStage<UrlAlias> findUrlAlias(String alias) {
+        return asyncDelegate.findUrlAlias(alias);
+      }
+    };
+  }
+
+  /**
+   * Stops the background thread and closes the underlying repository.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (expirer != null) {
+      LockSupport.unpark(expirer);
+      try {
+        expirer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    delegate.close();
+  }
+
+  /**
+   * Returns the number of aliases deleted because they have expired.
+   */
+  long expired() {
+    return expired.sum();
+  }
+
+  /**
+   * Deletes the aliases that have expired by now.
+   */
+  void expire() {
+    long now = clock.millis();
+    var due = new ArrayList<String>();
+    synchronized (wheel) {
+      wheel.advance(now, due::add);
+    }
+    for (String alias : due) {
+      try {
+        if (delegate.deleteExpiredAlias(alias, now)) {
+          expired.increment();
+          notifyRemoved(alias);
+        }
+      } catch (RuntimeException e) {
+        logger.warn("Could not delete the expired alias {}, retrying on the next tick", alias, e);
+        synchronized (wheel) {
+          wheel.schedule(alias, now + tickMillis);
+        }
+      }
+    }
+  }
+
+  private void schedule(UrlAlias urlAlias) {
+    if (urlAlias.expiresAt() != null) {
+      synchronized (wheel) {
+        wheel.schedule(urlAlias.alias(), urlAlias.expiresAt());
+      }
+    }
+  }
+
+  private void notifyRemoved(String alias) {
+    try {
+      removalListener.accept(alias);
+    } catch (RuntimeException e) {
+      // The alias is deleted all the same.
+      logger.warn("The removal listener failed on the alias {}", alias, e);
+    }
+  }
+
+  private void runExpirer() {
+    // Not interrupted to stop: an interrupt closes the file channels of the repository.
+    while (!closed) {
+      LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(tickMillis));
+      if (closed) {
+        return;
+      }
+      try {
+        expire();
+      } catch (RuntimeException e) {
+        logger.warn("Could not delete the expired aliases", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link UrlRepository} that answers lookups of unknown aliases without touching the underlying
+ * one, which matters once it is on disk and bots probe random aliases.
+ *
+ * <p>A {@link CountingBloomFilter} of all aliases is built from the underlying repository on
+ * creation, sized for twice the number of aliases it has, and kept up to date by the changes made
+ * through this instance. An alias is added to the filter before it is stored and removed after it
+ * is deleted, so the filter never misses a stored alias; the repository is asked only when the
+ * filter says the alias might exist.
+ */
+public class FilteredUrlRepository implements UrlRepository {
+  private static final Logger logger = LoggerFactory.getLogger(FilteredUrlRepository.class);
+
+  private static final long MIN_CAPACITY = 100_000;
+  private static final int COUNTERS_PER_ALIAS = 10;
+
+  private final UrlRepository delegate;
+  private final CountingBloomFilter filter;
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+
+  /**
+   * Creates an instance and fills the filter with the aliases of the underlying repository.
+   */
+  public FilteredUrlRepository(UrlRepository delegate) {
+    this(delegate, MIN_CAPACITY);
+  }
+
+  FilteredUrlRepository(UrlRepository delegate, long minCapacity) {
+    this.delegate = delegate;
+    long[] count = {0};
+    delegate.forEachAlias(alias -> count[0]++);
+    this.filter = new CountingBloomFilter(Math.max(minCapacity, 2 * count[0]), COUNTERS_PER_ALIAS);
+    delegate.forEachAlias(alias -> filter.add(alias.alias()));
+    logger.info("Built the alias filter of {} aliases, expected false positive rate {}",
+        filter.size(), filter.expectedFalsePositiveRate());
+  }
+
+  @Override
+  public void createUrlAlias(UrlAlias urlAlias) throws AliasAlreadyExist {
+    filter.add(urlAlias.alias());
+    try {
+      delegate.createUrlAlias(urlAlias);
+    } catch (RuntimeException e) {
+      filter.remove(urlAlias.alias());
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    urlAliases.forEach(urlAlias -> filter.add(urlAlias.alias()));
+    boolean[] created;
+    try {
+      created = delegate.createUrlAliases(urlAliases);
+    } catch (RuntimeException e) {
+      urlAliases.forEach(urlAlias -> filter.remove(urlAlias.alias()));
+      throw e;
+    }
+    for (int i = 0; i < created.length; i++) {
+      if (!created[i]) {
+        filter.remove(urlAliases.get(i).alias());
+      }
+    }
+    return created;
+  }
+
+  @Override
+  public @Nullable UrlAlias findUrlAlias(String alias) {
+    if (!filter.mightContain(alias)) {
+      rejected.increment();
+      return null;
+    }
+    UrlAlias urlAlias = delegate.findUrlAlias(alias);
+    if (urlAlias == null) {
+      falsePositives.increment();
+    }
+    return urlAlias;
+  }
+
+  @Override
+  public void deleteUrlAlias(String email, String alias) throws PermissionDenied {
+    delegate.deleteUrlAlias(email, alias);
+    filter.remove(alias);
+  }
+
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    boolean deleted = delegate.deleteExpiredAlias(alias, nowMillis);
+    if (deleted) {
+      filter.remove(alias);
+    }
+    return deleted;
+  }
+
+  @Override
+  public List<UrlAlias> getAllAliasesForUser(String userEmail) {
+    return delegate.getAllAliasesForUser(userEmail);
+  }
+
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    return delegate.getAliasesForUser(userEmail, cursor, limit);
+  }
+
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    delegate.forEachAlias(consumer);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>An alias rejected by the filter is answered on the caller's thread, only the others are
+   * looked up on the executor.
+   */
+  @Override
+  public AsyncUrlRepository async(Executor executor) {
+    return new OffloadedUrlRepository(this, executor) {
+      @Override
+      public CompletionStage<UrlAlias> findUrlAlias(String alias) {
+        if (!filter.mightContain(alias)) {
+          rejected.increment();
+          return CompletableFuture.completedFuture(null);
+        }
+        return super.findUrlAlias(alias);
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  /**
+   * Returns the counters of the filter.
+   */
+  public Metrics metrics() {
+    return new Metrics(
+        filter.size(), rejected.sum(), falsePositives.sum(), filter.expectedFalsePositiveRate());
+  }
+
+  /**
+   * The counters of the filter since the start.
+   *
+   * @param aliases the number of aliases in the filter
+   * @param rejected lookups answered by the filter alone
+   * @param falsePositives lookups of missing aliases that the filter let through
+   * @param expectedFalsePositiveRate the false positive rate estimated from the filter size
+   */
+  public record Metrics(
+      long aliases, long rejected, long falsePositives, double expectedFalsePositiveRate
+  ) {
+    /**
+     * Returns the share of the lookups of missing aliases that reached the repository.
+     */
+    public double falsePositiveRate() {
+      long missing = rejected + falsePositives;
+      return missing == 0 ? 0 : (double) falsePositives / missing;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package edu.kpi.testcourse.storage;
+
+/**
+ * An approximate count of how often keys have been seen recently: a count-min sketch of four rows
+ * of 4-bit counters, the frequency filter of TinyLFU.
+ *
+ * <p>The frequency of a key is the smallest of its four counters, so it may be overestimated by
+ * collisions but never underestimated. Once the sketch has counted ten times as many keys as it
+ * is sized for, all counters are halved, so that keys that used to be popular fade away.
+ *
+ * <p>Not safe for concurrent use.
+ */
+final class FrequencySketch {
+  private static final int ROWS = 4;
+  private static final long MAX_COUNT = 15;
+  private static final long HALF_MASK = 0x7777777777777777L;
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+  private final long[][] rows = new long[ROWS][];
+  private final int counterMask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * Creates a sketch for about the given number of distinct keys.
+   */
+  FrequencySketch(int expectedKeys) {
+    // About four counters per key and row keep the overestimates small.
+    int counters = Integer.highestOneBit(Math.max(4, expectedKeys) * 4 - 1) << 1;
+    for (int i = 0; i < ROWS; i++) {
+      rows[i] = new long[counters / 16];
+    }
+    this.counterMask = counters - 1;
+    this.sampleSize = 10 * Math.max(1, expectedKeys);
+  }
+
+  /**
+   * Counts one more occurrence of the key with the given hash.
+   */
+  void increment(int hash) {
+    boolean incremented = false;
+    for (int i = 0; i < ROWS; i++) {
+      int counter = counterIndex(hash, i);
+      long word = rows[i][counter >>> 4];
+      int shift = (counter & 15) << 2;
+      if (((word >>> shift) & MAX_COUNT) < MAX_COUNT) {
+        rows[i][counter >>> 4] = word + (1L << shift);
+        incremented = true;
+      }
+    }
+    if (incremented && ++additions == sampleSize) {
+      halve();
+    }
+  }
+
+  /**
+   * Returns the estimated number of recent occurrences of the key, at most 15.
+   */
+  int frequency(int hash) {
+    long frequency = MAX_COUNT;
+    for (int i = 0; i < ROWS; i++) {
+      int counter = counterIndex(hash, i);
+      long count = (rows[i][counter >>> 4] >>> ((counter & 15) << 2)) & MAX_COUNT;
+      frequency = Math.min(frequency, count);
+    }
+    return (int) frequency;
+  }
+
+  private void halve() {
+    for (long[] row : rows) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] = (row[i] >>> 1) & HALF_MASK;
+      }
+    }
+    additions /= 2;
+  }
+
+  private int counterIndex(int hash, int row) {
+    long h = (hash + SEEDS[row]) * SEEDS[row];
+    h ^= h >>> 32;
+    return (int) h & counterMask;
+  }
+}
@@ -0,0 +1,212 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.GroupCommitSettings;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A dedicated thread that persists changes in batches.
+ *
+ * <p>Request threads {@link #submit(Object)} their change and wait on the returned future. The
+ * writer thread drains the queue (see {@link GroupCommitSettings} for how batches are formed),
+ * hands the whole batch to the {@link BatchSink} and completes the futures of the batch once the
+ * sink returns, so a burst of changes costs one write and one fsync instead of one per change.
+ *
+ * <p>Durability: a future completes normally only after the sink has returned for the batch that
+ * contains the change, i.e. after the change has been forced to disk.
+ *
+ * <p>The writer is fail-stop. If the sink throws, the futures of the batch and of every change
+ * submitted afterwards fail with that error. After a failed fsync the kernel may already have
+ * dropped the dirty pages, so the writer can't tell what is on disk and retrying would risk
+ * acknowledging changes that are lost. The process has to be restarted, which recovers the state
+ * from what actually reached the disk.
+ *
+ * @param <T> the type of the changes
+ */
+final class GroupCommitWriter<T> implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+  // Queued by close(), compared by reference.
+  private final Pending<T> stop = new Pending<>(null, null);
+
+  private final String name;
+  private final int maxBatchSize;
+  private final long maxLingerNanos;
+  private final BatchSink<T> sink;
+  private final BlockingQueue<Pending<T>> queue = new LinkedBlockingQueue<>();
+  private final Thread thread;
+  private volatile boolean closed;
+  private volatile Throwable failure;
+
+  /**
+   * Creates an instance and starts the writer thread.
+   *
+   * @param name a name of the repository, for logging
+   * @param settings batching settings
+   * @param sink persists a batch
+   */
+  GroupCommitWriter(String name, GroupCommitSettings settings, BatchSink<T> sink) {
+    if (settings.maxBatchSize() < 1) {
+      throw new IllegalArgumentException("The batch size must be positive");
+    }
+    this.name = name;
+    this.maxBatchSize = settings.maxBatchSize();
+    this.maxLingerNanos = TimeUnit.MICROSECONDS.toNanos(settings.maxLingerMicros());
+    this.sink = sink;
+    this.thread = new Thread(this::run, "group-commit-" + name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Queues a change for writing.
+   *
+   * @return a future that completes once the change is durable
+   */
+  CompletableFuture<Void> submit(T change) {
+    Throwable error = failure;
+    if (error != null) {
+      return CompletableFuture.failedFuture(error);
+    }
+    if (closed) {
+      return CompletableFuture.failedFuture(closedError());
+    }
+    var pending = new Pending<T>(change, new CompletableFuture<>());
+    queue.add(pending);
+    if (closed && queue.remove(pending)) {
+      pending.future().completeExceptionally(closedError());
+    }
+    return pending.future();
+  }
+
+  /**
+   * Writes the changes queued so far and stops the writer thread. Later submissions fail.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    queue.add(stop);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Waits for a future returned by {@link #submit(Object)}, rethrowing its failure as is.
+   */
+  static void await(CompletableFuture<Void> future) {
+    try {
+      future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private void run() {
+    var batch = new ArrayList<Pending<T>>(Math.min(maxBatchSize, 1024));
+    var changes = new ArrayList<T>(Math.min(maxBatchSize, 1024));
+    boolean stopping = false;
+    while (!stopping) {
+      try {
+        stopping = collect(batch);
+      } catch (InterruptedException e) {
+        stopping = true;
+      }
+      if (!batch.isEmpty()) {
+        for (Pending<T> pending : batch) {
+          changes.add(pending.change());
+        }
+        write(batch, changes);
+        batch.clear();
+        changes.clear();
+      }
+    }
+    for (Pending<T> pending; (pending = queue.poll()) != null; ) {
+      if (pending != stop) {
+        pending.future().completeExceptionally(closedError());
+      }
+    }
+  }
+
+  /**
+   * Blocks until there is at least one change, then fills the batch.
+   *
+   * @return whether {@link #close()} was requested
+   */
+  private boolean collect(List<Pending<T>> batch) throws InterruptedException {
+    Pending<T> first = queue.take();
+    if (first == stop) {
+      return true;
+    }
+    batch.add(first);
+    long deadline = System.nanoTime() + maxLingerNanos;
+    while (batch.size() < maxBatchSize) {
+      Pending<T> next = queue.poll();
+      if (next == null) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+          return false;
+        }
+      }
+      if (next == stop) {
+        return true;
+      }
+      batch.add(next);
+    }
+    return false;
+  }
+
+  private void write(List<Pending<T>> batch, List<T> changes) {
+    Throwable error = failure;
+    if (error == null) {
+      try {
+        sink.write(changes);
+      } catch (IOException | RuntimeException e) {
+        logger.error("Could not persist a batch of {} changes of {}, rejecting further changes",
+            changes.size(), name, e);
+        failure = e instanceof IOException
+            ? new RuntimeException("Could not persist changes of " + name, e)
+            : e;
+        error = failure;
+      }
+    }
+    for (Pending<T> pending : batch) {
+      if (error == null) {
+        pending.future().complete(null);
+      } else {
+        pending.future().completeExceptionally(error);
+      }
+    }
+  }
+
+  private IllegalStateException closedError() {
+    return new IllegalStateException("The writer of " + name + " is closed");
+  }
+
+  /**
+   * Persists a batch of changes durably.
+   */
+  @FunctionalInterface
+  interface BatchSink<T> {
+    void write(List<T> batch) throws IOException;
+  }
+
+  private record Pending<T>(T change, CompletableFuture<Void> future) {
+  }
+}
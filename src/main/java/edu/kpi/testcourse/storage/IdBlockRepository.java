@@ -0,0 +1,22 @@
+package edu.kpi.testcourse.storage;
+
+/**
+ * Stores a sequence of numbers that are handed out in blocks, e.g. to number the generated
+ * aliases.
+ */
+public interface IdBlockRepository {
+  /**
+   * Reserves the next block of numbers, which is never handed out again, even after a restart.
+   *
+   * @param blockSize the number of numbers in the block
+   * @return the first number of the block; the sequence starts at 1
+   */
+  long leaseBlock(int blockSize);
+
+  /**
+   * Returns the secret key that permutes the numbers of this sequence into aliases, see
+   * {@link edu.kpi.testcourse.logic.SequenceAliasGenerator}. It is generated at random with the
+   * sequence and never changes afterwards.
+   */
+  long scrambleKey();
+}
@@ -0,0 +1,22 @@
+package edu.kpi.testcourse.storage;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory fake implementation of {@link IdBlockRepository}.
+ */
+public class IdBlockRepositoryFakeImpl implements IdBlockRepository {
+  private final AtomicLong next = new AtomicLong(1);
+  private final long scrambleKey = new SecureRandom().nextLong();
+
+  @Override
+  public long leaseBlock(int blockSize) {
+    return next.getAndAdd(blockSize);
+  }
+
+  @Override
+  public long scrambleKey() {
+    return scrambleKey;
+  }
+}
@@ -0,0 +1,85 @@
+package edu.kpi.testcourse.storage;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonTool;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import javax.inject.Inject;
+
+/**
+ * A file-backed implementation of {@link IdBlockRepository} suitable for use in production.
+ *
+ * <p><tt>alias-sequence.json</tt> holds the first number that has not been leased yet and the
+ * {@link #scrambleKey()}. It is replaced atomically and durably before a block is handed out, so a
+ * crash can only waste the numbers of the blocks leased last, never repeat them.
+ *
+ * <p>The key is generated at random on the first start and saved with the first block, before
+ * any alias is generated with it. A file from before there was a key, which holds the number
+ * alone, gets a new key the same way.
+ */
+public class IdBlockRepositoryFileImpl implements IdBlockRepository {
+  private final JsonTool jsonTool;
+  private final Path sequenceFilePath;
+  private final long scrambleKey;
+  private long next;
+
+  /**
+   * Creates an instance.
+   */
+  @Inject
+  public IdBlockRepositoryFileImpl(JsonTool jsonTool, UrlShortenerConfig appConfig) {
+    this.jsonTool = jsonTool;
+    this.sequenceFilePath = appConfig.storageRoot().resolve("alias-sequence.json");
+    if (!Files.exists(sequenceFilePath)) {
+      this.next = 1;
+      this.scrambleKey = new SecureRandom().nextLong();
+      return;
+    }
+    String json;
+    try {
+      json = Files.readString(sequenceFilePath, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    if (json.strip().startsWith("{")) {
+      SequenceState state = jsonTool.fromJson(json, SequenceState.class);
+      this.next = state.next();
+      this.scrambleKey = state.scrambleKey();
+    } else {
+      this.next = jsonTool.fromJson(json, Long.class);
+      this.scrambleKey = new SecureRandom().nextLong();
+    }
+  }
+
+  @Override
+  public synchronized long leaseBlock(int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("The block size must be positive");
+    }
+    long first = next;
+    JournalCompactor.writeFileAtomically(
+        sequenceFilePath, jsonTool.toJson(new SequenceState(first + blockSize, scrambleKey)));
+    next = first + blockSize;
+    return first;
+  }
+
+  @Override
+  public long scrambleKey() {
+    return scrambleKey;
+  }
+
+  /**
+   * The content of <tt>alias-sequence.json</tt>.
+   *
+   * @param next the first number that has not been leased yet
+   * @param scrambleKey the secret key of the permutation of the numbers
+   */
+  record SequenceState(
+      @JsonProperty("next") long next,
+      @JsonProperty("scrambleKey") long scrambleKey
+  ) {}
+}
@@ -0,0 +1,359 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.GroupCommitSettings;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of repository mutations, split into numbered segment files.
+ *
+ * <p>Every record is framed as <tt>[payload length: int][CRC32C of payload: int][payload]</tt>, so
+ * appending costs the same no matter how much data the repository holds. Segments are named
+ * <tt>{name}.{number}.log</tt> and live in the given directory; a new segment is started when the
+ * current one exceeds {@link #SEGMENT_SIZE_LIMIT}.
+ *
+ * <p>A record that was only partially written (e.g. the process crashed in the middle of an append)
+ * can only be at the end of the last segment. It is dropped during replay and the segment is
+ * truncated, a damaged record anywhere else is reported as {@link JournalCorrupted}.
+ *
+ * <p>Records are written by a {@link GroupCommitWriter}: records appended concurrently are written
+ * with one write call and made durable with one fsync.
+ *
+ * <p>Once the owner has saved a snapshot of its state, the segments that the snapshot covers are no
+ * longer needed: see {@link #seal()} and {@link #deleteSegmentsBefore(long)}.
+ */
+public final class Journal implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(Journal.class);
+
+  static final long SEGMENT_SIZE_LIMIT = 64L * 1024 * 1024;
+  private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+  private final Path directory;
+  private final String name;
+  private FileChannel channel;
+  private long segmentNumber;
+  private long segmentSize;
+  private long bytesSinceSeal;
+  private long recordsSinceSeal;
+  private GroupCommitWriter<byte[]> writer;
+
+  private Journal(Path directory, String name) {
+    this.directory = directory;
+    this.name = name;
+  }
+
+  /**
+   * Opens the journal with the default {@link GroupCommitSettings}.
+   *
+   * @see #open(Path, String, Consumer, GroupCommitSettings)
+   */
+  public static Journal open(Path directory, String name, Consumer<byte[]> replayConsumer) {
+    return open(directory, name, replayConsumer, GroupCommitSettings.DEFAULT);
+  }
+
+  /**
+   * Opens the journal, feeding every intact record to the given consumer in the order the records
+   * were appended, and prepares it for appending.
+   *
+   * @param directory a directory with the journal segments, created if missing
+   * @param name a base name of the segment files
+   * @param replayConsumer receives the payload of every record that is already in the journal
+   * @param groupCommit batching of the appends
+   * @return the journal ready for appending
+   */
+  public static Journal open(
+      Path directory, String name, Consumer<byte[]> replayConsumer, GroupCommitSettings groupCommit
+  ) {
+    var journal = new Journal(directory, name);
+    try {
+      Files.createDirectories(directory);
+      journal.replay(replayConsumer);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    journal.writer = new GroupCommitWriter<>(name, groupCommit, journal::writeBatch);
+    return journal;
+  }
+
+  /**
+   * Feeds every intact record of the journal to the consumer, like
+   * {@link #open(Path, String, Consumer, GroupCommitSettings)} does, without opening it for
+   * appending: nothing in the directory is created, truncated or written. A torn record at the end
+   * is skipped.
+   *
+   * @param directory a directory with the journal segments; a missing one has no records
+   * @param name a base name of the segment files
+   * @param consumer receives the payload of every record in the journal
+   */
+  public static void replayReadOnly(Path directory, String name, Consumer<byte[]> consumer) {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    var journal = new Journal(directory, name);
+    try {
+      List<Long> segments = journal.listSegments();
+      for (int i = 0; i < segments.size(); i++) {
+        boolean last = i == segments.size() - 1;
+        journal.replaySegment(segments.get(i), last, false, consumer);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Durably appends one record: the method returns after the record has reached the disk.
+   *
+   * @param payload a serialized mutation
+   */
+  public void append(byte[] payload) {
+    GroupCommitWriter.await(appendAsync(payload));
+  }
+
+  /**
+   * Durably appends the records in the given order. They are queued together, so they take as few
+   * fsyncs as the group commit batch size allows.
+   *
+   * @param payloads serialized mutations
+   */
+  public void appendAll(List<byte[]> payloads) {
+    var writes = new ArrayList<CompletableFuture<Void>>(payloads.size());
+    for (byte[] payload : payloads) {
+      writes.add(appendAsync(payload));
+    }
+    writes.forEach(GroupCommitWriter::await);
+  }
+
+  /**
+   * Queues one record for appending.
+   *
+   * <p>Records are written in the order of the calls. Once the journal has failed to write or
+   * fsync a batch, every later append fails as well (see {@link GroupCommitWriter}).
+   *
+   * @param payload a serialized mutation
+   * @return a future that completes after the record has reached the disk
+   */
+  public CompletableFuture<Void> appendAsync(byte[] payload) {
+    return writer.submit(payload);
+  }
+
+  /**
+   * Starts a new segment, so that every record appended so far is in a segment numbered below the
+   * returned one.
+   *
+   * @return the number of the new segment
+   */
+  public synchronized long seal() {
+    try {
+      startSegment(segmentNumber + 1);
+    } catch (IOException e) {
+      throw new RuntimeException("Could not start a new segment of the journal " + name, e);
+    }
+    bytesSinceSeal = 0;
+    recordsSinceSeal = 0;
+    return segmentNumber;
+  }
+
+  /**
+   * Deletes all segments numbered below the given one. Call it only when the records of these
+   * segments have been saved somewhere else.
+   *
+   * @param segment a number previously returned by {@link #seal()}
+   */
+  public void deleteSegmentsBefore(long segment) {
+    try {
+      for (long number : listSegments()) {
+        if (number < segment) {
+          Files.delete(segmentPath(number));
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Could not delete old segments of the journal " + name, e);
+    }
+  }
+
+  /**
+   * Returns the size of the records appended (or replayed) since the last {@link #seal()}.
+   */
+  public synchronized long bytesSinceSeal() {
+    return bytesSinceSeal;
+  }
+
+  /**
+   * Returns the number of the records appended (or replayed) since the last {@link #seal()}.
+   */
+  public synchronized long recordsSinceSeal() {
+    return recordsSinceSeal;
+  }
+
+  /**
+   * Waits for the queued records to be written and closes the journal.
+   */
+  @Override
+  public void close() {
+    writer.close();
+    synchronized (this) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private synchronized void writeBatch(List<byte[]> payloads) throws IOException {
+    if (segmentSize >= SEGMENT_SIZE_LIMIT) {
+      startSegment(segmentNumber + 1);
+    }
+    int size = 0;
+    for (byte[] payload : payloads) {
+      size += HEADER_SIZE + payload.length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    for (byte[] payload : payloads) {
+      buffer.putInt(payload.length);
+      buffer.putInt(checksum(payload));
+      buffer.put(payload);
+    }
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+    segmentSize += size;
+    bytesSinceSeal += size;
+    recordsSinceSeal += payloads.size();
+  }
+
+  private void replay(Consumer<byte[]> consumer) throws IOException {
+    List<Long> segments = listSegments();
+    for (int i = 0; i < segments.size(); i++) {
+      boolean last = i == segments.size() - 1;
+      replaySegment(segments.get(i), last, true, consumer);
+    }
+    if (segments.isEmpty()) {
+      startSegment(1);
+    } else {
+      segmentNumber = segments.get(segments.size() - 1);
+      channel = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.WRITE);
+      segmentSize = channel.size();
+      channel.position(segmentSize);
+    }
+  }
+
+  private void replaySegment(
+      long number, boolean last, boolean truncateTorn, Consumer<byte[]> consumer
+  ) throws IOException {
+    Path path = segmentPath(number);
+    try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = in.size();
+      long position = 0;
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (position < size) {
+        header.clear();
+        int length = -1;
+        int checksum = 0;
+        if (size - position >= HEADER_SIZE) {
+          readFully(in, header, position);
+          length = header.getInt(0);
+          checksum = header.getInt(Integer.BYTES);
+        }
+        byte[] payload = null;
+        if (length >= 0 && size - position - HEADER_SIZE >= length) {
+          payload = new byte[length];
+          readFully(in, ByteBuffer.wrap(payload), position + HEADER_SIZE);
+        }
+        if (payload == null || checksum(payload) != checksum) {
+          if (!last) {
+            throw new JournalCorrupted(path, position);
+          }
+          logger.warn("Dropping a torn record at the end of {} (offset {})", path, position);
+          if (truncateTorn) {
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+              out.truncate(position);
+              out.force(true);
+            }
+          }
+          return;
+        }
+        consumer.accept(payload);
+        position += HEADER_SIZE + length;
+        bytesSinceSeal += HEADER_SIZE + length;
+        recordsSinceSeal++;
+      }
+    }
+  }
+
+  private void startSegment(long number) throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+    segmentNumber = number;
+    segmentSize = 0;
+    channel = FileChannel.open(
+        segmentPath(number),
+        StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE
+    );
+  }
+
+  private List<Long> listSegments() throws IOException {
+    Pattern pattern = Pattern.compile(Pattern.quote(name) + "\\.(\\d+)\\.log");
+    var segments = new ArrayList<Long>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.forEach(file -> {
+        Matcher matcher = pattern.matcher(file.getFileName().toString());
+        if (matcher.matches()) {
+          segments.add(Long.parseLong(matcher.group(1)));
+        }
+      });
+    }
+    segments.sort(Long::compare);
+    return segments;
+  }
+
+  private Path segmentPath(long number) {
+    return directory.resolve(String.format("%s.%012d.log", name, number));
+  }
+
+  private static int checksum(byte[] payload) {
+    var crc = new CRC32C();
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private static void readFully(FileChannel in, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = in.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+  }
+
+  /**
+   * Error for a case when a record in the middle of the journal is damaged and the rest of the
+   * journal can't be trusted.
+   */
+  public static class JournalCorrupted extends IllegalStateException {
+    public JournalCorrupted(Path segment, long offset) {
+      super("Journal segment " + segment + " is corrupted at offset " + offset);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.JournalSettings;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background task that replaces the head of a {@link Journal} with a snapshot of the repository.
+ *
+ * <p>Compaction never stops the request path. The journal is sealed (which only starts a new
+ * segment), then the snapshot is written from the live concurrent map while new mutations keep
+ * going to the new segment. The snapshot may or may not contain the mutations made while it was
+ * being written, but all of them are in the new segment, and replaying a journal record is
+ * idempotent (a put overwrites, a delete removes), so the snapshot plus the remaining segments
+ * always restore the latest state. Only after the snapshot is safely on disk are the sealed
+ * segments deleted.
+ *
+ * <p>For this to hold, the repository must update its map before appending the matching record.
+ */
+final class JournalCompactor implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(JournalCompactor.class);
+
+  private static final long CHECK_PERIOD_MILLIS = 1000;
+
+  private final String name;
+  private final Journal journal;
+  private final JournalSettings settings;
+  private final Runnable snapshotWriter;
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * Creates an instance. It doesn't compact on its own until {@link #start()} is called.
+   *
+   * @param name a name of the repository, for logging
+   * @param journal the journal to compact
+   * @param settings snapshot thresholds
+   * @param snapshotWriter saves the complete current state of the repository
+   */
+  JournalCompactor(
+      String name, Journal journal, JournalSettings settings, Runnable snapshotWriter
+  ) {
+    this.name = name;
+    this.journal = journal;
+    this.settings = settings;
+    this.snapshotWriter = snapshotWriter;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "journal-compactor-" + name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts periodic threshold checks.
+   *
+   * @return this compactor
+   */
+  JournalCompactor start() {
+    scheduler.scheduleWithFixedDelay(
+        this::compactIfNeeded, CHECK_PERIOD_MILLIS, CHECK_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    return this;
+  }
+
+  /**
+   * Compacts the journal if it has grown past one of the snapshot thresholds. A threshold of 0 or
+   * less never triggers a compaction, nor does a journal with no records since the last one.
+   *
+   * @return whether the compaction happened
+   */
+  boolean compactIfNeeded() {
+    long bytesThreshold = settings.snapshotThresholdBytes();
+    long recordsThreshold = settings.snapshotThresholdRecords();
+    long records = journal.recordsSinceSeal();
+    boolean grown = bytesThreshold > 0 && journal.bytesSinceSeal() >= bytesThreshold
+        || recordsThreshold > 0 && records >= recordsThreshold;
+    if (records == 0 || !grown) {
+      return false;
+    }
+    try {
+      compact();
+      return true;
+    } catch (RuntimeException e) {
+      logger.error("Could not compact the {} journal, will retry later", name, e);
+      return false;
+    }
+  }
+
+  /**
+   * Saves a snapshot and deletes the journal segments that it covers.
+   */
+  synchronized void compact() {
+    long started = System.nanoTime();
+    long firstUncoveredSegment = journal.seal();
+    snapshotWriter.run();
+    journal.deleteSegmentsBefore(firstUncoveredSegment);
+    logger.info("Compacted the {} journal in {} ms",
+        name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    try {
+      scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Replaces the file content so that a crash leaves either the old or the new version on disk.
+   */
+  static void writeFileAtomically(Path destinationFilePath, String content) {
+    Path temporaryFilePath = destinationFilePath.resolveSibling(
+        destinationFilePath.getFileName() + ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(
+          temporaryFilePath,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.WRITE
+      )) {
+        ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+      }
+      Files.move(
+          temporaryFilePath,
+          destinationFilePath,
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING
+      );
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.entities.User;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonTool;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the JSON database files of the file-backed repositories at startup.
+ *
+ * <p>The files are parsed with {@link JsonTool#readObjectEntries}, entry by entry, straight into a
+ * map that is pre-sized from the file size, so neither the document text nor its tree is ever held
+ * in memory. An instance starts parsing <tt>user-repository.json</tt> and
+ * <tt>alias-repository.json</tt> in parallel as soon as it is created, and the repositories take
+ * the results with {@link #takeUsers()} and {@link #takeAliases()}.
+ */
+@Singleton
+public final class JsonDatabaseLoader {
+  private static final Logger logger = LoggerFactory.getLogger(JsonDatabaseLoader.class);
+
+  static final String USERS_FILE_NAME = "user-repository.json";
+  static final String ALIASES_FILE_NAME = "alias-repository.json";
+
+  // A rough size of one serialized entry, used to pre-size the maps.
+  private static final int ESTIMATED_ENTRY_BYTES = 128;
+
+  private CompletableFuture<Map<String, User>> users;
+  private CompletableFuture<Map<String, UrlAlias>> aliases;
+
+  /**
+   * Creates an instance and starts loading both database files.
+   */
+  @Inject
+  public JsonDatabaseLoader(JsonTool jsonTool, UrlShortenerConfig appConfig) {
+    Path storageRoot = appConfig.storageRoot();
+    ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+      Thread thread = new Thread(runnable, "json-database-loader");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.users = CompletableFuture.supplyAsync(
+        () -> loadUsers(jsonTool, storageRoot), executor);
+    this.aliases = CompletableFuture.supplyAsync(
+        () -> loadAliases(jsonTool, storageRoot), executor);
+    executor.shutdown();
+  }
+
+  /**
+   * Waits for <tt>user-repository.json</tt> to be loaded and hands the result over.
+   *
+   * @return the users keyed by email, or null if there is no file
+   */
+  synchronized @Nullable Map<String, User> takeUsers() {
+    if (users == null) {
+      throw new IllegalStateException("The users have already been taken");
+    }
+    var result = users;
+    users = null;
+    return join(result);
+  }
+
+  /**
+   * Waits for <tt>alias-repository.json</tt> to be loaded and hands the result over.
+   *
+   * @return the aliases keyed by alias, or null if there is no file
+   */
+  synchronized @Nullable Map<String, UrlAlias> takeAliases() {
+    if (aliases == null) {
+      throw new IllegalStateException("The aliases have already been taken");
+    }
+    var result = aliases;
+    aliases = null;
+    return join(result);
+  }
+
+  /**
+   * Loads <tt>user-repository.json</tt> from the storage root.
+   *
+   * @return the users keyed by email, or null if there is no file
+   */
+  static @Nullable Map<String, User> loadUsers(JsonTool jsonTool, Path storageRoot) {
+    return load(jsonTool, storageRoot.resolve(USERS_FILE_NAME), User.class);
+  }
+
+  /**
+   * Loads <tt>alias-repository.json</tt> from the storage root.
+   *
+   * @return the aliases keyed by alias, or null if there is no file
+   */
+  static @Nullable Map<String, UrlAlias> loadAliases(JsonTool jsonTool, Path storageRoot) {
+    return load(jsonTool, storageRoot.resolve(ALIASES_FILE_NAME), UrlAlias.class);
+  }
+
+  /**
+   * Loads a JSON object file into a concurrent map.
+   *
+   * @return the entries of the file, or null if there is no file
+   */
+  static <T> @Nullable Map<String, T> load(JsonTool jsonTool, Path file, Class<T> valueClass) {
+    if (!Files.exists(file)) {
+      return null;
+    }
+    Map<String, T> result;
+    try {
+      long expectedEntries = Files.size(file) / ESTIMATED_ENTRY_BYTES;
+      result = new ConcurrentHashMap<>((int) Math.min(expectedEntries, 1 << 30));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    read(jsonTool, file, valueClass, result::put);
+    return result;
+  }
+
+  /**
+   * Feeds every entry of a JSON object file to the consumer, logging the loading speed.
+   *
+   * @return the number of entries
+   */
+  static <T> long read(
+      JsonTool jsonTool, Path file, Class<T> valueClass, BiConsumer<String, T> consumer
+  ) {
+    long started = System.nanoTime();
+    long[] count = {0};
+    try (InputStream input = Files.newInputStream(file)) {
+      jsonTool.readObjectEntries(input, valueClass, (key, value) -> {
+        consumer.accept(key, value);
+        count[0]++;
+      });
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    long nanos = Math.max(1, System.nanoTime() - started);
+    logger.info("Loaded {} entries from {} in {} ms ({} entries/s, peak heap {} MiB)",
+        count[0], file, nanos / 1_000_000, count[0] * 1_000_000_000L / nanos,
+        peakHeapBytes() >> 20);
+    return count[0];
+  }
+
+  /**
+   * Returns the highest heap usage since the JVM start, summed over the heap memory pools.
+   */
+  private static long peakHeapBytes() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
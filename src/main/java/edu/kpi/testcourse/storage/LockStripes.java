@@ -0,0 +1,64 @@
+package edu.kpi.testcourse.storage;
+
+import java.util.Collection;
+
+/**
+ * A fixed set of monitors that serializes changes of the same key while letting changes of
+ * different keys run in parallel (unless their keys land on the same stripe).
+ */
+final class LockStripes {
+  private final Object[] locks;
+
+  /**
+   * Creates stripes sized for the number of available processors.
+   */
+  LockStripes() {
+    this(Runtime.getRuntime().availableProcessors() * 8);
+  }
+
+  LockStripes(int minStripes) {
+    int count = Integer.highestOneBit(Math.max(1, minStripes) * 2 - 1);
+    locks = new Object[count];
+    for (int i = 0; i < count; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  /**
+   * Returns the monitor that guards changes of the given key.
+   */
+  Object lockFor(String key) {
+    return locks[stripeOf(key)];
+  }
+
+  /**
+   * Runs the action holding the monitors of all the given keys. The monitors are taken in a fixed
+   * order, so two callers can't deadlock.
+   */
+  void withLocks(Collection<String> keys, Runnable action) {
+    boolean[] needed = new boolean[locks.length];
+    for (String key : keys) {
+      needed[stripeOf(key)] = true;
+    }
+    lockFrom(needed, 0, action);
+  }
+
+  private void lockFrom(boolean[] needed, int stripe, Runnable action) {
+    while (stripe < locks.length && !needed[stripe]) {
+      stripe++;
+    }
+    if (stripe == locks.length) {
+      action.run();
+      return;
+    }
+    synchronized (locks[stripe]) {
+      lockFrom(needed, stripe + 1, action);
+    }
+  }
+
+  private int stripeOf(String key) {
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    return hash & (locks.length - 1);
+  }
+}
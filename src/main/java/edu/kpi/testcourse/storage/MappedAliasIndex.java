@@ -0,0 +1,424 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable binary file with URL aliases that is read through memory mapping, without loading or
+ * deserializing it.
+ *
+ * <p>File layout:
+ * <pre>
+ * header:  magic, version, region shift, slot count, record count, records offset
+ * slots:   slot count x long, an open-addressing (linear probing) hash table;
+ *          0 is an empty slot, otherwise 24 bits of the key hash and 40 bits of record offset
+ * records: [1][alias length: short][email length: short][url length: int][alias][email][url]
+ *          or, for an alias that expires,
+ *          [2][alias length: short][email length: short][url length: int][expires at: long]
+ *          [alias][email][url]
+ * </pre>
+ * The file is mapped in regions of <tt>2^regionShift</tt> bytes (a single mapping can't exceed
+ * 2 GiB). The writer never lets a slot or a record cross a region boundary; the unused tail of a
+ * region is zero-filled.
+ *
+ * <p>A lookup hashes the alias, probes the mapped slots and compares the stored alias bytes only
+ * when the hash tag matches, so a {@link UrlAlias} is built only for the entry that is returned.
+ */
+final class MappedAliasIndex {
+  private static final int MAGIC = 0x414C4958; // "ALIX"
+  // Version 1 files have no expiring records.
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 64;
+  private static final int RECORD_HEADER_SIZE = 1 + 2 + 2 + 4;
+  private static final int EXPIRING_RECORD_HEADER_SIZE = RECORD_HEADER_SIZE + 8;
+  private static final byte RECORD = 1;
+  private static final byte EXPIRING_RECORD = 2;
+  private static final long OFFSET_MASK = (1L << 40) - 1;
+  static final int DEFAULT_REGION_SHIFT = 30;
+
+  private final Regions regions;
+  private final long slotCount;
+  private final long recordCount;
+  private final long recordsOffset;
+  private final long fileSize;
+
+  private MappedAliasIndex(Regions regions, long fileSize) {
+    this.regions = regions;
+    this.fileSize = fileSize;
+    if (regions.getInt(0) != MAGIC || regions.getInt(4) < 1 || regions.getInt(4) > VERSION) {
+      throw new IllegalStateException("Not an alias index file or an unsupported version");
+    }
+    this.slotCount = regions.getLong(16);
+    this.recordCount = regions.getLong(24);
+    this.recordsOffset = regions.getLong(32);
+  }
+
+  /**
+   * Maps an index file that was created by {@link #write}.
+   */
+  static MappedAliasIndex open(Path file) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new IllegalStateException("Alias index file " + file + " is truncated");
+      }
+      int regionShift = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).getInt(8);
+      Regions regions = Regions.map(channel, FileChannel.MapMode.READ_ONLY, size, regionShift);
+      return new MappedAliasIndex(regions, size);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Writes an index file with the given aliases. The aliases must have unique names.
+   *
+   * @param file a destination file, overwritten if exists
+   * @param maxCount an upper bound of the number of aliases, used to size the hash table
+   * @param aliases the aliases to write
+   */
+  static void write(Path file, long maxCount, Iterator<UrlAlias> aliases) {
+    write(file, maxCount, aliases, DEFAULT_REGION_SHIFT);
+  }
+
+  static void write(Path file, long maxCount, Iterator<UrlAlias> aliases, int regionShift) {
+    long slotCount = Long.highestOneBit(Math.max(16, 2 * maxCount) - 1) << 1;
+    long recordsOffset = HEADER_SIZE + slotCount * Long.BYTES;
+    long regionSize = 1L << regionShift;
+    try (FileChannel channel = FileChannel.open(
+        file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+    )) {
+      Regions table = Regions.map(
+          channel, FileChannel.MapMode.READ_WRITE, recordsOffset, regionShift);
+      var records = new RecordWriter(channel, recordsOffset);
+      long count = 0;
+      while (aliases.hasNext()) {
+        if (++count > maxCount) {
+          throw new IllegalArgumentException("More aliases than announced");
+        }
+        byte[] record = encode(aliases.next());
+        if (record.length > regionSize) {
+          throw new IllegalArgumentException("URL alias is too big for the index");
+        }
+        long regionEnd = (records.position() | (regionSize - 1)) + 1;
+        if (records.position() + record.length > regionEnd) {
+          records.skipTo(regionEnd);
+        }
+        long hash = hash(record, headerSize(record[0]), aliasLength(record));
+        insertSlot(table, slotCount, hash, records.position());
+        records.write(record);
+      }
+      records.flush();
+      table.putInt(0, MAGIC);
+      table.putInt(4, VERSION);
+      table.putInt(8, regionShift);
+      table.putLong(16, slotCount);
+      table.putLong(24, count);
+      table.putLong(32, recordsOffset);
+      table.force();
+      channel.force(true);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Finds an alias by its short name.
+   */
+  @Nullable UrlAlias find(String alias) {
+    byte[] key = alias.getBytes(StandardCharsets.UTF_8);
+    long hash = hash(key, 0, key.length);
+    long mask = slotCount - 1;
+    for (long i = hash & mask; ; i = (i + 1) & mask) {
+      long slot = regions.getLong(HEADER_SIZE + i * Long.BYTES);
+      if (slot == 0) {
+        return null;
+      }
+      if ((slot >>> 40) == tag(hash)) {
+        long offset = slot & OFFSET_MASK;
+        if (keyEquals(offset, key)) {
+          return decode(offset);
+        }
+      }
+    }
+  }
+
+  /**
+   * Calls the action for every alias in the index, in storage order.
+   */
+  void forEach(Consumer<UrlAlias> action) {
+    for (long position = firstRecord(recordsOffset); position < fileSize; ) {
+      action.accept(decode(position));
+      position = firstRecord(nextRecord(position));
+    }
+  }
+
+  /**
+   * Returns all aliases of the index, in storage order, decoding them lazily.
+   */
+  Stream<UrlAlias> stream() {
+    var iterator = new Iterator<UrlAlias>() {
+      private long position = firstRecord(recordsOffset);
+
+      @Override
+      public boolean hasNext() {
+        return position < fileSize;
+      }
+
+      @Override
+      public UrlAlias next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        UrlAlias alias = decode(position);
+        position = firstRecord(nextRecord(position));
+        return alias;
+      }
+    };
+    return StreamSupport.stream(
+        Spliterators.spliterator(iterator, recordCount, Spliterator.ORDERED | Spliterator.NONNULL),
+        false
+    );
+  }
+
+  long size() {
+    return recordCount;
+  }
+
+  private long nextRecord(long position) {
+    return position + headerSize(regions.get(position)) + regions.getShort(position + 1)
+        + regions.getShort(position + 3) + regions.getInt(position + 5);
+  }
+
+  /**
+   * Skips the zero-filled tail of a region, if the position points to it.
+   */
+  private long firstRecord(long position) {
+    if (position < fileSize
+        && regions.get(position) != RECORD && regions.get(position) != EXPIRING_RECORD) {
+      return (position | (regions.regionSize() - 1)) + 1;
+    }
+    return position;
+  }
+
+  private boolean keyEquals(long offset, byte[] key) {
+    if (regions.getShort(offset + 1) != key.length) {
+      return false;
+    }
+    long start = offset + headerSize(regions.get(offset));
+    for (int i = 0; i < key.length; i++) {
+      if (regions.get(start + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private UrlAlias decode(long offset) {
+    int aliasLength = regions.getShort(offset + 1);
+    int emailLength = regions.getShort(offset + 3);
+    int urlLength = regions.getInt(offset + 5);
+    boolean expiring = regions.get(offset) == EXPIRING_RECORD;
+    Long expiresAt = expiring ? regions.getLong(offset + RECORD_HEADER_SIZE) : null;
+    long start = offset + headerSize(regions.get(offset));
+    String alias = regions.getString(start, aliasLength);
+    String email = regions.getString(start + aliasLength, emailLength);
+    String url = regions.getString(start + aliasLength + emailLength, urlLength);
+    return new UrlAlias(alias, url, email, expiresAt);
+  }
+
+  private static byte[] encode(UrlAlias urlAlias) {
+    byte[] alias = urlAlias.alias().getBytes(StandardCharsets.UTF_8);
+    byte[] email = urlAlias.email().getBytes(StandardCharsets.UTF_8);
+    byte[] url = urlAlias.destinationUrl().getBytes(StandardCharsets.UTF_8);
+    if (alias.length > Short.MAX_VALUE || email.length > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("URL alias is too big for the index");
+    }
+    Long expiresAt = urlAlias.expiresAt();
+    byte kind = expiresAt == null ? RECORD : EXPIRING_RECORD;
+    var record = ByteBuffer.allocate(headerSize(kind) + alias.length + email.length + url.length)
+        .put(kind)
+        .putShort((short) alias.length)
+        .putShort((short) email.length)
+        .putInt(url.length);
+    if (expiresAt != null) {
+      record.putLong(expiresAt);
+    }
+    return record
+        .put(alias)
+        .put(email)
+        .put(url)
+        .array();
+  }
+
+  private static int headerSize(byte kind) {
+    return kind == EXPIRING_RECORD ? EXPIRING_RECORD_HEADER_SIZE : RECORD_HEADER_SIZE;
+  }
+
+  private static int aliasLength(byte[] record) {
+    return ByteBuffer.wrap(record).getShort(1);
+  }
+
+  private static void insertSlot(Regions table, long slotCount, long hash, long offset) {
+    long mask = slotCount - 1;
+    long i = hash & mask;
+    while (table.getLong(HEADER_SIZE + i * Long.BYTES) != 0) {
+      i = (i + 1) & mask;
+    }
+    table.putLong(HEADER_SIZE + i * Long.BYTES, (tag(hash) << 40) | offset);
+  }
+
+  private static long tag(long hash) {
+    return hash >>> 40;
+  }
+
+  /**
+   * 64-bit FNV-1a with a final avalanche step, so both the low bits (slot index) and the high bits
+   * (slot tag) are well mixed.
+   */
+  static long hash(byte[] bytes, int from, int length) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = from; i < from + length; i++) {
+      h ^= bytes[i] & 0xff;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Buffered sequential writer of the record area.
+   */
+  private static final class RecordWriter {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private long bufferStart;
+
+    RecordWriter(FileChannel channel, long start) {
+      this.channel = channel;
+      this.bufferStart = start;
+    }
+
+    long position() {
+      return bufferStart + buffer.position();
+    }
+
+    void skipTo(long position) throws IOException {
+      flush();
+      bufferStart = position;
+    }
+
+    void write(byte[] record) throws IOException {
+      if (buffer.remaining() < record.length) {
+        flush();
+      }
+      if (record.length > buffer.capacity()) {
+        writeFully(ByteBuffer.wrap(record));
+        bufferStart += record.length;
+      } else {
+        buffer.put(record);
+      }
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      int length = buffer.remaining();
+      writeFully(buffer);
+      buffer.clear();
+      bufferStart += length;
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+      long position = bufferStart;
+      while (source.hasRemaining()) {
+        position += channel.write(source, position);
+      }
+    }
+  }
+
+  /**
+   * A file mapped as a sequence of equally sized buffers.
+   */
+  private record Regions(MappedByteBuffer[] buffers, int shift) {
+
+    static Regions map(FileChannel channel, FileChannel.MapMode mode, long size, int shift)
+        throws IOException {
+      long regionSize = 1L << shift;
+      int count = (int) ((size + regionSize - 1) >>> shift);
+      var buffers = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        long start = i * regionSize;
+        buffers[i] = channel.map(mode, start, Math.min(regionSize, size - start));
+      }
+      return new Regions(buffers, shift);
+    }
+
+    long regionSize() {
+      return 1L << shift;
+    }
+
+    byte get(long offset) {
+      return buffer(offset).get(index(offset));
+    }
+
+    short getShort(long offset) {
+      return buffer(offset).getShort(index(offset));
+    }
+
+    int getInt(long offset) {
+      return buffer(offset).getInt(index(offset));
+    }
+
+    long getLong(long offset) {
+      return buffer(offset).getLong(index(offset));
+    }
+
+    String getString(long offset, int length) {
+      byte[] bytes = new byte[length];
+      buffer(offset).get(index(offset), bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void putInt(long offset, int value) {
+      buffer(offset).putInt(index(offset), value);
+    }
+
+    void putLong(long offset, long value) {
+      buffer(offset).putLong(index(offset), value);
+    }
+
+    void force() {
+      for (MappedByteBuffer buffer : buffers) {
+        buffer.force();
+      }
+    }
+
+    private MappedByteBuffer buffer(long offset) {
+      return buffers[(int) (offset >>> shift)];
+    }
+
+    private int index(long offset) {
+      return (int) (offset & ((1L << shift) - 1));
+    }
+  }
+}
@@ -0,0 +1,426 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * Hash table of URL aliases that lives in direct (off-heap) memory, so it costs the garbage
+ * collector nothing no matter how many aliases it holds.
+ *
+ * <p>Two kinds of memory are used:
+ * <pre>
+ * slots:   an open-addressing (linear probing) table of longs, split into pages of up to 1 GiB;
+ *          0 is an empty slot, -1 a deleted one, otherwise 24 bits of the key hash and 40 bits
+ *          of record offset
+ * records: append-only chunks of 2^chunkShift bytes with
+ *          [alias length: short][email length: short][url length: int][expires at: long]
+ *          [alias][email][url], where {@link Long#MAX_VALUE} means that the alias never expires
+ * </pre>
+ * All strings are stored UTF-8 encoded. A {@link UrlAlias} is only built for the entries that are
+ * returned to a caller.
+ *
+ * <p>Reads never lock. Writes are serialized by the table monitor: a writer copies the record to
+ * the arena first and then publishes it with a volatile write of its slot, so a reader that sees
+ * the slot also sees the record. When the table grows, the slots are rehashed into new pages that
+ * replace the old ones with a single volatile write; the old pages are never changed afterwards.
+ *
+ * <p>The space of deleted or replaced records is not reused, it is reclaimed when the table is
+ * rebuilt from a snapshot at the next start.
+ */
+final class OffHeapAliasTable {
+  private static final VarHandle SLOT =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  private static final long EMPTY = 0;
+  private static final long DELETED = -1;
+  private static final long OFFSET_MASK = (1L << 40) - 1;
+  private static final int RECORD_HEADER_SIZE = 2 + 2 + 4 + 8;
+  private static final long NEVER = Long.MAX_VALUE;
+  private static final int SLOTS_PER_PAGE_SHIFT = 27;
+  // Same limit as in MappedAliasIndex, which stores the snapshots.
+  private static final int MAX_STRING_LENGTH = Short.MAX_VALUE;
+  static final int DEFAULT_CHUNK_SHIFT = 24;
+
+  private final int chunkShift;
+  private volatile Slots slots;
+  private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+  // Guarded by this.
+  private long arenaEnd = Long.BYTES;
+  private long size;
+
+  OffHeapAliasTable() {
+    this(DEFAULT_CHUNK_SHIFT);
+  }
+
+  OffHeapAliasTable(int chunkShift) {
+    if (chunkShift < 8 || chunkShift > 30) {
+      throw new IllegalArgumentException("Chunk shift must be between 8 and 30");
+    }
+    this.chunkShift = chunkShift;
+    this.slots = Slots.allocate(16);
+  }
+
+  /**
+   * Finds an alias by its short name.
+   */
+  @Nullable UrlAlias find(String alias) {
+    byte[] key = alias.getBytes(StandardCharsets.UTF_8);
+    long hash = MappedAliasIndex.hash(key, 0, key.length);
+    Slots current = slots;
+    long index = current.find(hash, key, this);
+    return index < 0 ? null : decode(recordOffset(current.get(index)));
+  }
+
+  /**
+   * Adds the alias unless an alias with the same name is already there.
+   *
+   * @return whether the alias was added
+   */
+  synchronized boolean putIfAbsent(UrlAlias urlAlias) {
+    byte[] key = urlAlias.alias().getBytes(StandardCharsets.UTF_8);
+    long hash = MappedAliasIndex.hash(key, 0, key.length);
+    if (slots.find(hash, key, this) >= 0) {
+      return false;
+    }
+    insert(hash, append(urlAlias, key));
+    return true;
+  }
+
+  /**
+   * Adds the alias, replacing an alias with the same name.
+   */
+  synchronized void put(UrlAlias urlAlias) {
+    byte[] key = urlAlias.alias().getBytes(StandardCharsets.UTF_8);
+    long hash = MappedAliasIndex.hash(key, 0, key.length);
+    long offset = append(urlAlias, key);
+    long index = slots.find(hash, key, this);
+    if (index >= 0) {
+      slots.set(index, slot(hash, offset));
+    } else {
+      insert(hash, offset);
+    }
+  }
+
+  /**
+   * Removes an alias by its short name.
+   *
+   * @return whether the alias was there
+   */
+  synchronized boolean remove(String alias) {
+    byte[] key = alias.getBytes(StandardCharsets.UTF_8);
+    long index = slots.find(MappedAliasIndex.hash(key, 0, key.length), key, this);
+    if (index < 0) {
+      return false;
+    }
+    slots.set(index, DELETED);
+    size--;
+    return true;
+  }
+
+  synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Returns the amount of direct memory held by the table.
+   */
+  long offHeapBytes() {
+    return slots.count() * Long.BYTES + ((long) chunks.length << chunkShift);
+  }
+
+  /**
+   * Calls the action for every alias of the table.
+   */
+  void forEach(Consumer<UrlAlias> action) {
+    Slots current = slots;
+    for (long i = 0; i < current.count(); i++) {
+      long slot = current.get(i);
+      if (slot != EMPTY && slot != DELETED) {
+        action.accept(decode(recordOffset(slot)));
+      }
+    }
+  }
+
+  /**
+   * Calls the action for every alias with the given email. Only matching entries are decoded.
+   */
+  void forEachOfUser(String email, Consumer<UrlAlias> action) {
+    byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+    Slots current = slots;
+    for (long i = 0; i < current.count(); i++) {
+      long slot = current.get(i);
+      if (slot != EMPTY && slot != DELETED && emailEquals(recordOffset(slot), emailBytes)) {
+        action.accept(decode(recordOffset(slot)));
+      }
+    }
+  }
+
+  /**
+   * Writes the content of the table to a {@link MappedAliasIndex} file. Changes made while the
+   * file is being written may or may not be included.
+   */
+  void writeIndex(Path file) {
+    Slots current = slots;
+    var aliases = new Iterator<UrlAlias>() {
+      private long index = -1;
+      private long slot = advance();
+
+      @Override
+      public boolean hasNext() {
+        return slot != EMPTY;
+      }
+
+      @Override
+      public UrlAlias next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        UrlAlias alias = decode(recordOffset(slot));
+        slot = advance();
+        return alias;
+      }
+
+      private long advance() {
+        while (++index < current.count()) {
+          long next = current.get(index);
+          if (next != EMPTY && next != DELETED) {
+            return next;
+          }
+        }
+        return EMPTY;
+      }
+    };
+    MappedAliasIndex.write(file, current.maxSize(), aliases);
+  }
+
+  private void insert(long hash, long offset) {
+    if (slots.used() >= slots.maxSize()) {
+      rehash(Math.max(16, Long.highestOneBit(Math.max(1, size + 1) * 3 - 1) << 1));
+    }
+    slots.insert(hash, slot(hash, offset));
+    size++;
+  }
+
+  private void rehash(long slotCount) {
+    Slots current = slots;
+    Slots resized = Slots.allocate(slotCount);
+    for (long i = 0; i < current.count(); i++) {
+      long slot = current.get(i);
+      if (slot != EMPTY && slot != DELETED) {
+        long offset = recordOffset(slot);
+        ByteBuffer chunk = chunk(offset);
+        int start = index(offset);
+        int aliasLength = Short.toUnsignedInt(chunk.getShort(start));
+        byte[] key = new byte[aliasLength];
+        chunk.get(start + RECORD_HEADER_SIZE, key);
+        resized.insert(MappedAliasIndex.hash(key, 0, key.length), slot);
+      }
+    }
+    slots = resized;
+  }
+
+  private long append(UrlAlias urlAlias, byte[] alias) {
+    byte[] email = urlAlias.email().getBytes(StandardCharsets.UTF_8);
+    byte[] url = urlAlias.destinationUrl().getBytes(StandardCharsets.UTF_8);
+    int length = RECORD_HEADER_SIZE + alias.length + email.length + url.length;
+    if (alias.length > MAX_STRING_LENGTH || email.length > MAX_STRING_LENGTH
+        || length > (1 << chunkShift)) {
+      throw new IllegalArgumentException("URL alias is too big for the off-heap table");
+    }
+    long chunkEnd = (arenaEnd | ((1L << chunkShift) - 1)) + 1;
+    if (arenaEnd + length > chunkEnd) {
+      arenaEnd = chunkEnd;
+    }
+    long offset = arenaEnd;
+    if (offset + length > OFFSET_MASK) {
+      throw new IllegalStateException("The off-heap alias table is full");
+    }
+    int chunkIndex = (int) (offset >>> chunkShift);
+    if (chunkIndex == chunks.length) {
+      ByteBuffer[] grown = Arrays.copyOf(chunks, chunkIndex + 1);
+      grown[chunkIndex] = ByteBuffer.allocateDirect(1 << chunkShift);
+      chunks = grown;
+    }
+    ByteBuffer chunk = chunks[chunkIndex];
+    int start = index(offset);
+    chunk.putShort(start, (short) alias.length);
+    chunk.putShort(start + 2, (short) email.length);
+    chunk.putInt(start + 4, url.length);
+    chunk.putLong(start + 8, urlAlias.expiresAt() == null ? NEVER : urlAlias.expiresAt());
+    chunk.put(start + RECORD_HEADER_SIZE, alias);
+    chunk.put(start + RECORD_HEADER_SIZE + alias.length, email);
+    chunk.put(start + RECORD_HEADER_SIZE + alias.length + email.length, url);
+    arenaEnd = offset + length;
+    return offset;
+  }
+
+  private boolean keyEquals(long offset, byte[] key) {
+    ByteBuffer chunk = chunk(offset);
+    int start = index(offset);
+    return Short.toUnsignedInt(chunk.getShort(start)) == key.length
+        && bytesEqual(chunk, start + RECORD_HEADER_SIZE, key);
+  }
+
+  private boolean emailEquals(long offset, byte[] email) {
+    ByteBuffer chunk = chunk(offset);
+    int start = index(offset);
+    int aliasLength = Short.toUnsignedInt(chunk.getShort(start));
+    return Short.toUnsignedInt(chunk.getShort(start + 2)) == email.length
+        && bytesEqual(chunk, start + RECORD_HEADER_SIZE + aliasLength, email);
+  }
+
+  private UrlAlias decode(long offset) {
+    ByteBuffer chunk = chunk(offset);
+    int start = index(offset);
+    int aliasLength = Short.toUnsignedInt(chunk.getShort(start));
+    int emailLength = Short.toUnsignedInt(chunk.getShort(start + 2));
+    int urlLength = chunk.getInt(start + 4);
+    long expiresAt = chunk.getLong(start + 8);
+    int aliasStart = start + RECORD_HEADER_SIZE;
+    String alias = string(chunk, aliasStart, aliasLength);
+    String email = string(chunk, aliasStart + aliasLength, emailLength);
+    String url = string(chunk, aliasStart + aliasLength + emailLength, urlLength);
+    return new UrlAlias(alias, url, email, expiresAt == NEVER ? null : expiresAt);
+  }
+
+  private ByteBuffer chunk(long offset) {
+    // Read after the slot, so the chunk that the slot points to is always there.
+    return chunks[(int) (offset >>> chunkShift)];
+  }
+
+  private int index(long offset) {
+    return (int) (offset & ((1L << chunkShift) - 1));
+  }
+
+  private static boolean bytesEqual(ByteBuffer chunk, int start, byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (chunk.get(start + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String string(ByteBuffer chunk, int start, int length) {
+    byte[] bytes = new byte[length];
+    chunk.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long slot(long hash, long offset) {
+    return (tag(hash) << 40) | offset;
+  }
+
+  private static long tag(long hash) {
+    return hash >>> 40;
+  }
+
+  private static long recordOffset(long slot) {
+    return slot & OFFSET_MASK;
+  }
+
+  /**
+   * One generation of the slot table. Only the writer that holds the table monitor changes it.
+   */
+  private static final class Slots {
+    private final ByteBuffer[] pages;
+    private final long count;
+    private final long maxSize;
+    private long used;
+
+    private Slots(ByteBuffer[] pages, long count) {
+      this.pages = pages;
+      this.count = count;
+      this.maxSize = count * 2 / 3;
+    }
+
+    static Slots allocate(long count) {
+      long perPage = Math.min(count, 1L << SLOTS_PER_PAGE_SHIFT);
+      var pages = new ByteBuffer[(int) (count / perPage)];
+      for (int i = 0; i < pages.length; i++) {
+        pages[i] = ByteBuffer.allocateDirect((int) (perPage * Long.BYTES))
+            .order(ByteOrder.nativeOrder());
+      }
+      return new Slots(pages, count);
+    }
+
+    long count() {
+      return count;
+    }
+
+    /**
+     * Returns how many entries this generation can hold before the table has to grow.
+     */
+    long maxSize() {
+      return maxSize;
+    }
+
+    long used() {
+      return used;
+    }
+
+    long get(long index) {
+      return (long) SLOT.getVolatile(page(index), byteIndex(index));
+    }
+
+    void set(long index, long value) {
+      SLOT.setVolatile(page(index), byteIndex(index), value);
+    }
+
+    /**
+     * Returns the index of the slot with the key, or -1.
+     */
+    long find(long hash, byte[] key, OffHeapAliasTable table) {
+      long mask = count - 1;
+      for (long i = hash & mask; ; i = (i + 1) & mask) {
+        long slot = get(i);
+        if (slot == EMPTY) {
+          return -1;
+        }
+        if (slot != DELETED && (slot >>> 40) == tag(hash)
+            && table.keyEquals(recordOffset(slot), key)) {
+          return i;
+        }
+      }
+    }
+
+    /**
+     * Stores a slot of a key that is known to be absent, reusing a deleted slot if possible.
+     */
+    void insert(long hash, long value) {
+      long mask = count - 1;
+      long i = hash & mask;
+      while (true) {
+        long slot = get(i);
+        if (slot == DELETED) {
+          set(i, value);
+          return;
+        }
+        if (slot == EMPTY) {
+          set(i, value);
+          used++;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+    }
+
+    private ByteBuffer page(long index) {
+      return pages[(int) (index >>> SLOTS_PER_PAGE_SHIFT)];
+    }
+
+    private static int byteIndex(long index) {
+      return (int) (index & ((1L << SLOTS_PER_PAGE_SHIFT) - 1)) * Long.BYTES;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.storage.UrlRepository.Page;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * An {@link AsyncUrlRepository} that calls the blocking methods of a {@link UrlRepository} on an
+ * executor, so that the caller never waits for the disk.
+ */
+class OffloadedUrlRepository implements AsyncUrlRepository {
+  private final UrlRepository repository;
+  private final Executor executor;
+
+  OffloadedUrlRepository(UrlRepository repository, Executor executor) {
+    this.repository = repository;
+    this.executor = executor;
+  }
+
+  @Override
+  public CompletionStage<Void> createUrlAlias(UrlAlias urlAlias) {
+    return offload(() -> {
+      repository.createUrlAlias(urlAlias);
+      return null;
+    });
+  }
+
+  @Override
+  public CompletionStage<boolean[]> createUrlAliases(List<UrlAlias> urlAliases) {
+    return offload(() -> repository.createUrlAliases(urlAliases));
+  }
+
+  @Override
+  public CompletionStage<UrlAlias> findUrlAlias(String alias) {
+    return offload(() -> repository.findUrlAlias(alias));
+  }
+
+  @Override
+  public CompletionStage<Void> deleteUrlAlias(String email, String alias) {
+    return offload(() -> {
+      repository.deleteUrlAlias(email, alias);
+      return null;
+    });
+  }
+
+  @Override
+  public CompletionStage<Page> getAliasesForUser(
+      String userEmail, @Nullable String cursor, int limit
+  ) {
+    return offload(() -> repository.getAliasesForUser(userEmail, cursor, limit));
+  }
+
+  static <T> CompletionStage<T> offload(Supplier<T> operation, Executor executor) {
+    try {
+      return CompletableFuture.supplyAsync(operation, executor);
+    } catch (RuntimeException e) {
+      // The executor is shut down or rejects the work.
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private <T> CompletionStage<T> offload(Supplier<T> operation) {
+    return offload(operation, executor);
+  }
+}
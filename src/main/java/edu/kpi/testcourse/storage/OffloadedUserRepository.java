@@ -0,0 +1,42 @@
+package edu.kpi.testcourse.storage;
+
+import static edu.kpi.testcourse.storage.OffloadedUrlRepository.offload;
+
+import edu.kpi.testcourse.entities.User;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * An {@link AsyncUserRepository} that calls the blocking methods of a {@link UserRepository} on an
+ * executor, so that the caller never waits for the disk.
+ */
+final class OffloadedUserRepository implements AsyncUserRepository {
+  private final UserRepository repository;
+  private final Executor executor;
+
+  OffloadedUserRepository(UserRepository repository, Executor executor) {
+    this.repository = repository;
+    this.executor = executor;
+  }
+
+  @Override
+  public CompletionStage<Void> createUser(User user) {
+    return offload(() -> {
+      repository.createUser(user);
+      return null;
+    }, executor);
+  }
+
+  @Override
+  public CompletionStage<Void> updateUser(User user) {
+    return offload(() -> {
+      repository.updateUser(user);
+      return null;
+    }, executor);
+  }
+
+  @Override
+  public CompletionStage<User> findUser(String email) {
+    return offload(() -> repository.findUser(email), executor);
+  }
+}
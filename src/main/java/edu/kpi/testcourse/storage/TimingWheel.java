@@ -0,0 +1,121 @@
+package edu.kpi.testcourse.storage;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel of string keys: schedules a key for a deadline and hands it back
+ * once the deadline has passed, in constant time per key whatever the number of scheduled keys.
+ *
+ * <p>Time is counted in ticks. Level 0 has a bucket for each of the next 64 ticks, level 1 a bucket
+ * for each of the next 64 spans of 64 ticks, and so on, so {@value #LEVELS} levels cover
+ * 2^{@value #LEVEL_BITS}&times;{@value #LEVELS} ticks; later deadlines wait at the top level. A key
+ * goes to the lowest level whose span covers its deadline. Whenever the current tick crosses the
+ * span of a bucket of a higher level, the keys of that bucket are moved down, to finer buckets;
+ * a key is moved at most once per level, and the keys of a level 0 bucket are due when its tick
+ * comes. A deadline that has already passed is due on the next {@link #advance}.
+ *
+ * <p>Not safe for concurrent use.
+ */
+final class TimingWheel {
+  private static final int LEVEL_BITS = 6;
+  private static final int LEVELS = 6;
+  private static final int BUCKETS = 1 << LEVEL_BITS;
+  private static final int BUCKET_MASK = BUCKETS - 1;
+
+  private final long tickMillis;
+  // Singly linked lists of the timers of every bucket, by level.
+  private final Timer[][] buckets = new Timer[LEVELS][BUCKETS];
+  private long currentTick;
+  private int size;
+
+  /**
+   * Creates an empty wheel.
+   *
+   * @param tickMillis the length of a tick; deadlines are rounded up to whole ticks
+   * @param nowMillis the current time
+   */
+  TimingWheel(long tickMillis, long nowMillis) {
+    if (tickMillis < 1) {
+      throw new IllegalArgumentException("The tick must be positive");
+    }
+    this.tickMillis = tickMillis;
+    this.currentTick = nowMillis / tickMillis;
+  }
+
+  /**
+   * Schedules the key for the deadline. A key may be scheduled several times, it is then handed
+   * back once per schedule.
+   */
+  void schedule(String key, long deadlineMillis) {
+    long deadlineTick = Math.floorDiv(deadlineMillis, tickMillis)
+        + (Math.floorMod(deadlineMillis, tickMillis) == 0 ? 0 : 1);
+    insert(new Timer(key, Math.max(deadlineTick, currentTick + 1)));
+    size++;
+  }
+
+  /**
+   * Moves the current time forward and hands the keys whose deadlines have passed to the consumer.
+   */
+  void advance(long nowMillis, Consumer<String> expired) {
+    long targetTick = nowMillis / tickMillis;
+    while (currentTick < targetTick) {
+      currentTick++;
+      for (int level = LEVELS - 1; level > 0; level--) {
+        if ((currentTick & ((1L << (LEVEL_BITS * level)) - 1)) == 0) {
+          cascade(level);
+        }
+      }
+      int slot = (int) (currentTick & BUCKET_MASK);
+      Timer timer = buckets[0][slot];
+      buckets[0][slot] = null;
+      while (timer != null) {
+        size--;
+        expired.accept(timer.key);
+        timer = timer.next;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of scheduled keys.
+   */
+  int size() {
+    return size;
+  }
+
+  private void cascade(int level) {
+    int slot = (int) ((currentTick >>> (LEVEL_BITS * level)) & BUCKET_MASK);
+    Timer timer = buckets[level][slot];
+    buckets[level][slot] = null;
+    while (timer != null) {
+      Timer next = timer.next;
+      insert(timer);
+      timer = next;
+    }
+  }
+
+  private void insert(Timer timer) {
+    long delta = timer.deadlineTick - currentTick;
+    int level = 0;
+    while (level < LEVELS - 1 && delta >= 1L << (LEVEL_BITS * (level + 1))) {
+      level++;
+    }
+    long tick = level == LEVELS - 1
+        ? Math.min(timer.deadlineTick, currentTick + (1L << (LEVEL_BITS * LEVELS)) - 1)
+        : timer.deadlineTick;
+    int slot = (int) ((tick >>> (LEVEL_BITS * level)) & BUCKET_MASK);
+    timer.next = buckets[level][slot];
+    buckets[level][slot] = timer;
+  }
+
+  private static final class Timer {
+    private final String key;
+    private final long deadlineTick;
+    private Timer next;
+
+    Timer(String key, long deadlineTick) {
+      this.key = key;
+      this.deadlineTick = deadlineTick;
+    }
+  }
+}
@@ -3,12 +3,14 @@ package edu.kpi.testcourse.storage;
 import edu.kpi.testcourse.entities.UrlAlias;
 import edu.kpi.testcourse.entities.User;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 
 /**
  * Stores shortened URLs.
  */
-public interface UrlRepository {
+public interface UrlRepository extends AutoCloseable {
   /**
    * Stores the given URL alias in the repository if it does not already exist.
    *
@@ -18,22 +20,81 @@ public interface UrlRepository {
   void createUrlAlias(UrlAlias urlAlias) throws AliasAlreadyExist;
 
   /**
-   * Returns complete information about the URL alias with the given short name.
+   * Stores those of the given URL aliases whose short names are not taken yet and persists them
+   * together, which is much cheaper than storing them one by one.
+   *
+   * @param urlAliases pairs of full and shortened URLs; of several with the same short name only
+   *                   the first one is stored
+   * @return for every given URL alias, in the same order, whether it has been stored
+   */
+  boolean[] createUrlAliases(List<UrlAlias> urlAliases);
+
+  /**
+   * Returns complete information about the URL alias with the given short name, or null if there
+   * is no such alias or it has {@linkplain UrlAlias#isExpired expired}.
    */
   @Nullable UrlAlias findUrlAlias(String alias);
 
   /**
-   * Deletes the URL alias with the given short name.
+   * Deletes the URL alias with the given short name if it belongs to the user with the given email.
    *
-   * @throws RuntimeException if the repository does not contain a URL alias with this short name.
+   * @throws PermissionDenied if the repository does not contain a URL alias with this short name
+   *          or the alias belongs to another user.
    */
   void deleteUrlAlias(String email, String alias) throws PermissionDenied;
 
+  /**
+   * Deletes the URL alias with the given short name if it has expired by the given moment, whoever
+   * it belongs to. Until then an expired alias is not found, but its short name stays taken.
+   *
+   * @param nowMillis the current epoch millisecond
+   * @return whether the alias has been deleted
+   */
+  boolean deleteExpiredAlias(String alias, long nowMillis);
+
   /**
    * Finds all URLs that belong to the user with the given email.
    */
   List<UrlAlias> getAllAliasesForUser(String userEmail);
 
+  /**
+   * Returns a page of the URLs that belong to the user with the given email. The order of the
+   * aliases depends on the implementation, but is the same for all pages.
+   *
+   * @param cursor null for the first page, otherwise {@link Page#nextCursor()} of the previous one
+   * @param limit the maximal number of aliases on the page
+   */
+  Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit);
+
+  /**
+   * Feeds every alias of the repository to the consumer, in no particular order. Aliases created
+   * or deleted meanwhile may or may not be included.
+   */
+  void forEachAlias(Consumer<UrlAlias> consumer);
+
+  /**
+   * Returns the non-blocking variant of this repository, which runs the methods that may block on
+   * the given executor. Implementations that can answer some calls without blocking may do so on
+   * the caller's thread.
+   */
+  default AsyncUrlRepository async(Executor executor) {
+    return new OffloadedUrlRepository(this, executor);
+  }
+
+  /**
+   * Releases the resources of the repository. A repository that wraps another one closes it too.
+   */
+  @Override
+  default void close() {}
+
+  /**
+   * A part of a listing.
+   *
+   * @param aliases the URL aliases of the page
+   * @param nextCursor the cursor of the next page, or null if this page is the last one
+   */
+  record Page(List<UrlAlias> aliases, @Nullable String nextCursor) {}
+
   /**
    * Error for a case when we try to create a shortened URL that is already exist.
    */
@@ -1,52 +1,102 @@
 package edu.kpi.testcourse.storage;
 
 import edu.kpi.testcourse.entities.UrlAlias;
-import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 
 /**
  * An in-memory fake implementation of {@link UrlRepository}.
+ *
+ * <p>Safe for concurrent use: reads never lock, changes of the same alias are serialized by
+ * {@link LockStripes}.
  */
 public class UrlRepositoryFakeImpl implements UrlRepository {
 
-  private final HashMap<String, UrlAlias> aliases = new HashMap<>();
+  private final Map<String, UrlAlias> aliases = new ConcurrentHashMap<>();
+  private final UserAliasIndex userAliases = new UserAliasIndex();
+  private final LockStripes locks = new LockStripes();
 
   @Override
   public void createUrlAlias(UrlAlias urlAlias) {
-    if (aliases.containsKey(urlAlias.alias())) {
-      throw new UrlRepository.AliasAlreadyExist();
+    synchronized (locks.lockFor(urlAlias.alias())) {
+      if (aliases.putIfAbsent(urlAlias.alias(), urlAlias) != null) {
+        throw new UrlRepository.AliasAlreadyExist();
+      }
+
+      userAliases.add(urlAlias.email(), urlAlias.alias());
     }
+  }
 
-    aliases.put(urlAlias.alias(), urlAlias);
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    boolean[] created = new boolean[urlAliases.size()];
+    for (int i = 0; i < urlAliases.size(); i++) {
+      try {
+        createUrlAlias(urlAliases.get(i));
+        created[i] = true;
+      } catch (AliasAlreadyExist e) {
+        created[i] = false;
+      }
+    }
+    return created;
   }
 
   @Override
   public @Nullable
   UrlAlias findUrlAlias(String alias) {
-    return aliases.get(alias);
+    UrlAlias urlAlias = aliases.get(alias);
+    return urlAlias == null || urlAlias.isExpired(System.currentTimeMillis()) ? null : urlAlias;
   }
 
   @Override
   public void deleteUrlAlias(String email, String alias) throws PermissionDenied {
-    UrlAlias savedAlias = aliases.get(alias);
-    if (savedAlias != null && savedAlias.email().equals(email)) {
-      aliases.remove(alias);
+    synchronized (locks.lockFor(alias)) {
+      UrlAlias savedAlias = aliases.get(alias);
+      if (savedAlias != null && savedAlias.email().equals(email)) {
+        aliases.remove(alias);
+        userAliases.remove(email, alias);
+      }
+      else {
+        throw new PermissionDenied();
+      }
+    }
+  }
+
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    synchronized (locks.lockFor(alias)) {
+      UrlAlias savedAlias = aliases.get(alias);
+      if (savedAlias == null || !savedAlias.isExpired(nowMillis)) {
+        return false;
+      }
+      deleteUrlAlias(savedAlias.email(), alias);
+      return true;
     }
-    else {
-           throw new PermissionDenied();
-         }
   }
 
   @Override
   public List<UrlAlias> getAllAliasesForUser(String userEmail) {
-    var userAliases = new ArrayList<UrlAlias>();
-    for (UrlAlias alias : aliases.values()) {
-      if (alias.email().equals(userEmail)) {
-        userAliases.add(alias);
+    var result = new ArrayList<UrlAlias>();
+    for (String name : userAliases.aliasesOf(userEmail)) {
+      UrlAlias alias = aliases.get(name);
+      if (alias != null) {
+        result.add(alias);
       }
     }
-    return userAliases;
+    return result;
+  }
+
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    return userAliases.page(userEmail, cursor, limit, aliases::get);
+  }
+
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    aliases.values().forEach(consumer);
   }
 }
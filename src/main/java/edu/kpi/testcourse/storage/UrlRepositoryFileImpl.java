@@ -1,110 +1,301 @@
 package edu.kpi.testcourse.storage;
 
 
-import com.google.gson.reflect.TypeToken;
 import edu.kpi.testcourse.entities.UrlAlias;
 import edu.kpi.testcourse.logic.UrlShortenerConfig;
 import edu.kpi.testcourse.serialization.JsonTool;
-import java.io.IOException;
-import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 /**
  * A file-backed implementation of {@link UrlRepository} suitable for use in production.
+ *
+ * <p>By default every change rewrites the whole <tt>alias-repository.json</tt>. With the journal
+ * enabled in {@link UrlShortenerConfig#journal()} the JSON file is only read at startup and every
+ * change is appended to the <tt>alias-repository.*.log</tt> {@link Journal} instead, which is
+ * replayed on top of the JSON file on the next start. A {@link JournalCompactor} periodically saves
+ * a fresh JSON snapshot and drops the journal segments that it covers.
+ *
+ * <p>Either way changes are persisted in batches by a single writer thread, see
+ * {@link UrlShortenerConfig#groupCommit()}. A method that changes the repository returns once the
+ * change is durable, but readers may see the change a bit earlier, while it is being written.
+ *
+ * <p>A {@link UserAliasIndex} is kept next to the map, so listing the aliases of a user doesn't
+ * scan the repository.
+ *
+ * <p>Safe for concurrent use. Reads never lock. Changes of the same alias are serialized by
+ * {@link LockStripes} and always update the map before they are persisted, which is what the
+ * compactor relies on.
  */
-public class UrlRepositoryFileImpl implements UrlRepository{
+public class UrlRepositoryFileImpl implements UrlRepository {
+  static final String JOURNAL_NAME = "alias-repository";
+
   // UrlAliases, keyed by aliases.
   private final Map<String, UrlAlias> aliases;
+  private final UserAliasIndex userAliases = new UserAliasIndex();
+  private final LockStripes locks = new LockStripes();
 
   private final JsonTool jsonTool;
   private final UrlShortenerConfig appConfig;
+  private final @Nullable Journal journal;
+  private final @Nullable JournalCompactor compactor;
+  // Rewrites the JSON file when the journal is disabled.
+  private final @Nullable GroupCommitWriter<AliasJournalRecord> jsonFileWriter;
 
   /**
-   * Creates an instance.
+   * Creates an instance that loads <tt>alias-repository.json</tt> itself.
    */
-  @Inject
   public UrlRepositoryFileImpl(JsonTool jsonTool, UrlShortenerConfig appConfig) {
+    this(jsonTool, appConfig, JsonDatabaseLoader.loadAliases(jsonTool, appConfig.storageRoot()));
+  }
+
+  /**
+   * Creates an instance with <tt>alias-repository.json</tt> loaded by the given loader.
+   */
+  @Inject
+  public UrlRepositoryFileImpl(
+    JsonTool jsonTool, UrlShortenerConfig appConfig, JsonDatabaseLoader loader
+  ) {
+    this(jsonTool, appConfig, loader.takeAliases());
+  }
+
+  private UrlRepositoryFileImpl(
+    JsonTool jsonTool, UrlShortenerConfig appConfig, @Nullable Map<String, UrlAlias> loaded
+  ) {
     this.jsonTool = jsonTool;
     this.appConfig = appConfig;
-    this.aliases = readAliasesFromJsonDatabaseFile(jsonTool, makeJsonFilePath(appConfig.storageRoot()));
+    if (loaded == null && !appConfig.journal().enabled()) {
+      throw new RuntimeException(
+        new NoSuchFileException(makeJsonFilePath(appConfig.storageRoot()).toString()));
+    }
+    this.aliases = loaded != null ? loaded : new ConcurrentHashMap<>();
+    aliases.values().forEach(alias -> userAliases.add(alias.email(), alias.alias()));
+    if (appConfig.journal().enabled()) {
+      this.journal = Journal.open(
+        appConfig.storageRoot(), JOURNAL_NAME, this::replay, appConfig.groupCommit());
+      this.compactor = new JournalCompactor(
+        JOURNAL_NAME, journal, appConfig.journal(), this::writeSnapshot).start();
+      this.jsonFileWriter = null;
+    } else {
+      this.journal = null;
+      this.compactor = null;
+      this.jsonFileWriter = new GroupCommitWriter<>(
+        JOURNAL_NAME, appConfig.groupCommit(), batch -> writeSnapshot());
+    }
   }
 
   @Override
   public void createUrlAlias(UrlAlias urlAlias) throws AliasAlreadyExist {
-    if (aliases.containsKey(urlAlias.alias())) {
-      throw new UrlRepository.AliasAlreadyExist();
+    synchronized (locks.lockFor(urlAlias.alias())) {
+      if (aliases.containsKey(urlAlias.alias())) {
+        throw new UrlRepository.AliasAlreadyExist();
+      }
+
+      putAlias(urlAlias);
+      try {
+        persist(new AliasJournalRecord(AliasJournalRecord.Operation.PUT, urlAlias));
+      } catch (RuntimeException e) {
+        removeAlias(urlAlias.alias());
+        throw e;
+      }
     }
+  }
 
-    aliases.put(urlAlias.alias(), urlAlias);
-    writeAliasesToJsonDatabaseFile(jsonTool, aliases, makeJsonFilePath(appConfig.storageRoot()));
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Without the journal the JSON file is rewritten once for all of them.
+   *
+   * <p>The locks of the aliases are held only until the changes are queued for writing, which
+   * fixes their order against other changes of the same aliases; the fsync is waited for without
+   * them, so a large batch doesn't stall the other writers for its whole duration.
+   */
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    boolean[] created = new boolean[urlAliases.size()];
+    List<String> names = urlAliases.stream().map(UrlAlias::alias).collect(Collectors.toList());
+    var records = new ArrayList<AliasJournalRecord>();
+    var writes = new ArrayList<CompletableFuture<Void>>();
+    locks.withLocks(names, () -> {
+      for (int i = 0; i < urlAliases.size(); i++) {
+        UrlAlias urlAlias = urlAliases.get(i);
+        if (!aliases.containsKey(urlAlias.alias())) {
+          putAlias(urlAlias);
+          records.add(new AliasJournalRecord(AliasJournalRecord.Operation.PUT, urlAlias));
+          created[i] = true;
+        }
+      }
+      try {
+        writes.addAll(submitAll(records));
+      } catch (RuntimeException e) {
+        records.forEach(record -> removeAlias(record.urlAlias().alias()));
+        throw e;
+      }
+    });
+    try {
+      writes.forEach(GroupCommitWriter::await);
+    } catch (RuntimeException e) {
+      // Another thread may have changed some of the aliases meanwhile, those are left alone.
+      locks.withLocks(names, () -> records.forEach(record -> removeAlias(record.urlAlias())));
+      throw e;
+    }
+    return created;
   }
 
   @Nullable
   @Override
   public UrlAlias findUrlAlias(String alias) {
-    return aliases.get(alias);
+    UrlAlias urlAlias = aliases.get(alias);
+    return urlAlias == null || urlAlias.isExpired(System.currentTimeMillis()) ? null : urlAlias;
   }
 
   @Override
   public void deleteUrlAlias(String email, String alias) throws PermissionDenied {
-    UrlAlias savedAlias = aliases.get(alias);
-    if (savedAlias != null && savedAlias.email().equals(email)) {
-      aliases.remove(alias);
-      writeAliasesToJsonDatabaseFile(jsonTool, aliases, makeJsonFilePath(appConfig.storageRoot()));
+    synchronized (locks.lockFor(alias)) {
+      UrlAlias savedAlias = aliases.get(alias);
+      if (savedAlias != null && savedAlias.email().equals(email)) {
+        removeAlias(alias);
+        try {
+          persist(new AliasJournalRecord(AliasJournalRecord.Operation.DELETE, savedAlias));
+        } catch (RuntimeException e) {
+          putAlias(savedAlias);
+          throw e;
+        }
+      }
+      else {
+        throw new PermissionDenied();
+      }
     }
-    else {
-      throw new PermissionDenied();
+  }
+
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    synchronized (locks.lockFor(alias)) {
+      UrlAlias savedAlias = aliases.get(alias);
+      if (savedAlias == null || !savedAlias.isExpired(nowMillis)) {
+        return false;
+      }
+      deleteUrlAlias(savedAlias.email(), alias);
+      return true;
     }
   }
 
   @Override
   public List<UrlAlias> getAllAliasesForUser(String userEmail) {
-    var userAliases = new ArrayList<UrlAlias>();
-    for (UrlAlias alias : aliases.values()) {
-      if (alias.email().equals(userEmail)) {
-        userAliases.add(alias);
+    var result = new ArrayList<UrlAlias>();
+    for (String name : userAliases.aliasesOf(userEmail)) {
+      UrlAlias alias = aliases.get(name);
+      if (alias != null && alias.email().equals(userEmail)) {
+        result.add(alias);
       }
     }
-    return userAliases;
+    return result;
   }
 
-  private static Path makeJsonFilePath(Path storageRoot) {
-    return storageRoot.resolve("alias-repository.json");
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    return userAliases.page(userEmail, cursor, limit, name -> {
+      UrlAlias alias = aliases.get(name);
+      return alias != null && alias.email().equals(userEmail) ? alias : null;
+    });
   }
 
-  private static Map<String, UrlAlias> readAliasesFromJsonDatabaseFile(
-    JsonTool jsonTool, Path sourceFilePath
-  ) {
-    String json;
-    try {
-      json = Files.readString(sourceFilePath, StandardCharsets.UTF_8);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    aliases.values().forEach(consumer);
+  }
+
+  @Override
+  public void close() {
+    if (compactor != null) {
+      compactor.close();
     }
-    Type type = new TypeToken<HashMap<String, UrlAlias>>(){}.getType();
-    Map<String, UrlAlias> result = jsonTool.fromJson(json, type);
-    if (result == null) {
-      throw new RuntimeException("Could not deserialize the aliases repository");
+    if (journal != null) {
+      journal.close();
+    }
+    if (jsonFileWriter != null) {
+      jsonFileWriter.close();
     }
-    return result;
   }
 
-  private static void writeAliasesToJsonDatabaseFile(
-    JsonTool jsonTool, Map<String, UrlAlias> aliases, Path destinationFilePath
-  ) {
-    String json = jsonTool.toJson(aliases);
-    try {
-      Files.writeString(destinationFilePath, json);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  /**
+   * Saves a snapshot of the repository and drops the journal segments that it covers.
+   */
+  void compact() {
+    if (compactor != null) {
+      compactor.compact();
+    }
+  }
+
+  private void putAlias(UrlAlias urlAlias) {
+    UrlAlias previous = aliases.put(urlAlias.alias(), urlAlias);
+    if (previous != null && !previous.email().equals(urlAlias.email())) {
+      userAliases.remove(previous.email(), previous.alias());
+    }
+    userAliases.add(urlAlias.email(), urlAlias.alias());
+  }
+
+  private void removeAlias(String alias) {
+    UrlAlias previous = aliases.remove(alias);
+    if (previous != null) {
+      userAliases.remove(previous.email(), alias);
+    }
+  }
+
+  private void removeAlias(UrlAlias urlAlias) {
+    if (aliases.remove(urlAlias.alias(), urlAlias)) {
+      userAliases.remove(urlAlias.email(), urlAlias.alias());
     }
   }
+
+  private void writeSnapshot() {
+    JournalCompactor.writeFileAtomically(
+        makeJsonFilePath(appConfig.storageRoot()), jsonTool.toJson(aliases));
+  }
+
+  private void persist(AliasJournalRecord record) {
+    if (journal != null) {
+      journal.append(jsonTool.toJson(record).getBytes(StandardCharsets.UTF_8));
+    } else {
+      GroupCommitWriter.await(jsonFileWriter.submit(record));
+    }
+  }
+
+  private List<CompletableFuture<Void>> submitAll(List<AliasJournalRecord> records) {
+    if (records.isEmpty()) {
+      return List.of();
+    }
+    if (journal != null) {
+      return records.stream()
+          .map(record -> jsonTool.toJson(record).getBytes(StandardCharsets.UTF_8))
+          .map(journal::appendAsync)
+          .collect(Collectors.toList());
+    }
+    // Every batch rewrites the whole file, so one change stands for all of them.
+    return List.of(jsonFileWriter.submit(records.get(records.size() - 1)));
+  }
+
+  private void replay(byte[] payload) {
+    AliasJournalRecord record = jsonTool.fromJson(
+        new String(payload, StandardCharsets.UTF_8), AliasJournalRecord.class);
+    switch (record.operation()) {
+      case PUT -> putAlias(record.urlAlias());
+      case DELETE -> removeAlias(record.urlAlias().alias());
+      default -> throw new IllegalStateException("Unknown journal operation " + record.operation());
+    }
+  }
+
+  private static Path makeJsonFilePath(Path storageRoot) {
+    return storageRoot.resolve(JsonDatabaseLoader.ALIASES_FILE_NAME);
+  }
 }
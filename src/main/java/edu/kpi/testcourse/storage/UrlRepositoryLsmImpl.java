@@ -0,0 +1,393 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonTool;
+import edu.kpi.testcourse.storage.lsm.Entry;
+import edu.kpi.testcourse.storage.lsm.LsmStore;
+import edu.kpi.testcourse.storage.lsm.WriteBatch;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+/**
+ * An implementation of {@link UrlRepository} on top of the sorted {@link LsmStore}, which besides
+ * the point lookups answers ordered queries: aliases by prefix, aliases created after a moment, and
+ * the aliases of a user in the order of creation.
+ *
+ * <p>Every alias is stored under three keys, written atomically in one batch:
+ * <ul>
+ *   <li><tt>a\0{alias}</tt> with
+ *       <tt>[created at: long][email length: int][expires at: long][email][URL]</tt>, where the
+ *       expiry time is only present for an expiring alias, which has the top bit of the email
+ *       length set;</li>
+ *   <li><tt>u\0{email}\0{created at}{alias}</tt> with no value, the aliases of a user;</li>
+ *   <li><tt>t\0{created at}{alias}</tt> with no value, all aliases by creation time.</li>
+ * </ul>
+ * The creation time is the epoch millisecond as a big-endian long, so the byte order of the keys is
+ * the order of creation. On the first start the aliases of <tt>alias-repository.json</tt> are
+ * imported, all with the time of the import.
+ *
+ * <p>The data lives in <tt>alias-lsm</tt> under the storage root, see
+ * {@link UrlShortenerConfig#lsm()}. Safe for concurrent use: reads never lock, changes of the same
+ * alias are serialized by {@link LockStripes}.
+ */
+public class UrlRepositoryLsmImpl implements UrlRepository {
+  private static final byte[] ALIAS_PREFIX = {'a', 0};
+  private static final byte[] USER_PREFIX = {'u', 0};
+  private static final byte[] TIME_PREFIX = {'t', 0};
+  private static final byte[] NO_VALUE = new byte[0];
+  // The bit of the email length that marks an expiring alias.
+  private static final int EXPIRING = 1 << 31;
+  private static final int IMPORT_BATCH_SIZE = 1000;
+
+  private final LsmStore store;
+  private final Clock clock;
+  private final LockStripes locks = new LockStripes();
+
+  /**
+   * Creates an instance.
+   */
+  @Inject
+  public UrlRepositoryLsmImpl(JsonTool jsonTool, UrlShortenerConfig appConfig) {
+    this(jsonTool, appConfig, Clock.systemUTC());
+  }
+
+  UrlRepositoryLsmImpl(JsonTool jsonTool, UrlShortenerConfig appConfig, Clock clock) {
+    this.clock = clock;
+    Path storageRoot = appConfig.storageRoot();
+    Path storeDirectory = storageRoot.resolve("alias-lsm");
+    Path jsonFilePath = storageRoot.resolve(JsonDatabaseLoader.ALIASES_FILE_NAME);
+    if (!Files.exists(storeDirectory) && Files.exists(jsonFilePath)) {
+      importJsonFile(jsonTool, appConfig, jsonFilePath, storeDirectory);
+    }
+    this.store = LsmStore.open(storeDirectory, appConfig.lsm(), appConfig.groupCommit());
+  }
+
+  @Override
+  public void createUrlAlias(UrlAlias urlAlias) throws AliasAlreadyExist {
+    synchronized (locks.lockFor(urlAlias.alias())) {
+      if (store.get(aliasKey(urlAlias.alias())) != null) {
+        throw new UrlRepository.AliasAlreadyExist();
+      }
+      store.write(put(new WriteBatch(), urlAlias, clock.millis()));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The aliases are written in one batch.
+   */
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    boolean[] created = new boolean[urlAliases.size()];
+    List<String> names = urlAliases.stream().map(UrlAlias::alias).collect(Collectors.toList());
+    locks.withLocks(names, () -> {
+      long createdAt = clock.millis();
+      var batch = new WriteBatch();
+      var batchAliases = new HashSet<String>();
+      for (int i = 0; i < urlAliases.size(); i++) {
+        UrlAlias urlAlias = urlAliases.get(i);
+        if (store.get(aliasKey(urlAlias.alias())) == null && batchAliases.add(urlAlias.alias())) {
+          put(batch, urlAlias, createdAt);
+          created[i] = true;
+        }
+      }
+      store.write(batch);
+    });
+    return created;
+  }
+
+  @Override
+  public @Nullable UrlAlias findUrlAlias(String alias) {
+    byte[] value = store.get(aliasKey(alias));
+    UrlAlias urlAlias = value == null ? null : decode(alias, value);
+    return urlAlias == null || urlAlias.isExpired(clock.millis()) ? null : urlAlias;
+  }
+
+  @Override
+  public void deleteUrlAlias(String email, String alias) throws PermissionDenied {
+    synchronized (locks.lockFor(alias)) {
+      byte[] value = store.get(aliasKey(alias));
+      UrlAlias savedAlias = value == null ? null : decode(alias, value);
+      if (savedAlias == null || !savedAlias.email().equals(email)) {
+        throw new PermissionDenied();
+      }
+      long createdAt = ByteBuffer.wrap(value).getLong();
+      store.write(new WriteBatch()
+          .delete(aliasKey(alias))
+          .delete(userKey(email, createdAt, alias))
+          .delete(timeKey(createdAt, alias)));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The expiry of the stored alias is checked and the alias deleted under the lock of its short
+   * name, so an alias created anew in between is never deleted.
+   */
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    synchronized (locks.lockFor(alias)) {
+      byte[] value = store.get(aliasKey(alias));
+      UrlAlias savedAlias = value == null ? null : decode(alias, value);
+      if (savedAlias == null || !savedAlias.isExpired(nowMillis)) {
+        return false;
+      }
+      deleteUrlAlias(savedAlias.email(), alias);
+      return true;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The aliases come in the order of creation.
+   */
+  @Override
+  public List<UrlAlias> getAllAliasesForUser(String userEmail) {
+    byte[] prefix = concat(USER_PREFIX, utf8(userEmail), new byte[] {0});
+    return findByIndex(prefix, null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The aliases come in the order of creation. The cursor is the end of the index key of the
+   * last alias of the previous page, in URL-safe Base64.
+   */
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("The page size must be positive");
+    }
+    byte[] prefix = concat(USER_PREFIX, utf8(userEmail), new byte[] {0});
+    byte[] from = cursor == null
+        ? prefix
+        : concat(prefix, Base64.getUrlDecoder().decode(cursor), new byte[] {0});
+    byte[] end = concat(USER_PREFIX, utf8(userEmail), new byte[] {1});
+    var aliases = new ArrayList<UrlAlias>(Math.min(limit, 1024));
+    byte[] lastKey = null;
+    try (LsmStore.Cursor entries = store.scan(from, end)) {
+      while (entries.hasNext()) {
+        byte[] key = entries.next().key();
+        if (aliases.size() == limit) {
+          String nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+              Arrays.copyOfRange(lastKey, prefix.length, lastKey.length));
+          return new Page(aliases, nextCursor);
+        }
+        int aliasStart = prefix.length + Long.BYTES;
+        UrlAlias urlAlias = findUrlAlias(
+            new String(key, aliasStart, key.length - aliasStart, StandardCharsets.UTF_8));
+        // Null if the alias has been deleted since the cursor was opened.
+        if (urlAlias != null) {
+          aliases.add(urlAlias);
+          lastKey = key;
+        }
+      }
+    }
+    return new Page(aliases, null);
+  }
+
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    try (LsmStore.Cursor cursor = store.scanPrefix(ALIAS_PREFIX)) {
+      while (cursor.hasNext()) {
+        Entry entry = cursor.next();
+        consumer.accept(decode(aliasOf(entry), entry.value()));
+      }
+    }
+  }
+
+  /**
+   * Returns the aliases that start with the prefix, in the alphabetical order of their UTF-8 bytes.
+   *
+   * @param limit the maximal number of aliases to return
+   */
+  public List<UrlAlias> findAliasesByPrefix(String prefix, int limit) {
+    var result = new ArrayList<UrlAlias>();
+    try (LsmStore.Cursor cursor = store.scanPrefix(aliasKey(prefix))) {
+      while (result.size() < limit && cursor.hasNext()) {
+        Entry entry = cursor.next();
+        result.add(decode(aliasOf(entry), entry.value()));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the aliases created after the given moment, from the oldest.
+   *
+   * @param limit the maximal number of aliases to return
+   */
+  public List<UrlAlias> findAliasesCreatedAfter(Instant after, int limit) {
+    byte[] from = concat(TIME_PREFIX, creationTime(after.toEpochMilli() + 1));
+    return findByIndex(TIME_PREFIX, from, limit);
+  }
+
+  /**
+   * Returns the counters of the underlying store, including write and read amplification.
+   */
+  public LsmStore.Metrics metrics() {
+    return store.metrics();
+  }
+
+  @Override
+  public void close() {
+    store.close();
+  }
+
+  /**
+   * Writes the memtable of the store to disk and merges the sorted files, see
+   * {@link LsmStore#compact()}.
+   */
+  void compact() {
+    store.flush();
+    store.compact();
+  }
+
+  /**
+   * Resolves the index keys with the prefix, each ending with a creation time and an alias.
+   *
+   * @param from the first index key to look at, or null to start at the prefix
+   */
+  private List<UrlAlias> findByIndex(byte[] prefix, @Nullable byte[] from, int limit) {
+    var result = new ArrayList<UrlAlias>();
+    // Every index prefix ends with a zero byte.
+    byte[] end = concat(Arrays.copyOf(prefix, prefix.length - 1), new byte[] {1});
+    try (LsmStore.Cursor cursor = store.scan(from == null ? prefix : from, end)) {
+      while (result.size() < limit && cursor.hasNext()) {
+        byte[] key = cursor.next().key();
+        int aliasStart = prefix.length + Long.BYTES;
+        String alias =
+            new String(key, aliasStart, key.length - aliasStart, StandardCharsets.UTF_8);
+        UrlAlias urlAlias = findUrlAlias(alias);
+        // Null if the alias has been deleted since the cursor was opened.
+        if (urlAlias != null) {
+          result.add(urlAlias);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Builds the store from the JSON file next to it and moves it in place only when complete, so
+   * that an interrupted import starts over.
+   */
+  private void importJsonFile(
+      JsonTool jsonTool, UrlShortenerConfig appConfig, Path jsonFilePath, Path storeDirectory
+  ) {
+    Path importDirectory = storeDirectory.resolveSibling(storeDirectory.getFileName() + ".import");
+    try {
+      AliasResharder.deleteRecursively(importDirectory);
+      try (LsmStore importStore =
+          LsmStore.open(importDirectory, appConfig.lsm(), appConfig.groupCommit())) {
+        long importedAt = clock.millis();
+        WriteBatch[] batch = {new WriteBatch()};
+        int[] batchSize = {0};
+        JsonDatabaseLoader.read(jsonTool, jsonFilePath, UrlAlias.class, (alias, urlAlias) -> {
+          put(batch[0], urlAlias, importedAt);
+          if (++batchSize[0] == IMPORT_BATCH_SIZE) {
+            importStore.write(batch[0]);
+            batch[0] = new WriteBatch();
+            batchSize[0] = 0;
+          }
+        });
+        importStore.write(batch[0]);
+        importStore.flush();
+      }
+      Files.move(importDirectory, storeDirectory, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static WriteBatch put(WriteBatch batch, UrlAlias urlAlias, long createdAt) {
+    byte[] email = utf8(urlAlias.email());
+    byte[] url = utf8(urlAlias.destinationUrl());
+    Long expiresAt = urlAlias.expiresAt();
+    var value = ByteBuffer.allocate(Long.BYTES + Integer.BYTES
+        + (expiresAt == null ? 0 : Long.BYTES) + email.length + url.length);
+    value.putLong(createdAt);
+    if (expiresAt == null) {
+      value.putInt(email.length);
+    } else {
+      value.putInt(email.length | EXPIRING).putLong(expiresAt);
+    }
+    value.put(email).put(url);
+    return batch
+        .put(aliasKey(urlAlias.alias()), value.array())
+        .put(userKey(urlAlias.email(), createdAt, urlAlias.alias()), NO_VALUE)
+        .put(timeKey(createdAt, urlAlias.alias()), NO_VALUE);
+  }
+
+  private static UrlAlias decode(String alias, byte[] value) {
+    ByteBuffer buffer = ByteBuffer.wrap(value);
+    buffer.getLong();
+    int emailLength = buffer.getInt();
+    Long expiresAt = null;
+    if ((emailLength & EXPIRING) != 0) {
+      emailLength &= ~EXPIRING;
+      expiresAt = buffer.getLong();
+    }
+    String email = new String(value, buffer.position(), emailLength, StandardCharsets.UTF_8);
+    int urlStart = buffer.position() + emailLength;
+    String url = new String(value, urlStart, value.length - urlStart, StandardCharsets.UTF_8);
+    return new UrlAlias(alias, url, email, expiresAt);
+  }
+
+  private static String aliasOf(Entry aliasEntry) {
+    byte[] key = aliasEntry.key();
+    return new String(
+        key, ALIAS_PREFIX.length, key.length - ALIAS_PREFIX.length, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] aliasKey(String alias) {
+    return concat(ALIAS_PREFIX, utf8(alias));
+  }
+
+  private static byte[] userKey(String email, long createdAt, String alias) {
+    return concat(USER_PREFIX, utf8(email), new byte[] {0}, creationTime(createdAt), utf8(alias));
+  }
+
+  private static byte[] timeKey(long createdAt, String alias) {
+    return concat(TIME_PREFIX, creationTime(createdAt), utf8(alias));
+  }
+
+  private static byte[] creationTime(long createdAt) {
+    return ByteBuffer.allocate(Long.BYTES).putLong(createdAt).array();
+  }
+
+  private static byte[] utf8(String string) {
+    return string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    int length = 0;
+    for (byte[] part : parts) {
+      length += part.length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    for (byte[] part : parts) {
+      buffer.put(part);
+    }
+    return buffer.array();
+  }
+}
@@ -0,0 +1,304 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonTool;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+/**
+ * A file-backed implementation of {@link UrlRepository} that doesn't load the aliases into memory.
+ *
+ * <p>The bulk of the aliases lives in <tt>alias-index.bin</tt>, a {@link MappedAliasIndex} that is
+ * memory-mapped at startup and probed directly by {@link #findUrlAlias(String)}, so startup time
+ * and heap usage don't depend on the number of aliases. Changes made since the index was written
+ * are kept in a small in-memory overlay and journaled to <tt>alias-index.*.log</tt>. The
+ * {@link JournalCompactor} merges the overlay into a new index file once the journal grows past
+ * the snapshot thresholds from {@link UrlShortenerConfig#journal()}. With the journal disabled
+ * the index is only rewritten by {@link #compact()}.
+ *
+ * <p>On the first start an existing <tt>alias-repository.json</tt> is converted to the index.
+ *
+ * <p>Safe for concurrent use: reads never lock, changes of the same alias are serialized by
+ * {@link LockStripes}.
+ */
+public class UrlRepositoryMappedImpl implements UrlRepository {
+  private static final String JOURNAL_NAME = "alias-index";
+
+  // Marks an alias that is deleted in the overlay but may still be present in the index.
+  private static final UrlAlias DELETED = new UrlAlias("", "", "");
+
+  private final JsonTool jsonTool;
+  private final Path indexFilePath;
+  private final Map<String, UrlAlias> overlay = new ConcurrentHashMap<>();
+  private final LockStripes locks = new LockStripes();
+  private final Journal journal;
+  private final JournalCompactor compactor;
+  private volatile MappedAliasIndex index;
+
+  /**
+   * Creates an instance.
+   */
+  @Inject
+  public UrlRepositoryMappedImpl(JsonTool jsonTool, UrlShortenerConfig appConfig) {
+    this.jsonTool = jsonTool;
+    Path storageRoot = appConfig.storageRoot();
+    this.indexFilePath = storageRoot.resolve("alias-index.bin");
+    if (!Files.exists(indexFilePath)) {
+      createIndexFile(
+          jsonTool, storageRoot.resolve(JsonDatabaseLoader.ALIASES_FILE_NAME), indexFilePath);
+    }
+    this.index = MappedAliasIndex.open(indexFilePath);
+    this.journal = Journal.open(storageRoot, JOURNAL_NAME, this::replay, appConfig.groupCommit());
+    this.compactor = new JournalCompactor(
+      JOURNAL_NAME, journal, appConfig.journal(), this::writeIndex);
+    if (appConfig.journal().enabled()) {
+      compactor.start();
+    }
+  }
+
+  @Override
+  public void createUrlAlias(UrlAlias urlAlias) throws AliasAlreadyExist {
+    synchronized (locks.lockFor(urlAlias.alias())) {
+      UrlAlias previous = overlay.get(urlAlias.alias());
+      if (find(urlAlias.alias()) != null) {
+        throw new UrlRepository.AliasAlreadyExist();
+      }
+
+      overlay.put(urlAlias.alias(), urlAlias);
+      try {
+        appendToJournal(new AliasJournalRecord(AliasJournalRecord.Operation.PUT, urlAlias));
+      } catch (RuntimeException e) {
+        restore(urlAlias.alias(), previous);
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    boolean[] created = new boolean[urlAliases.size()];
+    List<String> names = urlAliases.stream().map(UrlAlias::alias).collect(Collectors.toList());
+    locks.withLocks(names, () -> {
+      var records = new ArrayList<AliasJournalRecord>();
+      // The overlay entries replaced by the records, null where there was none.
+      var previous = new ArrayList<UrlAlias>();
+      for (int i = 0; i < urlAliases.size(); i++) {
+        UrlAlias urlAlias = urlAliases.get(i);
+        if (find(urlAlias.alias()) == null) {
+          previous.add(overlay.get(urlAlias.alias()));
+          overlay.put(urlAlias.alias(), urlAlias);
+          records.add(new AliasJournalRecord(AliasJournalRecord.Operation.PUT, urlAlias));
+          created[i] = true;
+        }
+      }
+      try {
+        journal.appendAll(records.stream()
+            .map(record -> jsonTool.toJson(record).getBytes(StandardCharsets.UTF_8))
+            .collect(Collectors.toList()));
+      } catch (RuntimeException e) {
+        for (int i = records.size() - 1; i >= 0; i--) {
+          restore(records.get(i).urlAlias().alias(), previous.get(i));
+        }
+        throw e;
+      }
+    });
+    return created;
+  }
+
+  @Nullable
+  @Override
+  public UrlAlias findUrlAlias(String alias) {
+    UrlAlias urlAlias = find(alias);
+    return urlAlias == null || urlAlias.isExpired(System.currentTimeMillis()) ? null : urlAlias;
+  }
+
+  @Override
+  public void deleteUrlAlias(String email, String alias) throws PermissionDenied {
+    synchronized (locks.lockFor(alias)) {
+      UrlAlias previous = overlay.get(alias);
+      UrlAlias savedAlias = find(alias);
+      if (savedAlias == null || !savedAlias.email().equals(email)) {
+        throw new PermissionDenied();
+      }
+
+      overlay.put(alias, DELETED);
+      try {
+        appendToJournal(new AliasJournalRecord(AliasJournalRecord.Operation.DELETE, savedAlias));
+      } catch (RuntimeException e) {
+        restore(alias, previous);
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    synchronized (locks.lockFor(alias)) {
+      UrlAlias savedAlias = find(alias);
+      if (savedAlias == null || !savedAlias.isExpired(nowMillis)) {
+        return false;
+      }
+      deleteUrlAlias(savedAlias.email(), alias);
+      return true;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Scans the whole index.
+   */
+  @Override
+  public List<UrlAlias> getAllAliasesForUser(String userEmail) {
+    var userAliases = new ArrayList<UrlAlias>();
+    index.forEach(alias -> {
+      if (alias.email().equals(userEmail) && !overlay.containsKey(alias.alias())) {
+        userAliases.add(alias);
+      }
+    });
+    for (UrlAlias alias : overlay.values()) {
+      if (alias != DELETED && alias.email().equals(userEmail)) {
+        userAliases.add(alias);
+      }
+    }
+    return userAliases;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Scans the whole index for every page.
+   */
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    var collector = new AliasPageCollector(cursor, limit);
+    forEachAlias(alias -> {
+      if (alias.email().equals(userEmail)) {
+        collector.accept(alias);
+      }
+    });
+    return collector.page();
+  }
+
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    index.forEach(alias -> {
+      if (!overlay.containsKey(alias.alias())) {
+        consumer.accept(alias);
+      }
+    });
+    for (UrlAlias alias : overlay.values()) {
+      if (alias != DELETED) {
+        consumer.accept(alias);
+      }
+    }
+  }
+
+  /**
+   * Finds an alias whether or not it has expired.
+   */
+  private @Nullable UrlAlias find(String alias) {
+    UrlAlias changed = overlay.get(alias);
+    if (changed != null) {
+      return changed == DELETED ? null : changed;
+    }
+    return index.find(alias);
+  }
+
+  @Override
+  public void close() {
+    compactor.close();
+    journal.close();
+  }
+
+  /**
+   * Merges the journaled changes into a new index file and drops the journal segments.
+   */
+  void compact() {
+    compactor.compact();
+  }
+
+  private void restore(String alias, @Nullable UrlAlias previous) {
+    if (previous == null) {
+      overlay.remove(alias);
+    } else {
+      overlay.put(alias, previous);
+    }
+  }
+
+  private void appendToJournal(AliasJournalRecord record) {
+    journal.append(jsonTool.toJson(record).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void replay(byte[] payload) {
+    AliasJournalRecord record = jsonTool.fromJson(
+        new String(payload, StandardCharsets.UTF_8), AliasJournalRecord.class);
+    switch (record.operation()) {
+      case PUT -> overlay.put(record.urlAlias().alias(), record.urlAlias());
+      case DELETE -> overlay.put(record.urlAlias().alias(), DELETED);
+      default -> throw new IllegalStateException("Unknown journal operation " + record.operation());
+    }
+  }
+
+  /**
+   * Writes the current content (the index with the overlay on top of it) to a new index file and
+   * switches to it. Overlay entries changed while the file was being written stay in the overlay.
+   */
+  private void writeIndex() {
+    Map<String, UrlAlias> changes = new HashMap<>(overlay);
+    MappedAliasIndex current = index;
+    List<UrlAlias> added = new ArrayList<>();
+    for (UrlAlias alias : changes.values()) {
+      if (alias != DELETED) {
+        added.add(alias);
+      }
+    }
+    Stream<UrlAlias> merged = Stream.concat(
+        current.stream().filter(alias -> !changes.containsKey(alias.alias())),
+        added.stream()
+    );
+    Path temporaryFilePath = indexFilePath.resolveSibling(indexFilePath.getFileName() + ".tmp");
+    MappedAliasIndex.write(temporaryFilePath, current.size() + added.size(), merged.iterator());
+    try {
+      Files.move(
+          temporaryFilePath,
+          indexFilePath,
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING
+      );
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    index = MappedAliasIndex.open(indexFilePath);
+    changes.forEach((alias, change) -> overlay.remove(alias, change));
+  }
+
+  private static void createIndexFile(JsonTool jsonTool, Path jsonFilePath, Path indexFilePath) {
+    Map<String, UrlAlias> aliases = JsonDatabaseLoader.load(jsonTool, jsonFilePath, UrlAlias.class);
+    if (aliases == null) {
+      aliases = Collections.emptyMap();
+    }
+    Path temporaryFilePath = indexFilePath.resolveSibling(indexFilePath.getFileName() + ".tmp");
+    MappedAliasIndex.write(temporaryFilePath, aliases.size(), aliases.values().iterator());
+    try {
+      Files.move(temporaryFilePath, indexFilePath, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonTool;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of {@link UrlRepository} for very large datasets that keeps all aliases in
+ * off-heap memory, see {@link OffHeapAliasTable}. Heap usage and GC pauses don't grow with the
+ * number of aliases, but the JVM has to be allowed enough direct memory
+ * (<tt>-XX:MaxDirectMemorySize</tt>).
+ *
+ * <p>Persistence: every change is journaled to <tt>alias-offheap.*.log</tt>, and the
+ * {@link JournalCompactor} saves the table to <tt>alias-offheap.bin</tt> (a
+ * {@link MappedAliasIndex} file) once the journal grows past the snapshot thresholds from
+ * {@link UrlShortenerConfig#journal()}; with the journal disabled only {@link #compact()} saves
+ * it. At startup the table is filled from the snapshot, or from <tt>alias-repository.json</tt> on
+ * the first start, and then from the journal.
+ *
+ * <p>Safe for concurrent use: reads never lock, changes of the same alias are serialized by
+ * {@link LockStripes}.
+ */
+public class UrlRepositoryOffHeapImpl implements UrlRepository {
+  private static final Logger logger = LoggerFactory.getLogger(UrlRepositoryOffHeapImpl.class);
+  private static final String JOURNAL_NAME = "alias-offheap";
+
+  private final JsonTool jsonTool;
+  private final Path snapshotFilePath;
+  private final OffHeapAliasTable table = new OffHeapAliasTable();
+  private final LockStripes locks = new LockStripes();
+  private final Journal journal;
+  private final JournalCompactor compactor;
+
+  /**
+   * Creates an instance.
+   */
+  @Inject
+  public UrlRepositoryOffHeapImpl(JsonTool jsonTool, UrlShortenerConfig appConfig) {
+    this.jsonTool = jsonTool;
+    Path storageRoot = appConfig.storageRoot();
+    this.snapshotFilePath = storageRoot.resolve("alias-offheap.bin");
+    long started = System.nanoTime();
+    if (Files.exists(snapshotFilePath)) {
+      MappedAliasIndex.open(snapshotFilePath).forEach(table::put);
+    } else {
+      loadJsonFile(storageRoot.resolve(JsonDatabaseLoader.ALIASES_FILE_NAME));
+    }
+    this.journal = Journal.open(storageRoot, JOURNAL_NAME, this::replay, appConfig.groupCommit());
+    this.compactor = new JournalCompactor(
+      JOURNAL_NAME, journal, appConfig.journal(), this::writeSnapshot);
+    if (appConfig.journal().enabled()) {
+      compactor.start();
+    }
+    logger.info("Loaded {} aliases into {} MiB of off-heap memory in {} ms",
+        table.size(), table.offHeapBytes() >> 20, (System.nanoTime() - started) / 1_000_000);
+  }
+
+  @Override
+  public void createUrlAlias(UrlAlias urlAlias) throws AliasAlreadyExist {
+    synchronized (locks.lockFor(urlAlias.alias())) {
+      if (!table.putIfAbsent(urlAlias)) {
+        throw new UrlRepository.AliasAlreadyExist();
+      }
+      try {
+        appendToJournal(new AliasJournalRecord(AliasJournalRecord.Operation.PUT, urlAlias));
+      } catch (RuntimeException e) {
+        table.remove(urlAlias.alias());
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    boolean[] created = new boolean[urlAliases.size()];
+    List<String> names = urlAliases.stream().map(UrlAlias::alias).collect(Collectors.toList());
+    locks.withLocks(names, () -> {
+      var records = new ArrayList<AliasJournalRecord>();
+      for (int i = 0; i < urlAliases.size(); i++) {
+        UrlAlias urlAlias = urlAliases.get(i);
+        if (table.putIfAbsent(urlAlias)) {
+          records.add(new AliasJournalRecord(AliasJournalRecord.Operation.PUT, urlAlias));
+          created[i] = true;
+        }
+      }
+      try {
+        journal.appendAll(records.stream()
+            .map(record -> jsonTool.toJson(record).getBytes(StandardCharsets.UTF_8))
+            .collect(Collectors.toList()));
+      } catch (RuntimeException e) {
+        records.forEach(record -> table.remove(record.urlAlias().alias()));
+        throw e;
+      }
+    });
+    return created;
+  }
+
+  @Nullable
+  @Override
+  public UrlAlias findUrlAlias(String alias) {
+    UrlAlias urlAlias = table.find(alias);
+    return urlAlias == null || urlAlias.isExpired(System.currentTimeMillis()) ? null : urlAlias;
+  }
+
+  @Override
+  public void deleteUrlAlias(String email, String alias) throws PermissionDenied {
+    synchronized (locks.lockFor(alias)) {
+      UrlAlias savedAlias = table.find(alias);
+      if (savedAlias == null || !savedAlias.email().equals(email)) {
+        throw new PermissionDenied();
+      }
+
+      table.remove(alias);
+      try {
+        appendToJournal(new AliasJournalRecord(AliasJournalRecord.Operation.DELETE, savedAlias));
+      } catch (RuntimeException e) {
+        table.put(savedAlias);
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    synchronized (locks.lockFor(alias)) {
+      UrlAlias savedAlias = table.find(alias);
+      if (savedAlias == null || !savedAlias.isExpired(nowMillis)) {
+        return false;
+      }
+      deleteUrlAlias(savedAlias.email(), alias);
+      return true;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Scans the whole table, but decodes only the aliases of the user.
+   */
+  @Override
+  public List<UrlAlias> getAllAliasesForUser(String userEmail) {
+    var userAliases = new ArrayList<UrlAlias>();
+    table.forEachOfUser(userEmail, userAliases::add);
+    return userAliases;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Scans the whole table for every page.
+   */
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    var collector = new AliasPageCollector(cursor, limit);
+    table.forEachOfUser(userEmail, collector);
+    return collector.page();
+  }
+
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    table.forEach(consumer);
+  }
+
+  @Override
+  public void close() {
+    compactor.close();
+    journal.close();
+  }
+
+  /**
+   * Saves a snapshot of the table and drops the journal segments that it covers.
+   */
+  void compact() {
+    compactor.compact();
+  }
+
+  private void appendToJournal(AliasJournalRecord record) {
+    journal.append(jsonTool.toJson(record).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void replay(byte[] payload) {
+    AliasJournalRecord record = jsonTool.fromJson(
+        new String(payload, StandardCharsets.UTF_8), AliasJournalRecord.class);
+    switch (record.operation()) {
+      case PUT -> table.put(record.urlAlias());
+      case DELETE -> table.remove(record.urlAlias().alias());
+      default -> throw new IllegalStateException("Unknown journal operation " + record.operation());
+    }
+  }
+
+  private void writeSnapshot() {
+    Path temporaryFilePath =
+        snapshotFilePath.resolveSibling(snapshotFilePath.getFileName() + ".tmp");
+    table.writeIndex(temporaryFilePath);
+    try {
+      Files.move(
+          temporaryFilePath,
+          snapshotFilePath,
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING
+      );
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void loadJsonFile(Path jsonFilePath) {
+    if (Files.exists(jsonFilePath)) {
+      JsonDatabaseLoader.read(
+          jsonTool, jsonFilePath, UrlAlias.class, (alias, urlAlias) -> table.put(urlAlias));
+    }
+  }
+}
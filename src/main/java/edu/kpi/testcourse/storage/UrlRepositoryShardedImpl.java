@@ -0,0 +1,272 @@
+package edu.kpi.testcourse.storage;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonTool;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A file-backed implementation of {@link UrlRepository} that splits the aliases by hash into
+ * {@link UrlShortenerConfig#aliasShards()} independent shards.
+ *
+ * <p>Every shard is a {@link UrlRepositoryFileImpl} in its own <tt>alias-shards/shard-NNNN</tt>
+ * directory, with its own file, journal, locks and writer thread, so changes of aliases in
+ * different shards never contend and the shards are loaded in parallel at startup.
+ *
+ * <p>The number of shards is recorded in <tt>alias-shards/manifest.json</tt> when the layout is
+ * created. Starting with a different number fails: the aliases have to be redistributed offline
+ * with {@link AliasResharder} first.
+ */
+public class UrlRepositoryShardedImpl implements UrlRepository {
+  private static final Logger logger = LoggerFactory.getLogger(UrlRepositoryShardedImpl.class);
+
+  private final UrlRepositoryFileImpl[] shards;
+
+  /**
+   * Creates an instance.
+   */
+  @Inject
+  public UrlRepositoryShardedImpl(JsonTool jsonTool, UrlShortenerConfig appConfig) {
+    int shardCount = appConfig.aliasShards();
+    Path shardsRoot = shardsRoot(appConfig.storageRoot());
+    if (Files.exists(AliasResharder.newShardsRoot(shardsRoot))
+        || Files.exists(AliasResharder.oldShardsRoot(shardsRoot))) {
+      throw new IllegalStateException(String.format(
+          "Resharding of %s was interrupted. Run %s again",
+          shardsRoot, AliasResharder.class.getSimpleName()));
+    }
+    Integer savedShardCount = readShardCount(jsonTool, shardsRoot);
+    if (savedShardCount == null) {
+      createLayout(jsonTool, shardsRoot, shardCount);
+    } else if (savedShardCount != shardCount) {
+      throw new IllegalStateException(String.format(
+          "%s holds %d shards, but %d are configured. Run %s to reshard the aliases",
+          shardsRoot, savedShardCount, shardCount, AliasResharder.class.getSimpleName()));
+    }
+    long started = System.nanoTime();
+    this.shards = openShards(jsonTool, appConfig, shardsRoot, shardCount);
+    logger.info("Loaded {} alias shards in {} ms",
+        shardCount, (System.nanoTime() - started) / 1_000_000);
+  }
+
+  @Override
+  public void createUrlAlias(UrlAlias urlAlias) throws AliasAlreadyExist {
+    shardOf(urlAlias.alias()).createUrlAlias(urlAlias);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Every shard persists its part of the aliases at once.
+   */
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    List<List<Integer>> positions = new ArrayList<>(shards.length);
+    for (int shard = 0; shard < shards.length; shard++) {
+      positions.add(new ArrayList<>());
+    }
+    for (int i = 0; i < urlAliases.size(); i++) {
+      positions.get(shardIndex(urlAliases.get(i).alias(), shards.length)).add(i);
+    }
+    boolean[] created = new boolean[urlAliases.size()];
+    for (int shard = 0; shard < shards.length; shard++) {
+      List<Integer> shardPositions = positions.get(shard);
+      if (shardPositions.isEmpty()) {
+        continue;
+      }
+      var shardAliases = new ArrayList<UrlAlias>(shardPositions.size());
+      shardPositions.forEach(i -> shardAliases.add(urlAliases.get(i)));
+      boolean[] shardCreated = shards[shard].createUrlAliases(shardAliases);
+      for (int j = 0; j < shardCreated.length; j++) {
+        created[shardPositions.get(j)] = shardCreated[j];
+      }
+    }
+    return created;
+  }
+
+  @Override
+  public @Nullable UrlAlias findUrlAlias(String alias) {
+    return shardOf(alias).findUrlAlias(alias);
+  }
+
+  @Override
+  public void deleteUrlAlias(String email, String alias) throws PermissionDenied {
+    shardOf(alias).deleteUrlAlias(email, alias);
+  }
+
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    return shardOf(alias).deleteExpiredAlias(alias, nowMillis);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Asks every shard.
+   */
+  @Override
+  public List<UrlAlias> getAllAliasesForUser(String userEmail) {
+    var result = new ArrayList<UrlAlias>();
+    for (UrlRepositoryFileImpl shard : shards) {
+      result.addAll(shard.getAllAliasesForUser(userEmail));
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Merges a page of every shard.
+   */
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    var collector = new AliasPageCollector(cursor, limit);
+    for (UrlRepositoryFileImpl shard : shards) {
+      collector.acceptPage(shard.getAliasesForUser(userEmail, cursor, limit));
+    }
+    return collector.page();
+  }
+
+  @Override
+  public void close() {
+    for (UrlRepositoryFileImpl shard : shards) {
+      shard.close();
+    }
+  }
+
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    for (UrlRepositoryFileImpl shard : shards) {
+      shard.forEachAlias(consumer);
+    }
+  }
+
+  private UrlRepositoryFileImpl shardOf(String alias) {
+    return shards[shardIndex(alias, shards.length)];
+  }
+
+  /**
+   * Returns the shard that holds the alias. The result must never change for the same inputs,
+   * because it decides where the alias is stored on disk.
+   */
+  static int shardIndex(String alias, int shardCount) {
+    // String.hashCode() is specified, the finalizer of MurmurHash3 spreads it over all bits.
+    int hash = alias.hashCode();
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return Math.floorMod(hash, shardCount);
+  }
+
+  static Path shardsRoot(Path storageRoot) {
+    return storageRoot.resolve("alias-shards");
+  }
+
+  static Path shardRoot(Path shardsRoot, int shard) {
+    return shardsRoot.resolve(String.format("shard-%04d", shard));
+  }
+
+  /**
+   * Creates empty shard directories and the manifest.
+   */
+  static void createLayout(JsonTool jsonTool, Path shardsRoot, int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("The number of shards must be positive");
+    }
+    try {
+      for (int shard = 0; shard < shardCount; shard++) {
+        Path shardRoot = Files.createDirectories(shardRoot(shardsRoot, shard));
+        Path jsonFilePath = shardRoot.resolve("alias-repository.json");
+        if (!Files.exists(jsonFilePath)) {
+          Files.writeString(jsonFilePath, "{}");
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    // The manifest goes last, so a layout without it is known to be incomplete.
+    JournalCompactor.writeFileAtomically(
+        shardsRoot.resolve("manifest.json"), jsonTool.toJson(new Manifest(shardCount)));
+  }
+
+  /**
+   * Returns the number of shards recorded in the manifest, or null if there is no layout yet.
+   */
+  static @Nullable Integer readShardCount(JsonTool jsonTool, Path shardsRoot) {
+    Path manifestPath = shardsRoot.resolve("manifest.json");
+    if (!Files.exists(manifestPath)) {
+      return null;
+    }
+    try {
+      String json = Files.readString(manifestPath, StandardCharsets.UTF_8);
+      return jsonTool.fromJson(json, Manifest.class).shardCount();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static UrlRepositoryFileImpl[] openShards(
+      JsonTool jsonTool, UrlShortenerConfig appConfig, Path shardsRoot, int shardCount
+  ) {
+    var shards = new UrlRepositoryFileImpl[shardCount];
+    var futures = new ArrayList<Future<UrlRepositoryFileImpl>>(shardCount);
+    ExecutorService loader = Executors.newFixedThreadPool(
+        Math.min(shardCount, Runtime.getRuntime().availableProcessors()));
+    try {
+      for (int shard = 0; shard < shardCount; shard++) {
+        UrlShortenerConfig shardConfig =
+            appConfig.withStorageRoot(shardRoot(shardsRoot, shard));
+        futures.add(loader.submit(() -> new UrlRepositoryFileImpl(jsonTool, shardConfig)));
+      }
+      RuntimeException failure = null;
+      for (int shard = 0; shard < shardCount; shard++) {
+        try {
+          shards[shard] = futures.get(shard).get();
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = new RuntimeException("Could not load the alias shard " + shard, e.getCause());
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          if (failure == null) {
+            failure = new RuntimeException("Interrupted while loading the alias shards", e);
+          }
+        }
+      }
+      if (failure != null) {
+        for (UrlRepositoryFileImpl opened : shards) {
+          if (opened != null) {
+            opened.close();
+          }
+        }
+        throw failure;
+      }
+      return shards;
+    } finally {
+      loader.shutdown();
+    }
+  }
+
+  /**
+   * Content of <tt>manifest.json</tt>.
+   */
+  record Manifest(@JsonProperty("shardCount") int shardCount) {
+  }
+}
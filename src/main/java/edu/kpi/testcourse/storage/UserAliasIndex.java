@@ -0,0 +1,83 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * Secondary index of a URL alias repository: short names of the aliases of every user.
+ *
+ * <p>The repository must keep it in sync with its primary map on every create and delete. Listing
+ * a user's aliases then costs O(aliases of the user) instead of a scan of the whole repository.
+ * The names are kept sorted, so a page of them costs O(log(aliases of the user) + page size).
+ */
+final class UserAliasIndex {
+  // Alias names, keyed by user email.
+  private final Map<String, NavigableSet<String>> aliasesByEmail = new ConcurrentHashMap<>();
+
+  void add(String email, String alias) {
+    aliasesByEmail.compute(email, (key, aliases) -> {
+      NavigableSet<String> result = aliases == null ? new ConcurrentSkipListSet<>() : aliases;
+      result.add(alias);
+      return result;
+    });
+  }
+
+  void remove(String email, String alias) {
+    aliasesByEmail.computeIfPresent(email, (key, aliases) -> {
+      aliases.remove(alias);
+      return aliases.isEmpty() ? null : aliases;
+    });
+  }
+
+  /**
+   * Returns a live read-only view of the alias names of the user, in the natural order.
+   */
+  NavigableSet<String> aliasesOf(String email) {
+    NavigableSet<String> aliases = aliasesByEmail.get(email);
+    return aliases == null
+        ? Collections.emptyNavigableSet()
+        : Collections.unmodifiableNavigableSet(aliases);
+  }
+
+  /**
+   * Returns a live read-only view of the alias names of the user that follow the given one.
+   *
+   * @param after the name to start after, or null to start from the first one
+   */
+  NavigableSet<String> aliasesOf(String email, @Nullable String after) {
+    NavigableSet<String> aliases = aliasesOf(email);
+    return after == null ? aliases : aliases.tailSet(after, false);
+  }
+
+  /**
+   * Returns a page of the aliases of the user in the order of their names. The cursor is the name
+   * of the last alias of the previous page.
+   *
+   * @param resolve finds an alias of the user by its name, returns null if there is none
+   */
+  UrlRepository.Page page(
+      String email, @Nullable String cursor, int limit, Function<String, UrlAlias> resolve
+  ) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("The page size must be positive");
+    }
+    var page = new ArrayList<UrlAlias>(Math.min(limit, 1024));
+    Iterator<String> names = aliasesOf(email, cursor).iterator();
+    while (page.size() < limit && names.hasNext()) {
+      UrlAlias alias = resolve.apply(names.next());
+      if (alias != null) {
+        page.add(alias);
+      }
+    }
+    String nextCursor = names.hasNext() ? page.get(page.size() - 1).alias() : null;
+    return new UrlRepository.Page(page, nextCursor);
+  }
+}
@@ -1,6 +1,7 @@
 package edu.kpi.testcourse.storage;
 
 import edu.kpi.testcourse.entities.User;
+import java.util.concurrent.Executor;
 import javax.annotation.Nullable;
 
 /**
@@ -14,6 +15,13 @@ public interface UserRepository {
    */
   void createUser(User user);
 
+  /**
+   * Replaces the stored profile of the user with the same email.
+   *
+   * @throws RuntimeException if the user does not exist.
+   */
+  void updateUser(User user);
+
   /**
    * Finds a user by email.
    *
@@ -21,4 +29,12 @@ public interface UserRepository {
    *          exist.
    */
   @Nullable User findUser(String email);
+
+  /**
+   * Returns the non-blocking variant of this repository, which runs the methods that may block on
+   * the given executor.
+   */
+  default AsyncUserRepository async(Executor executor) {
+    return new OffloadedUserRepository(this, executor);
+  }
 }
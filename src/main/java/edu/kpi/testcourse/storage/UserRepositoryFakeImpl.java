@@ -1,15 +1,15 @@
 package edu.kpi.testcourse.storage;
 
 import edu.kpi.testcourse.entities.User;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 
 /**
  * An in-memory fake implementation of {@link UserRepository}.
  */
 public class UserRepositoryFakeImpl implements UserRepository {
-  private final Map<String, User> users = new HashMap<>();
+  private final Map<String, User> users = new ConcurrentHashMap<>();
 
   @Override
   public void createUser(User user) {
@@ -18,6 +18,13 @@ public class UserRepositoryFakeImpl implements UserRepository {
     }
   }
 
+  @Override
+  public void updateUser(User user) {
+    if (users.replace(user.email(), user) == null) {
+      throw new RuntimeException("User doesn't exist");
+    }
+  }
+
   @Override
   public @Nullable User findUser(String email) {
     return users.get(email);
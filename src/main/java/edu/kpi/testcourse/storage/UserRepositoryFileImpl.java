@@ -1,81 +1,164 @@
 package edu.kpi.testcourse.storage;
 
-import com.google.gson.reflect.TypeToken;
 import edu.kpi.testcourse.entities.User;
 import edu.kpi.testcourse.logic.UrlShortenerConfig;
 import edu.kpi.testcourse.serialization.JsonTool;
-import java.io.IOException;
-import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 /**
  * A file-backed implementation of {@link UserRepository} suitable for use in production.
+ *
+ * <p>Persistence works the same way as in {@link UrlRepositoryFileImpl}: either the whole
+ * <tt>user-repository.json</tt> is rewritten on every change, or, with the journal enabled, every
+ * new or updated user is appended to the <tt>user-repository.*.log</tt> {@link Journal} and
+ * compacted into the JSON file in background. Both ways the changes are written in batches by a
+ * single writer thread, see {@link UrlShortenerConfig#groupCommit()}.
  */
-public class UserRepositoryFileImpl implements UserRepository {
+public class UserRepositoryFileImpl implements UserRepository, AutoCloseable {
+  private static final String JOURNAL_NAME = "user-repository";
+
   // User profiles, keyed by email.
   private final Map<String, User> users;
 
   private final JsonTool jsonTool;
   private final UrlShortenerConfig appConfig;
+  private final @Nullable Journal journal;
+  private final @Nullable JournalCompactor compactor;
+  // Rewrites the JSON file when the journal is disabled.
+  private final @Nullable GroupCommitWriter<User> jsonFileWriter;
 
   /**
-   * Creates an instance.
+   * Creates an instance that loads <tt>user-repository.json</tt> itself.
    */
-  @Inject
   public UserRepositoryFileImpl(JsonTool jsonTool, UrlShortenerConfig appConfig) {
+    this(jsonTool, appConfig, JsonDatabaseLoader.loadUsers(jsonTool, appConfig.storageRoot()));
+  }
+
+  /**
+   * Creates an instance with <tt>user-repository.json</tt> loaded by the given loader.
+   */
+  @Inject
+  public UserRepositoryFileImpl(
+      JsonTool jsonTool, UrlShortenerConfig appConfig, JsonDatabaseLoader loader
+  ) {
+    this(jsonTool, appConfig, loader.takeUsers());
+  }
+
+  private UserRepositoryFileImpl(
+      JsonTool jsonTool, UrlShortenerConfig appConfig, @Nullable Map<String, User> loaded
+  ) {
     this.jsonTool = jsonTool;
     this.appConfig = appConfig;
-    this.users = readUsersFromJsonDatabaseFile(jsonTool, makeJsonFilePath(appConfig.storageRoot()));
+    if (loaded == null && !appConfig.journal().enabled()) {
+      throw new RuntimeException(
+          new NoSuchFileException(makeJsonFilePath(appConfig.storageRoot()).toString()));
+    }
+    this.users = loaded != null ? loaded : new ConcurrentHashMap<>();
+    if (appConfig.journal().enabled()) {
+      this.journal = Journal.open(
+          appConfig.storageRoot(), JOURNAL_NAME, this::replay, appConfig.groupCommit());
+      this.compactor = new JournalCompactor(
+          JOURNAL_NAME, journal, appConfig.journal(), this::writeSnapshot).start();
+      this.jsonFileWriter = null;
+    } else {
+      this.journal = null;
+      this.compactor = null;
+      this.jsonFileWriter = new GroupCommitWriter<>(
+          JOURNAL_NAME, appConfig.groupCommit(), batch -> writeSnapshot());
+    }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Returns once the user is durable. Concurrent calls don't block each other, they wait for a
+   * shared disk write.
+   */
   @Override
-  public synchronized void createUser(User user) {
+  public void createUser(User user) {
     if (users.putIfAbsent(user.email(), user) != null) {
       throw new RuntimeException("User already exists");
     }
-    writeUsersToJsonDatabaseFile(jsonTool, users, makeJsonFilePath(appConfig.storageRoot()));
+    try {
+      persist(user);
+    } catch (RuntimeException e) {
+      users.remove(user.email(), user);
+      throw e;
+    }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Returns once the change is durable, like {@link #createUser}.
+   */
   @Override
-  public synchronized @Nullable User findUser(String email) {
-    return users.get(email);
+  public void updateUser(User user) {
+    User previous = users.replace(user.email(), user);
+    if (previous == null) {
+      throw new RuntimeException("User doesn't exist");
+    }
+    try {
+      persist(user);
+    } catch (RuntimeException e) {
+      users.replace(user.email(), user, previous);
+      throw e;
+    }
   }
 
-  private static Path makeJsonFilePath(Path storageRoot) {
-    return storageRoot.resolve("user-repository.json");
+  @Override
+  public @Nullable User findUser(String email) {
+    return users.get(email);
   }
 
-  private static Map<String, User> readUsersFromJsonDatabaseFile(
-      JsonTool jsonTool, Path sourceFilePath
-  ) {
-    String json;
-    try {
-      json = Files.readString(sourceFilePath, StandardCharsets.UTF_8);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  @Override
+  public void close() {
+    if (compactor != null) {
+      compactor.close();
+    }
+    if (journal != null) {
+      journal.close();
     }
-    Type type = new TypeToken<HashMap<String, User>>(){}.getType();
-    Map<String, User> result = jsonTool.fromJson(json, type);
-    if (result == null) {
-      throw new RuntimeException("Could not deserialize the user repository");
+    if (jsonFileWriter != null) {
+      jsonFileWriter.close();
     }
-    return result;
   }
 
-  private static void writeUsersToJsonDatabaseFile(
-      JsonTool jsonTool, Map<String, User> users, Path destinationFilePath
-  ) {
-    String json = jsonTool.toJson(users);
-    try {
-      Files.write(destinationFilePath, json.getBytes(StandardCharsets.UTF_8));
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  /**
+   * Saves a snapshot of the repository and drops the journal segments that it covers.
+   */
+  void compact() {
+    if (compactor != null) {
+      compactor.compact();
+    }
+  }
+
+  private void persist(User user) {
+    if (journal != null) {
+      // Replayed in order, so the last record of a user wins.
+      journal.append(jsonTool.toJson(user).getBytes(StandardCharsets.UTF_8));
+    } else {
+      GroupCommitWriter.await(jsonFileWriter.submit(user));
     }
   }
+
+  private void replay(byte[] payload) {
+    User user = jsonTool.fromJson(new String(payload, StandardCharsets.UTF_8), User.class);
+    users.put(user.email(), user);
+  }
+
+  private void writeSnapshot() {
+    JournalCompactor.writeFileAtomically(
+        makeJsonFilePath(appConfig.storageRoot()), jsonTool.toJson(users));
+  }
+
+  private static Path makeJsonFilePath(Path storageRoot) {
+    return storageRoot.resolve(JsonDatabaseLoader.USERS_FILE_NAME);
+  }
 }
@@ -0,0 +1,48 @@
+package edu.kpi.testcourse.storage.lsm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A least-recently-used cache of {@link SsTable} blocks with a budget in bytes, shared by all
+ * tables of a store.
+ */
+final class BlockCache {
+  private final long capacityBytes;
+  private final LinkedHashMap<Long, byte[]> blocks = new LinkedHashMap<>(1024, 0.75f, true);
+  private long sizeBytes;
+
+  BlockCache(long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+  }
+
+  /**
+   * Returns a key unique for the block of the table: table numbers are never reused.
+   */
+  static long key(long tableNumber, int block) {
+    return tableNumber << 32 | block;
+  }
+
+  synchronized @Nullable byte[] get(long key) {
+    return blocks.get(key);
+  }
+
+  synchronized void put(long key, byte[] block) {
+    if (block.length > capacityBytes) {
+      return;
+    }
+    byte[] previous = blocks.put(key, block);
+    sizeBytes += block.length - (previous == null ? 0 : previous.length);
+    var eldest = blocks.entrySet().iterator();
+    while (sizeBytes > capacityBytes) {
+      Map.Entry<Long, byte[]> evicted = eldest.next();
+      sizeBytes -= evicted.getValue().length;
+      eldest.remove();
+    }
+  }
+
+  synchronized long sizeBytes() {
+    return sizeBytes;
+  }
+}
@@ -0,0 +1,90 @@
+package edu.kpi.testcourse.storage.lsm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A Bloom filter over the keys of one {@link SsTable}, so that looking up a missing key usually
+ * doesn't read the table at all.
+ *
+ * <p>The bit positions come from one 64-bit hash by double hashing (Kirsch and Mitzenmacher), which
+ * is as good as independent hash functions.
+ */
+final class BloomFilter {
+  private final long[] words;
+  private final long bitCount;
+  private final int hashCount;
+
+  private BloomFilter(long[] words, int hashCount) {
+    this.words = words;
+    this.bitCount = (long) words.length * Long.SIZE;
+    this.hashCount = hashCount;
+  }
+
+  /**
+   * Creates an empty filter for the given number of keys.
+   */
+  static BloomFilter create(long expectedKeys, int bitsPerKey) {
+    long bits = Math.max(Long.SIZE, Math.max(1, expectedKeys) * bitsPerKey);
+    int hashCount = (int) Math.max(1, Math.min(30, Math.round(bitsPerKey * Math.log(2))));
+    return new BloomFilter(new long[(int) ((bits + Long.SIZE - 1) / Long.SIZE)], hashCount);
+  }
+
+  void add(byte[] key) {
+    long hash = hash(key);
+    long step = hash >>> 32 | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+      words[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Returns false if the key has certainly not been added.
+   */
+  boolean mightContain(byte[] key) {
+    long hash = hash(key);
+    long step = hash >>> 32 | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+      if ((words[(int) (bit >>> 6)] & 1L << bit) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Serializes the filter as <tt>[hash count: int][word count: int][words: long*]</tt>.
+   */
+  byte[] toBytes() {
+    ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + words.length * Long.BYTES);
+    buffer.putInt(hashCount);
+    buffer.putInt(words.length);
+    buffer.asLongBuffer().put(words);
+    return buffer.array();
+  }
+
+  static BloomFilter fromBytes(ByteBuffer buffer) {
+    int hashCount = buffer.getInt();
+    long[] words = new long[buffer.getInt()];
+    buffer.asLongBuffer().get(words);
+    return new BloomFilter(words, hashCount);
+  }
+
+  /**
+   * 64-bit FNV-1a with the finalizer of MurmurHash3, which spreads the entropy to the high bits.
+   */
+  private static long hash(byte[] key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,13 @@
+package edu.kpi.testcourse.storage.lsm;
+
+/**
+ * A key with its value.
+ */
+public record Entry(byte[] key, byte[] value) {
+  /**
+   * Returns true if the entry records a deletion; {@link LsmStore} never hands such entries out.
+   */
+  boolean isTombstone() {
+    return value == LsmStore.TOMBSTONE;
+  }
+}
@@ -0,0 +1,681 @@
+package edu.kpi.testcourse.storage.lsm;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.GroupCommitSettings;
+import edu.kpi.testcourse.logic.UrlShortenerConfig.LsmSettings;
+import edu.kpi.testcourse.storage.Journal;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An embedded key-value store that keeps the keys sorted (unsigned lexicographic order of the
+ * bytes), so that besides point lookups it can scan key ranges and prefixes.
+ *
+ * <p>It is a log-structured merge tree. A {@link WriteBatch} is appended to a {@link Journal} as
+ * one record and then applied to the memtable, an in-memory sorted map. A memtable that has grown
+ * past {@link LsmSettings#memtableBytes()} is frozen and written by a background thread to an
+ * immutable {@link SsTable} file, after which its journal segments are deleted. Once there are
+ * {@link LsmSettings#compactionTrigger()} tables, the background thread merges them into one,
+ * dropping overwritten values and deletions. The list of live tables is kept in the
+ * <tt>MANIFEST</tt> file, which is replaced atomically; files not listed there are leftovers of an
+ * interrupted flush or compaction and are deleted at startup.
+ *
+ * <p>Reads look at the memtable, the frozen memtables and the tables from the newest to the
+ * oldest, and the first one that knows the key decides. Deletions are recorded as tombstones that
+ * hide the older values until a compaction drops both.
+ *
+ * <p>Safe for concurrent use. Reads never lock, writes are durable when {@link #write} returns.
+ * Concurrent writes of the same key must be ordered by the caller: the journal and the memtable may
+ * see them in different orders.
+ *
+ * <p>Write and read amplification are reported by {@link #metrics()} and logged after every flush
+ * and compaction.
+ */
+public final class LsmStore implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(LsmStore.class);
+
+  /**
+   * The value that marks a deleted key. It is recognized by identity, not by content.
+   */
+  static final byte[] TOMBSTONE = new byte[0];
+
+  private static final String JOURNAL_NAME = "wal";
+  private static final String MANIFEST_FILE_NAME = "MANIFEST";
+  private static final Pattern TABLE_FILE_NAME = Pattern.compile("(\\d+)\\.sst");
+  private static final int JOURNAL_RECORD_OVERHEAD = 2 * Integer.BYTES;
+  // A rough size of a skip list node with its key and value array headers.
+  private static final int MEMTABLE_ENTRY_OVERHEAD = 64;
+  private static final byte[] FIRST_KEY = new byte[0];
+
+  private final Path directory;
+  private final LsmSettings settings;
+  private final BlockCache blockCache;
+  private final Statistics statistics = new Statistics();
+  // Writers hold the read lock from the journal append to the memtable update, a freeze holds the
+  // write lock: a record is never in a segment that is deleted before its memtable is flushed.
+  private final ReentrantReadWriteLock memtableLock = new ReentrantReadWriteLock();
+  private final ExecutorService maintenance;
+  private volatile State state;
+  private long nextTableNumber;
+  private final Journal journal;
+
+  private LsmStore(Path directory, LsmSettings settings, GroupCommitSettings groupCommit) {
+    this.directory = directory;
+    this.settings = settings;
+    this.blockCache = new BlockCache(settings.blockCacheBytes());
+    try {
+      Files.createDirectories(directory);
+      this.state = new State(new Memtable(), List.of(), openTables());
+    } catch (IOException e) {
+      throw new RuntimeException("Could not open the store in " + directory, e);
+    }
+    this.maintenance = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "lsm-maintenance-" + directory.getFileName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.journal = Journal.open(directory, JOURNAL_NAME,
+        record -> state.active.apply(WriteBatch.decode(record)), groupCommit);
+    Memtable replayed = state.active;
+    logger.info("Opened the store in {}: {} tables, {} entries replayed from the journal",
+        directory, state.tables.size(), replayed.entries.size());
+    if (replayed.sizeBytes.get() >= settings.memtableBytes()) {
+      scheduleFlush(replayed);
+    }
+  }
+
+  /**
+   * Opens the store in the directory, creating it if missing, and replays the journal.
+   */
+  public static LsmStore open(
+      Path directory, LsmSettings settings, GroupCommitSettings groupCommit
+  ) {
+    return new LsmStore(directory, settings, groupCommit);
+  }
+
+  /**
+   * Returns the value of the key, or null if there is none.
+   */
+  public @Nullable byte[] get(byte[] key) {
+    statistics.gets.increment();
+    State current = acquire();
+    try {
+      byte[] value = current.active.entries.get(key);
+      for (int i = 0; value == null && i < current.frozen.size(); i++) {
+        value = current.frozen.get(i).entries.get(key);
+      }
+      for (int i = 0; value == null && i < current.tables.size(); i++) {
+        Entry entry = current.tables.get(i).get(key, blockCache, statistics);
+        value = entry == null ? null : entry.value();
+      }
+      return value == TOMBSTONE ? null : value;
+    } finally {
+      release(current);
+    }
+  }
+
+  /**
+   * Returns the entries with keys from {@code from} inclusive to {@code to} exclusive, in key
+   * order. The cursor sees the changes made while it is open or not, and must be closed.
+   *
+   * @param to the end of the range, or null to scan to the last key
+   */
+  public Cursor scan(byte[] from, @Nullable byte[] to) {
+    State current = acquire();
+    try {
+      var sources = new ArrayList<Iterator<Entry>>();
+      sources.add(current.active.iterator(from, to));
+      for (Memtable memtable : current.frozen) {
+        sources.add(memtable.iterator(from, to));
+      }
+      for (SsTable table : current.tables) {
+        sources.add(table.iterator(from, blockCache, statistics));
+      }
+      return new Cursor(new MergingIterator(sources), to, () -> release(current));
+    } catch (RuntimeException e) {
+      release(current);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the entries whose keys start with the prefix, in key order. The cursor must be closed.
+   */
+  public Cursor scanPrefix(byte[] prefix) {
+    return scan(prefix, prefixEnd(prefix));
+  }
+
+  /**
+   * Applies the batch atomically and durably.
+   */
+  public void write(WriteBatch batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    byte[] record = batch.encode();
+    Memtable memtable;
+    memtableLock.readLock().lock();
+    try {
+      journal.append(record);
+      memtable = state.active;
+      memtable.apply(batch);
+    } finally {
+      memtableLock.readLock().unlock();
+    }
+    statistics.userBytesWritten.add(batch.userBytes());
+    statistics.journalBytesWritten.add(record.length + JOURNAL_RECORD_OVERHEAD);
+    if (memtable.sizeBytes.get() >= settings.memtableBytes()) {
+      scheduleFlush(memtable);
+    }
+  }
+
+  public void put(byte[] key, byte[] value) {
+    write(new WriteBatch().put(key, value));
+  }
+
+  public void delete(byte[] key) {
+    write(new WriteBatch().delete(key));
+  }
+
+  /**
+   * Writes the memtable to a table now and waits until it is done.
+   */
+  public void flush() {
+    memtableLock.writeLock().lock();
+    try {
+      Memtable active = state.active;
+      if (!active.entries.isEmpty() && active.frozen.compareAndSet(false, true)) {
+        freeze(active);
+      }
+    } finally {
+      memtableLock.writeLock().unlock();
+    }
+    runMaintenance(this::flushFrozen);
+  }
+
+  /**
+   * Merges all tables into one now and waits until it is done.
+   */
+  public void compact() {
+    runMaintenance(this::compactTables);
+  }
+
+  /**
+   * Returns the counters of the work done since the store was opened.
+   */
+  public Metrics metrics() {
+    State current = state;
+    long tableBytes = 0;
+    for (SsTable table : current.tables) {
+      tableBytes += table.sizeBytes();
+    }
+    long memtableBytes = current.active.sizeBytes.get();
+    for (Memtable memtable : current.frozen) {
+      memtableBytes += memtable.sizeBytes.get();
+    }
+    return new Metrics(
+        statistics.userBytesWritten.sum(),
+        statistics.journalBytesWritten.sum(),
+        statistics.flushBytesWritten.sum(),
+        statistics.compactionBytesWritten.sum(),
+        statistics.flushes.sum(),
+        statistics.compactions.sum(),
+        statistics.gets.sum(),
+        statistics.tablesProbed.sum(),
+        statistics.bloomNegatives.sum(),
+        statistics.lookupBlocks.sum(),
+        statistics.blockReads.sum(),
+        statistics.blockReadBytes.sum(),
+        statistics.blockCacheHits.sum(),
+        current.tables.size(),
+        tableBytes,
+        memtableBytes,
+        blockCache.sizeBytes()
+    );
+  }
+
+  /**
+   * Waits for a running flush or compaction and closes the store. Frozen memtables that are not
+   * written yet are restored from the journal on the next start.
+   */
+  @Override
+  public void close() {
+    maintenance.shutdown();
+    try {
+      maintenance.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    journal.close();
+    for (SsTable table : state.tables) {
+      table.release();
+    }
+  }
+
+  /**
+   * Returns the smallest key greater than all keys with the prefix, or null if there is none.
+   */
+  static @Nullable byte[] prefixEnd(byte[] prefix) {
+    for (int i = prefix.length - 1; i >= 0; i--) {
+      if (prefix[i] != (byte) 0xff) {
+        byte[] end = Arrays.copyOf(prefix, i + 1);
+        end[i]++;
+        return end;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the current state with a reference taken to every table.
+   */
+  private State acquire() {
+    while (true) {
+      State current = state;
+      int retained = 0;
+      while (retained < current.tables.size() && current.tables.get(retained).tryRetain()) {
+        retained++;
+      }
+      if (retained == current.tables.size()) {
+        return current;
+      }
+      // A compaction has just replaced the tables, the next attempt sees the new ones.
+      for (int i = 0; i < retained; i++) {
+        current.tables.get(i).release();
+      }
+    }
+  }
+
+  private static void release(State acquired) {
+    for (SsTable table : acquired.tables) {
+      table.release();
+    }
+  }
+
+  private synchronized void updateState(UnaryOperator<State> update) {
+    state = update.apply(state);
+  }
+
+  private void scheduleFlush(Memtable memtable) {
+    if (!memtable.frozen.compareAndSet(false, true)) {
+      return;
+    }
+    memtableLock.writeLock().lock();
+    try {
+      freeze(memtable);
+    } finally {
+      memtableLock.writeLock().unlock();
+    }
+    maintenance.execute(() -> {
+      try {
+        flushFrozen();
+      } catch (IOException | RuntimeException e) {
+        logger.error("Could not flush a memtable of {}, will retry later", directory, e);
+      }
+    });
+  }
+
+  /**
+   * Replaces the active memtable with an empty one. Must be called under the write lock.
+   */
+  private void freeze(Memtable memtable) {
+    memtable.journalSegment = journal.seal();
+    updateState(current -> {
+      var frozen = new ArrayList<Memtable>(current.frozen.size() + 1);
+      frozen.add(memtable);
+      frozen.addAll(current.frozen);
+      return new State(new Memtable(), frozen, current.tables);
+    });
+  }
+
+  /**
+   * Writes the frozen memtables to tables, the oldest first. Runs on the maintenance thread.
+   */
+  private void flushFrozen() throws IOException {
+    while (!state.frozen.isEmpty()) {
+      List<Memtable> frozen = state.frozen;
+      Memtable memtable = frozen.get(frozen.size() - 1);
+      long started = System.nanoTime();
+      long number = nextTableNumber++;
+      int entryCount = memtable.entries.size();
+      long bytes = SsTable.write(
+          tablePath(number), memtable.iterator(FIRST_KEY, null), entryCount, settings);
+      SsTable table = SsTable.open(tablePath(number), number);
+      var tables = new ArrayList<SsTable>(state.tables.size() + 1);
+      tables.add(table);
+      tables.addAll(state.tables);
+      writeManifest(tables);
+      updateState(current -> new State(
+          current.active, current.frozen.subList(0, current.frozen.size() - 1), tables));
+      journal.deleteSegmentsBefore(memtable.journalSegment);
+      statistics.flushBytesWritten.add(bytes);
+      statistics.flushes.increment();
+      logger.info("Flushed {} entries of {} to {} in {} ms",
+          entryCount, directory, tablePath(number).getFileName(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+      if (tables.size() >= settings.compactionTrigger()) {
+        compactTables();
+      } else {
+        logMetrics();
+      }
+    }
+  }
+
+  /**
+   * Merges all tables into one. Runs on the maintenance thread, the only one that changes the
+   * list of tables.
+   */
+  private void compactTables() throws IOException {
+    List<SsTable> inputs = state.tables;
+    if (inputs.size() < 2) {
+      return;
+    }
+    long started = System.nanoTime();
+    var sources = new ArrayList<Iterator<Entry>>(inputs.size());
+    long expectedKeys = 0;
+    for (SsTable table : inputs) {
+      sources.add(table.iterator(FIRST_KEY, null, statistics));
+      expectedKeys += table.entryCount();
+    }
+    long number = nextTableNumber++;
+    // The merge covers the oldest table, so the tombstones have nothing left to hide.
+    long bytes = SsTable.write(tablePath(number),
+        new Cursor(new MergingIterator(sources), null, () -> { }), expectedKeys, settings);
+    SsTable table = SsTable.open(tablePath(number), number);
+    writeManifest(List.of(table));
+    updateState(current -> new State(current.active, current.frozen, List.of(table)));
+    for (SsTable input : inputs) {
+      input.markObsolete();
+      input.release();
+    }
+    statistics.compactionBytesWritten.add(bytes);
+    statistics.compactions.increment();
+    logger.info("Compacted {} tables of {} into {} ({} entries) in {} ms",
+        inputs.size(), directory, tablePath(number).getFileName(), table.entryCount(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    logMetrics();
+  }
+
+  private void logMetrics() {
+    Metrics metrics = metrics();
+    logger.info("{}: {} tables ({} MiB), write amplification {}, read amplification {}, "
+            + "block cache hit ratio {}",
+        directory, metrics.tableCount(), metrics.tableBytes() >> 20,
+        String.format("%.2f", metrics.writeAmplification()),
+        String.format("%.2f", metrics.readAmplification()),
+        String.format("%.2f", metrics.blockCacheHitRatio()));
+  }
+
+  private void runMaintenance(MaintenanceTask task) {
+    Future<?> future = maintenance.submit(() -> {
+      task.run();
+      return null;
+    });
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new RuntimeException("Maintenance of " + directory + " failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for maintenance of " + directory, e);
+    }
+  }
+
+  /**
+   * Opens the tables listed in the manifest and deletes the table files that are not listed.
+   */
+  private List<SsTable> openTables() throws IOException {
+    Path manifestPath = directory.resolve(MANIFEST_FILE_NAME);
+    var numbers = new ArrayList<Long>();
+    nextTableNumber = 1;
+    if (Files.exists(manifestPath)) {
+      List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+      nextTableNumber = Long.parseLong(lines.get(0));
+      for (String line : lines.subList(1, lines.size())) {
+        numbers.add(Long.parseLong(line));
+      }
+    }
+    Set<Long> live = new HashSet<>(numbers);
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Matcher matcher = TABLE_FILE_NAME.matcher(file.getFileName().toString());
+        if (matcher.matches() && !live.contains(Long.parseLong(matcher.group(1)))) {
+          logger.warn("Deleting {}, a leftover of an interrupted flush or compaction", file);
+          Files.delete(file);
+        }
+      }
+    }
+    var tables = new ArrayList<SsTable>(numbers.size());
+    for (long number : numbers) {
+      tables.add(SsTable.open(tablePath(number), number));
+    }
+    return tables;
+  }
+
+  /**
+   * Replaces the manifest: the next table number, then the live tables from the newest.
+   */
+  private void writeManifest(List<SsTable> tables) throws IOException {
+    var content = new StringBuilder().append(nextTableNumber).append('\n');
+    for (SsTable table : tables) {
+      content.append(table.number()).append('\n');
+    }
+    Path manifestPath = directory.resolve(MANIFEST_FILE_NAME);
+    Path temporaryPath = directory.resolve(MANIFEST_FILE_NAME + ".tmp");
+    try (FileChannel channel = FileChannel.open(
+        temporaryPath,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE
+    )) {
+      ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporaryPath, manifestPath,
+        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private Path tablePath(long number) {
+    return directory.resolve(String.format("%08d.sst", number));
+  }
+
+  /**
+   * An iterator over a key range that must be closed, see {@link #scan(byte[], byte[])}.
+   */
+  public static final class Cursor implements Iterator<Entry>, AutoCloseable {
+    private final Iterator<Entry> entries;
+    private final @Nullable byte[] to;
+    private final Runnable onClose;
+    private boolean closed;
+    private Entry next;
+
+    private Cursor(Iterator<Entry> entries, @Nullable byte[] to, Runnable onClose) {
+      this.entries = entries;
+      this.to = to;
+      this.onClose = onClose;
+      this.next = advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Entry next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Entry result = next;
+      next = advance();
+      return result;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        onClose.run();
+      }
+    }
+
+    private @Nullable Entry advance() {
+      while (entries.hasNext()) {
+        Entry entry = entries.next();
+        if (to != null && Arrays.compareUnsigned(entry.key(), to) >= 0) {
+          return null;
+        }
+        if (!entry.isTombstone()) {
+          return entry;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Counters of the work done by the store.
+   *
+   * @param userBytesWritten size of the keys and values written by the callers
+   * @param journalBytesWritten size of the journal records
+   * @param flushBytesWritten size of the tables written from memtables
+   * @param compactionBytesWritten size of the tables written by compactions
+   * @param flushes number of memtables written to tables
+   * @param compactions number of compactions
+   * @param gets number of point lookups
+   * @param tablesProbed number of tables searched by the lookups
+   * @param bloomNegatives number of tables skipped by the lookups thanks to the Bloom filters
+   * @param lookupBlocks number of blocks searched by the lookups, from the cache or the disk
+   * @param blockReads number of blocks read from the disk by lookups, scans and compactions
+   * @param blockReadBytes size of these blocks
+   * @param blockCacheHits number of blocks found in the cache
+   * @param tableCount number of live tables
+   * @param tableBytes size of the live tables
+   * @param memtableBytes estimated size of the active and frozen memtables
+   * @param blockCacheBytes size of the cached blocks
+   */
+  public record Metrics(
+      long userBytesWritten,
+      long journalBytesWritten,
+      long flushBytesWritten,
+      long compactionBytesWritten,
+      long flushes,
+      long compactions,
+      long gets,
+      long tablesProbed,
+      long bloomNegatives,
+      long lookupBlocks,
+      long blockReads,
+      long blockReadBytes,
+      long blockCacheHits,
+      int tableCount,
+      long tableBytes,
+      long memtableBytes,
+      long blockCacheBytes
+  ) {
+    /**
+     * Returns the bytes written to the disk (journal, flushes and compactions) per byte written by
+     * the callers.
+     */
+    public double writeAmplification() {
+      long diskBytes = journalBytesWritten + flushBytesWritten + compactionBytesWritten;
+      return userBytesWritten == 0 ? 0 : (double) diskBytes / userBytesWritten;
+    }
+
+    /**
+     * Returns the blocks searched per point lookup.
+     */
+    public double readAmplification() {
+      return gets == 0 ? 0 : (double) lookupBlocks / gets;
+    }
+
+    public double blockCacheHitRatio() {
+      long requests = blockCacheHits + blockReads;
+      return requests == 0 ? 0 : (double) blockCacheHits / requests;
+    }
+  }
+
+  private interface MaintenanceTask {
+    void run() throws IOException;
+  }
+
+  /**
+   * The memtables and tables of the store. Never changed, a change publishes a new instance.
+   *
+   * @param active the memtable that takes the writes
+   * @param frozen memtables waiting to be written to tables, from the newest
+   * @param tables live tables, from the newest
+   */
+  private record State(Memtable active, List<Memtable> frozen, List<SsTable> tables) {
+  }
+
+  private static final class Memtable {
+    final ConcurrentSkipListMap<byte[], byte[]> entries =
+        new ConcurrentSkipListMap<>(Arrays::compareUnsigned);
+    final AtomicLong sizeBytes = new AtomicLong();
+    final AtomicBoolean frozen = new AtomicBoolean();
+    // The first journal segment with records that are not in this memtable, set on freeze.
+    long journalSegment;
+
+    void apply(WriteBatch batch) {
+      batch.forEach((key, value) -> {
+        entries.put(key, value);
+        sizeBytes.addAndGet(key.length + value.length + MEMTABLE_ENTRY_OVERHEAD);
+      });
+    }
+
+    Iterator<Entry> iterator(byte[] from, @Nullable byte[] to) {
+      Map<byte[], byte[]> range =
+          to == null ? entries.tailMap(from, true) : entries.subMap(from, true, to, false);
+      Iterator<Map.Entry<byte[], byte[]>> iterator = range.entrySet().iterator();
+      return new Iterator<>() {
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public Entry next() {
+          Map.Entry<byte[], byte[]> entry = iterator.next();
+          return new Entry(entry.getKey(), entry.getValue());
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package edu.kpi.testcourse.storage.lsm;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Merges sorted sources into one sorted sequence. When several sources have the same key, the
+ * entry of the source that comes first in the list wins, so the sources go from the newest to the
+ * oldest. Tombstones are passed through: only the caller knows whether they still hide something.
+ */
+final class MergingIterator implements Iterator<Entry> {
+  private final PriorityQueue<Head> heads = new PriorityQueue<>();
+
+  MergingIterator(List<Iterator<Entry>> sources) {
+    for (int i = 0; i < sources.size(); i++) {
+      Iterator<Entry> source = sources.get(i);
+      if (source.hasNext()) {
+        heads.add(new Head(source.next(), i, source));
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return !heads.isEmpty();
+  }
+
+  @Override
+  public Entry next() {
+    Head winner = heads.poll();
+    if (winner == null) {
+      throw new NoSuchElementException();
+    }
+    while (!heads.isEmpty()
+        && Arrays.compareUnsigned(heads.peek().entry.key(), winner.entry.key()) == 0) {
+      advance(heads.poll());
+    }
+    Entry result = winner.entry;
+    advance(winner);
+    return result;
+  }
+
+  private void advance(Head head) {
+    if (head.source.hasNext()) {
+      heads.add(new Head(head.source.next(), head.priority, head.source));
+    }
+  }
+
+  private record Head(Entry entry, int priority, Iterator<Entry> source)
+      implements Comparable<Head> {
+    @Override
+    public int compareTo(Head other) {
+      int comparison = Arrays.compareUnsigned(entry.key(), other.entry.key());
+      return comparison != 0 ? comparison : Integer.compare(priority, other.priority);
+    }
+  }
+}
@@ -0,0 +1,387 @@
+package edu.kpi.testcourse.storage.lsm;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.LsmSettings;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable file of entries sorted by key (a "sorted string table").
+ *
+ * <p>Layout: data blocks of about {@link LsmSettings#blockBytes()} each, holding entries
+ * <tt>[flags: byte][key length: int][value length: int][key][value]</tt>; the index with the last
+ * key, offset and length of every block; the {@link BloomFilter} of the keys; and a fixed-size
+ * footer with the positions of the index and the filter. The index and the filter are kept in
+ * memory, data blocks are read on demand through the {@link BlockCache}.
+ *
+ * <p>A table is reference counted, so that it can be replaced by compaction while readers are still
+ * using it: the file is closed, and deleted if obsolete, when the last reference is released.
+ */
+final class SsTable {
+  private static final int MAGIC = 0x4c534d31;
+  private static final int FOOTER_SIZE = 3 * Long.BYTES + 3 * Integer.BYTES;
+  private static final int ENTRY_HEADER_SIZE = 1 + 2 * Integer.BYTES;
+  private static final byte LIVE = 0;
+  private static final byte DELETED = 1;
+
+  private final long number;
+  private final Path file;
+  private final FileChannel channel;
+  private final byte[][] lastKeys;
+  private final long[] blockOffsets;
+  private final int[] blockLengths;
+  private final BloomFilter bloomFilter;
+  private final long entryCount;
+  private final long sizeBytes;
+  private final AtomicInteger references = new AtomicInteger(1);
+  private volatile boolean obsolete;
+
+  private SsTable(
+      long number, Path file, FileChannel channel, ByteBuffer index, BloomFilter bloomFilter,
+      long entryCount, long sizeBytes
+  ) {
+    this.number = number;
+    this.file = file;
+    this.channel = channel;
+    int blockCount = index.getInt();
+    this.lastKeys = new byte[blockCount][];
+    this.blockOffsets = new long[blockCount];
+    this.blockLengths = new int[blockCount];
+    for (int block = 0; block < blockCount; block++) {
+      lastKeys[block] = new byte[index.getInt()];
+      index.get(lastKeys[block]);
+      blockOffsets[block] = index.getLong();
+      blockLengths[block] = index.getInt();
+    }
+    this.bloomFilter = bloomFilter;
+    this.entryCount = entryCount;
+    this.sizeBytes = sizeBytes;
+  }
+
+  /**
+   * Writes the entries, which must be sorted by key without duplicates, to a new durable file.
+   *
+   * @param expectedKeys an upper bound of the number of entries, used to size the Bloom filter
+   * @return the size of the file
+   */
+  static long write(
+      Path file, Iterator<Entry> entries, long expectedKeys, LsmSettings settings
+  ) throws IOException {
+    long size;
+    try (var writer = new Writer(file, expectedKeys, settings)) {
+      while (entries.hasNext()) {
+        writer.add(entries.next());
+      }
+      size = writer.finish();
+    }
+    try (FileChannel written = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      written.force(true);
+    }
+    return size;
+  }
+
+  /**
+   * Opens a file written by {@link #write}.
+   */
+  static SsTable open(Path file, long number) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < FOOTER_SIZE) {
+        throw new IllegalStateException(file + " is not a sorted table");
+      }
+      ByteBuffer footer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+      long indexOffset = footer.getLong();
+      int indexLength = footer.getInt();
+      long bloomOffset = footer.getLong();
+      int bloomLength = footer.getInt();
+      long entryCount = footer.getLong();
+      if (footer.getInt() != MAGIC) {
+        throw new IllegalStateException(file + " is not a sorted table");
+      }
+      ByteBuffer index = read(channel, indexOffset, indexLength);
+      BloomFilter bloomFilter = BloomFilter.fromBytes(read(channel, bloomOffset, bloomLength));
+      return new SsTable(number, file, channel, index, bloomFilter, entryCount, size);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  long number() {
+    return number;
+  }
+
+  long entryCount() {
+    return entryCount;
+  }
+
+  long sizeBytes() {
+    return sizeBytes;
+  }
+
+  /**
+   * Looks the key up: a Bloom filter check, then at most one block read.
+   *
+   * @return the entry, possibly a tombstone, or null if the table doesn't have the key
+   */
+  @Nullable Entry get(byte[] key, BlockCache cache, Statistics statistics) {
+    if (!bloomFilter.mightContain(key)) {
+      statistics.bloomNegatives.increment();
+      return null;
+    }
+    statistics.tablesProbed.increment();
+    int block = firstBlockNotBefore(key);
+    if (block == lastKeys.length) {
+      return null;
+    }
+    statistics.lookupBlocks.increment();
+    ByteBuffer data = ByteBuffer.wrap(readBlock(block, cache, statistics));
+    while (data.hasRemaining()) {
+      int start = data.position();
+      int keyLength = data.getInt(start + 1);
+      int valueLength = data.getInt(start + 1 + Integer.BYTES);
+      int keyStart = start + ENTRY_HEADER_SIZE;
+      int comparison = Arrays.compareUnsigned(
+          data.array(), keyStart, keyStart + keyLength, key, 0, key.length);
+      if (comparison == 0) {
+        return readEntry(data);
+      } else if (comparison > 0) {
+        return null;
+      }
+      data.position(keyStart + keyLength + valueLength);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the entries with keys not below the given one, in key order.
+   *
+   * @param cache the cache to read blocks through, or null to read them from the file; a full
+   *     scan (a compaction) would only evict the useful blocks
+   */
+  Iterator<Entry> iterator(byte[] from, @Nullable BlockCache cache, Statistics statistics) {
+    return new Iterator<>() {
+      private int block = firstBlockNotBefore(from);
+      private ByteBuffer data;
+      private Entry next = advance();
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Entry next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        Entry result = next;
+        next = advance();
+        return result;
+      }
+
+      private @Nullable Entry advance() {
+        while (true) {
+          if (data == null || !data.hasRemaining()) {
+            if (block >= lastKeys.length) {
+              return null;
+            }
+            data = ByteBuffer.wrap(readBlock(block++, cache, statistics));
+          }
+          Entry entry = readEntry(data);
+          if (Arrays.compareUnsigned(entry.key(), from) >= 0) {
+            return entry;
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Takes a reference, unless the last one has already been released.
+   */
+  boolean tryRetain() {
+    while (true) {
+      int current = references.get();
+      if (current == 0) {
+        return false;
+      }
+      if (references.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases a reference; the last one closes the file and deletes it if the table is obsolete.
+   */
+  void release() {
+    if (references.decrementAndGet() == 0) {
+      try {
+        channel.close();
+        if (obsolete) {
+          Files.deleteIfExists(file);
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  /**
+   * Marks the table as replaced, so that its file is deleted once nobody reads it.
+   */
+  void markObsolete() {
+    obsolete = true;
+  }
+
+  private int firstBlockNotBefore(byte[] key) {
+    int low = 0;
+    int high = lastKeys.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (Arrays.compareUnsigned(lastKeys[middle], key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private byte[] readBlock(int block, @Nullable BlockCache cache, Statistics statistics) {
+    long cacheKey = BlockCache.key(number, block);
+    if (cache != null) {
+      byte[] cached = cache.get(cacheKey);
+      if (cached != null) {
+        statistics.blockCacheHits.increment();
+        return cached;
+      }
+    }
+    byte[] data;
+    try {
+      data = read(channel, blockOffsets[block], blockLengths[block]).array();
+    } catch (IOException e) {
+      throw new RuntimeException("Could not read " + file, e);
+    }
+    statistics.blockReads.increment();
+    statistics.blockReadBytes.add(data.length);
+    if (cache != null) {
+      cache.put(cacheKey, data);
+    }
+    return data;
+  }
+
+  private static Entry readEntry(ByteBuffer data) {
+    byte flags = data.get();
+    byte[] key = new byte[data.getInt()];
+    int valueLength = data.getInt();
+    data.get(key);
+    if (flags == DELETED) {
+      return new Entry(key, LsmStore.TOMBSTONE);
+    }
+    byte[] value = new byte[valueLength];
+    data.get(value);
+    return new Entry(key, value);
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IllegalStateException("Unexpected end of a sorted table");
+      }
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * Writes the blocks as the entries come and the index, filter and footer at the end.
+   */
+  private static final class Writer implements AutoCloseable {
+    private final DataOutputStream out;
+    private final int blockBytes;
+    private final ByteArrayOutputStream block;
+    private final DataOutputStream blockOut;
+    private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+    private final DataOutputStream indexOut = new DataOutputStream(index);
+    private final BloomFilter bloomFilter;
+    private int blockCount;
+    private long offset;
+    private long entryCount;
+    private byte[] lastKey;
+
+    Writer(Path file, long expectedKeys, LsmSettings settings) throws IOException {
+      this.out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+      this.blockBytes = settings.blockBytes();
+      this.block = new ByteArrayOutputStream(blockBytes + blockBytes / 4);
+      this.blockOut = new DataOutputStream(block);
+      this.bloomFilter = BloomFilter.create(expectedKeys, settings.bloomBitsPerKey());
+    }
+
+    void add(Entry entry) throws IOException {
+      blockOut.writeByte(entry.isTombstone() ? DELETED : LIVE);
+      blockOut.writeInt(entry.key().length);
+      blockOut.writeInt(entry.value().length);
+      blockOut.write(entry.key());
+      blockOut.write(entry.value());
+      bloomFilter.add(entry.key());
+      lastKey = entry.key();
+      entryCount++;
+      if (block.size() >= blockBytes) {
+        finishBlock();
+      }
+    }
+
+    long finish() throws IOException {
+      if (block.size() > 0) {
+        finishBlock();
+      }
+      long indexOffset = offset;
+      out.writeInt(blockCount);
+      index.writeTo(out);
+      int indexLength = Integer.BYTES + index.size();
+      long bloomOffset = indexOffset + indexLength;
+      byte[] bloom = bloomFilter.toBytes();
+      out.write(bloom);
+      out.writeLong(indexOffset);
+      out.writeInt(indexLength);
+      out.writeLong(bloomOffset);
+      out.writeInt(bloom.length);
+      out.writeLong(entryCount);
+      out.writeInt(MAGIC);
+      out.flush();
+      return bloomOffset + bloom.length + FOOTER_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+
+    private void finishBlock() throws IOException {
+      indexOut.writeInt(lastKey.length);
+      indexOut.write(lastKey);
+      indexOut.writeLong(offset);
+      indexOut.writeInt(block.size());
+      block.writeTo(out);
+      offset += block.size();
+      blockCount++;
+      block.reset();
+    }
+  }
+}
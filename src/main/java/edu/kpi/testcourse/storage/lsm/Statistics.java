@@ -0,0 +1,22 @@
+package edu.kpi.testcourse.storage.lsm;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by an {@link LsmStore}, see {@link LsmStore.Metrics}.
+ */
+final class Statistics {
+  final LongAdder userBytesWritten = new LongAdder();
+  final LongAdder journalBytesWritten = new LongAdder();
+  final LongAdder flushBytesWritten = new LongAdder();
+  final LongAdder compactionBytesWritten = new LongAdder();
+  final LongAdder flushes = new LongAdder();
+  final LongAdder compactions = new LongAdder();
+  final LongAdder gets = new LongAdder();
+  final LongAdder tablesProbed = new LongAdder();
+  final LongAdder bloomNegatives = new LongAdder();
+  final LongAdder lookupBlocks = new LongAdder();
+  final LongAdder blockReads = new LongAdder();
+  final LongAdder blockReadBytes = new LongAdder();
+  final LongAdder blockCacheHits = new LongAdder();
+}
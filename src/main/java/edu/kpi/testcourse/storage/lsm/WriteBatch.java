@@ -0,0 +1,109 @@
+package edu.kpi.testcourse.storage.lsm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A group of changes that {@link LsmStore#write(WriteBatch)} applies atomically: after a crash
+ * either all of them or none are visible.
+ */
+public final class WriteBatch {
+  private static final byte PUT = 1;
+  private static final byte DELETE = 2;
+
+  private final List<byte[]> keys = new ArrayList<>();
+  private final List<byte[]> values = new ArrayList<>();
+  private long userBytes;
+
+  /**
+   * Sets the value of the key.
+   *
+   * @return this batch
+   */
+  public WriteBatch put(byte[] key, byte[] value) {
+    keys.add(key);
+    // The tombstone is an empty array recognized by identity, it must never be stored as a value.
+    values.add(value.length == 0 ? new byte[0] : value);
+    userBytes += key.length + value.length;
+    return this;
+  }
+
+  /**
+   * Removes the key.
+   *
+   * @return this batch
+   */
+  public WriteBatch delete(byte[] key) {
+    keys.add(key);
+    values.add(LsmStore.TOMBSTONE);
+    userBytes += key.length;
+    return this;
+  }
+
+  boolean isEmpty() {
+    return keys.isEmpty();
+  }
+
+  /**
+   * Returns the size of the keys and values, the base of the write amplification.
+   */
+  long userBytes() {
+    return userBytes;
+  }
+
+  /**
+   * Feeds every change to the consumer in the order of the calls, deletions with
+   * {@link LsmStore#TOMBSTONE} as the value.
+   */
+  void forEach(BiConsumer<byte[], byte[]> consumer) {
+    for (int i = 0; i < keys.size(); i++) {
+      consumer.accept(keys.get(i), values.get(i));
+    }
+  }
+
+  /**
+   * Serializes the batch into one journal record:
+   * <tt>[count: int]([PUT|DELETE: byte][key length: int][value length: int][key][value])*</tt>.
+   */
+  byte[] encode() {
+    int size = Integer.BYTES;
+    for (int i = 0; i < keys.size(); i++) {
+      size += 1 + 2 * Integer.BYTES + keys.get(i).length + values.get(i).length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      byte[] value = values.get(i);
+      buffer.put(value == LsmStore.TOMBSTONE ? DELETE : PUT);
+      buffer.putInt(keys.get(i).length);
+      buffer.putInt(value.length);
+      buffer.put(keys.get(i));
+      buffer.put(value);
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Restores a batch serialized with {@link #encode()}.
+   */
+  static WriteBatch decode(byte[] record) {
+    ByteBuffer buffer = ByteBuffer.wrap(record);
+    var batch = new WriteBatch();
+    int count = buffer.getInt();
+    for (int i = 0; i < count; i++) {
+      byte operation = buffer.get();
+      byte[] key = new byte[buffer.getInt()];
+      byte[] value = new byte[buffer.getInt()];
+      buffer.get(key);
+      buffer.get(value);
+      switch (operation) {
+        case PUT -> batch.put(key, value);
+        case DELETE -> batch.delete(key);
+        default -> throw new IllegalStateException("Unknown batch operation " + operation);
+      }
+    }
+    return batch;
+  }
+}
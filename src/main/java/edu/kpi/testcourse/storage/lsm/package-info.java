@@ -0,0 +1,7 @@
+/**
+ * This package contains classes related to a sorted key-value storage engine.
+ *
+ * <p>The engine is a log-structured merge tree, see
+ * {@link edu.kpi.testcourse.storage.lsm.LsmStore}.
+ */
+package edu.kpi.testcourse.storage.lsm;
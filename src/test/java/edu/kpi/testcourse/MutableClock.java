@@ -0,0 +1,32 @@
+package edu.kpi.testcourse;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A UTC clock that stands still until a test moves it by setting {@link #now}.
+ */
+public class MutableClock extends Clock {
+  public Instant now;
+
+  public MutableClock(Instant start) {
+    this.now = start;
+  }
+
+  @Override
+  public ZoneOffset getZone() {
+    return ZoneOffset.UTC;
+  }
+
+  @Override
+  public Clock withZone(ZoneId zone) {
+    return this;
+  }
+
+  @Override
+  public Instant instant() {
+    return now;
+  }
+}
@@ -0,0 +1,94 @@
+package edu.kpi.testcourse.logic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import edu.kpi.testcourse.storage.UrlRepositoryFakeImpl;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class AliasImporterTest {
+
+  @Test
+  void shouldImportLinesInChunks() throws IOException {
+    // GIVEN
+    var urls = new UrlRepositoryFakeImpl();
+    var importer = new AliasImporter(urls, new JsonToolJacksonImpl(), 2);
+    var input = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      input.append("{\"url\": \"http://g.com/long").append(i).append("\", \"alias\": \"short")
+          .append(i).append("\"}\r\n");
+    }
+    List<AliasImporter.Progress> progress = new ArrayList<>();
+
+    // WHEN
+    AliasImporter.Report report = importer.importAliases(
+        "aaa@bbb.com", utf8(input.toString()), progress::add);
+
+    // THEN
+    assertThat(report.imported()).isEqualTo(5);
+    assertThat(report.rejected()).isEqualTo(0);
+    assertThat(progress).containsExactly(
+        new AliasImporter.Progress(2, 2, 0),
+        new AliasImporter.Progress(4, 4, 0),
+        new AliasImporter.Progress(5, 5, 0));
+    assertThat(urls.findUrlAlias("short4"))
+        .isEqualTo(new UrlAlias("short4", "http://g.com/long4", "aaa@bbb.com"));
+  }
+
+  @Test
+  void shouldReportRejectedLines() throws IOException {
+    // GIVEN
+    var urls = new UrlRepositoryFakeImpl();
+    urls.createUrlAlias(new UrlAlias("taken", "http://g.com/taken", "bbb@ccc.com"));
+    var importer = new AliasImporter(urls, new JsonToolJacksonImpl());
+    String input = String.join("\n",
+        "{\"url\": \"http://g.com/1\", \"alias\": \"one\"}",
+        "not json",
+        "",
+        "{\"url\": \"ftp://g.com/2\", \"alias\": \"two\"}",
+        "{\"url\": \"http://g.com/3\", \"alias\": \"taken\"}",
+        "{\"url\": \"http://g.com/4\", \"alias\": \"x".repeat(AliasImporter.MAX_LINE_LENGTH) + "\"}",
+        "{\"url\": \"http://g.com/5\"}");
+
+    // WHEN
+    AliasImporter.Report report = importer.importAliases("aaa@bbb.com", utf8(input), p -> { });
+
+    // THEN
+    assertThat(report.lines()).isEqualTo(7);
+    assertThat(report.imported()).isEqualTo(1);
+    assertThat(report.rejected()).isEqualTo(5);
+    assertThat(report.rejectedLinesTruncated()).isFalse();
+    assertThat(report.rejectedLines().stream()
+        .map(AliasImporter.Rejection::line)
+        .collect(Collectors.toList()))
+        .containsExactlyInAnyOrder(2L, 4L, 5L, 6L, 7L);
+    assertThat(urls.findUrlAlias("taken").email()).isEqualTo("bbb@ccc.com");
+  }
+
+  @Test
+  void shouldLimitReportedRejections() throws IOException {
+    // GIVEN
+    var importer = new AliasImporter(new UrlRepositoryFakeImpl(), new JsonToolJacksonImpl());
+    String input = "{}\n".repeat(AliasImporter.MAX_REPORTED_REJECTIONS + 10);
+
+    // WHEN
+    AliasImporter.Report report = importer.importAliases("aaa@bbb.com", utf8(input), p -> { });
+
+    // THEN
+    assertThat(report.rejected()).isEqualTo(AliasImporter.MAX_REPORTED_REJECTIONS + 10);
+    assertThat(report.rejectedLines()).hasSize(AliasImporter.MAX_REPORTED_REJECTIONS);
+    assertThat(report.rejectedLinesTruncated()).isTrue();
+  }
+
+  private static InputStream utf8(String input) {
+    return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+  }
+}
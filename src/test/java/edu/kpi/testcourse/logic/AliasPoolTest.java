@@ -0,0 +1,137 @@
+package edu.kpi.testcourse.logic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.storage.UrlRepositoryFakeImpl;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AliasPoolTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  UrlRepositoryFakeImpl urls = new UrlRepositoryFakeImpl();
+  AliasGenerator source = new AliasGenerator() {
+    private int next = 1;
+
+    @Override
+    public synchronized String generate() {
+      return "a" + next++;
+    }
+  };
+
+  @Test
+  void skipsAliasesThatAreTaken() {
+    // GIVEN
+    urls.createUrlAlias(new UrlAlias("a1", "http://g.com/long", "aaa@bbb.com"));
+    var pool = new AliasPool(source, urls, 8, false);
+
+    // WHEN
+    pool.refill(SECOND);
+
+    // THEN
+    assertThat(pool.size()).isEqualTo(1);
+    assertThat(pool.generate()).isEqualTo("a2");
+    assertThat(pool.misses()).isEqualTo(0L);
+  }
+
+  @Test
+  void closesSourceGenerator() {
+    // GIVEN
+    var closingSource = new AliasGenerator() {
+      boolean closed;
+
+      @Override
+      public String generate() {
+        return "a1";
+      }
+
+      @Override
+      public void close() {
+        closed = true;
+      }
+    };
+    var pool = new AliasPool(closingSource, urls, 8);
+
+    // WHEN
+    pool.close();
+
+    // THEN
+    assertThat(closingSource.closed).isTrue();
+  }
+
+  @Test
+  void generatesOnCallerThreadWhenEmpty() {
+    // GIVEN
+    var pool = new AliasPool(source, urls, 8, false);
+
+    // WHEN
+    String alias = pool.generate();
+
+    // THEN
+    assertThat(alias).isEqualTo("a1");
+    assertThat(pool.misses()).isEqualTo(1L);
+  }
+
+  @Test
+  void adaptsTargetSizeToConsumptionRate() {
+    // GIVEN
+    var pool = new AliasPool(source, urls, 1000, false);
+    for (int i = 0; i < 100; i++) {
+      pool.generate();
+    }
+
+    // WHEN
+    pool.refill(SECOND / 10);
+
+    // THEN
+    assertThat(pool.targetSize()).isEqualTo(300);
+    assertThat(pool.size()).isEqualTo(300);
+
+    // WHEN
+    for (int i = 0; i < 10; i++) {
+      pool.refill(SECOND / 10);
+    }
+
+    // THEN
+    assertThat(pool.targetSize()).isEqualTo(125);
+  }
+
+  @Test
+  void neverExceedsCapacity() {
+    // GIVEN
+    var pool = new AliasPool(source, urls, 10, false);
+    for (int i = 0; i < 1000; i++) {
+      pool.generate();
+    }
+
+    // WHEN
+    pool.refill(SECOND / 10);
+
+    // THEN
+    assertThat(pool.size()).isEqualTo(10);
+  }
+
+  @Test
+  void fillsInBackground() throws InterruptedException {
+    // GIVEN
+    try (var pool = new AliasPool(new RandomGenetaror(), urls, 64)) {
+      long deadline = System.nanoTime() + 5 * SECOND;
+      while (pool.size() < 8 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+
+      // WHEN
+      var aliases = new ArrayList<String>();
+      for (int i = 0; i < 8; i++) {
+        aliases.add(pool.generate());
+      }
+
+      // THEN
+      assertThat(aliases).doesNotHaveDuplicates();
+      assertThat(pool.misses()).isEqualTo(0L);
+    }
+  }
+}
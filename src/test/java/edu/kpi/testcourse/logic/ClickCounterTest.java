@@ -0,0 +1,153 @@
+package edu.kpi.testcourse.logic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.ClickCounterSettings;
+import edu.kpi.testcourse.storage.ClickRepository;
+import edu.kpi.testcourse.storage.ClickRepositoryFakeImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class ClickCounterTest {
+
+  ClickRepositoryFakeImpl clicks = new ClickRepositoryFakeImpl();
+
+  @Test
+  void persistsCountedClicksOnFlush() {
+    // GIVEN
+    var counter = new ClickCounter(clicks, ClickCounterSettings.DEFAULT, false);
+    counter.record("short1");
+    counter.record("short1");
+    counter.record("short2");
+
+    // WHEN
+    counter.flush();
+
+    // THEN
+    assertThat(clicks.getClicks("short1")).isEqualTo(2L);
+    assertThat(clicks.getClicks("short2")).isEqualTo(1L);
+    counter.record("short1");
+    assertThat(counter.getClicks("short1")).isEqualTo(3L);
+  }
+
+  @Test
+  void forgetsRemovedClicks() {
+    // GIVEN
+    var counter = new ClickCounter(clicks, ClickCounterSettings.DEFAULT, false);
+    counter.record("short1");
+    counter.flush();
+    counter.record("short1");
+    counter.record("short2");
+
+    // WHEN
+    counter.removeClicks("short1");
+    counter.flush();
+
+    // THEN
+    assertThat(counter.getClicks("short1")).isEqualTo(0L);
+    assertThat(clicks.getClicks("short1")).isEqualTo(0L);
+    assertThat(counter.getClicks("short2")).isEqualTo(1L);
+  }
+
+  @Test
+  void keepsCountingAfterIdleCounterIsDropped() {
+    // GIVEN
+    var counter = new ClickCounter(clicks, ClickCounterSettings.DEFAULT, false);
+    counter.record("short");
+    counter.flush();
+    counter.flush();
+
+    // WHEN
+    counter.record("short");
+    counter.flush();
+
+    // THEN
+    assertThat(counter.getClicks("short")).isEqualTo(2L);
+  }
+
+  @Test
+  void losesNoClicksFlushedConcurrently() throws Exception {
+    // GIVEN
+    var counter = new ClickCounter(clicks, ClickCounterSettings.DEFAULT, false);
+    int threads = 8;
+    int clicksPerThread = 10_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+
+    // WHEN
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < clicksPerThread; i++) {
+          counter.record("short");
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      while (!future.isDone()) {
+        counter.flush();
+      }
+      future.get();
+    }
+    executor.shutdown();
+    counter.flush();
+
+    // THEN
+    assertThat(clicks.getClicks("short")).isEqualTo((long) threads * clicksPerThread);
+  }
+
+  @Test
+  void keepsClicksOfFailedFlush() {
+    // GIVEN
+    var failing = new ClickRepository() {
+      boolean fail = true;
+
+      @Override
+      public void addClicks(Map<String, Long> added) {
+        if (fail) {
+          throw new IllegalStateException("The disk is full");
+        }
+        clicks.addClicks(added);
+      }
+
+      @Override
+      public long getClicks(String alias) {
+        return clicks.getClicks(alias);
+      }
+
+      @Override
+      public void removeClicks(String alias) {
+        clicks.removeClicks(alias);
+      }
+    };
+    var counter = new ClickCounter(failing, ClickCounterSettings.DEFAULT, false);
+    counter.record("short");
+
+    // WHEN
+    assertThatThrownBy(counter::flush).isInstanceOf(IllegalStateException.class);
+    failing.fail = false;
+    counter.flush();
+
+    // THEN
+    assertThat(clicks.getClicks("short")).isEqualTo(1L);
+  }
+
+  @Test
+  void countsNothingWhenDisabled() {
+    // GIVEN
+    var counter = new ClickCounter(clicks, ClickCounterSettings.DISABLED);
+
+    // WHEN
+    counter.record("short");
+    counter.close();
+
+    // THEN
+    assertThat(counter.getClicks("short")).isEqualTo(0L);
+  }
+}
@@ -0,0 +1,106 @@
+package edu.kpi.testcourse.logic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.MutableClock;
+import edu.kpi.testcourse.logic.ClickRollups.Resolution;
+import edu.kpi.testcourse.logic.ClickRollups.TimeSeries;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class ClickRollupsTest {
+
+  private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+  MutableClock clock = new MutableClock(START);
+
+  @Test
+  void countsClicksPerMinuteHourAndDay() {
+    // GIVEN
+    var rollups = new ClickRollups(clock, 10);
+
+    // WHEN
+    clickAt(rollups, "short", Duration.ofSeconds(10));
+    clickAt(rollups, "short", Duration.ofSeconds(20));
+    clickAt(rollups, "short", Duration.ofMinutes(2));
+    clickAt(rollups, "short", Duration.ofHours(1));
+    clock.now = START.plus(Duration.ofHours(1));
+
+    // THEN
+    TimeSeries minutes = rollups.query("short", Resolution.MINUTE, 61);
+    assertThat(minutes.startMillis()).isEqualTo(START.toEpochMilli());
+    assertThat(minutes.clicks()[0]).isEqualTo(2L);
+    assertThat(minutes.clicks()[2]).isEqualTo(1L);
+    assertThat(minutes.clicks()[60]).isEqualTo(1L);
+    assertThat(rollups.query("short", Resolution.HOUR, 2).clicks()).containsExactly(3L, 1L);
+    assertThat(rollups.query("short", Resolution.DAY, 1).clicks()).containsExactly(4L);
+  }
+
+  @Test
+  void forgetsClicksOlderThanTheRing() {
+    // GIVEN
+    var rollups = new ClickRollups(clock, 10);
+    clickAt(rollups, "short", Duration.ZERO);
+
+    // WHEN
+    clickAt(rollups, "short", Duration.ofHours(25));
+
+    // THEN
+    TimeSeries minutes = rollups.query("short", Resolution.MINUTE, Resolution.MINUTE.buckets());
+    assertThat(Arrays.stream(minutes.clicks()).sum()).isEqualTo(1L);
+    assertThat(rollups.query("short", Resolution.DAY, 2).clicks()).containsExactly(1L, 1L);
+  }
+
+  @Test
+  void forgetsSeriesOfRemovedAlias() {
+    // GIVEN
+    var rollups = new ClickRollups(clock, 2);
+    clickAt(rollups, "short1", Duration.ZERO);
+    clickAt(rollups, "short2", Duration.ZERO);
+
+    // WHEN
+    rollups.remove("short1");
+    clickAt(rollups, "short3", Duration.ZERO);
+
+    // THEN
+    assertThat(rollups.query("short1", Resolution.DAY, 1).clicks()).containsExactly(0L);
+    assertThat(rollups.query("short2", Resolution.DAY, 1).clicks()).containsExactly(1L);
+    assertThat(rollups.query("short3", Resolution.DAY, 1).clicks()).containsExactly(1L);
+    assertThat(rollups.size()).isEqualTo(2);
+    assertThat(rollups.evictions()).isEqualTo(0L);
+  }
+
+  @Test
+  void evictsSeriesOfAliasClickedLeastRecently() {
+    // GIVEN
+    var rollups = new ClickRollups(clock, 1);
+    clickAt(rollups, "cold", Duration.ZERO);
+
+    // WHEN
+    clickAt(rollups, "hot", Duration.ofMinutes(1));
+
+    // THEN
+    assertThat(rollups.size()).isEqualTo(1);
+    assertThat(rollups.evictions()).isEqualTo(1L);
+    assertThat(rollups.query("cold", Resolution.DAY, 1).clicks()).containsExactly(0L);
+    assertThat(rollups.query("hot", Resolution.DAY, 1).clicks()).containsExactly(1L);
+  }
+
+  @Test
+  void rejectsMoreBucketsThanKept() {
+    // GIVEN
+    var rollups = new ClickRollups(clock, 10);
+
+    // WHEN + THEN
+    assertThatThrownBy(() -> rollups.query("short", Resolution.DAY, 31))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private void clickAt(ClickRollups rollups, String alias, Duration sinceStart) {
+    clock.now = START.plus(sinceStart);
+    rollups.record(alias);
+  }
+}
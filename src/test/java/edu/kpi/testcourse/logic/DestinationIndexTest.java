@@ -0,0 +1,35 @@
+package edu.kpi.testcourse.logic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class DestinationIndexTest {
+
+  @Test
+  void shouldNormalizeSpellingsOfSameAddress() {
+    // WHEN
+    String normalized = DestinationIndex.normalize(" HTTPS://Example.COM:443?q=A#Top ");
+
+    // THEN
+    assertThat(normalized).isEqualTo("https://example.com/?q=A#Top");
+  }
+
+  @Test
+  void shouldKeepCaseOfPathAndNonDefaultPort() {
+    // WHEN
+    String normalized = DestinationIndex.normalize("http://example.com:8080/Path/File");
+
+    // THEN
+    assertThat(normalized).isEqualTo("http://example.com:8080/Path/File");
+  }
+
+  @Test
+  void shouldLeaveInvalidUrlTrimmed() {
+    // WHEN
+    String normalized = DestinationIndex.normalize(" not a url ");
+
+    // THEN
+    assertThat(normalized).isEqualTo("not a url");
+  }
+}
@@ -0,0 +1,91 @@
+package edu.kpi.testcourse.logic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class HashUtilsTest {
+
+  HashUtils hashUtils = new HashUtils();
+
+  @Test
+  void validatesOnlyTheHashedPassword() {
+    // GIVEN
+    String stored = hashUtils.generateHash("secret-password");
+
+    // WHEN
+    boolean right = hashUtils.validatePassword("secret-password", stored);
+    boolean wrong = hashUtils.validatePassword("other-password", stored);
+
+    // THEN
+    assertThat(right).isTrue();
+    assertThat(wrong).isFalse();
+  }
+
+  @Test
+  void validatesHashesStoredBefore() {
+    // GIVEN
+    String stored = "1000:22debb0e2eeafaad1ec6e97f3eda65d1:31ee1da3fcbaeb7455334f3d46be962dbb546f97"
+        + "177a666f1b74217f6acec007e3daca9fdd3ad1491d5240d2e4013fb0c06ec91bfde7401f0107b08e53e4dc9a";
+
+    // WHEN
+    boolean valid = hashUtils.validatePassword("secret-password", stored);
+
+    // THEN
+    assertThat(valid).isTrue();
+  }
+
+  @Test
+  void asksToRehashOnlyMuchCheaperHashes() {
+    // GIVEN
+    var strongHashUtils = new HashUtils(10_000);
+
+    // WHEN
+    String weak = hashUtils.generateHash("secret-password");
+    String almostAsStrong = new HashUtils(9_000).generateHash("secret-password");
+    String strong = strongHashUtils.generateHash("secret-password");
+
+    // THEN
+    assertThat(strongHashUtils.needsRehash(weak)).isTrue();
+    assertThat(strongHashUtils.needsRehash(almostAsStrong)).isFalse();
+    assertThat(strongHashUtils.needsRehash(strong)).isFalse();
+    assertThat(hashUtils.needsRehash(strong)).isFalse();
+    assertThat(hashUtils.validatePassword("secret-password", strong)).isTrue();
+  }
+
+  @Test
+  void calibratesIterationsToTargetTime() {
+    // WHEN
+    HashUtils fast = HashUtils.calibrated(1);
+    HashUtils slow = HashUtils.calibrated(20);
+
+    // THEN
+    assertThat(fast.iterations()).isGreaterThanOrEqualTo(HashUtils.DEFAULT_ITERATIONS);
+    assertThat(slow.iterations()).isGreaterThan(fast.iterations());
+  }
+
+  @Test
+  void hashesConcurrently() throws Exception {
+    // GIVEN
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Boolean>> results = new ArrayList<>();
+
+    // WHEN
+    for (int i = 0; i < 64; i++) {
+      String password = "password" + i;
+      results.add(executor.submit(() ->
+          hashUtils.validatePassword(password, hashUtils.generateHash(password))));
+    }
+
+    // THEN
+    for (Future<Boolean> result : results) {
+      assertThat(result.get()).isTrue();
+    }
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,65 @@
+package edu.kpi.testcourse.logic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.HashingSettings;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+class HashingExecutorTest {
+
+  @Test
+  void runsTasksOnHashingThreads() throws Exception {
+    // GIVEN
+    try (var hashing = new HashingExecutor(new HashingSettings(2, 10, 50))) {
+
+      // WHEN
+      String thread = hashing.submit(() -> Thread.currentThread().getName()).get();
+
+      // THEN
+      assertThat(thread).startsWith("password-hashing-");
+    }
+  }
+
+  @Test
+  void rejectsTasksAtOnceWhenQueueIsFull() throws Exception {
+    // GIVEN
+    var release = new CountDownLatch(1);
+    try (var hashing = new HashingExecutor(new HashingSettings(1, 1, 50))) {
+      CompletableFuture<Boolean> running = hashing.submit(() -> {
+        release.await();
+        return true;
+      });
+      CompletableFuture<Boolean> queued = hashing.submit(() -> true);
+
+      // WHEN
+      CompletableFuture<Boolean> rejected = hashing.submit(() -> true);
+
+      // THEN
+      assertThat(rejected.isCompletedExceptionally()).isTrue();
+      assertThat(rejected.handle((result, e) -> e).get())
+          .isInstanceOf(HashingExecutor.Overloaded.class);
+      assertThat(hashing.rejected()).isEqualTo(1);
+      release.countDown();
+      assertThat(running.get()).isTrue();
+      assertThat(queued.get()).isTrue();
+    }
+  }
+
+  @Test
+  void passesExceptionsOfTasks() throws Exception {
+    // GIVEN
+    try (var hashing = new HashingExecutor(new HashingSettings(1, 1, 50))) {
+
+      // WHEN
+      CompletableFuture<Boolean> result = hashing.submit(() -> {
+        throw new IllegalStateException("broken");
+      });
+
+      // THEN
+      assertThat(result.handle((value, e) -> e).get())
+          .isInstanceOf(IllegalStateException.class);
+    }
+  }
+}
@@ -2,9 +2,14 @@ package edu.kpi.testcourse.logic;
 
 import edu.kpi.testcourse.entities.UrlAlias;
 import edu.kpi.testcourse.entities.User;
+import edu.kpi.testcourse.storage.IdBlockRepositoryFakeImpl;
 import edu.kpi.testcourse.storage.UrlRepository.AliasAlreadyExist;
 import edu.kpi.testcourse.storage.UrlRepositoryFakeImpl;
 import edu.kpi.testcourse.storage.UserRepositoryFakeImpl;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -66,6 +71,27 @@ class LogicTest {
     assertThat(logic.isUserValid("aaa@bbb.com", "password")).isTrue();
   }
 
+  @Test
+  void shouldUpgradeOutdatedPasswordHashOnSignIn() throws Logic.UserIsAlreadyCreated {
+    // GIVEN
+    UserRepositoryFakeImpl users = new UserRepositoryFakeImpl();
+    createLogic(users).createNewUser("aaa@bbb.com", "password");
+    var strongHashUtils = new HashUtils(10_000);
+    Logic logic = new Logic(
+        users, new UrlRepositoryFakeImpl(), new RandomGenetaror(), false, strongHashUtils);
+
+    // WHEN
+    boolean valid = logic.isUserValid("aaa@bbb.com", "password");
+
+    // THEN
+    assertThat(valid).isTrue();
+    String upgraded = users.findUser("aaa@bbb.com").passwordHash();
+    assertThat(upgraded).startsWith("10000:");
+    assertThat(logic.isUserValid("aaa@bbb.com", "password")).isTrue();
+    assertThat(logic.isUserValid("aaa@bbb.com", "wrong")).isFalse();
+    assertThat(users.findUser("aaa@bbb.com").passwordHash()).isEqualTo(upgraded);
+  }
+
   @Test
   void shouldCreateShortVersionOfUrl() {
     // GIVEN
@@ -93,6 +119,27 @@ class LogicTest {
     assertThat(logic.findFullUrl(shortUrl)).isEqualTo("http://g.com/loooong_url");
   }
 
+  @Test
+  void shouldSkipGeneratedAliasTakenByUser() {
+    // GIVEN
+    UrlRepositoryFakeImpl urls = new UrlRepositoryFakeImpl();
+    var generator = new SequenceAliasGenerator(
+        new IdBlockRepositoryFakeImpl(), UrlShortenerConfig.AliasGeneratorSettings.SEQUENCE);
+    Logic logic = new Logic(new UserRepositoryFakeImpl(), urls, generator);
+    String nextGenerated = new SequenceAliasGenerator(
+        new IdBlockRepositoryFakeImpl(), UrlShortenerConfig.AliasGeneratorSettings.SEQUENCE)
+        .generate();
+    logic.createNewAlias("bbb@ccc.com", "http://g.com/chosen", nextGenerated);
+
+    // WHEN
+    var shortUrl = logic.createNewAlias("aaa@bbb.com", "http://g.com/loooong_url", null);
+
+    // THEN
+    assertThat(shortUrl).isNotEqualTo(nextGenerated);
+    assertThat(logic.findFullUrl(shortUrl)).isEqualTo("http://g.com/loooong_url");
+    assertThat(logic.findFullUrl(nextGenerated)).isEqualTo("http://g.com/chosen");
+  }
+
   @Test
   void shouldNotAllowToCreateSameAliasTwice() {
     // GIVEN
@@ -154,4 +201,117 @@ class LogicTest {
     Assertions.assertThat(logic.getUserAliases("bbb@ccc.com")).containsExactlyInAnyOrder(alias3);
     Assertions.assertThat(logic.getUserAliases("ccc@ddd.com")).isEmpty();
   }
+
+  @Test
+  void shouldReuseAliasOfSameUrlWhenDeduplicating() {
+    // GIVEN
+    Logic logic = new Logic(
+        new UserRepositoryFakeImpl(), new UrlRepositoryFakeImpl(), new RandomGenetaror(), true);
+    var shortUrl = logic.createNewAlias("aaa@bbb.com", "http://g.com/loooong_url", null);
+
+    // WHEN
+    var sameUrl = logic.createNewAlias("aaa@bbb.com", "HTTP://G.com:80/loooong_url", null);
+    var otherUser = logic.createNewAlias("bbb@ccc.com", "http://g.com/loooong_url", null);
+    var otherUrl = logic.createNewAlias("aaa@bbb.com", "http://g.com/other_url", null);
+
+    // THEN
+    assertThat(sameUrl).isEqualTo(shortUrl);
+    assertThat(otherUser).isNotEqualTo(shortUrl);
+    assertThat(otherUrl).isNotEqualTo(shortUrl);
+  }
+
+  @Test
+  void shouldNotReuseDeletedAliasWhenDeduplicating() {
+    // GIVEN
+    UrlRepositoryFakeImpl urls = new UrlRepositoryFakeImpl();
+    urls.createUrlAlias(new UrlAlias("stored", "http://g.com/loooong_url", "aaa@bbb.com"));
+    Logic logic = new Logic(new UserRepositoryFakeImpl(), urls, new RandomGenetaror(), true);
+
+    // WHEN
+    var beforeDeletion = logic.createNewAlias("aaa@bbb.com", "http://g.com/loooong_url", null);
+    logic.deleteUserAlias("aaa@bbb.com", "stored");
+    var afterDeletion = logic.createNewAlias("aaa@bbb.com", "http://g.com/loooong_url", null);
+
+    // THEN
+    assertThat(beforeDeletion).isEqualTo("stored");
+    assertThat(afterDeletion).isNotEqualTo("stored");
+    assertThat(logic.findFullUrl(afterDeletion)).isEqualTo("http://g.com/loooong_url");
+  }
+
+  @Test
+  void shouldCreateAliasesInBulk() {
+    // GIVEN
+    Logic logic = createLogic();
+    logic.createNewAlias("bbb@ccc.com", "http://g.com/taken", "taken");
+
+    // WHEN
+    var aliases = logic.createNewAliases(
+        "aaa@bbb.com",
+        List.of("http://g.com/long1", "http://g.com/long2", "http://g.com/long3"),
+        Arrays.asList("short", null, "taken"));
+
+    // THEN
+    assertThat(aliases.get(0)).isEqualTo("short");
+    assertThat(logic.findFullUrl(aliases.get(1))).isEqualTo("http://g.com/long2");
+    assertThat(aliases.get(2)).isNull();
+    assertThat(logic.findFullUrl("taken")).isEqualTo("http://g.com/taken");
+  }
+
+  @Test
+  void shouldCreateAndAuthorizeUserAsynchronously() throws Exception {
+    // GIVEN
+    ExecutorService storage = Executors.newSingleThreadExecutor();
+    ExecutorService hashing = Executors.newSingleThreadExecutor();
+    Logic logic = new Logic(
+        new UserRepositoryFakeImpl(), new UrlRepositoryFakeImpl(), new RandomGenetaror(), false,
+        new HashUtils(), storage, hashing);
+
+    try {
+      // WHEN
+      logic.createNewUserAsync("aaa@bbb.com", "password").toCompletableFuture().get();
+      Throwable taken = logic.createNewUserAsync("aaa@bbb.com", "other")
+          .handle((ignored, e) -> e).toCompletableFuture().get();
+
+      // THEN
+      assertThat(taken.getCause()).isInstanceOf(Logic.UserIsAlreadyCreated.class);
+      assertThat(logic.isUserValidAsync("aaa@bbb.com", "password").toCompletableFuture().get())
+          .isTrue();
+      assertThat(logic.isUserValidAsync("aaa@bbb.com", "other").toCompletableFuture().get())
+          .isFalse();
+      assertThat(logic.isUserValidAsync("bbb@ccc.com", "password").toCompletableFuture().get())
+          .isFalse();
+    } finally {
+      storage.shutdown();
+      hashing.shutdown();
+    }
+  }
+
+  @Test
+  void shouldManageAliasesAsynchronously() throws Exception {
+    // GIVEN
+    ExecutorService storage = Executors.newSingleThreadExecutor();
+    Logic logic = new Logic(
+        new UserRepositoryFakeImpl(), new UrlRepositoryFakeImpl(), new RandomGenetaror(), true,
+        new HashUtils(), storage, storage);
+
+    try {
+      // WHEN
+      String alias = logic.createNewAliasAsync("aaa@bbb.com", "http://g.com/long", "short", null)
+          .toCompletableFuture().get();
+
+      // THEN
+      assertThat(alias).isEqualTo("short");
+      assertThat(logic.findFullUrlAsync("short").toCompletableFuture().get())
+          .isEqualTo("http://g.com/long");
+      assertThat(logic.findUserAliasAsync("bbb@ccc.com", "short").toCompletableFuture().get())
+          .isNull();
+      assertThat(logic.deleteUserAliasAsync("bbb@ccc.com", "short").toCompletableFuture().get())
+          .isFalse();
+      assertThat(logic.deleteUserAliasAsync("aaa@bbb.com", "short").toCompletableFuture().get())
+          .isTrue();
+      assertThat(logic.findFullUrlAsync("short").toCompletableFuture().get()).isNull();
+    } finally {
+      storage.shutdown();
+    }
+  }
 }
@@ -0,0 +1,137 @@
+package edu.kpi.testcourse.logic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.AliasGeneratorSettings;
+import edu.kpi.testcourse.logic.UrlShortenerConfig.AliasGeneratorSettings.Mode;
+import edu.kpi.testcourse.storage.IdBlockRepository;
+import edu.kpi.testcourse.storage.IdBlockRepositoryFakeImpl;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SequenceAliasGeneratorTest {
+
+  @Test
+  void generatesSequentialAliasesWithoutScrambling() {
+    // GIVEN
+    var settings = new AliasGeneratorSettings(Mode.SEQUENCE, 100, false, 0, 0);
+    var generator = new SequenceAliasGenerator(new IdBlockRepositoryFakeImpl(), settings);
+
+    // WHEN
+    var aliases = new ArrayList<String>();
+    for (int i = 0; i < 62; i++) {
+      aliases.add(generator.generate());
+    }
+
+    // THEN
+    assertThat(aliases.get(0)).isEqualTo("1");
+    assertThat(aliases.get(9)).isEqualTo("A");
+    assertThat(aliases.get(60)).isEqualTo("z");
+    assertThat(aliases.get(61)).isEqualTo("10");
+  }
+
+  @Test
+  void generatesUniqueScrambledAliasesOfFixedLength() {
+    // GIVEN
+    var generator = new SequenceAliasGenerator(
+        new IdBlockRepositoryFakeImpl(), AliasGeneratorSettings.SEQUENCE);
+
+    // WHEN
+    var aliases = new ArrayList<String>();
+    for (int i = 0; i < 100_000; i++) {
+      aliases.add(generator.generate());
+    }
+
+    // THEN
+    assertThat(aliases).doesNotHaveDuplicates();
+    assertThat(aliases.stream().allMatch(alias -> alias.matches("[0-9A-Za-z]{8}"))).isTrue();
+    assertThat(aliases.get(1)).isNotEqualTo(aliases.get(0));
+  }
+
+  @Test
+  void scramblingIsPermutationOfDomain() {
+    // GIVEN
+    var generator = new SequenceAliasGenerator(
+        new IdBlockRepositoryFakeImpl(), AliasGeneratorSettings.SEQUENCE);
+    var results = new HashSet<Long>();
+
+    // WHEN
+    long last = SequenceAliasGenerator.SCRAMBLED_DOMAIN - 1;
+    for (long id : List.of(0L, 1L, 2L, last - 1, last)) {
+      long scrambled = generator.scramble(id);
+      assertThat(scrambled).isBetween(0L, last);
+      results.add(scrambled);
+    }
+
+    // THEN
+    assertThat(results).hasSize(5);
+  }
+
+  @Test
+  void leasesOneBlockPerBlockSizeAliases() {
+    // GIVEN
+    var leases = new AtomicInteger();
+    var delegate = new IdBlockRepositoryFakeImpl();
+    IdBlockRepository idBlocks = new IdBlockRepository() {
+      @Override
+      public long leaseBlock(int blockSize) {
+        leases.incrementAndGet();
+        return delegate.leaseBlock(blockSize);
+      }
+
+      @Override
+      public long scrambleKey() {
+        return delegate.scrambleKey();
+      }
+    };
+    var settings = new AliasGeneratorSettings(Mode.SEQUENCE, 10, true, 42, 0);
+    var generator = new SequenceAliasGenerator(idBlocks, settings);
+
+    // WHEN
+    for (int i = 0; i < 25; i++) {
+      generator.generate();
+    }
+
+    // THEN
+    assertThat(leases.get()).isEqualTo(3);
+  }
+
+  @Test
+  void differentKeysGiveDifferentAliases() {
+    // GIVEN
+    var settings1 = new AliasGeneratorSettings(Mode.SEQUENCE, 10, true, 1, 0);
+    var settings2 = new AliasGeneratorSettings(Mode.SEQUENCE, 10, true, 2, 0);
+
+    // WHEN
+    String alias1 =
+        new SequenceAliasGenerator(new IdBlockRepositoryFakeImpl(), settings1).generate();
+    String alias2 =
+        new SequenceAliasGenerator(new IdBlockRepositoryFakeImpl(), settings2).generate();
+
+    // THEN
+    assertThat(alias1).isNotEqualTo(alias2);
+  }
+
+  @Test
+  void scramblesWithKeyOfSequenceByDefault() {
+    // GIVEN
+    var idBlocks = new IdBlockRepositoryFakeImpl();
+    var explicitKey =
+        new AliasGeneratorSettings(Mode.SEQUENCE, 1000, true, idBlocks.scrambleKey(), 0);
+
+    // WHEN
+    String byDefault =
+        new SequenceAliasGenerator(idBlocks, AliasGeneratorSettings.SEQUENCE).generate();
+    String explicit =
+        new SequenceAliasGenerator(new IdBlockRepositoryFakeImpl(), explicitKey).generate();
+    String otherSequence = new SequenceAliasGenerator(
+        new IdBlockRepositoryFakeImpl(), AliasGeneratorSettings.SEQUENCE).generate();
+
+    // THEN
+    assertThat(byDefault).isEqualTo(explicit);
+    assertThat(otherSequence).isNotEqualTo(byDefault);
+  }
+}
@@ -5,7 +5,12 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.type.TypeReference;
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Objects;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -61,6 +66,53 @@ class JsonToolJacksonImplTest {
     assertThat(result).isEqualTo(a);
   }
 
+  @Test
+  void shouldSerializeExpiryOfUrlAliasOnlyIfItExpires() {
+    // GIVEN
+    var lasting = new UrlAlias("short1", "http://g.com/long", "aaa@bbb.com");
+    var expiring = new UrlAlias("short2", "http://g.com/long", "aaa@bbb.com", 1234L);
+
+    // WHEN
+    var lastingJson = json.toJson(lasting);
+    var expiringJson = json.toJson(expiring);
+
+    // THEN
+    assertThat(lastingJson).doesNotContain("expiresAt");
+    assertThat(json.fromJson(lastingJson, UrlAlias.class)).isEqualTo(lasting);
+    assertThat(json.fromJson(expiringJson, UrlAlias.class)).isEqualTo(expiring);
+  }
+
+  @Test
+  void shouldReadObjectEntriesOneByOne() throws IOException {
+    // GIVEN
+    var document = "{\"x\": {\"a\": \"first\", \"b\": 1}, \"y\": {\"a\": \"second\", \"b\": 2}}";
+
+    // WHEN
+    var result = new LinkedHashMap<String, Clazz>();
+    json.readObjectEntries(
+        new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)),
+        Clazz.class,
+        result::put);
+
+    // THEN
+    var expected = new LinkedHashMap<String, Clazz>();
+    expected.put("x", new Clazz("first", 1));
+    expected.put("y", new Clazz("second", 2));
+    assertThat(result).isEqualTo(expected);
+  }
+
+  @Test
+  void shouldRejectTruncatedObject() {
+    // GIVEN
+    var document = "{\"x\": {\"a\": \"first\", \"b\": 1}, \"y\": {\"a\": \"sec";
+
+    // WHEN + THEN
+    assertThrows(JsonTool.JsonParsingError.class, () -> json.readObjectEntries(
+        new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)),
+        Clazz.class,
+        (key, value) -> {}));
+  }
+
   static class Clazz {
     public String a;
     public int b;
@@ -0,0 +1,145 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.MutableClock;
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CachingUrlRepositoryTest {
+
+  CountingUrlRepository storage = new CountingUrlRepository();
+
+  @Test
+  void shouldAnswerRepeatedLookupsFromMemory() {
+    // GIVEN
+    var repo = new CachingUrlRepository(storage, 100);
+    UrlAlias alias = new UrlAlias("short", "http://g.com/long", "aaa@bbb.com");
+    repo.createUrlAlias(alias);
+
+    // WHEN
+    for (int i = 0; i < 10; i++) {
+      assertThat(repo.findUrlAlias("short")).isEqualTo(alias);
+    }
+
+    // THEN
+    CachingUrlRepository.Metrics metrics = repo.metrics();
+    assertThat(storage.lookups).isEqualTo(1);
+    assertThat(metrics.hits()).isEqualTo(9);
+    assertThat(metrics.misses()).isEqualTo(1);
+    assertThat(metrics.hitRate()).isEqualTo(0.9);
+  }
+
+  @Test
+  void shouldForgetDeletedAliasesImmediately() {
+    // GIVEN
+    var repo = new CachingUrlRepository(storage, 100);
+    long expiresAt = System.currentTimeMillis() + Duration.ofHours(1).toMillis();
+    repo.createUrlAlias(new UrlAlias("short1", "http://g.com/long", "aaa@bbb.com"));
+    repo.createUrlAlias(new UrlAlias("short2", "http://g.com/long", "aaa@bbb.com", expiresAt));
+    repo.findUrlAlias("short1");
+    repo.findUrlAlias("short2");
+
+    // WHEN
+    repo.deleteUrlAlias("aaa@bbb.com", "short1");
+    repo.deleteExpiredAlias("short2", expiresAt);
+
+    // THEN
+    assertThat(repo.findUrlAlias("short1")).isNull();
+    assertThat(repo.findUrlAlias("short2")).isNull();
+    assertThat(repo.metrics().size()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldNotReturnExpiredAliases() {
+    // GIVEN
+    var clock = new MutableClock(Instant.now());
+    var repo = new CachingUrlRepository(storage, 100, clock);
+    long expiresAt = clock.now.plus(Duration.ofSeconds(10)).toEpochMilli();
+    repo.createUrlAlias(new UrlAlias("short", "http://g.com/long", "aaa@bbb.com", expiresAt));
+    assertThat(repo.findUrlAlias("short")).isNotNull();
+
+    // WHEN
+    clock.now = clock.now.plus(Duration.ofSeconds(11));
+
+    // THEN
+    assertThat(repo.findUrlAlias("short")).isNull();
+  }
+
+  @Test
+  void shouldKeepFrequentAliasesOverOneOffLookups() {
+    // GIVEN
+    var repo = new CachingUrlRepository(storage, 100);
+    for (int i = 0; i < 50; i++) {
+      repo.createUrlAlias(new UrlAlias("hot" + i, "http://g.com/hot", "aaa@bbb.com"));
+    }
+    for (int i = 0; i < 500; i++) {
+      repo.createUrlAlias(new UrlAlias("cold" + i, "http://g.com/cold", "aaa@bbb.com"));
+    }
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 50; i++) {
+        repo.findUrlAlias("hot" + i);
+      }
+    }
+
+    // WHEN
+    for (int i = 0; i < 500; i++) {
+      repo.findUrlAlias("cold" + i);
+    }
+
+    // THEN
+    storage.lookups = 0;
+    for (int i = 0; i < 50; i++) {
+      repo.findUrlAlias("hot" + i);
+    }
+    assertThat(storage.lookups).isLessThanOrEqualTo(2);
+    assertThat(repo.metrics().size()).isLessThanOrEqualTo(100);
+    assertThat(repo.metrics().evictions()).isGreaterThanOrEqualTo(450);
+  }
+
+  @Test
+  void shouldAnswerCachedAliasesWithoutTheExecutor() throws Exception {
+    // GIVEN
+    var repo = new CachingUrlRepository(storage, 100);
+    UrlAlias alias = new UrlAlias("short", "http://g.com/long", "aaa@bbb.com");
+    repo.createUrlAlias(alias);
+    var offloaded = new AtomicInteger();
+    AsyncUrlRepository async = repo.async(command -> {
+      offloaded.incrementAndGet();
+      command.run();
+    });
+
+    // WHEN
+    UrlAlias miss = async.findUrlAlias("short").toCompletableFuture().get();
+    UrlAlias hit = async.findUrlAlias("short").toCompletableFuture().get();
+
+    // THEN
+    assertThat(miss).isEqualTo(alias);
+    assertThat(hit).isEqualTo(alias);
+    assertThat(offloaded.get()).isEqualTo(1);
+    assertThat(storage.lookups).isEqualTo(1);
+  }
+
+  @Test
+  void shouldLetUnderlyingRepositoryAnswerMissesWithoutTheExecutor() throws Exception {
+    // GIVEN
+    var repo = new CachingUrlRepository(new FilteredUrlRepository(storage), 100);
+    var offloaded = new AtomicInteger();
+    AsyncUrlRepository async = repo.async(command -> {
+      offloaded.incrementAndGet();
+      command.run();
+    });
+
+    // WHEN
+    UrlAlias unknown = async.findUrlAlias("unknown").toCompletableFuture().get();
+
+    // THEN
+    assertThat(unknown).isNull();
+    assertThat(offloaded.get()).isEqualTo(0);
+    assertThat(storage.lookups).isEqualTo(0);
+    assertThat(repo.metrics().misses()).isEqualTo(1L);
+  }
+}
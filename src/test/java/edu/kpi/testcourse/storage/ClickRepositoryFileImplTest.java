@@ -0,0 +1,63 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ClickRepositoryFileImplTest {
+
+  @TempDir
+  Path storageRoot;
+
+  @Test
+  void addsClicksToStoredCounts() {
+    // GIVEN
+    var clicks = new ClickRepositoryFileImpl(
+        new JsonToolJacksonImpl(), new UrlShortenerConfig(storageRoot));
+
+    // WHEN
+    clicks.addClicks(Map.of("short1", 2L, "short2", 1L));
+    clicks.addClicks(Map.of("short1", 3L));
+
+    // THEN
+    assertThat(clicks.getClicks("short1")).isEqualTo(5L);
+    assertThat(clicks.getClicks("short2")).isEqualTo(1L);
+    assertThat(clicks.getClicks("short3")).isEqualTo(0L);
+  }
+
+  @Test
+  void keepsClicksAfterRestart() {
+    // GIVEN
+    var appConfig = new UrlShortenerConfig(storageRoot);
+    new ClickRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig)
+        .addClicks(Map.of("short", 7L));
+
+    // WHEN
+    var restarted = new ClickRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+
+    // THEN
+    assertThat(restarted.getClicks("short")).isEqualTo(7L);
+  }
+
+  @Test
+  void forgetsRemovedClicksAfterRestart() {
+    // GIVEN
+    var appConfig = new UrlShortenerConfig(storageRoot);
+    var clicks = new ClickRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+    clicks.addClicks(Map.of("short1", 7L, "short2", 1L));
+
+    // WHEN
+    clicks.removeClicks("short1");
+    var restarted = new ClickRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+
+    // THEN
+    assertThat(clicks.getClicks("short1")).isEqualTo(0L);
+    assertThat(restarted.getClicks("short1")).isEqualTo(0L);
+    assertThat(restarted.getClicks("short2")).isEqualTo(1L);
+  }
+}
@@ -0,0 +1,62 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class CountingBloomFilterTest {
+
+  @Test
+  void shouldContainAddedStrings() {
+    // GIVEN
+    var filter = new CountingBloomFilter(1000, 10);
+
+    // WHEN
+    for (int i = 0; i < 1000; i++) {
+      filter.add("alias" + i);
+    }
+
+    // THEN
+    for (int i = 0; i < 1000; i++) {
+      assertThat(filter.mightContain("alias" + i)).isTrue();
+    }
+    assertThat(filter.size()).isEqualTo(1000);
+  }
+
+  @Test
+  void shouldRejectMostUnknownStrings() {
+    // GIVEN
+    var filter = new CountingBloomFilter(10_000, 10);
+    for (int i = 0; i < 10_000; i++) {
+      filter.add("alias" + i);
+    }
+
+    // WHEN
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (filter.mightContain("unknown" + i)) {
+        falsePositives++;
+      }
+    }
+
+    // THEN
+    assertThat(falsePositives).isLessThan(300);
+    assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+  }
+
+  @Test
+  void shouldForgetRemovedStrings() {
+    // GIVEN
+    var filter = new CountingBloomFilter(1000, 10);
+    filter.add("first");
+    filter.add("second");
+
+    // WHEN
+    filter.remove("first");
+
+    // THEN
+    assertThat(filter.mightContain("first")).isFalse();
+    assertThat(filter.mightContain("second")).isTrue();
+    assertThat(filter.size()).isEqualTo(1);
+  }
+}
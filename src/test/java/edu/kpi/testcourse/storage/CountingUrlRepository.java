@@ -0,0 +1,56 @@
+package edu.kpi.testcourse.storage;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * An in-memory {@link UrlRepository} that counts the lookups reaching it, for the tests of the
+ * repositories that wrap another one.
+ */
+class CountingUrlRepository implements UrlRepository {
+  private final UrlRepository delegate = new UrlRepositoryFakeImpl();
+  int lookups;
+
+  @Override
+  public void createUrlAlias(UrlAlias urlAlias) {
+    delegate.createUrlAlias(urlAlias);
+  }
+
+  @Override
+  public boolean[] createUrlAliases(List<UrlAlias> urlAliases) {
+    return delegate.createUrlAliases(urlAliases);
+  }
+
+  @Override
+  public @Nullable UrlAlias findUrlAlias(String alias) {
+    lookups++;
+    return delegate.findUrlAlias(alias);
+  }
+
+  @Override
+  public void deleteUrlAlias(String email, String alias) {
+    delegate.deleteUrlAlias(email, alias);
+  }
+
+  @Override
+  public boolean deleteExpiredAlias(String alias, long nowMillis) {
+    return delegate.deleteExpiredAlias(alias, nowMillis);
+  }
+
+  @Override
+  public List<UrlAlias> getAllAliasesForUser(String userEmail) {
+    return delegate.getAllAliasesForUser(userEmail);
+  }
+
+  @Override
+  public Page getAliasesForUser(String userEmail, @Nullable String cursor, int limit) {
+    return delegate.getAliasesForUser(userEmail, cursor, limit);
+  }
+
+  @Override
+  public void forEachAlias(Consumer<UrlAlias> consumer) {
+    delegate.forEachAlias(consumer);
+  }
+}
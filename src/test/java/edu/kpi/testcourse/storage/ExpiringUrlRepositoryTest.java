@@ -0,0 +1,129 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.MutableClock;
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ExpiringUrlRepositoryTest {
+
+  private static final Instant START = Instant.now();
+
+  MutableClock clock = new MutableClock(START);
+  UrlRepositoryFakeImpl delegate = new UrlRepositoryFakeImpl();
+
+  @Test
+  void deletesAliasesWhenTheyExpire() {
+    // GIVEN
+    var urls = new ExpiringUrlRepository(delegate, clock, 1000, false);
+    urls.createUrlAlias(alias("short1", Duration.ofSeconds(10)));
+    urls.createUrlAliases(List.of(alias("short2", Duration.ofSeconds(20))));
+    urls.createUrlAlias(new UrlAlias("short3", "http://g.com/long", "aaa@bbb.com"));
+
+    // WHEN
+    clock.now = START.plus(Duration.ofSeconds(15));
+    urls.expire();
+
+    // THEN
+    assertThat(delegate.getAllAliasesForUser("aaa@bbb.com")).hasSize(2);
+    assertThat(urls.expired()).isEqualTo(1L);
+    clock.now = START.plus(Duration.ofSeconds(25));
+    urls.expire();
+    assertThat(delegate.getAllAliasesForUser("aaa@bbb.com"))
+        .containsExactly(new UrlAlias("short3", "http://g.com/long", "aaa@bbb.com"));
+  }
+
+  @Test
+  void closesWholeChainOfRepositories() {
+    // GIVEN
+    var underlying = new UrlRepositoryFakeImpl() {
+      boolean closed;
+
+      @Override
+      public void close() {
+        closed = true;
+      }
+    };
+    var urls = new ExpiringUrlRepository(
+        new CachingUrlRepository(new FilteredUrlRepository(underlying), 10), clock, 1000, true);
+
+    // WHEN
+    urls.close();
+
+    // THEN
+    assertThat(underlying.closed).isTrue();
+  }
+
+  @Test
+  void schedulesAliasesOfUnderlyingRepository() {
+    // GIVEN
+    delegate.createUrlAlias(alias("short", Duration.ofSeconds(10)));
+
+    // WHEN
+    var urls = new ExpiringUrlRepository(delegate, clock, 1000, false);
+    clock.now = START.plus(Duration.ofSeconds(11));
+    urls.expire();
+
+    // THEN
+    assertThat(urls.expired()).isEqualTo(1L);
+    assertThat(delegate.getAllAliasesForUser("aaa@bbb.com")).isEmpty();
+  }
+
+  @Test
+  void leavesAliasCreatedAgainAfterDeletion() {
+    // GIVEN
+    var urls = new ExpiringUrlRepository(delegate, clock, 1000, false);
+    urls.createUrlAlias(alias("short", Duration.ofSeconds(10)));
+    urls.deleteUrlAlias("aaa@bbb.com", "short");
+    UrlAlias recreated = new UrlAlias("short", "http://g.com/other", "aaa@bbb.com");
+    urls.createUrlAlias(recreated);
+
+    // WHEN
+    clock.now = START.plus(Duration.ofSeconds(11));
+    urls.expire();
+
+    // THEN
+    assertThat(urls.findUrlAlias("short")).isEqualTo(recreated);
+    assertThat(urls.expired()).isEqualTo(0L);
+  }
+
+  @Test
+  void reportsDeletedAndExpiredAliasesToRemovalListener() {
+    // GIVEN
+    var removed = new ArrayList<String>();
+    var urls = new ExpiringUrlRepository(delegate, removed::add, clock, 1000, false);
+    urls.createUrlAlias(alias("short1", Duration.ofSeconds(10)));
+    urls.createUrlAlias(new UrlAlias("short2", "http://g.com/long", "aaa@bbb.com"));
+
+    // WHEN
+    urls.deleteUrlAlias("aaa@bbb.com", "short2");
+    clock.now = START.plus(Duration.ofSeconds(11));
+    urls.expire();
+
+    // THEN
+    assertThat(removed).containsExactly("short2", "short1");
+  }
+
+  @Test
+  void doesNotFindExpiredAliasBeforeItIsDeleted() {
+    // GIVEN
+    var urls = new ExpiringUrlRepository(delegate, clock, 1000, false);
+
+    // WHEN
+    urls.createUrlAlias(new UrlAlias(
+        "short", "http://g.com/long", "aaa@bbb.com", System.currentTimeMillis() - 1));
+
+    // THEN
+    assertThat(urls.findUrlAlias("short")).isNull();
+    assertThat(delegate.getAllAliasesForUser("aaa@bbb.com")).hasSize(1);
+  }
+
+  private static UrlAlias alias(String alias, Duration ttl) {
+    return new UrlAlias(alias, "http://g.com/long", "aaa@bbb.com", START.plus(ttl).toEpochMilli());
+  }
+}
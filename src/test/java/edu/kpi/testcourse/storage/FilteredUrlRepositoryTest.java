@@ -0,0 +1,103 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class FilteredUrlRepositoryTest {
+
+  @Test
+  void shouldFindAliasesStoredBeforeStart() {
+    // GIVEN
+    UrlRepository storage = new UrlRepositoryFakeImpl();
+    UrlAlias alias = new UrlAlias("short", "http://g.com/long", "aaa@bbb.com");
+    storage.createUrlAlias(alias);
+
+    // WHEN
+    var repo = new FilteredUrlRepository(storage);
+
+    // THEN
+    assertThat(repo.findUrlAlias("short")).isEqualTo(alias);
+    assertThat(repo.metrics().aliases()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotAskStorageForUnknownAliases() {
+    // GIVEN
+    var storage = new CountingUrlRepository();
+    var repo = new FilteredUrlRepository(storage);
+    repo.createUrlAlias(new UrlAlias("short", "http://g.com/long", "aaa@bbb.com"));
+
+    // WHEN
+    for (int i = 0; i < 1000; i++) {
+      repo.findUrlAlias("unknown" + i);
+    }
+
+    // THEN
+    FilteredUrlRepository.Metrics metrics = repo.metrics();
+    assertThat(storage.lookups).isEqualTo(metrics.falsePositives());
+    assertThat(metrics.rejected() + metrics.falsePositives()).isEqualTo(1000);
+    assertThat(metrics.falsePositiveRate()).isLessThan(0.01);
+  }
+
+  @Test
+  void shouldAnswerUnknownAliasesWithoutTheExecutor() throws Exception {
+    // GIVEN
+    var repo = new FilteredUrlRepository(new UrlRepositoryFakeImpl());
+    UrlAlias alias = new UrlAlias("short", "http://g.com/long", "aaa@bbb.com");
+    repo.createUrlAlias(alias);
+    var offloaded = new AtomicInteger();
+    AsyncUrlRepository async = repo.async(command -> {
+      offloaded.incrementAndGet();
+      command.run();
+    });
+
+    // WHEN
+    for (int i = 0; i < 1000; i++) {
+      async.findUrlAlias("unknown" + i).toCompletableFuture().get();
+    }
+    UrlAlias found = async.findUrlAlias("short").toCompletableFuture().get();
+
+    // THEN
+    assertThat(found).isEqualTo(alias);
+    assertThat(offloaded.get()).isEqualTo(repo.metrics().falsePositives() + 1);
+    assertThat(repo.metrics().rejected() + repo.metrics().falsePositives()).isEqualTo(1000);
+  }
+
+  @Test
+  void shouldForgetDeletedAliases() {
+    // GIVEN
+    var storage = new CountingUrlRepository();
+    var repo = new FilteredUrlRepository(storage);
+    repo.createUrlAlias(new UrlAlias("short", "http://g.com/long", "aaa@bbb.com"));
+
+    // WHEN
+    repo.deleteUrlAlias("aaa@bbb.com", "short");
+
+    // THEN
+    assertThat(repo.findUrlAlias("short")).isNull();
+    assertThat(storage.lookups).isEqualTo(0);
+  }
+
+  @Test
+  void shouldKeepAliasOfAnotherUserAfterFailedChanges() {
+    // GIVEN
+    var repo = new FilteredUrlRepository(new UrlRepositoryFakeImpl());
+    UrlAlias alias = new UrlAlias("short", "http://g.com/long", "aaa@bbb.com");
+    repo.createUrlAlias(alias);
+
+    // WHEN
+    assertThatThrownBy(() ->
+        repo.createUrlAlias(new UrlAlias("short", "http://g.com/other", "ccc@ddd.com"))
+    ).isInstanceOf(UrlRepository.AliasAlreadyExist.class);
+    assertThatThrownBy(() -> repo.deleteUrlAlias("ccc@ddd.com", "short"))
+        .isInstanceOf(UrlRepository.PermissionDenied.class);
+
+    // THEN
+    assertThat(repo.findUrlAlias("short")).isEqualTo(alias);
+    assertThat(repo.metrics().aliases()).isEqualTo(1);
+  }
+}
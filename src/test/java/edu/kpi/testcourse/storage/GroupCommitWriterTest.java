@@ -0,0 +1,125 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.GroupCommitSettings;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+class GroupCommitWriterTest {
+
+  @Test
+  void writesChangesQueuedDuringWriteAsOneBatch() throws Exception {
+    // GIVEN
+    var batches = new CopyOnWriteArrayList<List<String>>();
+    var firstWriteStarted = new CountDownLatch(1);
+    var releaseFirstWrite = new CountDownLatch(1);
+    try (var writer = new GroupCommitWriter<String>(
+        "test", GroupCommitSettings.DEFAULT, batch -> {
+          batches.add(List.copyOf(batch));
+          firstWriteStarted.countDown();
+          try {
+            releaseFirstWrite.await();
+          } catch (InterruptedException e) {
+            throw new IOException(e);
+          }
+        })) {
+      CompletableFuture<Void> first = writer.submit("a");
+      firstWriteStarted.await();
+
+      // WHEN
+      List<CompletableFuture<Void>> queued = new ArrayList<>();
+      queued.add(writer.submit("b"));
+      queued.add(writer.submit("c"));
+      queued.add(writer.submit("d"));
+      releaseFirstWrite.countDown();
+      GroupCommitWriter.await(first);
+      for (CompletableFuture<Void> future : queued) {
+        GroupCommitWriter.await(future);
+      }
+
+      // THEN
+      assertThat(batches).containsExactly(List.of("a"), List.of("b", "c", "d"));
+    }
+  }
+
+  @Test
+  void limitsBatchSize() throws Exception {
+    // GIVEN
+    var batches = new CopyOnWriteArrayList<List<String>>();
+    var releaseFirstWrite = new CountDownLatch(1);
+    try (var writer = new GroupCommitWriter<String>(
+        "test", new GroupCommitSettings(2, 0), batch -> {
+          batches.add(List.copyOf(batch));
+          try {
+            releaseFirstWrite.await();
+          } catch (InterruptedException e) {
+            throw new IOException(e);
+          }
+        })) {
+      CompletableFuture<Void> first = writer.submit("a");
+      while (batches.isEmpty()) {
+        Thread.onSpinWait();
+      }
+
+      // WHEN
+      CompletableFuture<Void> last = null;
+      for (String change : List.of("b", "c", "d")) {
+        last = writer.submit(change);
+      }
+      releaseFirstWrite.countDown();
+      GroupCommitWriter.await(first);
+      GroupCommitWriter.await(last);
+
+      // THEN
+      assertThat(batches).containsExactly(List.of("a"), List.of("b", "c"), List.of("d"));
+    }
+  }
+
+  @Test
+  void rejectsEverythingAfterFailedWrite() {
+    // GIVEN
+    var writes = new CopyOnWriteArrayList<List<String>>();
+    try (var writer = new GroupCommitWriter<String>(
+        "test", GroupCommitSettings.DEFAULT, batch -> {
+          writes.add(List.copyOf(batch));
+          throw new IOException("fsync failed");
+        })) {
+      CompletableFuture<Void> failed = writer.submit("a");
+      assertThatThrownBy(() -> GroupCommitWriter.await(failed))
+          .hasMessageContaining("Could not persist changes of test");
+
+      // WHEN
+      CompletableFuture<Void> next = writer.submit("b");
+
+      // THEN
+      assertThatThrownBy(() -> GroupCommitWriter.await(next))
+          .hasMessageContaining("Could not persist changes of test");
+      assertThat(writes).containsExactly(List.of("a"));
+    }
+  }
+
+  @Test
+  void writesQueuedChangesOnClose() {
+    // GIVEN
+    var written = new CopyOnWriteArrayList<String>();
+    var writer = new GroupCommitWriter<String>(
+        "test", new GroupCommitSettings(1024, 10_000), written::addAll);
+    CompletableFuture<Void> queued = writer.submit("a");
+
+    // WHEN
+    writer.close();
+
+    // THEN
+    GroupCommitWriter.await(queued);
+    assertThat(written).containsExactly("a");
+    assertThatThrownBy(() -> GroupCommitWriter.await(writer.submit("b")))
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,75 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IdBlockRepositoryFileImplTest {
+
+  @TempDir
+  Path storageRoot;
+
+  @Test
+  void leasesConsecutiveBlocks() {
+    // GIVEN
+    var idBlocks = new IdBlockRepositoryFileImpl(
+        new JsonToolJacksonImpl(), new UrlShortenerConfig(storageRoot));
+
+    // WHEN + THEN
+    assertThat(idBlocks.leaseBlock(100)).isEqualTo(1L);
+    assertThat(idBlocks.leaseBlock(100)).isEqualTo(101L);
+  }
+
+  @Test
+  void neverRepeatsBlocksAfterRestart() {
+    // GIVEN
+    var appConfig = new UrlShortenerConfig(storageRoot);
+    new IdBlockRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig).leaseBlock(100);
+
+    // WHEN
+    var restarted = new IdBlockRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+
+    // THEN
+    assertThat(restarted.leaseBlock(100)).isEqualTo(101L);
+  }
+
+  @Test
+  void keepsRandomScrambleKeyAfterRestart(@TempDir Path otherRoot) {
+    // GIVEN
+    var appConfig = new UrlShortenerConfig(storageRoot);
+    var idBlocks = new IdBlockRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+    idBlocks.leaseBlock(100);
+
+    // WHEN
+    var restarted = new IdBlockRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+
+    // THEN
+    assertThat(restarted.scrambleKey()).isEqualTo(idBlocks.scrambleKey());
+    var other = new IdBlockRepositoryFileImpl(
+        new JsonToolJacksonImpl(), new UrlShortenerConfig(otherRoot));
+    assertThat(other.scrambleKey()).isNotEqualTo(idBlocks.scrambleKey());
+  }
+
+  @Test
+  void readsSequenceSavedWithoutKey() throws IOException {
+    // GIVEN
+    var appConfig = new UrlShortenerConfig(storageRoot);
+    Files.writeString(storageRoot.resolve("alias-sequence.json"), "501");
+
+    // WHEN
+    var idBlocks = new IdBlockRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+    long first = idBlocks.leaseBlock(100);
+    var restarted = new IdBlockRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+
+    // THEN
+    assertThat(first).isEqualTo(501L);
+    assertThat(restarted.leaseBlock(100)).isEqualTo(601L);
+    assertThat(restarted.scrambleKey()).isEqualTo(idBlocks.scrambleKey());
+  }
+}
@@ -0,0 +1,138 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.JournalSettings;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalCompactorTest {
+
+  @TempDir
+  Path storageRoot;
+
+  @Test
+  void doesNotCompactBelowThresholds() {
+    // GIVEN
+    var snapshots = new AtomicInteger();
+    var settings = JournalSettings.ENABLED.withSnapshotThresholds(1024, 3);
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {});
+        var compactor = new JournalCompactor("test", journal, settings, snapshots::incrementAndGet)) {
+      journal.append(new byte[10]);
+      journal.append(new byte[10]);
+
+      // WHEN
+      boolean compacted = compactor.compactIfNeeded();
+
+      // THEN
+      assertThat(compacted).isFalse();
+      assertThat(snapshots.get()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  void compactsAfterRecordThreshold() throws IOException {
+    // GIVEN
+    var snapshots = new AtomicInteger();
+    var settings = JournalSettings.ENABLED.withSnapshotThresholds(1024, 3);
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {});
+        var compactor = new JournalCompactor("test", journal, settings, snapshots::incrementAndGet)) {
+      journal.append(new byte[10]);
+      journal.append(new byte[10]);
+      journal.append(new byte[10]);
+
+      // WHEN
+      boolean compacted = compactor.compactIfNeeded();
+
+      // THEN
+      assertThat(compacted).isTrue();
+      assertThat(snapshots.get()).isEqualTo(1);
+      assertThat(journal.recordsSinceSeal()).isEqualTo(0L);
+      assertThat(countSegments()).isEqualTo(1L);
+    }
+  }
+
+  @Test
+  void compactsAfterByteThreshold() {
+    // GIVEN
+    var snapshots = new AtomicInteger();
+    var settings = JournalSettings.ENABLED.withSnapshotThresholds(100, 1000);
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {});
+        var compactor = new JournalCompactor("test", journal, settings, snapshots::incrementAndGet)) {
+      journal.append(new byte[100]);
+
+      // WHEN
+      boolean compacted = compactor.compactIfNeeded();
+
+      // THEN
+      assertThat(compacted).isTrue();
+      assertThat(snapshots.get()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void keepsSegmentsIfSnapshotFails() throws IOException {
+    // GIVEN
+    var settings = JournalSettings.ENABLED.withSnapshotThresholds(1, 1);
+    Runnable failingSnapshot = () -> {
+      throw new RuntimeException("disk is full");
+    };
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {});
+        var compactor = new JournalCompactor("test", journal, settings, failingSnapshot)) {
+      journal.append(new byte[10]);
+
+      // WHEN
+      boolean compacted = compactor.compactIfNeeded();
+
+      // THEN
+      assertThat(compacted).isFalse();
+      assertThat(countSegments()).isEqualTo(2L);
+    }
+  }
+
+  @Test
+  void doesNotCompactWithoutThresholds() {
+    // GIVEN
+    var snapshots = new AtomicInteger();
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {});
+        var compactor = new JournalCompactor(
+            "test", journal, JournalSettings.DISABLED, snapshots::incrementAndGet)) {
+      journal.append(new byte[10]);
+
+      // WHEN
+      boolean compacted = compactor.compactIfNeeded();
+
+      // THEN
+      assertThat(compacted).isFalse();
+      assertThat(snapshots.get()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  void doesNotCompactEmptyJournal() {
+    // GIVEN
+    var snapshots = new AtomicInteger();
+    var settings = JournalSettings.ENABLED.withSnapshotThresholds(1, 1);
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {});
+        var compactor = new JournalCompactor("test", journal, settings, snapshots::incrementAndGet)) {
+
+      // WHEN
+      boolean compacted = compactor.compactIfNeeded();
+
+      // THEN
+      assertThat(compacted).isFalse();
+      assertThat(snapshots.get()).isEqualTo(0);
+    }
+  }
+
+  private long countSegments() throws IOException {
+    try (Stream<Path> files = Files.list(storageRoot)) {
+      return files.filter(file -> file.toString().endsWith(".log")).count();
+    }
+  }
+}
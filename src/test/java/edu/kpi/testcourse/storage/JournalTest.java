@@ -0,0 +1,122 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTest {
+
+  @TempDir
+  Path storageRoot;
+
+  @Test
+  void replaysRecordsInAppendOrder() {
+    // GIVEN
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {})) {
+      journal.append(bytes("first"));
+      journal.append(bytes("second"));
+    }
+
+    // WHEN
+    List<String> replayed = replay();
+
+    // THEN
+    assertThat(replayed).containsExactly("first", "second");
+  }
+
+  @Test
+  void appendsAfterReopening() {
+    // GIVEN
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {})) {
+      journal.append(bytes("first"));
+    }
+
+    // WHEN
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {})) {
+      journal.append(bytes("second"));
+    }
+
+    // THEN
+    assertThat(replay()).containsExactly("first", "second");
+  }
+
+  @Test
+  void dropsTornRecordAtTheEnd() throws IOException {
+    // GIVEN
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {})) {
+      journal.append(bytes("first"));
+      journal.append(bytes("second"));
+    }
+    Path segment = storageRoot.resolve("test.000000000001.log");
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 2);
+    }
+
+    // WHEN
+    List<String> replayed = replay();
+
+    // THEN
+    assertThat(replayed).containsExactly("first");
+    assertThat(Files.size(segment)).isEqualTo(8L + "first".length());
+  }
+
+  @Test
+  void rejectsDamagedRecordInTheMiddle() throws IOException {
+    // GIVEN
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {})) {
+      journal.append(bytes("first"));
+    }
+    Path segment = storageRoot.resolve("test.000000000001.log");
+    byte[] content = Files.readAllBytes(segment);
+    content[content.length - 1] ^= 1;
+    Files.write(segment, content);
+    Files.write(storageRoot.resolve("test.000000000002.log"), new byte[0]);
+
+    // WHEN + THEN
+    assertThatThrownBy(this::replay).isInstanceOf(Journal.JournalCorrupted.class);
+  }
+
+  @Test
+  void keepsConcurrentAppendsInQueueOrder() {
+    // GIVEN
+    var futures = new ArrayList<CompletableFuture<Void>>();
+    var expected = new ArrayList<String>();
+    try (Journal journal = Journal.open(storageRoot, "test", payload -> {})) {
+      // WHEN
+      for (int i = 0; i < 500; i++) {
+        expected.add("record-" + i);
+        futures.add(journal.appendAsync(bytes("record-" + i)));
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+      // THEN
+      assertThat(journal.recordsSinceSeal()).isEqualTo(500L);
+    }
+    assertThat(replay()).containsExactly(expected.toArray());
+  }
+
+  private List<String> replay() {
+    var replayed = new ArrayList<String>();
+    Journal.open(storageRoot, "test", payload -> replayed.add(string(payload))).close();
+    return replayed;
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String string(byte[] bytes) {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
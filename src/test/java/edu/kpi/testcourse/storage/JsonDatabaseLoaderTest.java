@@ -0,0 +1,99 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.entities.User;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonTool;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JsonDatabaseLoaderTest {
+
+  @TempDir
+  Path storageRoot;
+
+  JsonTool jsonTool = new JsonToolJacksonImpl();
+
+  @Test
+  void loadsBothFiles() throws IOException {
+    // GIVEN
+    Map<String, User> users = new HashMap<>();
+    users.put("aaa@bbb.com", new User("aaa@bbb.com", "hash"));
+    Map<String, UrlAlias> aliases = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      aliases.put("short" + i, new UrlAlias("short" + i, "http://g.com/long" + i, "aaa@bbb.com"));
+    }
+    Files.writeString(storageRoot.resolve("user-repository.json"), jsonTool.toJson(users));
+    Files.writeString(storageRoot.resolve("alias-repository.json"), jsonTool.toJson(aliases));
+
+    // WHEN
+    var loader = new JsonDatabaseLoader(jsonTool, new UrlShortenerConfig(storageRoot));
+
+    // THEN
+    assertThat(loader.takeUsers()).isEqualTo(users);
+    assertThat(loader.takeAliases()).isEqualTo(aliases);
+  }
+
+  @Test
+  void returnsNullForMissingFile() {
+    // WHEN
+    var loader = new JsonDatabaseLoader(jsonTool, new UrlShortenerConfig(storageRoot));
+
+    // THEN
+    assertThat(loader.takeUsers()).isNull();
+    assertThat(loader.takeAliases()).isNull();
+  }
+
+  @Test
+  void handsResultOverOnlyOnce() throws IOException {
+    // GIVEN
+    Files.writeString(storageRoot.resolve("user-repository.json"), "{}");
+    var loader = new JsonDatabaseLoader(jsonTool, new UrlShortenerConfig(storageRoot));
+    loader.takeUsers();
+
+    // WHEN + THEN
+    assertThatThrownBy(loader::takeUsers).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void reportsDamagedFile() throws IOException {
+    // GIVEN
+    Files.writeString(storageRoot.resolve("alias-repository.json"), "{\"short\": {\"alias\": ");
+
+    // WHEN
+    var loader = new JsonDatabaseLoader(jsonTool, new UrlShortenerConfig(storageRoot));
+
+    // THEN
+    assertThatThrownBy(loader::takeAliases).isInstanceOf(JsonTool.JsonParsingError.class);
+  }
+
+  @Test
+  void feedsRepositories() throws IOException {
+    // GIVEN
+    Files.writeString(storageRoot.resolve("user-repository.json"), "{}");
+    Files.writeString(storageRoot.resolve("alias-repository.json"),
+        "{\"old\":{\"alias\":\"old\",\"destinationUrl\":\"http://g.com/old\",\"email\":\"a@b.com\"}}");
+    UrlShortenerConfig appConfig = new UrlShortenerConfig(storageRoot);
+    var loader = new JsonDatabaseLoader(jsonTool, appConfig);
+
+    // WHEN
+    var users = new UserRepositoryFileImpl(jsonTool, appConfig, loader);
+    var urls = new UrlRepositoryFileImpl(jsonTool, appConfig, loader);
+
+    // THEN
+    assertThat(users.findUser("a@b.com")).isNull();
+    assertThat(urls.getAllAliasesForUser("a@b.com"))
+        .containsExactly(new UrlAlias("old", "http://g.com/old", "a@b.com"));
+    users.close();
+    urls.close();
+  }
+}
@@ -0,0 +1,94 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedAliasIndexTest {
+
+  @TempDir
+  Path storageRoot;
+
+  @Test
+  void findsWrittenAliases() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias(
+        "\u043a\u043e\u0440\u043e\u0442\u043a\u043e",
+        "http://g.com/\u0434\u043e\u0432\u0433\u043e",
+        "bbb@ccc.com"
+    );
+    Path file = storageRoot.resolve("index.bin");
+
+    // WHEN
+    MappedAliasIndex.write(file, 2, List.of(alias1, alias2).iterator());
+    MappedAliasIndex index = MappedAliasIndex.open(file);
+
+    // THEN
+    assertThat(index.size()).isEqualTo(2L);
+    assertThat(index.find("short1")).isEqualTo(alias1);
+    assertThat(index.find("\u043a\u043e\u0440\u043e\u0442\u043a\u043e")).isEqualTo(alias2);
+    assertThat(index.find("short2")).isNull();
+  }
+
+  @Test
+  void opensEmptyIndex() {
+    // GIVEN
+    Path file = storageRoot.resolve("index.bin");
+
+    // WHEN
+    MappedAliasIndex.write(file, 0, Collections.emptyIterator());
+    MappedAliasIndex index = MappedAliasIndex.open(file);
+
+    // THEN
+    assertThat(index.find("short")).isNull();
+    assertThat(index.stream().count()).isEqualTo(0L);
+  }
+
+  @Test
+  void keepsRecordsWithinSmallRegions() {
+    // GIVEN
+    List<UrlAlias> aliases = IntStream.range(0, 2000)
+        .mapToObj(i -> new UrlAlias("alias" + i, "http://g.com/" + "x".repeat(i % 97), "a@b.com"))
+        .collect(Collectors.toList());
+    Path file = storageRoot.resolve("index.bin");
+
+    // WHEN
+    MappedAliasIndex.write(file, aliases.size(), aliases.iterator(), 12);
+    MappedAliasIndex index = MappedAliasIndex.open(file);
+
+    // THEN
+    for (UrlAlias alias : aliases) {
+      assertThat(index.find(alias.alias())).isEqualTo(alias);
+    }
+    var scanned = new ArrayList<UrlAlias>();
+    index.forEach(scanned::add);
+    assertThat(scanned).isEqualTo(aliases);
+    assertThat(index.stream().collect(Collectors.toList())).isEqualTo(aliases);
+  }
+
+  @Test
+  void keepsExpiryOfAliases() {
+    // GIVEN
+    UrlAlias expiring = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com", 1234L);
+    UrlAlias lasting = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    Path file = storageRoot.resolve("index.bin");
+
+    // WHEN
+    MappedAliasIndex.write(file, 2, List.of(expiring, lasting).iterator());
+    MappedAliasIndex index = MappedAliasIndex.open(file);
+
+    // THEN
+    assertThat(index.find("short1")).isEqualTo(expiring);
+    assertThat(index.find("short2")).isEqualTo(lasting);
+    assertThat(index.stream().collect(Collectors.toList())).containsExactly(expiring, lasting);
+  }
+}
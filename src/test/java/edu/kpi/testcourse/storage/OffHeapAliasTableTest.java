@@ -0,0 +1,160 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OffHeapAliasTableTest {
+
+  @TempDir
+  Path storageRoot;
+
+  @Test
+  void findsAliasesAfterGrowing() {
+    // GIVEN
+    var table = new OffHeapAliasTable(12);
+
+    // WHEN
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(table.putIfAbsent(alias(i))).isTrue();
+    }
+
+    // THEN
+    assertThat(table.size()).isEqualTo(10_000L);
+    assertThat(table.find("short0")).isEqualTo(alias(0));
+    assertThat(table.find("short9999")).isEqualTo(alias(9999));
+    assertThat(table.find("missing")).isNull();
+  }
+
+  @Test
+  void keepsFirstAliasOnPutIfAbsent() {
+    // GIVEN
+    var table = new OffHeapAliasTable(12);
+    table.putIfAbsent(new UrlAlias("short", "http://g.com/first", "aaa@bbb.com"));
+
+    // WHEN
+    boolean added = table.putIfAbsent(new UrlAlias("short", "http://g.com/second", "aaa@bbb.com"));
+
+    // THEN
+    assertThat(added).isFalse();
+    assertThat(table.find("short").destinationUrl()).isEqualTo("http://g.com/first");
+  }
+
+  @Test
+  void replacesAndRemovesAliases() {
+    // GIVEN
+    var table = new OffHeapAliasTable(12);
+    for (int i = 0; i < 100; i++) {
+      table.put(alias(i));
+    }
+
+    // WHEN
+    UrlAlias replaced = new UrlAlias("short5", "http://g.com/new", "bbb@ccc.com");
+    table.put(replaced);
+    for (int i = 0; i < 50; i++) {
+      table.remove("short" + (i * 2));
+    }
+
+    // THEN
+    assertThat(table.size()).isEqualTo(50L);
+    assertThat(table.find("short4")).isNull();
+    assertThat(table.find("short5")).isEqualTo(replaced);
+    assertThat(table.remove("short4")).isFalse();
+  }
+
+  @Test
+  void reusesDeletedSlots() {
+    // GIVEN
+    var table = new OffHeapAliasTable(12);
+
+    // WHEN
+    for (int round = 0; round < 100; round++) {
+      for (int i = 0; i < 8; i++) {
+        table.put(alias(i));
+      }
+      for (int i = 0; i < 8; i++) {
+        table.remove("short" + i);
+      }
+    }
+    table.put(alias(1));
+
+    // THEN
+    assertThat(table.size()).isEqualTo(1L);
+    assertThat(table.find("short1")).isEqualTo(alias(1));
+  }
+
+  @Test
+  void storesNonAsciiStrings() {
+    // GIVEN
+    var table = new OffHeapAliasTable(12);
+    UrlAlias alias = new UrlAlias("\u043a\u043e\u0442", "http://g.com/\u00e9", "\u00fc@bbb.com");
+
+    // WHEN
+    table.put(alias);
+
+    // THEN
+    assertThat(table.find("\u043a\u043e\u0442")).isEqualTo(alias);
+  }
+
+  @Test
+  void listsAliasesOfUser() {
+    // GIVEN
+    var table = new OffHeapAliasTable(12);
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "bbb@ccc.com");
+    UrlAlias alias3 = new UrlAlias("short3", "http://g.com/long3", "aaa@bbb.com");
+    table.put(alias1);
+    table.put(alias2);
+    table.put(alias3);
+
+    // WHEN
+    List<UrlAlias> found = new ArrayList<>();
+    table.forEachOfUser("aaa@bbb.com", found::add);
+
+    // THEN
+    assertThat(found).containsExactlyInAnyOrder(alias1, alias3);
+  }
+
+  @Test
+  void writesIndexWithLiveAliases() {
+    // GIVEN
+    var table = new OffHeapAliasTable(12);
+    for (int i = 0; i < 1000; i++) {
+      table.put(alias(i));
+    }
+    table.remove("short10");
+    Path file = storageRoot.resolve("index.bin");
+
+    // WHEN
+    table.writeIndex(file);
+
+    // THEN
+    MappedAliasIndex index = MappedAliasIndex.open(file);
+    assertThat(index.size()).isEqualTo(999L);
+    assertThat(index.find("short10")).isNull();
+    assertThat(index.find("short999")).isEqualTo(alias(999));
+    assertThat(index.stream().collect(Collectors.toList())).doesNotHaveDuplicates();
+  }
+
+  @Test
+  void rejectsTooBigAlias() {
+    // GIVEN
+    var table = new OffHeapAliasTable(8);
+
+    // WHEN + THEN
+    assertThatThrownBy(() -> table.put(
+        new UrlAlias("short", "http://g.com/" + "x".repeat(300), "aaa@bbb.com")))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static UrlAlias alias(int i) {
+    return new UrlAlias("short" + i, "http://g.com/long" + i, "user" + (i % 7) + "@bbb.com");
+  }
+}
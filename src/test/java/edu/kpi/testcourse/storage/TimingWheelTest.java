@@ -0,0 +1,79 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+  @Test
+  void handsBackKeysOnTheFirstTickAfterTheirDeadline() {
+    // GIVEN
+    var wheel = new TimingWheel(1000, 0);
+    wheel.schedule("in-1.5s", 1500);
+    wheel.schedule("in-2s", 2000);
+    wheel.schedule("in-1h", 3_600_000);
+    List<String> expired = new ArrayList<>();
+
+    // WHEN
+    wheel.advance(1999, expired::add);
+
+    // THEN
+    assertThat(expired).isEmpty();
+    wheel.advance(2000, expired::add);
+    assertThat(expired).containsExactlyInAnyOrder("in-1.5s", "in-2s");
+    wheel.advance(3_599_999, expired::add);
+    assertThat(expired).hasSize(2);
+    wheel.advance(3_600_000, expired::add);
+    assertThat(expired).hasSize(3).contains("in-1h");
+    assertThat(wheel.size()).isEqualTo(0);
+  }
+
+  @Test
+  void handsBackPastDeadlinesOnNextAdvance() {
+    // GIVEN
+    var wheel = new TimingWheel(1000, 10_000);
+    List<String> expired = new ArrayList<>();
+
+    // WHEN
+    wheel.schedule("past", 5_000);
+    wheel.advance(11_000, expired::add);
+
+    // THEN
+    assertThat(expired).containsExactly("past");
+  }
+
+  @Test
+  void neverHandsBackKeysEarlyOrLateAcrossLevels() {
+    // GIVEN
+    var wheel = new TimingWheel(1, 0);
+    var random = new Random(42);
+    long[] deadlines = new long[2000];
+    for (int i = 0; i < deadlines.length; i++) {
+      deadlines[i] = 1 + random.nextInt(1 << 20);
+      wheel.schedule(String.valueOf(i), deadlines[i]);
+    }
+    long[] now = {0};
+    List<String> late = new ArrayList<>();
+    int[] handedBack = {0};
+
+    // WHEN
+    for (now[0] = 1; now[0] <= 1 << 20; now[0] += 1 + random.nextInt(500)) {
+      wheel.advance(now[0], key -> {
+        handedBack[0]++;
+        long deadline = deadlines[Integer.parseInt(key)];
+        if (deadline > now[0] || deadline <= now[0] - 500) {
+          late.add(key);
+        }
+      });
+    }
+    wheel.advance(1 << 20, key -> handedBack[0]++);
+
+    // THEN
+    assertThat(late).isEmpty();
+    assertThat(handedBack[0]).isEqualTo(deadlines.length);
+  }
+}
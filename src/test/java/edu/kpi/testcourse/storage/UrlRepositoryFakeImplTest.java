@@ -5,6 +5,14 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 
 import edu.kpi.testcourse.entities.UrlAlias;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 class UrlRepositoryFakeImplTest {
@@ -82,4 +90,120 @@ class UrlRepositoryFakeImplTest {
     // THEN
     assertThat(repo.getAllAliasesForUser("aaa@bbb.com")).containsExactlyInAnyOrder(alias1, alias2);
   }
+
+  @Test
+  void shouldNotListDeletedAliases() {
+    // GIVEN
+    UrlRepository repo = new UrlRepositoryFakeImpl();
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    repo.createUrlAlias(alias1);
+    repo.createUrlAlias(alias2);
+
+    // WHEN
+    repo.deleteUrlAlias("aaa@bbb.com", "short1");
+
+    // THEN
+    assertThat(repo.getAllAliasesForUser("aaa@bbb.com")).containsExactly(alias2);
+  }
+
+  @Test
+  void shouldLetOnlyOneOfConcurrentCreatesOfSameAliasSucceed() throws Exception {
+    // GIVEN
+    UrlRepository repo = new UrlRepositoryFakeImpl();
+    int threads = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger created = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+
+    // WHEN
+    for (int i = 0; i < threads; i++) {
+      UrlAlias alias = new UrlAlias("short", "http://g.com/long" + i, "user" + i + "@bbb.com");
+      futures.add(executor.submit(() -> {
+        start.await();
+        try {
+          repo.createUrlAlias(alias);
+          created.incrementAndGet();
+        } catch (UrlRepository.AliasAlreadyExist e) {
+          // Another thread won.
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    // THEN
+    assertThat(created.get()).isEqualTo(1);
+    UrlAlias winner = repo.findUrlAlias("short");
+    assertThat(repo.getAllAliasesForUser(winner.email())).containsExactly(winner);
+  }
+
+  @Test
+  void shouldKeepAllAliasesCreatedConcurrently() throws Exception {
+    // GIVEN
+    UrlRepository repo = new UrlRepositoryFakeImpl();
+    int threads = 8;
+    int aliasesPerThread = 1000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+
+    // WHEN
+    for (int t = 0; t < threads; t++) {
+      int thread = t;
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < aliasesPerThread; i++) {
+          repo.createUrlAlias(
+              new UrlAlias(thread + "-" + i, "http://g.com/long", "aaa@bbb.com"));
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    // THEN
+    assertThat(repo.getAllAliasesForUser("aaa@bbb.com")).hasSize(threads * aliasesPerThread);
+    assertThat(repo.findUrlAlias("7-999")).isNotNull();
+  }
+
+  @Test
+  void shouldListUserAliasesPageByPage() {
+    // GIVEN
+    UrlRepository repo = new UrlRepositoryFakeImpl();
+    for (String alias : List.of("e", "a", "d", "c", "b")) {
+      repo.createUrlAlias(new UrlAlias(alias, "http://g.com/" + alias, "aaa@bbb.com"));
+    }
+    repo.createUrlAlias(new UrlAlias("bb", "http://g.com/bb", "bbb@ccc.com"));
+
+    // WHEN
+    UrlRepository.Page page1 = repo.getAliasesForUser("aaa@bbb.com", null, 2);
+    UrlRepository.Page page2 = repo.getAliasesForUser("aaa@bbb.com", page1.nextCursor(), 2);
+    UrlRepository.Page page3 = repo.getAliasesForUser("aaa@bbb.com", page2.nextCursor(), 2);
+
+    // THEN
+    assertThat(page1.aliases().stream().map(UrlAlias::alias).collect(Collectors.toList()))
+        .containsExactly("a", "b");
+    assertThat(page2.aliases().stream().map(UrlAlias::alias).collect(Collectors.toList()))
+        .containsExactly("c", "d");
+    assertThat(page3.aliases().stream().map(UrlAlias::alias).collect(Collectors.toList()))
+        .containsExactly("e");
+    assertThat(page3.nextCursor()).isNull();
+  }
+
+  @Test
+  void shouldRejectNonPositivePageLimit() {
+    // GIVEN
+    UrlRepository repo = new UrlRepositoryFakeImpl();
+
+    // WHEN + THEN
+    assertThatThrownBy(() -> repo.getAliasesForUser("aaa@bbb.com", null, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
 }
@@ -0,0 +1,141 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.logic.UrlShortenerConfig.JournalSettings;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UrlRepositoryFileImplJournalTest {
+
+  @TempDir
+  Path storageRoot;
+
+  UrlShortenerConfig appConfig;
+  UrlRepositoryFileImpl urlRepository;
+
+  @BeforeEach
+  void setUp() {
+    appConfig = new UrlShortenerConfig(storageRoot).withJournal(JournalSettings.ENABLED);
+    urlRepository = new UrlRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+  }
+
+  @AfterEach
+  void tearDown() {
+    urlRepository.close();
+  }
+
+  @Test
+  void doesNotRewriteJsonFile() {
+    // WHEN
+    urlRepository.createUrlAlias(new UrlAlias("short", "http://g.com/long", "aaa@bbb.com"));
+
+    // THEN
+    assertThat(Files.exists(storageRoot.resolve("alias-repository.json"))).isFalse();
+  }
+
+  @Test
+  void restoresAliasesCreatedInBulk() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    UrlAlias duplicate = new UrlAlias("short1", "http://g.com/long3", "aaa@bbb.com");
+
+    // WHEN
+    boolean[] created = urlRepository.createUrlAliases(List.of(alias1, alias2, duplicate));
+    reopen();
+
+    // THEN
+    assertThat(created).containsExactly(true, true, false);
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com"))
+        .containsExactlyInAnyOrder(alias1, alias2);
+  }
+
+  @Test
+  void rollsBackAliasesCreatedInBulkThatFailedToPersist() {
+    // GIVEN
+    UrlAlias alias = new UrlAlias("short", "http://g.com/long", "aaa@bbb.com");
+    urlRepository.close();
+
+    // WHEN
+    assertThatThrownBy(() -> urlRepository.createUrlAliases(List.of(alias)))
+        .isInstanceOf(IllegalStateException.class);
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short")).isNull();
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).isEmpty();
+  }
+
+  @Test
+  void restoresAliasesFromJournal() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    urlRepository.createUrlAlias(alias1);
+    urlRepository.createUrlAlias(alias2);
+    urlRepository.deleteUrlAlias("aaa@bbb.com", "short1");
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short1")).isNull();
+    assertThat(urlRepository.findUrlAlias("short2")).isEqualTo(alias2);
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactly(alias2);
+  }
+
+  @Test
+  void replaysJournalOnTopOfJsonFile() throws IOException {
+    // GIVEN
+    Files.writeString(
+        storageRoot.resolve("alias-repository.json"),
+        "{\"old\":{\"alias\":\"old\",\"destinationUrl\":\"http://g.com/old\",\"email\":\"aaa@bbb.com\"}}"
+    );
+    reopen();
+    UrlAlias alias = new UrlAlias("new", "http://g.com/new", "aaa@bbb.com");
+    urlRepository.createUrlAlias(alias);
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactlyInAnyOrder(
+        new UrlAlias("old", "http://g.com/old", "aaa@bbb.com"),
+        alias
+    );
+  }
+
+  @Test
+  void restoresAliasesAfterCompaction() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    urlRepository.createUrlAlias(alias1);
+    urlRepository.compact();
+    urlRepository.createUrlAlias(alias2);
+    urlRepository.deleteUrlAlias("aaa@bbb.com", "short1");
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(Files.exists(storageRoot.resolve("alias-repository.json"))).isTrue();
+    assertThat(Files.exists(storageRoot.resolve("alias-repository.000000000001.log"))).isFalse();
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactly(alias2);
+  }
+
+  private void reopen() {
+    urlRepository.close();
+    urlRepository = new UrlRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+  }
+}
@@ -112,4 +112,19 @@ public class UrlRepositoryFileImplTest {
     // THEN
     assertThat(urlRepository.getAllAliasesForUser("bbb@ccc.com")).isEmpty();
   }
+
+  @Test
+  void shouldNotListDeletedAliases() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("http://r.com/short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("http://r.com/short2", "http://g.com/long2", "aaa@bbb.com");
+    urlRepository.createUrlAlias(alias1);
+    urlRepository.createUrlAlias(alias2);
+
+    // WHEN
+    urlRepository.deleteUrlAlias("aaa@bbb.com", "http://r.com/short1");
+
+    // THEN
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactly(alias2);
+  }
 }
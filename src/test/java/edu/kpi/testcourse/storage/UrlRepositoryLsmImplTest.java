@@ -0,0 +1,231 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.MutableClock;
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UrlRepositoryLsmImplTest {
+
+  private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+  @TempDir
+  Path storageRoot;
+
+  UrlShortenerConfig appConfig;
+  MutableClock clock = new MutableClock(START);
+  UrlRepositoryLsmImpl urlRepository;
+
+  @BeforeEach
+  void setUp() {
+    appConfig = new UrlShortenerConfig(storageRoot);
+    urlRepository = new UrlRepositoryLsmImpl(new JsonToolJacksonImpl(), appConfig, clock);
+  }
+
+  @AfterEach
+  void tearDown() {
+    urlRepository.close();
+  }
+
+  @Test
+  void shouldNotAllowToCreateSameAliases() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("short", "http://g.com/long1", "aaa@bbb.com"));
+
+    // WHEN + THEN
+    UrlAlias alias2 = new UrlAlias("short", "http://g.com/long2", "aaa@bbb.com");
+    assertThatThrownBy(() -> urlRepository.createUrlAlias(alias2))
+        .isInstanceOf(UrlRepository.AliasAlreadyExist.class);
+  }
+
+  @Test
+  void shouldNotDeleteAliasOfAnotherUser() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("short", "http://g.com/long", "aaa@bbb.com"));
+
+    // WHEN + THEN
+    assertThatThrownBy(() -> urlRepository.deleteUrlAlias("bbb@ccc.com", "short"))
+        .isInstanceOf(UrlRepository.PermissionDenied.class);
+    assertThat(urlRepository.findUrlAlias("short")).isNotNull();
+  }
+
+  @Test
+  void listsAliasesOfUserInCreationOrder() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("zzz", "http://g.com/1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("aaa", "http://g.com/2", "aaa@bbb.com");
+    UrlAlias alias3 = new UrlAlias("mmm", "http://g.com/3", "aaa@bbb.com");
+    createAt(alias1, 1);
+    createAt(alias2, 2);
+    urlRepository.compact();
+    createAt(alias3, 3);
+    createAt(new UrlAlias("other", "http://g.com/4", "aaa@bbb.co"), 4);
+
+    // WHEN
+    urlRepository.deleteUrlAlias("aaa@bbb.com", "aaa");
+
+    // THEN
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactly(alias1, alias3);
+  }
+
+  @Test
+  void findsAliasesByPrefix() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("promo-b", "http://g.com/1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("promo-a", "http://g.com/2", "bbb@ccc.com");
+    UrlAlias alias3 = new UrlAlias("promo-c", "http://g.com/3", "bbb@ccc.com");
+    urlRepository.createUrlAlias(alias1);
+    urlRepository.createUrlAlias(alias2);
+    urlRepository.compact();
+    urlRepository.createUrlAlias(alias3);
+    urlRepository.createUrlAlias(new UrlAlias("prom", "http://g.com/4", "aaa@bbb.com"));
+
+    // WHEN + THEN
+    assertThat(urlRepository.findAliasesByPrefix("promo-", 10))
+        .containsExactly(alias2, alias1, alias3);
+    assertThat(urlRepository.findAliasesByPrefix("promo-", 2)).containsExactly(alias2, alias1);
+  }
+
+  @Test
+  void findsAliasesCreatedAfterMoment() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/2", "aaa@bbb.com");
+    UrlAlias alias3 = new UrlAlias("short3", "http://g.com/3", "bbb@ccc.com");
+    createAt(alias1, 1);
+    createAt(alias2, 2);
+    createAt(alias3, 3);
+
+    // WHEN + THEN
+    assertThat(urlRepository.findAliasesCreatedAfter(START.plusSeconds(1), 10))
+        .containsExactly(alias2, alias3);
+    assertThat(urlRepository.findAliasesCreatedAfter(START, 1)).containsExactly(alias1);
+  }
+
+  @Test
+  void restoresAliasesAfterReopen() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    urlRepository.createUrlAlias(alias1);
+    urlRepository.compact();
+    urlRepository.createUrlAlias(alias2);
+    urlRepository.deleteUrlAlias("aaa@bbb.com", "short1");
+
+    // WHEN
+    urlRepository.close();
+    urlRepository = new UrlRepositoryLsmImpl(new JsonToolJacksonImpl(), appConfig, clock);
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short1")).isNull();
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactly(alias2);
+  }
+
+  @Test
+  void createsAliasesInBulk() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("taken", "http://g.com/taken", "bbb@ccc.com"));
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+
+    // WHEN
+    boolean[] created = urlRepository.createUrlAliases(List.of(
+        alias1, new UrlAlias("taken", "http://g.com/long", "aaa@bbb.com"), alias2,
+        new UrlAlias("short1", "http://g.com/long3", "aaa@bbb.com")));
+    urlRepository.close();
+    urlRepository = new UrlRepositoryLsmImpl(new JsonToolJacksonImpl(), appConfig, clock);
+
+    // THEN
+    assertThat(created).containsExactly(true, false, true, false);
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactly(alias1, alias2);
+  }
+
+  @Test
+  void importsJsonFileOnFirstStart() throws IOException {
+    // GIVEN
+    urlRepository.close();
+    Path otherRoot = Files.createDirectories(storageRoot.resolve("other"));
+    UrlAlias alias = new UrlAlias("short", "http://g.com/long", "aaa@bbb.com");
+    Files.writeString(otherRoot.resolve("alias-repository.json"),
+        new JsonToolJacksonImpl().toJson(Map.of("short", alias)));
+
+    // WHEN
+    urlRepository = new UrlRepositoryLsmImpl(
+        new JsonToolJacksonImpl(), appConfig.withStorageRoot(otherRoot), clock);
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short")).isEqualTo(alias);
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactly(alias);
+    assertThat(Files.exists(otherRoot.resolve("alias-lsm.import"))).isFalse();
+  }
+
+  @Test
+  void listsAliasesOfUserPageByPageInCreationOrder() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("zzz", "http://g.com/1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("aaa", "http://g.com/2", "aaa@bbb.com");
+    UrlAlias alias3 = new UrlAlias("mmm", "http://g.com/3", "aaa@bbb.com");
+    createAt(alias1, 1);
+    createAt(alias2, 2);
+    urlRepository.compact();
+    createAt(alias3, 3);
+    createAt(new UrlAlias("other", "http://g.com/4", "aaa@bbb.co"), 4);
+
+    // WHEN
+    UrlRepository.Page page1 = urlRepository.getAliasesForUser("aaa@bbb.com", null, 2);
+    UrlRepository.Page page2 =
+        urlRepository.getAliasesForUser("aaa@bbb.com", page1.nextCursor(), 2);
+
+    // THEN
+    assertThat(page1.aliases()).containsExactly(alias1, alias2);
+    assertThat(page2.aliases()).containsExactly(alias3);
+    assertThat(page2.nextCursor()).isNull();
+  }
+
+  @Test
+  void rejectsMalformedCursor() {
+    // WHEN + THEN
+    assertThatThrownBy(() -> urlRepository.getAliasesForUser("aaa@bbb.com", "not base64!", 10))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void keepsExpiryOfAliases() {
+    // GIVEN
+    long expiresAt = START.plus(Duration.ofMinutes(5)).toEpochMilli();
+    UrlAlias expiring = new UrlAlias("short1", "http://g.com/1", "aaa@bbb.com", expiresAt);
+    createAt(expiring, 1);
+    createAt(new UrlAlias("short2", "http://g.com/2", "aaa@bbb.com"), 2);
+    urlRepository.compact();
+
+    // WHEN
+    clock.now = START.plus(Duration.ofMinutes(5));
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short1")).isNull();
+    assertThat(urlRepository.findUrlAlias("short2")).isNotNull();
+    assertThat(urlRepository.deleteExpiredAlias("short1", expiresAt - 1)).isFalse();
+    assertThat(urlRepository.deleteExpiredAlias("short1", expiresAt)).isTrue();
+    clock.now = START;
+    assertThat(urlRepository.findUrlAlias("short1")).isNull();
+  }
+
+  private void createAt(UrlAlias urlAlias, long secondsAfterStart) {
+    clock.now = START.plus(Duration.ofSeconds(secondsAfterStart));
+    urlRepository.createUrlAlias(urlAlias);
+  }
+}
@@ -0,0 +1,141 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.logic.UrlShortenerConfig.JournalSettings;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UrlRepositoryMappedImplTest {
+
+  @TempDir
+  Path storageRoot;
+
+  UrlShortenerConfig appConfig;
+  UrlRepositoryMappedImpl urlRepository;
+
+  @BeforeEach
+  void setUp() {
+    appConfig = new UrlShortenerConfig(storageRoot).withJournal(JournalSettings.ENABLED);
+    urlRepository = new UrlRepositoryMappedImpl(new JsonToolJacksonImpl(), appConfig);
+  }
+
+  @AfterEach
+  void tearDown() {
+    urlRepository.close();
+  }
+
+  @Test
+  void shouldCreateAlias() {
+    // WHEN
+    UrlAlias alias = new UrlAlias("short", "http://g.com/long", "aaa@bbb.com");
+    urlRepository.createUrlAlias(alias);
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short")).isEqualTo(alias);
+  }
+
+  @Test
+  void shouldNotAllowToCreateSameAliasesAfterCompaction() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("short", "http://g.com/long1", "aaa@bbb.com"));
+    urlRepository.compact();
+
+    // WHEN + THEN
+    UrlAlias alias2 = new UrlAlias("short", "http://g.com/long2", "aaa@bbb.com");
+    assertThatThrownBy(() -> urlRepository.createUrlAlias(alias2))
+        .isInstanceOf(UrlRepository.AliasAlreadyExist.class);
+  }
+
+  @Test
+  void shouldDeleteCompactedAlias() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("short", "http://g.com/long", "aaa@bbb.com"));
+    urlRepository.compact();
+
+    // WHEN
+    urlRepository.deleteUrlAlias("aaa@bbb.com", "short");
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short")).isNull();
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).isEmpty();
+  }
+
+  @Test
+  void shouldNotDeleteAliasOfAnotherUser() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("short", "http://g.com/long", "aaa@bbb.com"));
+
+    // WHEN + THEN
+    assertThatThrownBy(() -> urlRepository.deleteUrlAlias("bbb@ccc.com", "short"))
+        .isInstanceOf(UrlRepository.PermissionDenied.class);
+  }
+
+  @Test
+  void shouldGetAllUserAliasesFromIndexAndJournal() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    UrlAlias alias3 = new UrlAlias("short3", "http://g.com/long3", "bbb@ccc.com");
+    urlRepository.createUrlAlias(alias1);
+    urlRepository.createUrlAlias(alias3);
+    urlRepository.compact();
+
+    // WHEN
+    urlRepository.createUrlAlias(alias2);
+
+    // THEN
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com"))
+        .containsExactlyInAnyOrder(alias1, alias2);
+  }
+
+  @Test
+  void restoresAliasesAfterRestart() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    urlRepository.createUrlAlias(alias1);
+    urlRepository.compact();
+    urlRepository.createUrlAlias(alias2);
+    urlRepository.deleteUrlAlias("aaa@bbb.com", "short1");
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short1")).isNull();
+    assertThat(urlRepository.findUrlAlias("short2")).isEqualTo(alias2);
+  }
+
+  @Test
+  void convertsJsonDatabaseOnFirstStart() throws IOException {
+    // GIVEN
+    urlRepository.close();
+    Files.delete(storageRoot.resolve("alias-index.bin"));
+    Files.writeString(
+        storageRoot.resolve("alias-repository.json"),
+        "{\"old\":{\"alias\":\"old\",\"destinationUrl\":\"http://g.com/old\",\"email\":\"aaa@bbb.com\"}}"
+    );
+
+    // WHEN
+    urlRepository = new UrlRepositoryMappedImpl(new JsonToolJacksonImpl(), appConfig);
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("old"))
+        .isEqualTo(new UrlAlias("old", "http://g.com/old", "aaa@bbb.com"));
+  }
+
+  private void reopen() {
+    urlRepository.close();
+    urlRepository = new UrlRepositoryMappedImpl(new JsonToolJacksonImpl(), appConfig);
+  }
+}
@@ -0,0 +1,153 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UrlRepositoryOffHeapImplTest {
+
+  @TempDir
+  Path storageRoot;
+
+  UrlShortenerConfig appConfig;
+  UrlRepositoryOffHeapImpl urlRepository;
+
+  @BeforeEach
+  void setUp() {
+    appConfig = new UrlShortenerConfig(storageRoot);
+    urlRepository = new UrlRepositoryOffHeapImpl(new JsonToolJacksonImpl(), appConfig);
+  }
+
+  @AfterEach
+  void tearDown() {
+    urlRepository.close();
+  }
+
+  @Test
+  void shouldNotAllowToCreateSameAliases() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("short", "http://g.com/long1", "aaa@bbb.com"));
+
+    // WHEN + THEN
+    UrlAlias alias2 = new UrlAlias("short", "http://g.com/long2", "aaa@bbb.com");
+    assertThatThrownBy(() -> urlRepository.createUrlAlias(alias2))
+        .isInstanceOf(UrlRepository.AliasAlreadyExist.class);
+  }
+
+  @Test
+  void shouldNotDeleteAliasOfAnotherUser() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("short", "http://g.com/long", "aaa@bbb.com"));
+
+    // WHEN + THEN
+    assertThatThrownBy(() -> urlRepository.deleteUrlAlias("bbb@ccc.com", "short"))
+        .isInstanceOf(UrlRepository.PermissionDenied.class);
+    assertThat(urlRepository.findUrlAlias("short")).isNotNull();
+  }
+
+  @Test
+  void restoresAliasesFromJournal() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    urlRepository.createUrlAlias(alias1);
+    urlRepository.createUrlAlias(alias2);
+    urlRepository.deleteUrlAlias("aaa@bbb.com", "short1");
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short1")).isNull();
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactly(alias2);
+  }
+
+  @Test
+  void restoresAliasesFromSnapshotAndJournal() {
+    // GIVEN
+    UrlAlias alias1 = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    UrlAlias alias2 = new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com");
+    urlRepository.createUrlAlias(alias1);
+    urlRepository.compact();
+    urlRepository.createUrlAlias(alias2);
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(Files.exists(storageRoot.resolve("alias-offheap.bin"))).isTrue();
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com"))
+        .containsExactlyInAnyOrder(alias1, alias2);
+  }
+
+  @Test
+  void importsJsonFileOnFirstStart() throws IOException {
+    // GIVEN
+    urlRepository.close();
+    Files.writeString(
+        storageRoot.resolve("alias-repository.json"),
+        "{\"old\":{\"alias\":\"old\",\"destinationUrl\":\"http://g.com/old\",\"email\":\"aaa@bbb.com\"}}"
+    );
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("old"))
+        .isEqualTo(new UrlAlias("old", "http://g.com/old", "aaa@bbb.com"));
+  }
+
+  private void reopen() {
+    urlRepository.close();
+    urlRepository = new UrlRepositoryOffHeapImpl(new JsonToolJacksonImpl(), appConfig);
+  }
+
+  @Test
+  void listsAliasesOfUserPageByPage() {
+    // GIVEN
+    for (int i = 0; i < 5; i++) {
+      urlRepository.createUrlAlias(new UrlAlias("short" + i, "http://g.com/long", "aaa@bbb.com"));
+    }
+    urlRepository.createUrlAlias(new UrlAlias("short9", "http://g.com/long", "bbb@ccc.com"));
+
+    // WHEN
+    UrlRepository.Page page1 = urlRepository.getAliasesForUser("aaa@bbb.com", null, 3);
+    UrlRepository.Page page2 =
+        urlRepository.getAliasesForUser("aaa@bbb.com", page1.nextCursor(), 3);
+
+    // THEN
+    assertThat(page1.aliases().stream().map(UrlAlias::alias).collect(Collectors.toList()))
+        .containsExactly("short0", "short1", "short2");
+    assertThat(page2.aliases().stream().map(UrlAlias::alias).collect(Collectors.toList()))
+        .containsExactly("short3", "short4");
+    assertThat(page2.nextCursor()).isNull();
+  }
+
+  @Test
+  void doesNotFindExpiredAlias() {
+    // GIVEN
+    long now = System.currentTimeMillis();
+    UrlAlias expired = new UrlAlias("short1", "http://g.com/long", "aaa@bbb.com", now - 1);
+    UrlAlias expiring = new UrlAlias("short2", "http://g.com/long", "aaa@bbb.com", now + 60_000);
+    urlRepository.createUrlAlias(expired);
+    urlRepository.createUrlAlias(expiring);
+
+    // WHEN + THEN
+    assertThat(urlRepository.findUrlAlias("short1")).isNull();
+    assertThat(urlRepository.findUrlAlias("short2")).isEqualTo(expiring);
+    assertThat(urlRepository.deleteExpiredAlias("short2", now)).isFalse();
+    assertThat(urlRepository.deleteExpiredAlias("short1", now)).isTrue();
+    urlRepository.createUrlAlias(new UrlAlias("short1", "http://g.com/other", "bbb@ccc.com"));
+  }
+}
@@ -0,0 +1,238 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import edu.kpi.testcourse.entities.UrlAlias;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.logic.UrlShortenerConfig.JournalSettings;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UrlRepositoryShardedImplTest {
+
+  @TempDir
+  Path storageRoot;
+
+  UrlShortenerConfig appConfig;
+  UrlRepositoryShardedImpl urlRepository;
+
+  @BeforeEach
+  void setUp() {
+    appConfig = new UrlShortenerConfig(storageRoot).withAliasShards(4);
+    urlRepository = new UrlRepositoryShardedImpl(new JsonToolJacksonImpl(), appConfig);
+  }
+
+  @AfterEach
+  void tearDown() {
+    urlRepository.close();
+  }
+
+  @Test
+  void spreadsAliasesOverShards() {
+    // GIVEN
+    Set<Integer> usedShards = new HashSet<>();
+
+    // WHEN
+    for (int i = 0; i < 100; i++) {
+      urlRepository.createUrlAlias(new UrlAlias("short" + i, "http://g.com/long", "aaa@bbb.com"));
+      usedShards.add(UrlRepositoryShardedImpl.shardIndex("short" + i, 4));
+    }
+
+    // THEN
+    assertThat(usedShards).hasSize(4);
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).hasSize(100);
+    assertThat(Files.exists(storageRoot.resolve("alias-shards/shard-0003/alias-repository.json")))
+        .isTrue();
+  }
+
+  @Test
+  void restoresAliasesAfterReopening() {
+    // GIVEN
+    List<UrlAlias> aliases = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      UrlAlias alias = new UrlAlias("short" + i, "http://g.com/long" + i, "aaa@bbb.com");
+      urlRepository.createUrlAlias(alias);
+      aliases.add(alias);
+    }
+    urlRepository.deleteUrlAlias("aaa@bbb.com", "short0");
+
+    // WHEN
+    reopen(appConfig);
+
+    // THEN
+    assertThat(urlRepository.findUrlAlias("short0")).isNull();
+    assertThat(urlRepository.findUrlAlias("short7")).isEqualTo(aliases.get(7));
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com"))
+        .containsExactlyInAnyOrder(aliases.subList(1, 20).toArray());
+  }
+
+  @Test
+  void createsAliasesInBulkOverShards() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("short3", "http://g.com/taken", "bbb@ccc.com"));
+    List<UrlAlias> aliases = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      aliases.add(new UrlAlias("short" + i, "http://g.com/long" + i, "aaa@bbb.com"));
+    }
+
+    // WHEN
+    boolean[] created = urlRepository.createUrlAliases(aliases);
+    reopen(appConfig);
+
+    // THEN
+    for (int i = 0; i < 20; i++) {
+      assertThat(created[i]).isEqualTo(i != 3);
+    }
+    assertThat(urlRepository.findUrlAlias("short3").email()).isEqualTo("bbb@ccc.com");
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).hasSize(19);
+  }
+
+  @Test
+  void rejectsAliasThatExistsInItsShard() {
+    // GIVEN
+    urlRepository.createUrlAlias(new UrlAlias("short", "http://g.com/long1", "aaa@bbb.com"));
+
+    // WHEN + THEN
+    assertThatThrownBy(() -> urlRepository.createUrlAlias(
+        new UrlAlias("short", "http://g.com/long2", "bbb@ccc.com")))
+        .isInstanceOf(UrlRepository.AliasAlreadyExist.class);
+  }
+
+  @Test
+  void refusesToStartWithDifferentShardCount() {
+    // GIVEN
+    urlRepository.close();
+
+    // WHEN + THEN
+    assertThatThrownBy(() -> new UrlRepositoryShardedImpl(
+        new JsonToolJacksonImpl(), appConfig.withAliasShards(8)))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("AliasResharder");
+    reopen(appConfig);
+  }
+
+  @Test
+  void keepsAllAliasesWhenResharded() {
+    // GIVEN
+    List<UrlAlias> aliases = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      UrlAlias alias = new UrlAlias("short" + i, "http://g.com/long" + i, "aaa@bbb.com");
+      urlRepository.createUrlAlias(alias);
+      aliases.add(alias);
+    }
+    urlRepository.close();
+
+    // WHEN
+    AliasResharder.reshard(new JsonToolJacksonImpl(), storageRoot, 7);
+
+    // THEN
+    reopen(appConfig.withAliasShards(7));
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com"))
+        .containsExactlyInAnyOrder(aliases.toArray());
+    assertThat(urlRepository.findUrlAlias("short42")).isEqualTo(aliases.get(42));
+    assertThat(Files.exists(storageRoot.resolve("alias-shards.old"))).isFalse();
+  }
+
+  @Test
+  void reshardsSingleFileRepository() throws Exception {
+    // GIVEN
+    urlRepository.close();
+    Path singleFileRoot = Files.createDirectory(storageRoot.resolve("single"));
+    Files.writeString(singleFileRoot.resolve("alias-repository.json"), "{}");
+    UrlShortenerConfig singleFileConfig = appConfig.withStorageRoot(singleFileRoot);
+    UrlAlias alias = new UrlAlias("short", "http://g.com/long", "aaa@bbb.com");
+    try (var single = new UrlRepositoryFileImpl(new JsonToolJacksonImpl(), singleFileConfig)) {
+      single.createUrlAlias(alias);
+    }
+
+    // WHEN
+    AliasResharder.reshard(new JsonToolJacksonImpl(), singleFileRoot, 3);
+
+    // THEN
+    reopen(singleFileConfig.withAliasShards(3));
+    assertThat(urlRepository.findUrlAlias("short")).isEqualTo(alias);
+  }
+
+  @Test
+  void readsJournaledSourceWithoutWritingToIt() throws Exception {
+    // GIVEN
+    urlRepository.close();
+    Path singleFileRoot = Files.createDirectory(storageRoot.resolve("single"));
+    UrlShortenerConfig singleFileConfig = appConfig.withStorageRoot(singleFileRoot)
+        .withJournal(JournalSettings.ENABLED);
+    UrlAlias kept = new UrlAlias("short1", "http://g.com/long1", "aaa@bbb.com");
+    try (var single = new UrlRepositoryFileImpl(new JsonToolJacksonImpl(), singleFileConfig)) {
+      single.createUrlAlias(kept);
+      single.createUrlAlias(new UrlAlias("short2", "http://g.com/long2", "aaa@bbb.com"));
+      single.deleteUrlAlias("aaa@bbb.com", "short2");
+    }
+    Map<Path, String> before = readFiles(singleFileRoot);
+
+    // WHEN
+    AliasResharder.reshard(new JsonToolJacksonImpl(), singleFileRoot, 3);
+
+    // THEN
+    Map<Path, String> after = readFiles(singleFileRoot);
+    after.keySet().removeIf(file -> file.startsWith(singleFileRoot.resolve("alias-shards")));
+    assertThat(after).isEqualTo(before);
+    reopen(appConfig.withStorageRoot(singleFileRoot).withAliasShards(3));
+    assertThat(urlRepository.getAllAliasesForUser("aaa@bbb.com")).containsExactly(kept);
+  }
+
+  private static Map<Path, String> readFiles(Path root) throws IOException {
+    var files = new HashMap<Path, String>();
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path file : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+        files.put(file, new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1));
+      }
+    }
+    return files;
+  }
+
+  private void reopen(UrlShortenerConfig config) {
+    urlRepository.close();
+    urlRepository = new UrlRepositoryShardedImpl(new JsonToolJacksonImpl(), config);
+  }
+
+  @Test
+  void listsAliasesOfAllShardsPageByPage() {
+    // GIVEN
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      String alias = String.format("short%02d", i);
+      urlRepository.createUrlAlias(new UrlAlias(alias, "http://g.com/long", "aaa@bbb.com"));
+      expected.add(alias);
+    }
+    urlRepository.createUrlAlias(new UrlAlias("other", "http://g.com/long", "bbb@ccc.com"));
+
+    // WHEN
+    List<String> listed = new ArrayList<>();
+    int pages = 0;
+    String cursor = null;
+    do {
+      UrlRepository.Page page = urlRepository.getAliasesForUser("aaa@bbb.com", cursor, 7);
+      page.aliases().forEach(alias -> listed.add(alias.alias()));
+      cursor = page.nextCursor();
+      pages++;
+    } while (cursor != null);
+
+    // THEN
+    assertThat(listed).isEqualTo(expected);
+    assertThat(pages).isEqualTo(5);
+  }
+}
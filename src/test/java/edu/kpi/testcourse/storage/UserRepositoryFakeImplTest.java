@@ -34,6 +34,22 @@ class UserRepositoryFakeImplTest {
     assertThrows(RuntimeException.class, () -> userRepository.createUser(user));
   }
 
+  @Test
+  void updatesOnlyExistingUsers() {
+    // GIVEN
+    var userRepository = new UserRepositoryFakeImpl();
+    userRepository.createUser(new User("user1@example.org", "hash1"));
+    var updated = new User("user1@example.org", "hash2");
+
+    // WHEN
+    userRepository.updateUser(updated);
+
+    // THEN
+    assertThat(userRepository.findUser("user1@example.org")).isEqualTo(updated);
+    assertThrows(RuntimeException.class,
+        () -> userRepository.updateUser(new User("user2@example.org", "hash2")));
+  }
+
   @Test
   void findsCorrectUser() {
     // GIVEN
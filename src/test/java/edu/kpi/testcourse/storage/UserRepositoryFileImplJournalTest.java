@@ -0,0 +1,82 @@
+package edu.kpi.testcourse.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.entities.User;
+import edu.kpi.testcourse.logic.UrlShortenerConfig;
+import edu.kpi.testcourse.logic.UrlShortenerConfig.JournalSettings;
+import edu.kpi.testcourse.serialization.JsonToolJacksonImpl;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UserRepositoryFileImplJournalTest {
+
+  @TempDir
+  Path storageRoot;
+
+  UrlShortenerConfig appConfig;
+  UserRepositoryFileImpl userRepository;
+
+  @BeforeEach
+  void setUp() {
+    appConfig = new UrlShortenerConfig(storageRoot).withJournal(JournalSettings.ENABLED);
+    userRepository = new UserRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+  }
+
+  @AfterEach
+  void tearDown() {
+    userRepository.close();
+  }
+
+  @Test
+  void restoresUsersFromJournal() {
+    // GIVEN
+    var user = new User("user1@example.org", "hash1");
+    userRepository.createUser(user);
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(userRepository.findUser("user1@example.org")).isEqualTo(user);
+  }
+
+  @Test
+  void restoresUsersAfterCompaction() {
+    // GIVEN
+    var user1 = new User("user1@example.org", "hash1");
+    var user2 = new User("user2@example.org", "hash2");
+    userRepository.createUser(user1);
+    userRepository.compact();
+    userRepository.createUser(user2);
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(userRepository.findUser("user1@example.org")).isEqualTo(user1);
+    assertThat(userRepository.findUser("user2@example.org")).isEqualTo(user2);
+  }
+
+  @Test
+  void restoresUpdatedUsersFromJournal() {
+    // GIVEN
+    userRepository.createUser(new User("user1@example.org", "hash1"));
+    var updated = new User("user1@example.org", "hash2");
+    userRepository.updateUser(updated);
+
+    // WHEN
+    reopen();
+
+    // THEN
+    assertThat(userRepository.findUser("user1@example.org")).isEqualTo(updated);
+  }
+
+  private void reopen() {
+    userRepository.close();
+    userRepository = new UserRepositoryFileImpl(new JsonToolJacksonImpl(), appConfig);
+  }
+}
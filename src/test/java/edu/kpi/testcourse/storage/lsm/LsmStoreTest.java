@@ -0,0 +1,168 @@
+package edu.kpi.testcourse.storage.lsm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.kpi.testcourse.logic.UrlShortenerConfig.GroupCommitSettings;
+import edu.kpi.testcourse.logic.UrlShortenerConfig.LsmSettings;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LsmStoreTest {
+
+  private static final LsmSettings SMALL = new LsmSettings(4096, 256, 1 << 20, 3, 10);
+
+  @TempDir
+  Path directory;
+
+  LsmStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = LsmStore.open(directory, SMALL, GroupCommitSettings.DEFAULT);
+  }
+
+  @AfterEach
+  void tearDown() {
+    store.close();
+  }
+
+  @Test
+  void newestValueWinsAcrossMemtableAndTables() {
+    // GIVEN
+    store.put(bytes("k1"), bytes("v1"));
+    store.put(bytes("k2"), bytes("v1"));
+    store.flush();
+
+    // WHEN
+    store.put(bytes("k1"), bytes("v2"));
+    store.delete(bytes("k2"));
+
+    // THEN
+    assertThat(string(store.get(bytes("k1")))).isEqualTo("v2");
+    assertThat(store.get(bytes("k2"))).isNull();
+    store.flush();
+    store.compact();
+    assertThat(string(store.get(bytes("k1")))).isEqualTo("v2");
+    assertThat(store.get(bytes("k2"))).isNull();
+    assertThat(store.metrics().tableCount()).isEqualTo(1);
+  }
+
+  @Test
+  void scansPrefixInKeyOrder() {
+    // GIVEN
+    store.put(bytes("b/2"), bytes("2"));
+    store.put(bytes("a/1"), bytes("1"));
+    store.flush();
+    store.put(bytes("b/1"), bytes("1"));
+    store.put(bytes("b/3"), bytes("3"));
+    store.put(bytes("c/1"), bytes("1"));
+    store.flush();
+    store.delete(bytes("b/3"));
+    store.put(bytes("b/2"), bytes("22"));
+
+    // WHEN
+    var keysAndValues = new ArrayList<String>();
+    try (LsmStore.Cursor cursor = store.scanPrefix(bytes("b/"))) {
+      cursor.forEachRemaining(
+          entry -> keysAndValues.add(string(entry.key()) + "=" + string(entry.value())));
+    }
+
+    // THEN
+    assertThat(keysAndValues).containsExactly("b/1=1", "b/2=22");
+  }
+
+  @Test
+  void scansRangeWithoutUpperBound() {
+    // GIVEN
+    for (String key : List.of("d", "a", "c", "b")) {
+      store.put(bytes(key), bytes(key));
+    }
+    store.flush();
+
+    // WHEN
+    var keys = new ArrayList<String>();
+    try (LsmStore.Cursor cursor = store.scan(bytes("b"), null)) {
+      cursor.forEachRemaining(entry -> keys.add(string(entry.key())));
+    }
+
+    // THEN
+    assertThat(keys).containsExactly("b", "c", "d");
+  }
+
+  @Test
+  void restoresTablesAndJournalAfterReopen() {
+    // GIVEN
+    store.put(bytes("flushed"), bytes("1"));
+    store.flush();
+    store.write(new WriteBatch().put(bytes("journaled"), bytes("2")).delete(bytes("flushed")));
+
+    // WHEN
+    store.close();
+    store = LsmStore.open(directory, SMALL, GroupCommitSettings.DEFAULT);
+
+    // THEN
+    assertThat(store.get(bytes("flushed"))).isNull();
+    assertThat(string(store.get(bytes("journaled")))).isEqualTo("2");
+  }
+
+  @Test
+  void flushesAndCompactsInBackground() {
+    // WHEN
+    for (int i = 0; i < 2000; i++) {
+      store.put(bytes(String.format("key%05d", i)), bytes("value" + i));
+    }
+    store.flush();
+
+    // THEN
+    LsmStore.Metrics metrics = store.metrics();
+    assertThat(metrics.flushes()).isGreaterThan(3L);
+    assertThat(metrics.compactions()).isPositive();
+    assertThat(metrics.tableCount()).isLessThan(SMALL.compactionTrigger());
+    assertThat(metrics.writeAmplification()).isGreaterThan(1.0);
+    for (int i = 0; i < 2000; i += 97) {
+      assertThat(string(store.get(bytes(String.format("key%05d", i))))).isEqualTo("value" + i);
+    }
+    assertThat(store.get(bytes("key99999"))).isNull();
+    assertThat(store.metrics().readAmplification()).isLessThanOrEqualTo(1.0);
+  }
+
+  @Test
+  void deletesLeftoverTablesAtStartup() throws IOException {
+    // GIVEN
+    store.put(bytes("key"), bytes("value"));
+    store.flush();
+    store.close();
+    Path leftover = Files.writeString(directory.resolve("00000099.sst"), "partial");
+
+    // WHEN
+    store = LsmStore.open(directory, SMALL, GroupCommitSettings.DEFAULT);
+
+    // THEN
+    assertThat(Files.exists(leftover)).isFalse();
+    assertThat(string(store.get(bytes("key")))).isEqualTo("value");
+  }
+
+  @Test
+  void findsPrefixEnd() {
+    assertThat(string(LsmStore.prefixEnd(bytes("ab")))).isEqualTo("ac");
+    assertThat(LsmStore.prefixEnd(new byte[] {(byte) 0xff})).isNull();
+    assertThat(LsmStore.prefixEnd(new byte[] {1, (byte) 0xff})).containsExactly((byte) 2);
+  }
+
+  private static byte[] bytes(String string) {
+    return string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static @Nullable String string(@Nullable byte[] bytes) {
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+}